@@ -41,4 +41,12 @@ public interface HaxeSdkAdditionalDataBase {
 
   void setRemoveCompletionDuplicatesFlag(boolean newState);
 
+  boolean getUseCompilerServerFlag();
+
+  void setUseCompilerServerFlag(boolean newState);
+
+  int getCompilerServerPort();
+
+  void setCompilerServerPort(int port);
+
 }
@@ -33,6 +33,11 @@ public class HaxeSdkAdditionalDataBaseImpl implements HaxeSdkAdditionalDataBase
   private boolean useCompilerCompletionFlag = false;
   private boolean removeCompletionDuplicatesFlag = true;
 
+  private boolean useCompilerServerFlag = false;
+  private int compilerServerPort = DEFAULT_COMPILER_SERVER_PORT;
+
+  public static final int DEFAULT_COMPILER_SERVER_PORT = 6000;
+
   public HaxeSdkAdditionalDataBaseImpl() {
   }
 
@@ -80,4 +85,20 @@ public class HaxeSdkAdditionalDataBaseImpl implements HaxeSdkAdditionalDataBase
   public void setRemoveCompletionDuplicatesFlag(boolean newState) {
     removeCompletionDuplicatesFlag = newState;
   }
+
+  public boolean getUseCompilerServerFlag() {
+    return useCompilerServerFlag;
+  }
+
+  public void setUseCompilerServerFlag(boolean newState) {
+    useCompilerServerFlag = newState;
+  }
+
+  public int getCompilerServerPort() {
+    return compilerServerPort;
+  }
+
+  public void setCompilerServerPort(int port) {
+    compilerServerPort = port > 0 && port < 65536 ? port : DEFAULT_COMPILER_SERVER_PORT;
+  }
 }
@@ -47,6 +47,9 @@ import java.util.regex.Pattern;
  * @author: Fedor.Korotkov
  */
 public class HaxeCommonCompilerUtil {
+
+  private static final int COMPILER_SERVER_CONNECT_TIMEOUT_MILLIS = 500;
+
   public interface CompilationContext {
 
     HaxeSdkAdditionalDataBase getHaxeSdkData();
@@ -121,44 +124,15 @@ public class HaxeCommonCompilerUtil {
 
     final BooleanValueHolder hasErrors = new BooleanValueHolder(false);
     try {
-      for (List<String> commandLine : commandLines) {
-
-        // Show the command line in the output window.
-        // TODO: Make a checkbox in the SDK configuration window to enable/disable showing the command line.
-        String commandLineString = HaxeCommonBundle.message("compiler.command.line", String.join(" ", commandLine));
-
-        // Output extra debug information to the console window. Note that process output, and these lines,
-        // in particular, are kept in a LinkedHashSet (internally, a HashMap).  Duplicate lines (having the
-        // same hash value) are NOT added to the set, so these will not be repeated in the output when multiple
-        // commands are run.  For this reason, the lime banner is also not repeated in the output when it runs
-        // a second time.
-        context.infoHandler(HaxeCommonBundle.message("compiler.working.path", workingPath));
-        context.infoHandler(HaxeCommonBundle.message("compiler.output.path", context.getModuleDefaultCompileOutputPath()));
-        context.infoHandler(HaxeCommonBundle.message("compiler.output.file", context.getOutputFileName()));
-
-        ProcessBuilder process = HaxeSdkUtilBase.createProcessBuilder(commandLine, workingDirectory, context.getHaxeSdkData());
-        final BaseOSProcessHandler handler = new HaxeCompilerProcessHandler(
-          context,
-          process.start(),
-          commandLineString,
-          Charset.defaultCharset()
-        );
-
-        handler.addProcessListener(new ProcessAdapter() {
-          @Override
-          public void processTerminated(ProcessEvent event) {
-            int exitcode = event.getExitCode();
-            hasErrors.setValue(exitcode != 0);
-            if (exitcode < 0) {
-              context.infoHandler(HaxeCommonBundle.message("negative.error.code.message"));
-            }
-
-            super.processTerminated(event);
-          }
-        });
-
-        handler.startNotify();
-        handler.waitFor();
+      for (List<String> generatedCommandLine : commandLines) {
+        final List<String> commandLine = useCompilerServer(context, generatedCommandLine);
+        int exitCode = runCommandLine(context, commandLine, workingPath, workingDirectory);
+        if (0 != exitCode && commandLine != generatedCommandLine && !isCompilerServerListening(context)) {
+          // The server went away between the check and the build; "--connect" can't have worked.
+          context.infoHandler(HaxeCommonBundle.message("compiler.server.lost"));
+          exitCode = runCommandLine(context, generatedCommandLine, workingPath, workingDirectory);
+        }
+        hasErrors.setValue(exitCode != 0);
       }
     }
     catch (IOException e) {
@@ -170,6 +144,52 @@ public class HaxeCommonCompilerUtil {
     return !hasErrors.getValue();
   }
 
+  /**
+   * @return the compiler's exit code.
+   */
+  private static int runCommandLine(final CompilationContext context,
+                                    List<String> commandLine,
+                                    String workingPath,
+                                    File workingDirectory) throws IOException {
+    // Show the command line in the output window.
+    // TODO: Make a checkbox in the SDK configuration window to enable/disable showing the command line.
+    String commandLineString = HaxeCommonBundle.message("compiler.command.line", String.join(" ", commandLine));
+
+    // Output extra debug information to the console window. Note that process output, and these lines,
+    // in particular, are kept in a LinkedHashSet (internally, a HashMap).  Duplicate lines (having the
+    // same hash value) are NOT added to the set, so these will not be repeated in the output when multiple
+    // commands are run.  For this reason, the lime banner is also not repeated in the output when it runs
+    // a second time.
+    context.infoHandler(HaxeCommonBundle.message("compiler.working.path", workingPath));
+    context.infoHandler(HaxeCommonBundle.message("compiler.output.path", context.getModuleDefaultCompileOutputPath()));
+    context.infoHandler(HaxeCommonBundle.message("compiler.output.file", context.getOutputFileName()));
+
+    ProcessBuilder process = HaxeSdkUtilBase.createProcessBuilder(commandLine, workingDirectory, context.getHaxeSdkData());
+    final BaseOSProcessHandler handler = new HaxeCompilerProcessHandler(
+      context,
+      process.start(),
+      commandLineString,
+      Charset.defaultCharset()
+    );
+
+    final int[] exitCode = {0};
+    handler.addProcessListener(new ProcessAdapter() {
+      @Override
+      public void processTerminated(ProcessEvent event) {
+        exitCode[0] = event.getExitCode();
+        if (exitCode[0] < 0) {
+          context.infoHandler(HaxeCommonBundle.message("negative.error.code.message"));
+        }
+
+        super.processTerminated(event);
+      }
+    });
+
+    handler.startNotify();
+    handler.waitFor();
+    return exitCode[0];
+  }
+
   private static boolean verifyProjectSettings(CompilationContext context) {
     final HaxeModuleSettingsBase settings = context.getModuleSettings();
     final String mainClass = context.getCompilationClass();
@@ -349,6 +369,40 @@ public class HaxeCommonCompilerUtil {
   }
 
 
+  /**
+   * If the SDK is set up to use a compiler server and one is listening, have the compiler
+   * hand the build off to it ("--connect <port>"), so that it doesn't have to re-type the
+   * standard library and haxelibs.  Only direct compiler invocations are changed; NME and
+   * OpenFL/Lime builds run through haxelib and are left alone.
+   */
+  @NotNull
+  static List<String> useCompilerServer(@NotNull CompilationContext context, @NotNull List<String> commandLine) {
+    final HaxeSdkAdditionalDataBase sdkData = context.getHaxeSdkData();
+    if (null == sdkData || !sdkData.getUseCompilerServerFlag() || commandLine.isEmpty()) {
+      return commandLine;
+    }
+    final String compilerPath = HaxeSdkUtilBase.getCompilerPathByFolderPath(context.getSdkHomePath());
+    if (null == compilerPath || !compilerPath.equals(commandLine.get(0))) {
+      return commandLine;
+    }
+    if (!isCompilerServerListening(context)) {
+      return commandLine;
+    }
+    final int port = sdkData.getCompilerServerPort();
+    final List<String> connected = new ArrayList<>(commandLine.size() + 2);
+    connected.add(commandLine.get(0));
+    connected.add("--connect");
+    connected.add(Integer.toString(port));
+    connected.addAll(commandLine.subList(1, commandLine.size()));
+    return connected;
+  }
+
+  private static boolean isCompilerServerListening(@NotNull CompilationContext context) {
+    final HaxeSdkAdditionalDataBase sdkData = context.getHaxeSdkData();
+    return null != sdkData
+           && new HaxeCompilerServerClient(sdkData.getCompilerServerPort(), COMPILER_SERVER_CONNECT_TIMEOUT_MILLIS).isListening();
+  }
+
   private static List<String> generateHxmlCommand(CompilationContext context) {
 
     final List<String> commandLine = new ArrayList<String>();
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Client side of the Haxe compiler server protocol; what {@code haxe --connect <port>} does.
+ *
+ * A request is the compiler arguments, one per line, terminated by a NUL byte.  The server
+ * answers with lines of text and then closes the connection:
+ * <ul>
+ *   <li>lines starting with \x01 are program output (stdout); \x01 characters in them stand for newlines,</li>
+ *   <li>a line starting with \x02 means that compilation failed,</li>
+ *   <li>all other lines are compiler messages (stderr), which includes --display output.</li>
+ * </ul>
+ *
+ * Used by both the IDE (completion) and the JPS builder, so it must not depend on the platform.
+ */
+public class HaxeCompilerServerClient {
+  public static final String LOCALHOST = "127.0.0.1";
+
+  private static final char PRINT = '\u0001';
+  private static final char ERROR = '\u0002';
+  private static final int TERMINATOR = 0;
+
+  /** How long a read blocks before the request checks whether it has been canceled. */
+  public static final int POLL_MILLIS = 100;
+
+  public static class Result {
+    public final List<String> stdout = new ArrayList<>();
+    public final List<String> stderr = new ArrayList<>();
+    public int exitCode = 0;
+  }
+
+  private final String host;
+  private final int port;
+  private final int connectTimeoutMillis;
+
+  public HaxeCompilerServerClient(int port, int connectTimeoutMillis) {
+    this(LOCALHOST, port, connectTimeoutMillis);
+  }
+
+  public HaxeCompilerServerClient(@NotNull String host, int port, int connectTimeoutMillis) {
+    this.host = host;
+    this.port = port;
+    this.connectTimeoutMillis = connectTimeoutMillis;
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  /**
+   * @return whether something is accepting connections on the server port.
+   */
+  public boolean isListening() {
+    try (Socket socket = new Socket()) {
+      socket.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+      return true;
+    }
+    catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Thrown when the server is still working on a request after the read timeout.  The server
+   * itself is fine (it's just a slow compile), so it should not be restarted.
+   */
+  public static class ResponseTimeoutException extends IOException {
+    public ResponseTimeoutException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * Run a compilation on the server.
+   *
+   * @param args - compiler arguments, not including the compiler executable.
+   * @param workingDirectory - directory that relative paths in the arguments are relative to.
+   *                           The server has its own working directory, so this is sent as --cwd.
+   * @param readTimeoutMillis - how long to wait for the server to answer; 0 to wait forever.
+   * @return the output of the compilation.
+   * @throws IOException if the server can't be reached or drops the connection.  The arguments
+   *                     should then be run with a regular compiler process.
+   */
+  @NotNull
+  public Result run(@NotNull List<String> args, @Nullable String workingDirectory, int readTimeoutMillis) throws IOException {
+    return run(args, workingDirectory, readTimeoutMillis, null);
+  }
+
+  /**
+   * Run a compilation on the server, checking for cancellation while waiting for the answer.
+   *
+   * @param checkCanceled - called every {@link #POLL_MILLIS} while waiting; it cancels the request
+   *                        by throwing (e.g. ProgressManager::checkCanceled).  May be null.
+   * @throws ResponseTimeoutException if there is no complete answer after readTimeoutMillis.
+   */
+  @NotNull
+  public Result run(@NotNull List<String> args, @Nullable String workingDirectory, int readTimeoutMillis,
+                    @Nullable Runnable checkCanceled) throws IOException {
+    try (Socket socket = new Socket()) {
+      socket.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+      socket.setSoTimeout(POLL_MILLIS);
+
+      final OutputStream out = socket.getOutputStream();
+      out.write(encodeRequest(args, workingDirectory));
+      out.flush();
+
+      final long deadline = readTimeoutMillis > 0 ? System.currentTimeMillis() + readTimeoutMillis : Long.MAX_VALUE;
+      return decodeResponse(readFully(socket.getInputStream(), deadline, checkCanceled));
+    }
+  }
+
+  @NotNull
+  static byte[] encodeRequest(@NotNull List<String> args, @Nullable String workingDirectory) {
+    final StringBuilder request = new StringBuilder();
+    if (null != workingDirectory && !workingDirectory.isEmpty()) {
+      request.append("--cwd\n").append(workingDirectory).append('\n');
+    }
+    for (String arg : args) {
+      request.append(arg).append('\n');
+    }
+    final byte[] text = request.toString().getBytes(StandardCharsets.UTF_8);
+    final byte[] bytes = new byte[text.length + 1];
+    System.arraycopy(text, 0, bytes, 0, text.length);
+    bytes[text.length] = TERMINATOR;
+    return bytes;
+  }
+
+  @NotNull
+  static Result decodeResponse(@NotNull String response) {
+    final Result result = new Result();
+    for (String line : response.split("\n")) {
+      if (line.isEmpty()) continue;
+      switch (line.charAt(0)) {
+        case PRINT:
+          for (String printed : line.substring(1).split(String.valueOf(PRINT), -1)) {
+            result.stdout.add(printed);
+          }
+          break;
+        case ERROR:
+          result.exitCode = 1;
+          break;
+        default:
+          result.stderr.add(line);
+          break;
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private static String readFully(@NotNull InputStream in, long deadline, @Nullable Runnable checkCanceled) throws IOException {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final byte[] chunk = new byte[8192];
+    while (true) {
+      final int read;
+      try {
+        read = in.read(chunk);
+      }
+      catch (SocketTimeoutException e) {
+        // Nothing for a while; see whether anybody still wants the answer.
+        if (null != checkCanceled) {
+          checkCanceled.run();
+        }
+        if (System.currentTimeMillis() >= deadline) {
+          throw new ResponseTimeoutException("No complete answer from the Haxe compiler server after "
+                                             + buffer.size() + " bytes");
+        }
+        continue;
+      }
+      if (read < 0) {
+        break;
+      }
+      buffer.write(chunk, 0, read);
+    }
+    return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -97,4 +97,24 @@ public class JpsHaxeSdkAdditionalDataImpl extends JpsElementBase<JpsHaxeSdkAddit
   public void setRemoveCompletionDuplicatesFlag(boolean newState) {
     myAdditionalData.setRemoveCompletionDuplicatesFlag(newState);
   }
+
+  @Override
+  public boolean getUseCompilerServerFlag() {
+    return myAdditionalData.getUseCompilerServerFlag();
+  }
+
+  @Override
+  public void setUseCompilerServerFlag(boolean newState) {
+    myAdditionalData.setUseCompilerServerFlag(newState);
+  }
+
+  @Override
+  public int getCompilerServerPort() {
+    return myAdditionalData.getCompilerServerPort();
+  }
+
+  @Override
+  public void setCompilerServerPort(int port) {
+    myAdditionalData.setCompilerServerPort(port);
+  }
 }
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.compilation;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.plugins.haxe.config.sdk.HaxeSdkAdditionalDataBase;
+import com.intellij.plugins.haxe.util.HaxeCompilerServerClient;
+import com.intellij.plugins.haxe.util.HaxeDebugLogger;
+import com.intellij.plugins.haxe.util.HaxeSdkUtilBase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@code haxe --wait <port>} process that we manage for one SDK.
+ *
+ * The server keeps the typed standard library and haxelibs in memory between requests, so
+ * requests that go through it (see {@link HaxeCompilerServerClient}) skip most of the work
+ * that a fresh compiler process repeats every time.
+ *
+ * Every request checks that the server is still listening and (re)starts it if it isn't.
+ * A server that keeps dying is left alone for a while, and callers fall back to running the
+ * compiler directly.  If something else (another IDE instance, a command line server) is
+ * already listening on the port, it is used as is.
+ */
+public class HaxeCompilerServer {
+  private static final HaxeDebugLogger LOG = HaxeDebugLogger.getLogger();
+
+  static final int CONNECT_TIMEOUT_MILLIS = 500;
+  static final int STARTUP_TIMEOUT_MILLIS = 5000;
+  static final int STARTUP_POLL_MILLIS = 50;
+  static final int MAX_FAILURES = 3;
+  static final long FAILURE_BACKOFF_MILLIS = 5 * 60 * 1000;
+
+  private final String sdkHomePath;
+  @Nullable private final HaxeSdkAdditionalDataBase sdkData;
+  private final HaxeCompilerServerClient client;
+
+  private Process process;
+  private int failures;
+  private long disabledUntil;
+
+  public HaxeCompilerServer(@NotNull HaxeSdkAdditionalDataBase sdkData) {
+    this(sdkData.getHomePath(), sdkData, new HaxeCompilerServerClient(sdkData.getCompilerServerPort(), CONNECT_TIMEOUT_MILLIS));
+  }
+
+  HaxeCompilerServer(@NotNull String sdkHomePath, @Nullable HaxeSdkAdditionalDataBase sdkData,
+                     @NotNull HaxeCompilerServerClient client) {
+    this.sdkData = sdkData;
+    this.sdkHomePath = sdkHomePath;
+    this.client = client;
+  }
+
+  @NotNull
+  public String getSdkHomePath() {
+    return sdkHomePath;
+  }
+
+  public int getPort() {
+    return client.getPort();
+  }
+
+  /**
+   * Run a compilation through the server, starting the server if necessary.
+   *
+   * @param args - compiler arguments, not including the compiler executable.
+   * @param workingDirectory - directory to compile in.
+   * @param timeoutMillis - how long to wait for an answer; 0 to wait forever.
+   * @param checkCanceled - called regularly while starting the server and waiting for the answer;
+   *                        cancels the request by throwing (e.g. ProgressManager::checkCanceled).
+   * @return the compiler output, or null if the server could not be used.  Callers should run
+   *         the compiler directly in that case.  A compilation that doesn't finish in time gets
+   *         a failed result rather than null; running it directly wouldn't be any quicker.
+   */
+  @Nullable
+  public HaxeCompilerServerClient.Result run(@NotNull List<String> args, @Nullable String workingDirectory, int timeoutMillis,
+                                             @Nullable Runnable checkCanceled) {
+    for (int attempt = 0; attempt < 2; attempt++) {
+      if (!ensureRunning(checkCanceled)) {
+        return null;
+      }
+      try {
+        final HaxeCompilerServerClient.Result result = client.run(args, workingDirectory, timeoutMillis, checkCanceled);
+        recordSuccess();
+        return result;
+      }
+      catch (HaxeCompilerServerClient.ResponseTimeoutException e) {
+        // A slow compilation, not a dead server: leave it running.
+        LOG.info("Haxe compiler server on port " + getPort() + " did not answer within " + timeoutMillis + "ms.");
+        final HaxeCompilerServerClient.Result timedOut = new HaxeCompilerServerClient.Result();
+        timedOut.stderr.add("The Haxe compiler server did not finish within " + (timeoutMillis / 1000) + " seconds.");
+        timedOut.exitCode = 1;
+        return timedOut;
+      }
+      catch (IOException e) {
+        LOG.info("Haxe compiler server on port " + getPort() + " failed a request: " + e.getMessage());
+        recordFailure();
+        stop();  // Restart it on the next attempt.
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Health check: make sure that a server is accepting connections on our port.
+   *
+   * @return whether the server is usable.
+   */
+  public boolean ensureRunning() {
+    return ensureRunning(null);
+  }
+
+  synchronized boolean ensureRunning(@Nullable Runnable checkCanceled) {
+    if (client.isListening()) {
+      return true;
+    }
+    if (currentTimeMillis() < disabledUntil) {
+      return false;
+    }
+
+    if (null != process && process.isAlive()) {
+      // Started, but not listening (yet?).
+      if (waitUntilListening(checkCanceled)) return true;
+      LOG.info("Haxe compiler server on port " + getPort() + " is not answering; restarting it.");
+      stop();
+    }
+    return start(checkCanceled);
+  }
+
+  private boolean start(@Nullable Runnable checkCanceled) {
+    try {
+      process = startProcess();
+    }
+    catch (IOException e) {
+      LOG.info("Could not start the Haxe compiler server: " + e.getMessage());
+      process = null;
+    }
+    if (null == process) {
+      recordFailure();
+      return false;
+    }
+
+    if (waitUntilListening(checkCanceled)) {
+      return true;
+    }
+    LOG.info("Haxe compiler server did not start listening on port " + getPort());
+    stop();
+    recordFailure();
+    return false;
+  }
+
+  /**
+   * Start "haxe --wait".
+   *
+   * @return the process, or null if the SDK has no compiler.
+   */
+  @Nullable
+  Process startProcess() throws IOException {
+    final String compiler = HaxeSdkUtilBase.getCompilerPathByFolderPath(sdkHomePath);
+    if (null == compiler) {
+      return null;
+    }
+
+    final List<String> command = new ArrayList<>();
+    command.add(compiler);
+    command.add("--wait");
+    command.add(Integer.toString(getPort()));
+
+    LOG.info("Starting Haxe compiler server: " + command);
+    final ProcessBuilder builder = HaxeSdkUtilBase.createProcessBuilder(command, null, sdkData);
+    builder.redirectErrorStream(true);
+    final Process started = builder.start();
+    drainOutput(started);
+    return started;
+  }
+
+  long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private boolean waitUntilListening(@Nullable Runnable checkCanceled) {
+    final long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+    while (System.currentTimeMillis() < deadline) {
+      if (null != checkCanceled) checkCanceled.run();
+      if (client.isListening()) return true;
+      if (null == process || !process.isAlive()) return false;
+      try {
+        Thread.sleep(STARTUP_POLL_MILLIS);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /** The server only writes log messages; they must be read, or it will eventually block. */
+  private static void drainOutput(@NotNull Process serverProcess) {
+    ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(serverProcess.getInputStream()))) {
+        String line;
+        while (null != (line = reader.readLine())) {
+          if (LOG.isDebugEnabled()) LOG.debug("haxe --wait: " + line);
+        }
+      }
+      catch (IOException e) {
+        // Process went away.
+      }
+    });
+  }
+
+  private synchronized void recordSuccess() {
+    failures = 0;
+  }
+
+  private synchronized void recordFailure() {
+    if (++failures >= MAX_FAILURES) {
+      LOG.warn("Haxe compiler server on port " + getPort() + " failed " + failures
+               + " times in a row; compiling without it for a while.");
+      disabledUntil = currentTimeMillis() + FAILURE_BACKOFF_MILLIS;
+      failures = 0;
+    }
+  }
+
+  /** Stop the server if we started it. */
+  public synchronized void stop() {
+    if (null != process) {
+      if (process.isAlive()) {
+        LOG.info("Stopping Haxe compiler server on port " + getPort());
+        process.destroy();
+      }
+      process = null;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.compilation;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.plugins.haxe.config.sdk.HaxeSdkAdditionalDataBase;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Owns the {@link HaxeCompilerServer}s, one per SDK that has "Use compiler server" turned on.
+ * Servers are stopped when the application exits.
+ */
+public class HaxeCompilerServerManager implements Disposable {
+
+  private final Map<String, HaxeCompilerServer> servers = ContainerUtil.newConcurrentMap();
+
+  public static HaxeCompilerServerManager getInstance() {
+    return ServiceManager.getService(HaxeCompilerServerManager.class);
+  }
+
+  /**
+   * @return the server for the SDK, or null if the SDK isn't configured to use one.
+   */
+  @Nullable
+  public HaxeCompilerServer getServer(@Nullable HaxeSdkAdditionalDataBase sdkData) {
+    if (null == sdkData || !sdkData.getUseCompilerServerFlag()) {
+      return null;
+    }
+    final String home = sdkData.getHomePath();
+    final int port = sdkData.getCompilerServerPort();
+    HaxeCompilerServer server = servers.get(home);
+    if (null != server && server.getPort() != port) {
+      // Settings changed under us.
+      if (servers.remove(home, server)) {
+        server.stop();
+      }
+      server = null;
+    }
+    if (null == server) {
+      final HaxeCompilerServer created = new HaxeCompilerServer(sdkData);
+      server = servers.putIfAbsent(home, created);
+      if (null == server) {
+        server = created;
+      }
+    }
+    return server;
+  }
+
+  public void stopAll() {
+    for (Iterator<HaxeCompilerServer> it = servers.values().iterator(); it.hasNext(); ) {
+      it.next().stop();
+      it.remove();
+    }
+  }
+
+  @Override
+  public void dispose() {
+    stopAll();
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.compilation;
+
+import com.intellij.openapi.compiler.CompileContext;
+import com.intellij.openapi.compiler.CompileTask;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtil;
+import com.intellij.plugins.haxe.config.sdk.HaxeSdkAdditionalDataBase;
+import com.intellij.plugins.haxe.ide.module.HaxeModuleType;
+import com.intellij.plugins.haxe.util.HaxeSdkUtilBase;
+
+/**
+ * Makes sure that the compiler servers for the project's SDKs are up before a build starts,
+ * so that the build (which may run out of process) can "--connect" to them.
+ */
+public class HaxeCompilerServerStartTask implements CompileTask {
+
+  @Override
+  public boolean execute(CompileContext context) {
+    final HaxeCompilerServerManager manager = HaxeCompilerServerManager.getInstance();
+    for (Module module : ModuleUtil.getModulesOfType(context.getProject(), HaxeModuleType.getInstance())) {
+      final HaxeSdkAdditionalDataBase sdkData = HaxeSdkUtilBase.getSdkData(module);
+      final HaxeCompilerServer server = manager.getServer(sdkData);
+      if (null != server) {
+        server.ensureRunning();  // If it won't start, the build runs the compiler directly.
+      }
+    }
+    return true;
+  }
+}
@@ -15,18 +15,17 @@
  */
 package com.intellij.plugins.haxe.compilation;
 
-import com.google.common.base.Joiner;
-import com.intellij.ide.highlighter.XmlFileType;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.fileEditor.impl.LoadTextUtil;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleUtil;
-import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.plugins.haxe.config.HaxeConfiguration;
 import com.intellij.plugins.haxe.config.HaxeProjectSettings;
+import com.intellij.plugins.haxe.config.sdk.HaxeSdkAdditionalDataBase;
 import com.intellij.plugins.haxe.haxelib.*;
 import com.intellij.plugins.haxe.ide.completion.HaxeCompilerCompletionItem;
 import com.intellij.plugins.haxe.ide.module.HaxeModuleSettings;
@@ -34,11 +33,6 @@ import com.intellij.plugins.haxe.ide.module.HaxeModuleType;
 import com.intellij.plugins.haxe.util.*;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiFileFactory;
-import com.intellij.psi.xml.XmlAttribute;
-import com.intellij.psi.xml.XmlDocument;
-import com.intellij.psi.xml.XmlFile;
-import com.intellij.psi.xml.XmlTag;
 import com.intellij.util.LineSeparator;
 import com.intellij.util.text.StringTokenizer;
 import org.jetbrains.annotations.NotNull;
@@ -73,6 +67,9 @@ public class HaxeCompilerServices {
 
     // Pattern used to detect empty and/or whitespace-only lines.
     static final Pattern EMPTY_LINE_REGEX = Pattern.compile("^\\s+$" );
+    static final int COMPILER_SERVER_TIMEOUT_MILLIS = 30000;
+    // More than anybody will scroll through; Std-style completions can return thousands.
+    static final int MAX_COMPILER_COMPLETIONS = 5000;
 
     // Sink to send compilation errors to.
     private HaxeCompilerUtil.ErrorNotifier myErrorNotifier = null;
@@ -318,10 +315,10 @@ public class HaxeCompilerServices {
         timeLog.stamp("Calling compiler");
         List<String> stderr = new ArrayList<String>();
         List<String> stdout = new ArrayList<String>();
-        int status = HaxeCompilerUtil.runInterruptibleCompileProcess(commandLineArguments, false,
-                                                                     HaxeCompilerUtil.findCompileRoot(file),
-                                                                     HaxeSdkUtilBase.getSdkData(moduleForFile),
-                                                                     stdout, stderr, timeLog);
+        int status = runCompilerForCompletion(commandLineArguments,
+                                              HaxeCompilerUtil.findCompileRoot(file),
+                                              HaxeSdkUtilBase.getSdkData(moduleForFile),
+                                              stdout, stderr, timeLog);
 
         timeLog.stamp("Compiler finished. Output found on " + (stdout.isEmpty() ? "" : "stdout ") + (stderr.isEmpty() ? "" : "stderr"));
         // LOG.debug("Compiler finished. Output found on " + (stdout.isEmpty() ? "" : "stdout ") + (stderr.isEmpty() ? "" : "stderr"));
@@ -331,6 +328,36 @@ public class HaxeCompilerServices {
         return parseCompletionFromXml(project, stderr);
     }
 
+    /**
+     * Run the compiler for completion, through the SDK's compiler server when it is configured to
+     * use one.  Falls back to starting the compiler directly when the server isn't available.
+     */
+    private static int runCompilerForCompletion(List<String> commandLineArguments,
+                                                VirtualFile dir,
+                                                HaxeSdkAdditionalDataBase sdkData,
+                                   /*modifies*/ List<String> stdout,
+                                   /*modifies*/ List<String> stderr,
+                                                HaxeDebugTimeLog timeLog) {
+        HaxeCompilerServer server = HaxeCompilerServerManager.getInstance().getServer(sdkData);
+        if (null != server && !commandLineArguments.isEmpty()) {
+            timeLog.stamp("Using compiler server on port " + server.getPort());
+            // The server already knows which compiler it is; send only the arguments.
+            HaxeCompilerServerClient.Result result =
+              server.run(commandLineArguments.subList(1, commandLineArguments.size()),
+                         null == dir ? null : dir.getPath(),
+                         COMPILER_SERVER_TIMEOUT_MILLIS,
+                         ProgressManager::checkCanceled);
+            if (null != result) {
+                stdout.addAll(result.stdout);
+                stderr.addAll(result.stderr);
+                return result.exitCode;
+            }
+            timeLog.stamp("Compiler server unavailable; running the compiler directly");
+        }
+        return HaxeCompilerUtil.runInterruptibleCompileProcess(commandLineArguments, false, dir, sdkData,
+                                                               stdout, stderr, timeLog);
+    }
+
     @NotNull
     private List<HaxeCompilerCompletionItem> collectCompletionsFromNME(@NotNull PsiFile file,
                                                                        @NotNull PsiElement element,
@@ -493,143 +520,14 @@ public class HaxeCompilerServices {
     }
 
     private List<HaxeCompilerCompletionItem> parseCompletionFromXml(Project project, List<String> stderr) {
-        List<HaxeCompilerCompletionItem> completions = new ArrayList<HaxeCompilerCompletionItem>();
-        try {
+        if (LOG.isDebugEnabled()) {
             LOG.debug(stderr.toString());
-            String s = Joiner.on("").join(stderr);
-
-            if (s.isEmpty()) {
-                LOG.warn("Empty compiler output from completion query.");
-                return completions;
-            }
-
-            PsiFile fileFromText = PsiFileFactory.getInstance(project).createFileFromText("data.xml", XmlFileType.INSTANCE, s);
-
-            XmlFile xmlFile = (XmlFile)fileFromText;
-            XmlDocument document = xmlFile.getDocument();
-            XmlTag rootTag = null != document ? document.getRootTag() : null;
-
-            if (null == rootTag) {
-                LOG.warn("Failure to parse XML: " + s);
-                return completions;
-            }
-
-            if ("list".equals(rootTag.getName())) {
-                XmlTag[] xmlTags = rootTag.findSubTags("i");
-                for (XmlTag xmlTag : xmlTags) {
-                    XmlAttribute nAttr = xmlTag.getAttribute("n");
-                    XmlAttribute kAttr = xmlTag.getAttribute("k");
-                    String name = null == nAttr ? null : nAttr.getValue();
-                    String memberType = null == kAttr ? null : kAttr.getValue();
-                    XmlTag typeTag = xmlTag.findFirstSubTag("t");
-                    XmlTag docTag = xmlTag.findFirstSubTag("d");
-
-
-                    HaxeCompilerCompletionItem item = new HaxeCompilerCompletionItem(name);
-                    item.setMemberType(memberType);
-                    if (typeTag != null) {
-                        String formattedType = getFormattedText(typeTag.getValue().getText());
-                        parseFunctionParams(formattedType, /*modifies*/ item);
-                    }
-                    if (docTag != null) {
-                        String text1 = getFormattedText(docTag.getValue().getText());
-                        item.setDocumentation(text1);
-                    }
-                    completions.add(item);
-                }
-            } else if ("type".equals(rootTag.getName())) {
-                String type = getFormattedText(rootTag.getValue().getTrimmedText());
-                HaxeCompilerCompletionItem item = new HaxeCompilerCompletionItem("Type");
-                parseFunctionParams(type, item);
-                completions.add(item);
-            }
-            // TODO: Add other completion types here. (e.g. Call argument completion "type").
-            else {
-                LOG.warn("Failure to parse XML: " + s );
-                return completions;
-            }
-        }
-        catch (ProcessCanceledException e) {
-            advertiseError("Haxe compiler completion canceled.");  // TODO: Externalize string.
-            LOG.debug("Haxe compiler completion canceled.", e);
-            throw e;
         }
-        return completions;
-    }
-
-    private String getFormattedText(String text1) {
-        if (null == text1)
-            return null;
-        text1 = text1.replaceAll("\t", "");
-        text1 = text1.replaceAll("\n", "");
-        text1 = text1.replaceAll("&lt;", "<");
-        text1 = text1.replaceAll("&gt;", ">");
-        text1 = text1.trim();
-        return text1;
+        return HaxeCompletionOutputParser.parse(stderr, MAX_COMPILER_COMPLETIONS);
     }
 
-    //Originally ported from HIDE
-    //https://github.com/HaxeIDE/HIDE/blob/master/src/core/FunctionParametersHelper.hx#L193
-    public void parseFunctionParams(String type, HaxeCompilerCompletionItem item)
-    {
-        List<String> parameters = new ArrayList<String>();;
-        String retType = type;
-        if (type != null && type.indexOf("->") != -1)
-        {
-            int openBracketsCount = 0;
-            List<Integer> startPositions = new ArrayList<Integer>();
-            List<Integer> endPositions = new ArrayList<Integer>();
-            int i = 0;
-            int lastPos = 0;
-            while (i < type.length())
-            {
-                switch (type.charAt(i))
-                {
-                    case '-':
-                        if (openBracketsCount == 0 && type.charAt(i + 1) == '>') {
-                            startPositions.add(lastPos);
-                            endPositions.add(i - 1);
-                            i++;
-                            i++;
-                            lastPos = i;
-                        }
-                    case '(':
-                        openBracketsCount++;
-                    case ')':
-                        openBracketsCount--;
-                    default:
-                }
-                i++;
-            }
-            startPositions.add(lastPos);
-            endPositions.add(type.length());
-
-            for (int j = 0; j < startPositions.size(); j++) {
-                String param = type.substring(startPositions.get(j), endPositions.get(j)).trim();
-                if (j < startPositions.size() - 1)
-                {
-                    int pos = param.indexOf(" : ", 0);
-                    if (pos > -1) {
-                        StringBuilder unspaced = new StringBuilder();
-                        unspaced.append(param.substring(0, pos));
-                        unspaced.append(":");
-                        unspaced.append(param.substring(pos+3));
-                        param = unspaced.toString();
-                    }
-                    parameters.add(param);
-                }
-                else
-                {
-                    retType = param;
-                }
-            }
-            if (parameters.size() == 1 && parameters.get(0) == "Void")
-            {
-                parameters.clear();
-            }
-        }
-        item.setParameters(parameters);
-        item.setReturnType(retType);
+    public void parseFunctionParams(String type, HaxeCompilerCompletionItem item) {
+        HaxeCompletionOutputParser.parseFunctionParams(type, item);
     }
 
 }
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.compilation;
+
+import com.intellij.plugins.haxe.ide.completion.HaxeCompilerCompletionItem;
+import com.intellij.plugins.haxe.util.HaxeDebugLogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads the XML that the compiler writes for "--display" requests straight into completion items,
+ * without joining the output into one string or building a PSI tree for it.
+ *
+ * Understands:
+ * <ul>
+ *   <li>{@code <list><i n="name" k="var|method"><t>type</t><d>doc</d></i>...</list>} - field completion.</li>
+ *   <li>{@code <type>signature</type>} - the type at the position; after an opening parenthesis,
+ *       this is the signature of the function being called (call-argument completion).</li>
+ * </ul>
+ */
+public class HaxeCompletionOutputParser {
+  private static final HaxeDebugLogger LOG = HaxeDebugLogger.getLogger();
+
+  public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+  private static final XMLInputFactory FACTORY = createFactory();
+
+  private HaxeCompletionOutputParser() {}
+
+  private static XMLInputFactory createFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    // Compiler output never has these; don't let anything in it reach outside.
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    return factory;
+  }
+
+  /**
+   * @param output - compiler output, one line per entry.  Lines before the XML (warnings, traces) are skipped.
+   * @param limit - stop after this many items.
+   * @return the completion items; empty if the output can't be understood.
+   */
+  @NotNull
+  public static List<HaxeCompilerCompletionItem> parse(@NotNull List<String> output, int limit) {
+    final List<HaxeCompilerCompletionItem> completions = new ArrayList<>();
+    final Reader reader = new LinesReader(output);
+    XMLStreamReader xml = null;
+    try {
+      xml = FACTORY.createXMLStreamReader(reader);
+      if (!nextStartElement(xml)) {
+        LOG.warn("Empty compiler output from completion query.");
+        return completions;
+      }
+      final String root = xml.getLocalName();
+      if ("list".equals(root)) {
+        parseList(xml, completions, limit);
+      }
+      else if ("type".equals(root)) {
+        final HaxeCompilerCompletionItem item = new HaxeCompilerCompletionItem("Type");
+        parseFunctionParams(formatText(readText(xml)), item);
+        completions.add(item);
+      }
+      else {
+        LOG.warn("Unexpected compiler completion output: <" + root + ">");
+      }
+    }
+    catch (XMLStreamException e) {
+      LOG.warn("Failure to parse compiler completion output: " + e.getMessage());
+    }
+    finally {
+      if (null != xml) {
+        try {
+          xml.close();
+        }
+        catch (XMLStreamException e) {
+          // Nothing to release; we own the reader.
+        }
+      }
+    }
+    return completions;
+  }
+
+  private static void parseList(@NotNull XMLStreamReader xml, @NotNull List<HaxeCompilerCompletionItem> completions, int limit)
+    throws XMLStreamException {
+    while (completions.size() < limit && xml.hasNext()) {
+      final int event = xml.next();
+      if (event == XMLStreamConstants.END_ELEMENT && "list".equals(xml.getLocalName())) {
+        return;
+      }
+      if (event != XMLStreamConstants.START_ELEMENT || !"i".equals(xml.getLocalName())) {
+        continue;
+      }
+
+      final HaxeCompilerCompletionItem item = new HaxeCompilerCompletionItem(xml.getAttributeValue(null, "n"));
+      item.setMemberType(xml.getAttributeValue(null, "k"));
+      String type = null;
+      String doc = null;
+      // Children of <i>.
+      while (xml.hasNext()) {
+        final int childEvent = xml.next();
+        if (childEvent == XMLStreamConstants.END_ELEMENT) {
+          break;  // </i>
+        }
+        if (childEvent == XMLStreamConstants.START_ELEMENT) {
+          final String tag = xml.getLocalName();
+          final String text = readText(xml);
+          if ("t".equals(tag)) {
+            type = text;
+          } else if ("d".equals(tag)) {
+            doc = text;
+          }
+        }
+      }
+      if (null != type) {
+        parseFunctionParams(formatText(type), item);
+      }
+      if (null != doc) {
+        item.setDocumentation(formatText(doc));
+      }
+      completions.add(item);
+    }
+  }
+
+  /** Move to the first start tag. */
+  private static boolean nextStartElement(@NotNull XMLStreamReader xml) throws XMLStreamException {
+    while (xml.hasNext()) {
+      if (xml.next() == XMLStreamConstants.START_ELEMENT) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Read the text content of the current element, skipping any nested tags.  Leaves the reader on its end tag. */
+  @NotNull
+  private static String readText(@NotNull XMLStreamReader xml) throws XMLStreamException {
+    final StringBuilder text = new StringBuilder();
+    int depth = 1;
+    while (depth > 0 && xml.hasNext()) {
+      switch (xml.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          depth++;
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          depth--;
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          text.append(xml.getText());
+          break;
+      }
+    }
+    return text.toString();
+  }
+
+  /** Compiler output is pretty-printed; put types and docs back on one line. */
+  @Nullable
+  static String formatText(@Nullable String text) {
+    if (null == text) {
+      return null;
+    }
+    return text.replace("\t", "").replace("\n", "").trim();
+  }
+
+  //Originally ported from HIDE
+  //https://github.com/HaxeIDE/HIDE/blob/master/src/core/FunctionParametersHelper.hx#L193
+  public static void parseFunctionParams(String type, HaxeCompilerCompletionItem item)
+  {
+    List<String> parameters = new ArrayList<String>();;
+    String retType = type;
+    if (type != null && type.indexOf("->") != -1)
+    {
+      int openBracketsCount = 0;
+      List<Integer> startPositions = new ArrayList<Integer>();
+      List<Integer> endPositions = new ArrayList<Integer>();
+      int i = 0;
+      int lastPos = 0;
+      while (i < type.length())
+      {
+        switch (type.charAt(i))
+        {
+          case '-':
+            if (openBracketsCount == 0 && type.charAt(i + 1) == '>') {
+              startPositions.add(lastPos);
+              endPositions.add(i - 1);
+              i++;
+              i++;
+              lastPos = i;
+            }
+          case '(':
+            openBracketsCount++;
+          case ')':
+            openBracketsCount--;
+          default:
+        }
+        i++;
+      }
+      startPositions.add(lastPos);
+      endPositions.add(type.length());
+
+      for (int j = 0; j < startPositions.size(); j++) {
+        String param = type.substring(startPositions.get(j), endPositions.get(j)).trim();
+        if (j < startPositions.size() - 1)
+        {
+          int pos = param.indexOf(" : ", 0);
+          if (pos > -1) {
+            StringBuilder unspaced = new StringBuilder();
+            unspaced.append(param.substring(0, pos));
+            unspaced.append(":");
+            unspaced.append(param.substring(pos+3));
+            param = unspaced.toString();
+          }
+          parameters.add(param);
+        }
+        else
+        {
+          retType = param;
+        }
+      }
+      if (parameters.size() == 1 && parameters.get(0) == "Void")
+      {
+        parameters.clear();
+      }
+    }
+    item.setParameters(parameters);
+    item.setReturnType(retType);
+  }
+
+  /**
+   * Feeds output lines to the XML parser, one after the other, without copying them into one string.
+   * Lines before the first one that starts a tag are skipped.
+   */
+  static class LinesReader extends Reader {
+    private final Iterator<String> lines;
+    private String current = null;
+    private int position = 0;
+    private boolean started = false;
+
+    LinesReader(@NotNull List<String> output) {
+      this.lines = output.iterator();
+    }
+
+    @Override
+    public int read(@NotNull char[] buffer, int offset, int length) {
+      if (0 == length) return 0;
+      int copied = 0;
+      while (copied < length) {
+        if (null == current || position > current.length()) {
+          if (!nextLine()) break;
+        }
+        if (position == current.length()) {
+          buffer[offset + copied++] = '\n';  // Line separator.
+          position++;
+          continue;
+        }
+        final int count = Math.min(length - copied, current.length() - position);
+        current.getChars(position, position + count, buffer, offset + copied);
+        position += count;
+        copied += count;
+      }
+      return 0 == copied ? -1 : copied;
+    }
+
+    private boolean nextLine() {
+      while (lines.hasNext()) {
+        final String line = lines.next();
+        if (null == line) continue;
+        if (!started) {
+          final int tag = line.indexOf('<');
+          if (tag < 0 || !line.substring(0, tag).trim().isEmpty()) continue;
+          started = true;
+        }
+        current = line;
+        position = 0;
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
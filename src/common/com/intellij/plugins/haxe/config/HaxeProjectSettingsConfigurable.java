@@ -66,9 +66,11 @@ public class HaxeProjectSettingsConfigurable implements SearchableConfigurable {
   public void apply() throws ConfigurationException {
     if (mySettingsPane != null) {
       final boolean modified = isModified();
+      final String[] oldDefinitions = getSettings().getUserCompilerDefinitions();
       mySettingsPane.applyEditorTo(getSettings());
       if (modified) {
-        HaxeUtil.reparseProjectFiles(myProject);
+        HaxeUtil.reparseFilesReferencingDefines(myProject, HaxeUtil.getChangedDefineNames(oldDefinitions,
+                                                                                           getSettings().getUserCompilerDefinitions()));
       }
     }
   }
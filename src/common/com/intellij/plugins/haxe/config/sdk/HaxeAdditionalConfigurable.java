@@ -56,7 +56,9 @@ public class HaxeAdditionalConfigurable implements AdditionalDataConfigurable {
            !myHaxeAdditionalConfigurablePanel.getNekoBinPath().equals(haxeSdkData.getNekoBinPath()) ||
            !myHaxeAdditionalConfigurablePanel.getHaxelibPath().equals(haxeSdkData.getHaxelibPath()) ||
            myHaxeAdditionalConfigurablePanel.getUseCompilerCompletionFlag() ^ haxeSdkData.getUseCompilerCompletionFlag() ||
-           myHaxeAdditionalConfigurablePanel.getRemoveCompletionDuplicatesFlag() ^ haxeSdkData.getRemoveCompletionDuplicatesFlag();
+           myHaxeAdditionalConfigurablePanel.getRemoveCompletionDuplicatesFlag() ^ haxeSdkData.getRemoveCompletionDuplicatesFlag() ||
+           myHaxeAdditionalConfigurablePanel.getUseCompilerServerFlag() ^ haxeSdkData.getUseCompilerServerFlag() ||
+           myHaxeAdditionalConfigurablePanel.getCompilerServerPort() != haxeSdkData.getCompilerServerPort();
   }
 
   @Override
@@ -71,6 +73,8 @@ public class HaxeAdditionalConfigurable implements AdditionalDataConfigurable {
     newData.setHaxelibPath(FileUtil.toSystemIndependentName(myHaxeAdditionalConfigurablePanel.getHaxelibPath()));
     newData.setUseCompilerCompletionFlag(myHaxeAdditionalConfigurablePanel.getUseCompilerCompletionFlag());
     newData.setRemoveCompletionDuplicatesFlag(myHaxeAdditionalConfigurablePanel.getRemoveCompletionDuplicatesFlag());
+    newData.setUseCompilerServerFlag(myHaxeAdditionalConfigurablePanel.getUseCompilerServerFlag());
+    newData.setCompilerServerPort(myHaxeAdditionalConfigurablePanel.getCompilerServerPort());
 
     final SdkModificator modificator = mySdk.getSdkModificator();
     modificator.setSdkAdditionalData(newData);
@@ -98,6 +102,8 @@ public class HaxeAdditionalConfigurable implements AdditionalDataConfigurable {
       myHaxeAdditionalConfigurablePanel.setUseCompilerCompletionFlag(bUseCompilerCompletion);
       final boolean bRemoveDuplicates = haxeSdkData.getRemoveCompletionDuplicatesFlag();
       myHaxeAdditionalConfigurablePanel.setRemoveCompletionDuplicatesFlag(bRemoveDuplicates);
+      myHaxeAdditionalConfigurablePanel.setUseCompilerServerFlag(haxeSdkData.getUseCompilerServerFlag());
+      myHaxeAdditionalConfigurablePanel.setCompilerServerPort(haxeSdkData.getCompilerServerPort());
     }
     myHaxeAdditionalConfigurablePanel.getPanel().repaint();
   }
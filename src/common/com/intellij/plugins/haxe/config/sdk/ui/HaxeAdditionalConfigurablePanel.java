@@ -22,6 +22,7 @@ import com.intellij.openapi.fileChooser.FileChooserDescriptor;
 import com.intellij.openapi.ui.TextFieldWithBrowseButton;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.plugins.haxe.config.sdk.impl.HaxeSdkAdditionalDataBaseImpl;
 
 import javax.swing.*;
 import java.awt.*;
@@ -44,6 +45,12 @@ public class HaxeAdditionalConfigurablePanel {
   private JCheckBox myRemoveDuplicatesCheckbox;
   private JTextArea myNoteWhenUsingCompilerTextArea;
 
+  private JPanel myCompilerServerPanel;
+  private JLabel myCompilerServerLabel;
+  private JCheckBox myUseCompilerServerCheckBox;
+  private JLabel myCompilerServerPortLabel;
+  private JSpinner myCompilerServerPortSpinner;
+
   public HaxeAdditionalConfigurablePanel() {
     myNekoTextField.getButton().addActionListener(new ActionListener() {
       @Override
@@ -68,6 +75,12 @@ public class HaxeAdditionalConfigurablePanel {
     });
     myHaxelibLabel.setLabelFor(myHaxelibTextField.getTextField());
     myCompletionLabel.setLabelFor(myUseCompilerCheckBox);
+    myCompilerServerLabel.setLabelFor(myUseCompilerServerCheckBox);
+    myCompilerServerPortLabel.setLabelFor(myCompilerServerPortSpinner);
+    myCompilerServerPortSpinner.setModel(
+      new SpinnerNumberModel(HaxeSdkAdditionalDataBaseImpl.DEFAULT_COMPILER_SERVER_PORT, 1, 65535, 1));
+    myCompilerServerPortSpinner.setEditor(new JSpinner.NumberEditor(myCompilerServerPortSpinner, "#"));
+    myUseCompilerServerCheckBox.addActionListener(e -> updateCompilerServerControls());
 
     // Text area for the note.
     myNoteWhenUsingCompilerTextArea.setFocusable(false);
@@ -114,4 +127,25 @@ public class HaxeAdditionalConfigurablePanel {
     return myRemoveDuplicatesCheckbox.isSelected();
   }
 
+  public void setUseCompilerServerFlag(boolean state) {
+    myUseCompilerServerCheckBox.setSelected(state);
+    updateCompilerServerControls();
+  }
+
+  public boolean getUseCompilerServerFlag() {
+    return myUseCompilerServerCheckBox.isSelected();
+  }
+
+  public void setCompilerServerPort(int port) {
+    myCompilerServerPortSpinner.setValue(port);
+  }
+
+  public int getCompilerServerPort() {
+    return ((Number)myCompilerServerPortSpinner.getValue()).intValue();
+  }
+
+  private void updateCompilerServerControls() {
+    myCompilerServerPortSpinner.setEnabled(myUseCompilerServerCheckBox.isSelected());
+  }
+
 }
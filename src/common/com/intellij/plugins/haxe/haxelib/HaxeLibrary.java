@@ -47,10 +47,15 @@ public class HaxeLibrary {
 
 
   private HaxeLibrary(@NotNull String name, @NotNull VirtualFile libraryRoot, @NotNull HaxelibLibraryCache owner) {
+    this(name, libraryRoot, HaxelibMetadata.load(libraryRoot), owner);
+  }
+
+  private HaxeLibrary(@NotNull String name, @NotNull VirtualFile libraryRoot, @NotNull HaxelibMetadata metadata,
+                      @NotNull HaxelibLibraryCache owner) {
     myCache = owner;
     myLibraryRoot = libraryRoot.getUrl();
 
-    myMetadata = HaxelibMetadata.load(libraryRoot);
+    myMetadata = metadata;
     HaxeLibraryInfo pathInfo = HaxelibUtil.deriveLibraryInfoFromPath(owner.getSdk(), libraryRoot.getPath());
 
     String mdname = myMetadata.getName();
@@ -200,6 +205,20 @@ public class HaxeLibrary {
     return null;
   }
 
+  /**
+   * Re-create a library from previously saved metadata, without reading it from disk.
+   */
+  @NotNull
+  static HaxeLibrary restore(@NotNull HaxelibLibraryCache owner, @NotNull String libName, @NotNull VirtualFile libraryRoot,
+                             @NotNull HaxelibMetadata metadata) {
+    return new HaxeLibrary(libName, libraryRoot, metadata, owner);
+  }
+
+  @NotNull
+  HaxelibMetadata getMetadata() {
+    return myMetadata;
+  }
+
   /**
    * Create a new reference for this library.
    * @param isManaged whether or not this reference is a "managed reference".
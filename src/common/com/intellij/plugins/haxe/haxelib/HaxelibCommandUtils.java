@@ -19,6 +19,7 @@
 package com.intellij.plugins.haxe.haxelib;
 
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.projectRoots.Sdk;
 import com.intellij.openapi.projectRoots.SdkAdditionalData;
 import com.intellij.openapi.vfs.LocalFileSystem;
@@ -27,18 +28,18 @@ import com.intellij.plugins.haxe.config.sdk.HaxeSdkAdditionalDataBase;
 import com.intellij.plugins.haxe.config.sdk.HaxeSdkData;
 import com.intellij.plugins.haxe.config.sdk.HaxeSdkUtil;
 import com.intellij.plugins.haxe.util.HaxeDebugLogger;
+import com.intellij.plugins.haxe.util.HaxeProcessRunner;
 import com.intellij.plugins.haxe.util.HaxeProcessUtil;
 import com.intellij.plugins.haxe.util.HaxeSdkUtilBase;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Utilities to run the haxelib command and capture its output.
@@ -169,97 +170,41 @@ public class HaxelibCommandUtils {
    */
   @NotNull
   public static List<String> getProcessStdout(@NotNull ArrayList<String> commandLineArguments, @Nullable File dir, @Nullable HaxeSdkAdditionalDataBase haxeSdkData) {
-    List<String> strings = new ArrayList<String>();
-
-    try {
-      ProcessBuilder builder = HaxeSdkUtilBase.createProcessBuilder(commandLineArguments, dir, haxeSdkData);
-      builder.redirectErrorStream(true);
-      if (dir != null) {
-        builder = builder.directory(dir);
-      }
-      Process process = builder.start();
-      InputStreamReader reader = new InputStreamReader(process.getInputStream());
-      Scanner scanner = new Scanner(reader);
-
-      while (scanner.hasNextLine()) {
-        String nextLine = scanner.nextLine();
-        strings.add(nextLine);
-      }
-      process.waitFor();
-
-      /*
-      try {
-        Thread.sleep(250);
-        try {
-          process.exitValue();
-        }
-        catch (IllegalThreadStateException e) {
-          process.destroy();
-        }
-      }
-      catch (InterruptedException e) {
-        e.printStackTrace();
-      }
-      */
-    }
-    catch (IOException e) {
-      e.printStackTrace();
-    }
-    catch (InterruptedException e) {
-      e.printStackTrace();
-    }
-
-    return strings;
+    HaxeProcessUtil.Result result = runProcess(commandLineArguments, new HaxeProcessRunner.Options()
+      .mixedOutput(true)
+      .workingDirectory(dir)
+      .sdk(haxeSdkData));
+    return null == result ? new ArrayList<String>() : result.stdout;
   }
 
-
   //private static Logger log = Logger.getInstance(HaxelibCommandUtils.class);
 
   public static List<String> getProcessStderr(ArrayList<String> commandLineArguments, File dir, @Nullable HaxeSdkAdditionalDataBase haxeSdkData) {
-    List<String> strings = new ArrayList<String>();
+    HaxeProcessUtil.Result result = runProcess(commandLineArguments, new HaxeProcessRunner.Options()
+      .workingDirectory(dir)
+      .sdk(haxeSdkData));
+    return null == result ? new ArrayList<String>() : result.stderr;
+  }
 
+  @Nullable
+  private static HaxeProcessUtil.Result runProcess(@NotNull List<String> commandLineArguments, @NotNull HaxeProcessRunner.Options options) {
+    // Whoever is waiting on us can cancel the command.
+    options.indicator(ProgressManager.getGlobalProgressIndicator());
     try {
-      ProcessBuilder builder = HaxeSdkUtilBase.createProcessBuilder(commandLineArguments, dir, haxeSdkData);
-      Process process = builder.start();
-      InputStreamReader reader = new InputStreamReader(process.getErrorStream());
-      Scanner scanner = new Scanner(reader);
-
-      while (scanner.hasNextLine()) {
-        String nextLine = scanner.nextLine();
-        strings.add(nextLine);
-      }
-
-      //log.error(StringUtil.join(strings, "\n"));
-      process.waitFor();
-
-      /*
-      try {
-        Thread.sleep(250);
-        try {
-          process.exitValue();
-        }
-        catch (IllegalThreadStateException e) {
-          process.destroy();
-        }
-      }
-      catch (InterruptedException e) {
-        e.printStackTrace();
-      }
-      */
+      return HaxeProcessRunner.start(commandLineArguments, options).get();
     }
-    catch (IOException e) {
-      e.printStackTrace();
-      //log.error(StringUtil.getMessage(e));
+    catch (ExecutionException e) {
+      e.getCause().printStackTrace();
+    }
+    catch (CancellationException e) {
+      LOG.debug("Canceled: " + commandLineArguments);
     }
     catch (InterruptedException e) {
       e.printStackTrace();
-      //log.error(StringUtil.getMessage(e));
     }
-
-    return strings;
+    return null;
   }
 
-
   /**
    * Run a shell command in the (IDEA's) current directory, capturing its standard output.
    *
@@ -18,15 +18,24 @@
  */
 package com.intellij.plugins.haxe.haxelib;
 
+import com.google.gson.JsonParseException;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.projectRoots.Sdk;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.plugins.haxe.util.HaxeDebugTimeLog;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.apache.log4j.Level;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.security.InvalidParameterException;
 import java.util.*;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Manages library retrieval and caching.
@@ -43,26 +52,154 @@ public final class HaxelibLibraryCache {
     LOG.setLevel(Level.DEBUG);
   }
 
+  /** Loading is mostly file I/O, so a small pool is plenty. */
+  private static final int LOADER_THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+  private static final ExecutorService ourLoader =
+    AppExecutorUtil.createBoundedApplicationPoolExecutor("HaxelibLibraryCache Loader", LOADER_THREADS);
+
   private final InternalCache myCache;
-  private ConcurrentSkipListSet<String> knownLibraries;
+  private volatile ConcurrentSkipListSet<String> knownLibraries;
   private final Sdk mySdk;
 
 
   public HaxelibLibraryCache(@NotNull Sdk sdk) {
 
-    List<String> installedLibs = HaxelibUtil.getInstalledLibraryNames(sdk);
+    HaxeDebugTimeLog timeLog = HaxeDebugTimeLog.startNew("HaxelibLibraryCache", HaxeDebugTimeLog.Since.StartAndPrevious);
 
     mySdk = sdk;
     myCache = new InternalCache();
     knownLibraries = new ConcurrentSkipListSet<String>();
 
-    for (String libName : installedLibs) {
-      HaxeLibrary lib = HaxeLibrary.load(this, libName, mySdk);
-      if (null != lib) {
-        myCache.add(lib);
-        knownLibraries.add(lib.getName());
+    // Start with what we knew last time, if anything, and check that it's still right in the background.
+    final HaxelibPersistentCache.Libraries stored = HaxelibPersistentCache.readLibraries(sdk);
+    if (null != stored && restoreLibraries(stored)) {
+      timeLog.stamp("Restored " + knownLibraries.size() + " libraries from disk");
+      AppExecutorUtil.getAppExecutorService().execute(() -> validateRestoredLibraries(stored));
+    } else {
+      setLibraries(loadInstalledLibraries(timeLog).values());
+      timeLog.stamp("Loaded " + knownLibraries.size() + " libraries");
+    }
+    timeLog.printIfTimeExceeds(2);
+  }
+
+  /**
+   * Find and load all installed libraries, and save them for next time.
+   */
+  @NotNull
+  private Map<String, HaxeLibrary> loadInstalledLibraries(@NotNull HaxeDebugTimeLog timeLog) {
+    List<String> installedLibs = HaxelibUtil.getInstalledLibraryNames(mySdk);
+    timeLog.stamp("Found " + installedLibs.size() + " installed libraries");
+
+    Map<String, HaxeLibrary> libs = loadLibraries(installedLibs);
+
+    VirtualFile repository = HaxelibUtil.getLibraryBasePath(mySdk);
+    if (null != repository) {
+      HaxelibPersistentCache.writeLibraries(mySdk, repository.getPath(), libs);
+      timeLog.stamp("Saved library cache");
+    }
+    return libs;
+  }
+
+  /**
+   * Re-create the libraries saved by a previous session.
+   *
+   * @return false if anything saved no longer exists; the cache is unchanged in that case.
+   */
+  private boolean restoreLibraries(@NotNull HaxelibPersistentCache.Libraries stored) {
+    VirtualFile repository = LocalFileSystem.getInstance().findFileByPath(stored.repositoryPath);
+    if (null == repository) {
+      return false;
+    }
+    HaxelibUtil.setLibraryBasePath(mySdk, repository);
+
+    List<HaxeLibrary> libs = new ArrayList<HaxeLibrary>(stored.libraries.size());
+    for (HaxelibPersistentCache.Library lib : stored.libraries) {
+      VirtualFile root = null == lib.rootUrl ? null : VirtualFileManager.getInstance().findFileByUrl(lib.rootUrl);
+      if (null == root || null == lib.name) {
+        return false;
+      }
+      try {
+        libs.add(HaxeLibrary.restore(this, lib.name, root, new HaxelibMetadata(null == lib.metadata ? "" : lib.metadata)));
+      }
+      catch (JsonParseException | InvalidParameterException e) {
+        return false;
+      }
+    }
+    setLibraries(libs);
+    return true;
+  }
+
+  /**
+   * Make sure that restored libraries are current, reloading them if not.  This runs haxelib, so
+   * it should not be run on the UI thread.
+   */
+  private void validateRestoredLibraries(@NotNull HaxelibPersistentCache.Libraries stored) {
+    HaxeDebugTimeLog timeLog = HaxeDebugTimeLog.startNew("HaxelibLibraryCache validation", HaxeDebugTimeLog.Since.StartAndPrevious);
+    VirtualFile repository = HaxelibUtil.queryLibraryBasePath(mySdk);
+    boolean current = null != repository
+                      && repository.getPath().equals(stored.repositoryPath)
+                      && HaxelibPersistentCache.isUpToDate(stored);
+    timeLog.stamp(current ? "Restored libraries are current" : "Restored libraries are stale");
+    if (!current) {
+      HaxelibUtil.setLibraryBasePath(mySdk, repository);
+      setLibraries(loadInstalledLibraries(timeLog).values());
+      timeLog.stamp("Reloaded " + knownLibraries.size() + " libraries");
+    }
+    timeLog.printIfTimeExceeds(2);
+  }
+
+  private void setLibraries(@NotNull Collection<HaxeLibrary> libs) {
+    ConcurrentSkipListSet<String> names = new ConcurrentSkipListSet<String>();
+    for (HaxeLibrary lib : libs) {
+      names.add(lib.getName());
+    }
+    myCache.replaceAll(libs);
+    knownLibraries = names;
+  }
+
+  /**
+   * Load the libraries on a bounded pool.  Loading reads haxelib.json, .current and .dev straight
+   * from the repository; haxelib is only run for libraries that can't be found that way.
+   *
+   * @return the libraries that were found, keyed by the names requested, in the order requested.
+   */
+  @NotNull
+  private Map<String, HaxeLibrary> loadLibraries(@NotNull List<String> libNames) {
+    Map<String, HaxeLibrary> libs = new LinkedHashMap<String, HaxeLibrary>(libNames.size());
+    if (libNames.size() <= 1) {
+      for (String libName : libNames) {
+        HaxeLibrary lib = HaxeLibrary.load(this, libName, mySdk);
+        if (null != lib) {
+          libs.put(libName, lib);
+        }
+      }
+      return libs;
+    }
+
+    List<Future<HaxeLibrary>> futures = new ArrayList<Future<HaxeLibrary>>(libNames.size());
+    for (final String libName : libNames) {
+      futures.add(ourLoader.submit(() -> HaxeLibrary.load(this, libName, mySdk)));
+    }
+
+    for (int i = 0; i < futures.size(); ++i) {
+      try {
+        HaxeLibrary lib = futures.get(i).get();
+        if (null != lib) {
+          libs.put(libNames.get(i), lib);
+        }
+      }
+      catch (InterruptedException e) {
+        for (Future<HaxeLibrary> future : futures) {
+          future.cancel(true);
+        }
+        Thread.currentThread().interrupt();
+        break;
+      }
+      catch (ExecutionException e) {
+        LOG.warn("Error loading library " + libNames.get(i), e.getCause());
       }
     }
+    return libs;
   }
 
   /**
@@ -224,7 +361,7 @@ public final class HaxelibLibraryCache {
    * haxelib.
    */
   private final class InternalCache {
-    final Hashtable<String, HaxeLibrary> myCache;
+    volatile Hashtable<String, HaxeLibrary> myCache;
 
     public InternalCache() {
       myCache = new Hashtable<String, HaxeLibrary>();
@@ -248,6 +385,20 @@ public final class HaxelibLibraryCache {
       }
     }
 
+    /**
+     * Replace the contents all at once, so that readers never see a partially filled cache.
+     */
+    public void replaceAll(Collection<HaxeLibrary> entries) {
+      Hashtable<String, HaxeLibrary> replacement = new Hashtable<String, HaxeLibrary>(Math.max(11, entries.size() * 2));
+      for (HaxeLibrary entry : entries) {
+        HaxeLibrary oldEntry = replacement.put(entry.getName(), entry);
+        if (null != oldEntry) {
+          LOG.warn("Duplicating cached data for entry " + entry.getName());
+        }
+      }
+      myCache = replacement;
+    }
+
     public void clear() {
       myCache.clear();
     }
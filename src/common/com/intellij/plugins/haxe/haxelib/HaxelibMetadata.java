@@ -121,6 +121,14 @@ public class HaxelibMetadata {
   }
 
 
+  /**
+   * @return the metadata as JSON text; empty if there is none.
+   */
+  @NotNull
+  String toJson() {
+    return null == root ? "" : root.toString();
+  }
+
   private JsonObject parse(String jsonData) {
     if (null == jsonData || jsonData.isEmpty()) {
       LOG.debug("Empty json metadata.");
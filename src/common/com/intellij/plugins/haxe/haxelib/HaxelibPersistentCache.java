@@ -0,0 +1,223 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.haxelib;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.projectRoots.Sdk;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.plugins.haxe.util.HaxeDebugLogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Haxelib and compiler metadata, saved in the IDE's system directory so that it survives a
+ * restart.
+ *
+ * Reading it never starts a process.  Entries record the modification times of the files they
+ * were built from, so that they can be checked later (in the background) and rebuilt if stale.
+ */
+public class HaxelibPersistentCache {
+
+  private static final HaxeDebugLogger LOG = HaxeDebugLogger.getLogger();
+
+  /** Bump when the stored format changes; older files are then ignored. */
+  private static final int FORMAT_VERSION = 1;
+  private static final String CACHE_DIR = "haxe";
+
+  private static final Gson GSON = new Gson();
+
+  private HaxelibPersistentCache() {
+  }
+
+  /**
+   * The installed libraries for an SDK.
+   */
+  static final class Libraries {
+    int formatVersion = FORMAT_VERSION;
+    String sdkHome;
+    String repositoryPath;
+    long repositoryStamp;
+    List<Library> libraries = new ArrayList<>();
+  }
+
+  static final class Library {
+    String name;        // As haxelib knows it; used to find the library directory.
+    String rootUrl;
+    String metadata;    // The library's haxelib.json contents.
+    long stamp;
+  }
+
+  /**
+   * The output of 'haxe --help-metas' and 'haxe --help-defines'.
+   */
+  public static final class Help {
+    int formatVersion = FORMAT_VERSION;
+    String haxePath;
+    long haxeStamp;
+    public List<String[]> metaTags = new ArrayList<>();   // name, description
+    public List<String[]> defines = new ArrayList<>();    // name, description
+  }
+
+  // ----- Libraries -----
+
+  @Nullable
+  static Libraries readLibraries(@NotNull Sdk sdk) {
+    String home = sdk.getHomePath();
+    if (null == home) {
+      return null;
+    }
+    Libraries stored = read(getCacheFile("haxelib", home), Libraries.class);
+    if (null == stored || stored.formatVersion != FORMAT_VERSION || !home.equals(stored.sdkHome)
+        || null == stored.repositoryPath || null == stored.libraries) {
+      return null;
+    }
+    return stored;
+  }
+
+  /**
+   * @param libraries the loaded libraries, keyed by the names they were loaded with.
+   */
+  static void writeLibraries(@NotNull Sdk sdk, @NotNull String repositoryPath, @NotNull Map<String, HaxeLibrary> libraries) {
+    String home = sdk.getHomePath();
+    if (null == home) {
+      return;
+    }
+    Libraries data = new Libraries();
+    data.sdkHome = home;
+    data.repositoryPath = repositoryPath;
+    data.repositoryStamp = new File(repositoryPath).lastModified();
+    for (Map.Entry<String, HaxeLibrary> entry : libraries.entrySet()) {
+      Library lib = new Library();
+      lib.name = entry.getKey();
+      lib.rootUrl = entry.getValue().getLibraryRoot().getUrl();
+      lib.metadata = entry.getValue().getMetadata().toJson();
+      lib.stamp = computeLibraryStamp(repositoryPath, lib.name, lib.rootUrl);
+      data.libraries.add(lib);
+    }
+    write(getCacheFile("haxelib", home), data);
+  }
+
+  /**
+   * Check whether stored libraries still match what is on disk.  Only file dates are checked;
+   * the caller must still make sure that the repository path hasn't changed.
+   */
+  static boolean isUpToDate(@NotNull Libraries stored) {
+    if (new File(stored.repositoryPath).lastModified() != stored.repositoryStamp) {
+      return false;  // Libraries have been installed or removed.
+    }
+    for (Library lib : stored.libraries) {
+      if (computeLibraryStamp(stored.repositoryPath, lib.name, lib.rootUrl) != lib.stamp) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Combines the dates of everything that decides which version of a library is used and what it
+   * contains: the library directory, .current, .dev, and the selected version's haxelib.json.
+   */
+  static long computeLibraryStamp(@NotNull String repositoryPath, @NotNull String name, @Nullable String rootUrl) {
+    File libDir = new File(repositoryPath, name.replace('.', ','));
+    long stamp = libDir.lastModified();
+    stamp = 31 * stamp + new File(libDir, ".current").lastModified();
+    stamp = 31 * stamp + new File(libDir, ".dev").lastModified();
+    if (null != rootUrl) {
+      String rootPath = VfsUtilCore.urlToPath(rootUrl);
+      stamp = 31 * stamp + new File(rootPath, "haxelib.json").lastModified();
+    }
+    return stamp;
+  }
+
+  // ----- Help -----
+
+  @Nullable
+  public static Help readHelp(@NotNull String haxePath) {
+    Help stored = read(getCacheFile("help", haxePath), Help.class);
+    if (null == stored || stored.formatVersion != FORMAT_VERSION || !haxePath.equals(stored.haxePath)
+        || null == stored.metaTags || null == stored.defines) {
+      return null;
+    }
+    return stored;
+  }
+
+  public static void writeHelp(@NotNull Help help) {
+    if (null != help.haxePath) {
+      help.haxeStamp = new File(help.haxePath).lastModified();
+      write(getCacheFile("help", help.haxePath), help);
+    }
+  }
+
+  @NotNull
+  public static Help createHelp(@NotNull String haxePath) {
+    Help help = new Help();
+    help.haxePath = haxePath;
+    return help;
+  }
+
+  /**
+   * @return whether the stored help came from the haxe executable that is there now.
+   */
+  public static boolean isUpToDate(@NotNull Help stored) {
+    long stamp = new File(stored.haxePath).lastModified();
+    return 0 != stamp && stamp == stored.haxeStamp;  // No date means we can't tell, e.g. haxe is found on the PATH.
+  }
+
+  // ----- Storage -----
+
+  @NotNull
+  private static File getCacheFile(@NotNull String kind, @NotNull String key) {
+    String name = kind + "-" + Integer.toHexString(FileUtil.toSystemIndependentName(key).hashCode()) + ".json";
+    return new File(new File(PathManager.getSystemPath(), CACHE_DIR), name);
+  }
+
+  @Nullable
+  private static <T> T read(@NotNull File file, @NotNull Class<T> type) {
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      return GSON.fromJson(FileUtil.loadFile(file, StandardCharsets.UTF_8), type);
+    }
+    catch (IOException | JsonParseException e) {
+      LOG.info("Ignoring unreadable cache file " + file + ": " + e.getMessage());
+      FileUtil.delete(file);
+      return null;
+    }
+  }
+
+  private static void write(@NotNull File file, @NotNull Object data) {
+    try {
+      // Write to the side and rename, so that a crash never leaves a half-written file.
+      File temp = new File(file.getPath() + ".tmp");
+      FileUtil.writeToFile(temp, GSON.toJson(data).getBytes(StandardCharsets.UTF_8));
+      FileUtil.rename(temp, file);
+    }
+    catch (IOException e) {
+      LOG.info("Couldn't write cache file " + file + ": " + e.getMessage());
+    }
+  }
+}
@@ -23,6 +23,7 @@ import com.intellij.openapi.application.Application;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.module.ModuleUtil;
 import com.intellij.openapi.progress.PerformInBackgroundOption;
 import com.intellij.openapi.progress.ProgressIndicator;
@@ -31,6 +32,7 @@ import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.projectRoots.Sdk;
 import com.intellij.openapi.roots.*;
+import com.intellij.openapi.roots.impl.ModifiableModelCommitter;
 import com.intellij.openapi.roots.impl.libraries.ProjectLibraryTable;
 import com.intellij.openapi.roots.libraries.Library;
 import com.intellij.openapi.roots.libraries.LibraryTable;
@@ -60,7 +62,7 @@ import org.jetbrains.io.LocalFileFinder;
 
 import java.io.File;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages Haxe library class paths across projects.
@@ -101,14 +103,21 @@ public class HaxelibProjectUpdater {
    */
   private static final boolean myRunInForeground = false;
 
+  /**
+   * The number of projects that may be synchronizing at the same time.
+   * The write actions that they generate are still run one at a time, since
+   * they all run on the AWT thread.
+   */
+  private static final int MAX_CONCURRENT_UPDATES = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
   public static final HaxelibProjectUpdater INSTANCE = new HaxelibProjectUpdater();
 
   private ProjectUpdateQueue myQueue = null;
   private ProjectMap myProjects = null;
 
   private HaxelibProjectUpdater() {
-    myQueue = new ProjectUpdateQueue();
     myProjects = new ProjectMap();
+    myQueue = new ProjectUpdateQueue(myProjects, MAX_CONCURRENT_UPDATES);
   }
 
   @NotNull
@@ -143,13 +152,21 @@ public class HaxelibProjectUpdater {
     removed = myProjects.remove(project);
     if (removed) {
       myQueue.remove(tracker);
-      if (tracker.equals(myQueue.getUpdatingProject())) {
+      if (myQueue.isUpdating(tracker)) {
         delayed = true;
       }
     }
     return delayed;
   }
 
+  /**
+   * @return how long, in milliseconds, the project last waited for its turn to
+   *         synchronize its libraries; -1 if it has not been synchronized.
+   */
+  public long getLastQueueWaitMillis(@NotNull Project project) {
+    return myQueue.metrics.getLastQueueWaitMillis(project);
+  }
+
   /**
    * Retrieve the HaxelibLibraryCacheManager for a given module/project.
    * <p>
@@ -225,25 +242,174 @@ public class HaxelibProjectUpdater {
    * @param externalLibs potential new libraries that must be available
    *                     to the module when this routine finishes.  These are
    *                     typically specified in the Haxe project files. (e.g. -lib)
+   * @return the changes to make to the module; null if there are none, or
+   *         nothing has changed since the module was last synchronized.
    */
-  private void resolveModuleLibraries(ProjectTracker tracker, Module module, HaxeLibraryList externalLibs) {
-    HaxeLibraryList toAdd;
-    HaxeLibraryList toRemove;
-
-    toAdd = new HaxeLibraryList(module);
-    toRemove = new HaxeLibraryList(module);
+  @Nullable
+  private ModuleLibraryDiff resolveModuleLibraries(ProjectTracker tracker, Module module, HaxeLibraryList externalLibs) {
     Sdk moduleSdk = ModuleRootManager.getInstance(module).getSdk();
     if (null == moduleSdk) {
       LOG.debug("No SDK for module " + module.getName() + ".  Not syncing haxelibs.");
-      return; // Nothing to do if there is no SDK.
+      return null; // Nothing to do if there is no SDK.
+    }
+
+    long fingerprint = computeFingerprint(module, externalLibs);
+    if (tracker.isFingerprintCurrent(module, fingerprint)) {
+      return null;  // The requirements and the module are both as we left them.
     }
+
+    ModuleLibraryDiff diff = new ModuleLibraryDiff(module, externalLibs);
+    HaxeLibraryList toKeep = new HaxeLibraryList(module);
     syncLibraryLists(moduleSdk,
                      HaxelibUtil.getModuleLibraries(module),
                      externalLibs,
-        /*modifies*/ toAdd,
-        /*modifies*/ toRemove);
+        /*modifies*/ diff.toAdd,
+        /*modifies*/ diff.toRemove,
+        /*modifies*/ toKeep);
+    findStaleLibraries(module, toKeep, /*modifies*/ diff.toRefresh);
+
+    if (diff.isEmpty()) {
+      tracker.setFingerprint(module, fingerprint);
+      return null;
+    }
+    return diff;
+  }
+
+  /**
+   * Find the module's own managed libraries whose roots no longer match the
+   * library that haxelib would give us (e.g. after 'haxelib set').
+   *
+   * @param module  being updated.
+   * @param kept    managed libraries that the module will continue to use.
+   * @param stale   the resulting list of libraries whose roots need replacing.
+   */
+  private void findStaleLibraries(@NotNull Module module,
+                                  @NotNull final HaxeLibraryList kept,
+                     /*modifies*/ @NotNull final HaxeLibraryList stale) {
+    if (kept.isEmpty()) {
+      return;
+    }
+    for (OrderEntry orderEntry : ModuleRootManager.getInstance(module).getOrderEntries()) {
+      if (!(orderEntry instanceof LibraryOrderEntry) || !((LibraryOrderEntry)orderEntry).isModuleLevel()) {
+        continue;
+      }
+      final Library library = ((LibraryOrderEntry)orderEntry).getLibrary();
+      if (null == library) {
+        continue;
+      }
+      kept.iterate(new HaxeLibraryList.Lambda() {
+        @Override
+        public boolean processEntry(HaxeLibraryReference entry) {
+          if (entry.matchesIdeaLib(library)) {
+            if (!getRootUrls(library).equals(getClasspathUrls(entry))) {
+              stale.add(entry);
+            }
+            return false;
+          }
+          return true;
+        }
+      });
+    }
+  }
+
+  /**
+   * Get the library's roots, normalized so that they can be compared with
+   * getClasspathUrls().
+   */
+  @NotNull
+  private static Set<String> getRootUrls(@NotNull Library library) {
+    Set<String> urls = new HashSet<String>();
+    for (String url : library.getUrls(OrderRootType.SOURCES)) {
+      urls.add(normalizeRootUrl(url));
+    }
+    return urls;
+  }
+
+  /**
+   * Get the urls of the directories that a library should contribute.
+   */
+  @NotNull
+  private static Set<String> getClasspathUrls(@NotNull HaxeLibraryReference entry) {
+    HaxeLibrary library = entry.getLibrary();
+    return getClasspathUrls(null != library ? library.getClasspathEntries() : null);
+  }
+
+  /**
+   * Get the urls of the roots that addClasspathRoots() would add for a classpath,
+   * normalized.  Like addClasspathRoots(), this skips directories that don't exist.
+   */
+  @NotNull
+  static Set<String> getClasspathUrls(@Nullable HaxeClasspath classpath) {
+    final Set<String> urls = new HashSet<String>();
+    if (null != classpath) {
+      classpath.iterate(new HaxeClasspath.Lambda() {
+        @Override
+        public boolean processEntry(HaxeClasspathEntry cp) {
+          String url = HaxeFileUtil.fixUrl(cp.getUrl());
+          VirtualFile directory = null == url ? null : VirtualFileManager.getInstance().findFileByUrl(url);
+          if (null != directory) {
+            urls.add(normalizeRootUrl(directory.getUrl()));
+          }
+          return true;
+        }
+      });
+    }
+    return urls;
+  }
+
+  /**
+   * Put a root url into one form: a file url without a trailing separator.  A jar
+   * root ("jar://path/lib.jar!/") becomes the url of the jar file itself.
+   */
+  @NotNull
+  static String normalizeRootUrl(@NotNull String url) {
+    String normalized;
+    if (url.startsWith(JarFileSystem.PROTOCOL_PREFIX)) {
+      normalized = LocalFileSystem.PROTOCOL_PREFIX + url.substring(JarFileSystem.PROTOCOL_PREFIX.length());
+      int separator = normalized.lastIndexOf(JarFileSystem.JAR_SEPARATOR.charAt(0));
+      if (separator > 0) {
+        normalized = normalized.substring(0, separator);
+      }
+    }
+    else {
+      normalized = HaxeFileUtil.fixUrl(url);
+    }
+    while (normalized.endsWith(HaxeFileUtil.SEPARATOR_STRING) && !normalized.endsWith("://")) {
+      normalized = normalized.substring(0, normalized.length() - 1);
+    }
+    return normalized;
+  }
 
-    updateModule(tracker, module, toRemove, toAdd);
+  /**
+   * Summarize the libraries a module requires and those it has.  If neither has
+   * changed since the last synchronization, then there is nothing to do.
+   */
+  private static long computeFingerprint(@NotNull Module module, @NotNull HaxeLibraryList required) {
+    final long[] hash = {17};
+    required.iterate(new HaxeLibraryList.Lambda() {
+      @Override
+      public boolean processEntry(HaxeLibraryReference entry) {
+        hash[0] = 31 * hash[0] + entry.getName().hashCode();
+        hash[0] = 31 * hash[0] + entry.getVersion().toString().hashCode();
+        HaxeLibrary library = entry.getLibrary();
+        if (null != library) {
+          hash[0] = 31 * hash[0] + library.getSourceRoot().getUrl().hashCode();
+        }
+        return true;
+      }
+    });
+    for (OrderEntry orderEntry : ModuleRootManager.getInstance(module).getOrderEntries()) {
+      if (orderEntry instanceof LibraryOrderEntry) {
+        Library library = ((LibraryOrderEntry)orderEntry).getLibrary();
+        hash[0] = 31 * hash[0] + String.valueOf(((LibraryOrderEntry)orderEntry).getLibraryName()).hashCode();
+        if (null != library) {
+          for (String url : library.getUrls(OrderRootType.SOURCES)) {
+            hash[0] = 31 * hash[0] + url.hashCode();
+          }
+        }
+      }
+    }
+    return hash[0];
   }
 
   /**
@@ -370,25 +536,7 @@ public class HaxelibProjectUpdater {
               final Library.ModifiableModel libraryModifiableModel = newLibrary.getModifiableModel();
               libraryModelToDispose = libraryModifiableModel;
 
-              HaxeLibrary entryLibrary = entry.getLibrary();
-              HaxeClasspath classpath = entryLibrary != null ? entryLibrary.getClasspathEntries() : null;
-              if (null != classpath) {
-                classpath.iterate(new HaxeClasspath.Lambda() {
-                  @Override
-                  public boolean processEntry(HaxeClasspathEntry cp) {
-                    String url = HaxeFileUtil.fixUrl(cp.getUrl());
-                    VirtualFile directory = VirtualFileManager.getInstance().findFileByUrl(url);
-                    if (null == directory) {
-                      timeLog.stamp("Skipping classpath for " + newLibrary.getName() + ", no directory entry for " + url);
-                    }
-                    else {
-                      libraryModifiableModel.addRoot(directory, OrderRootType.CLASSES);
-                      libraryModifiableModel.addRoot(directory, OrderRootType.SOURCES);
-                    }
-                    return true;
-                  }
-                });
-              }
+              addClasspathRoots(entry, newLibrary.getName(), libraryModifiableModel, timeLog);
 
               LibraryOrderEntry libraryOrderEntry = moduleModel.findLibraryOrderEntry(newLibrary);
               libraryOrderEntry.setExported(false);
@@ -414,6 +562,75 @@ public class HaxelibProjectUpdater {
     });
   }
 
+  /**
+   * Add a library's classpath directories as the roots of an IDEA library.
+   */
+  private static void addClasspathRoots(@NotNull HaxeLibraryReference entry,
+                                        @NotNull final String libraryName,
+                                        @NotNull final Library.ModifiableModel libraryModifiableModel,
+                                        @NotNull final HaxeDebugTimeLog timeLog) {
+    HaxeLibrary entryLibrary = entry.getLibrary();
+    HaxeClasspath classpath = entryLibrary != null ? entryLibrary.getClasspathEntries() : null;
+    if (null != classpath) {
+      classpath.iterate(new HaxeClasspath.Lambda() {
+        @Override
+        public boolean processEntry(HaxeClasspathEntry cp) {
+          String url = HaxeFileUtil.fixUrl(cp.getUrl());
+          VirtualFile directory = VirtualFileManager.getInstance().findFileByUrl(url);
+          if (null == directory) {
+            timeLog.stamp("Skipping classpath for " + libraryName + ", no directory entry for " + url);
+          }
+          else {
+            libraryModifiableModel.addRoot(directory, OrderRootType.CLASSES);
+            libraryModifiableModel.addRoot(directory, OrderRootType.SOURCES);
+          }
+          return true;
+        }
+      });
+    }
+  }
+
+  /**
+   * Replace the roots of libraries that are still needed, but whose classpaths have changed.
+   * This is cheaper for the IDE than removing and re-adding them.
+   *
+   * @param toRefresh - List of libraries to update.
+   * @param libraryTableModel - The (modifiable model of the) table they are in.
+   * @param timeLog - Debugging time log.
+   */
+  private void refreshLibraries(@NotNull final HaxeLibraryList toRefresh,
+                                @NotNull final LibraryTable.ModifiableModel libraryTableModel,
+                                @NotNull final HaxeDebugTimeLog timeLog) {
+    toRefresh.iterate(new HaxeLibraryList.Lambda() {
+      @Override
+      public boolean processEntry(HaxeLibraryReference entry) {
+        Library library = lookupModelLibrary(libraryTableModel, entry);
+        if (null == library) {
+          LOG.warn("Internal inconsistency: library to refresh was not found: " + entry.getName());
+          return true;
+        }
+        Library.ModifiableModel libraryModifiableModel = library.getModifiableModel();
+        try {
+          for (OrderRootType type : new OrderRootType[]{OrderRootType.CLASSES, OrderRootType.SOURCES}) {
+            for (String url : libraryModifiableModel.getUrls(type)) {
+              libraryModifiableModel.removeRoot(url, type);
+            }
+          }
+          addClasspathRoots(entry, String.valueOf(library.getName()), libraryModifiableModel, timeLog);
+          libraryModifiableModel.commit();
+          libraryModifiableModel = null;
+          timeLog.stamp("Refreshed library " + library.getName());
+        }
+        finally {
+          if (null != libraryModifiableModel) {
+            Disposer.dispose(libraryModifiableModel);
+          }
+        }
+        return true;
+      }
+    });
+  }
+
   /**
    * Ensure that all entries in the given list are managed.
    *
@@ -433,25 +650,25 @@ public class HaxelibProjectUpdater {
   }
 
   /**
-   * Workhorse routine for resolveModuleLibraries.  This does the actual
-   * update of the module.  It will block until all of the running events
-   * on the AWT thread have completed, and then this will run on that thread.
+   * Workhorse routine for syncModuleClasspaths.  This applies the changes for
+   * all of the project's modules in one write action, and commits them together
+   * so that the IDE sees one change to the project roots rather than one per
+   * module.  It will block until all of the running events on the AWT thread
+   * have completed, and then this will run on that thread.
    *
-   * @param module   to update.
-   * @param toRemove libraries that need to be removed from the module.
-   * @param toAdd    libraries that need to be added to the module.
+   * @param tracker  for the project being updated.
+   * @param diffs    changes to make, one per module.
    */
-  private void updateModule(final ProjectTracker tracker,
-                            final Module module,
-                            final HaxeLibraryList toRemove,
-                            final HaxeLibraryList toAdd) {
-    if ((null == toRemove || toRemove.isEmpty()) && (null == toAdd || toAdd.isEmpty())) {
+  private void updateModules(@NotNull final ProjectTracker tracker, @NotNull final List<ModuleLibraryDiff> diffs) {
+    if (diffs.isEmpty()) {
       return;
     }
 
     // Some internal error checking.
-    assertEntriesAreManaged(toRemove, "Attempting to automatically remove a library that was not marked as managed.");
-    assertEntriesAreManaged(toAdd, "Attempting to automatically add a library that is not marked as managed.");
+    for (ModuleLibraryDiff diff : diffs) {
+      assertEntriesAreManaged(diff.toRemove, "Attempting to automatically remove a library that was not marked as managed.");
+      assertEntriesAreManaged(diff.toAdd, "Attempting to automatically add a library that is not marked as managed.");
+    }
 
     final HaxeDebugTimeLog timeLog = new HaxeDebugTimeLog("Write action:");
     timeLog.stamp("Queueing write action...");
@@ -460,48 +677,61 @@ public class HaxelibProjectUpdater {
       @Override
       public void run() {
         timeLog.stamp("<-- Time elapsed waiting for write access on the AWT thread.");
-        timeLog.stamp("Begin: Updating module libraries for " + module.getName());
-
-        // Figure out the list of project libraries that we should reference, if we can.
-        HaxeLibraryList projectLibraries = ModuleRootManager.getInstance(module).isSdkInherited()
-                                         ? getProjectLibraryList(tracker)
-                                         : new HaxeLibraryList(module);
-        final LibraryTable projectTable = ProjectLibraryTable.getInstance(tracker.getProject());
 
-        timeLog.stamp("<-- Time elapsed retrieving project libraries.");
-
-        ModifiableRootModel moduleRootModel = null;
-        LibraryTable.ModifiableModel libraryTableModel = null;
+        final Project project = tracker.getProject();
+        final LibraryTable projectTable = ProjectLibraryTable.getInstance(project);
+        final List<ModifiableRootModel> rootModels = new ArrayList<ModifiableRootModel>(diffs.size());
         try {
-          moduleRootModel = ModuleRootManager.getInstance(module).getModifiableModel();
-          libraryTableModel = moduleRootModel.getModuleLibraryTable().getModifiableModel();
+          for (ModuleLibraryDiff diff : diffs) {
+            Module module = diff.module;
+            if (module.isDisposed()) {
+              continue;
+            }
+            timeLog.stamp("Begin: Updating module libraries for " + module.getName());
 
-          // Remove unused packed "haxelib|<lib_name>" libraries from the module and project library.
-          if (null != toRemove) {
-            removeLibraries(toRemove, libraryTableModel, timeLog);
-          }
+            // Figure out the list of project libraries that we should reference, if we can.
+            HaxeLibraryList projectLibraries = ModuleRootManager.getInstance(module).isSdkInherited()
+                                               ? getProjectLibraryList(tracker)
+                                               : new HaxeLibraryList(module);
 
-          // Add new dependencies to modules.
-          if (null != toAdd) {
-            addLibraries(toAdd, projectLibraries, projectTable, moduleRootModel, libraryTableModel, timeLog);
+            ModifiableRootModel moduleRootModel = ModuleRootManager.getInstance(module).getModifiableModel();
+            rootModels.add(moduleRootModel);
+            LibraryTable.ModifiableModel libraryTableModel = moduleRootModel.getModuleLibraryTable().getModifiableModel();
+            try {
+              // Remove unused packed "haxelib|<lib_name>" libraries from the module and project library.
+              removeLibraries(diff.toRemove, libraryTableModel, timeLog);
+              // Add new dependencies to modules.
+              addLibraries(diff.toAdd, projectLibraries, projectTable, moduleRootModel, libraryTableModel, timeLog);
+              // And point the ones we keep at the right versions.
+              refreshLibraries(diff.toRefresh, libraryTableModel, timeLog);
+
+              libraryTableModel.commit();
+              libraryTableModel = null;
+            }
+            finally {
+              if (null != libraryTableModel) {
+                timeLog.stamp("Failure to update module libraries for " + module.getName());
+                if (IdeaTarget.IS_VERSION_15_COMPATIBLE) {
+                  // libraryTableModel.dispose() in IDEA 15+; not a disposable in earlier versions.
+                  new MethodWrapper<Void>(libraryTableModel.getClass(), "dispose").invoke(libraryTableModel);
+                }
+              }
+            }
           }
 
-          timeLog.stamp("Committing changes to module libraries");
-          libraryTableModel.commit();
-          libraryTableModel = null;
-          moduleRootModel.commit();
-          moduleRootModel = null;
+          timeLog.stamp("Committing changes to " + rootModels.size() + " module(s)");
+          ModifiableRootModel[] toCommit = rootModels.toArray(new ModifiableRootModel[0]);
+          ModifiableModelCommitter.multiCommit(toCommit, ModuleManager.getInstance(project).getModifiableModel());
+          // Committing disposes of the models; only forget them once that has worked.
+          rootModels.clear();
         }
         finally {
-          if (null != moduleRootModel || null != libraryTableModel)
-            timeLog.stamp("Failure to update module libraries");
-          if (null != libraryTableModel)
-            if (IdeaTarget.IS_VERSION_15_COMPATIBLE) {
-              // libraryTableModel.dispose() in IDEA 15+; not a disposable in earlier versions.
-              new MethodWrapper<Void>(libraryTableModel.getClass(), "dispose").invoke(libraryTableModel);
+          for (ModifiableRootModel model : rootModels) {
+            // A commit that failed part way may have disposed of some of them already.
+            if (!model.isDisposed()) {
+              model.dispose();
             }
-          if (null != moduleRootModel)
-            moduleRootModel.dispose();
+          }
         }
         timeLog.stamp("Finished: Updating module libraries");
       }
@@ -518,7 +748,8 @@ public class HaxelibProjectUpdater {
    * @param module  being updated.
    * @param timeLog where to log timing results
    */
-  private void syncOneModule(@NotNull final ProjectTracker tracker, @NotNull Module module, @NotNull HaxeDebugTimeLog timeLog) {
+  @Nullable
+  private ModuleLibraryDiff syncOneModule(@NotNull final ProjectTracker tracker, @NotNull Module module, @NotNull HaxeDebugTimeLog timeLog) {
 
     Project project = tracker.getProject();
     HaxeLibraryList haxelibExternalItems = new HaxeLibraryList(module);
@@ -528,7 +759,7 @@ public class HaxelibProjectUpdater {
     // If the module says not to keep libs synched, then don't.
     if (!settings.isKeepSynchronizedWithProjectFile()) {
       timeLog.stamp("Module " + module.getName() + " is set to not synchronize dependencies.");
-      return;
+      return null;
     }
 
     switch (settings.getBuildConfiguration()) {
@@ -673,9 +904,10 @@ public class HaxelibProjectUpdater {
     // library list here because we need to remove any managed classpaths that
     // are no longer valid in the modules.  We can't do that if we don't have
     // the list of valid ones.  :/
-    timeLog.stamp("Adding libraries to module.");
-    resolveModuleLibraries(tracker, module, haxelibExternalItems);
-    timeLog.stamp("Finished adding libraries to module.");
+    timeLog.stamp("Resolving libraries for module.");
+    ModuleLibraryDiff diff = resolveModuleLibraries(tracker, module, haxelibExternalItems);
+    timeLog.stamp(null == diff ? "Module libraries are up to date." : "Finished resolving libraries for module.");
+    return diff;
   }
 
 
@@ -688,6 +920,7 @@ public class HaxelibProjectUpdater {
     timeLog.stamp("Scanning project " + project.getName());
 
     Collection<Module> modules = ModuleUtil.getModulesOfType(project, HaxeModuleType.getInstance());
+    final List<ModuleLibraryDiff> diffs = new ArrayList<ModuleLibraryDiff>(modules.size());
     int i = 0;
     final int count = modules.size();
     for (final Module module : modules) {
@@ -697,19 +930,38 @@ public class HaxelibProjectUpdater {
       //LOG.debug("Scanning module " + (++i) + " of " + count + ": " + module.getName());
       timeLog.stamp("\nScanning module " + (num) + " of " + count + ": " + module.getName());
 
+      final ModuleLibraryDiff[] diff = {null};
       if (myTestInForeground) {
-        syncOneModule(tracker, module, timeLog);
+        diff[0] = syncOneModule(tracker, module, timeLog);
       }
       else {
         // Running inside of a read action lets the UI run, and messes with the timing.
         doReadAction(new Runnable() {
           @Override
           public void run() {
-            syncOneModule(tracker, module, timeLog);
+            diff[0] = syncOneModule(tracker, module, timeLog);
           }
         });
       }
+      if (null != diff[0]) {
+        diffs.add(diff[0]);
+      }
     }
+
+    timeLog.stamp(diffs.size() + " of " + count + " module(s) need updating.");
+    updateModules(tracker, diffs);
+
+    // Remember what the modules look like now, so that we can skip them next time if nothing changes.
+    ApplicationManager.getApplication().runReadAction(new Runnable() {
+      @Override
+      public void run() {
+        for (ModuleLibraryDiff diff : diffs) {
+          if (!diff.module.isDisposed()) {
+            tracker.setFingerprint(diff.module, computeFingerprint(diff.module, diff.required));
+          }
+        }
+      }
+    });
     timeLog.stamp("Completed.");
     timeLog.print();
   }
@@ -837,13 +1089,15 @@ public class HaxelibProjectUpdater {
    * @param externallyRequired the list of libraries required by project settings. (e.g. openfl, nme)
    * @param newLibrariesToAdd the resultant list of libraries to add to currentList
    * @param oldLibrariesToRemove the resultant list of libraries to remove from currentList.
+   * @param librariesToKeep the resultant list of managed libraries in currentList that are still required.
    */
   @NotNull
   private void syncLibraryLists(@NotNull Sdk sdk,
                                 @NotNull HaxeLibraryList currentList,
                                 @NotNull HaxeLibraryList externallyRequired,
                    /*modifies*/ @NotNull HaxeLibraryList newLibrariesToAdd,
-                   /*modifies*/ @NotNull HaxeLibraryList oldLibrariesToRemove) {
+                   /*modifies*/ @NotNull HaxeLibraryList oldLibrariesToRemove,
+                   /*modifies*/ @Nullable HaxeLibraryList librariesToKeep) {
 
     final HaxeLibraryList currentManagedEntries = new HaxeLibraryList(sdk);
     final HaxeLibraryList currentUnmanagedEntries = new HaxeLibraryList(sdk);
@@ -863,7 +1117,7 @@ public class HaxelibProjectUpdater {
     dependencies.addAll(collectDependencies(currentUnmanagedEntries));
 
     // We want to remove all managed entries that we don't need any more.
-    HaxeLibraryList toRemove = currentManagedEntries;
+    final HaxeLibraryList toRemove = currentManagedEntries;
 
     // We want to add all externally required entries
     HaxeLibraryList toAdd = new HaxeLibraryList(sdk);
@@ -882,6 +1136,19 @@ public class HaxelibProjectUpdater {
 
     oldLibrariesToRemove.addAll(toRemove);
     oldLibrariesToRemove.removeAll(toAdd);
+
+    if (null != librariesToKeep) {
+      final HaxeLibraryList kept = librariesToKeep;
+      toAdd.iterate(new HaxeLibraryList.Lambda() {
+        @Override
+        public boolean processEntry(HaxeLibraryReference entry) {
+          if (toRemove.contains(entry)) {
+            kept.add(entry);
+          }
+          return true;
+        }
+      });
+    }
   }
 
 
@@ -909,7 +1176,8 @@ public class HaxelibProjectUpdater {
                      HaxelibUtil.getProjectLibraries(tracker.getProject(),false, false),
                      new HaxeLibraryList(sdk),
         /*modifies*/ toAdd,
-        /*modifies*/ toRemove );
+        /*modifies*/ toRemove,
+        /*modifies*/ null);
 
     if (!toAdd.isEmpty() && !toRemove.isEmpty()) {
       timeLog.stamp("Add/Remove calculations finished.  Queuing write task.");
@@ -1026,6 +1294,10 @@ public class HaxelibProjectUpdater {
    */
   private static void doWriteAction(final Runnable action) {
     final Application application = ApplicationManager.getApplication();
+    // Several projects may be updating at once.  Their write actions can't
+    // interleave, because each one runs to completion on the AWT thread.
+    // Don't hold a lock across invokeAndWait: the AWT thread may be waiting on
+    // something that the updating thread holds.
     application.invokeAndWait(new Runnable() {
       @Override
       public void run() {
@@ -1052,6 +1324,29 @@ public class HaxelibProjectUpdater {
     }, application.getDefaultModalityState());
   }
 
+  /**
+   * The changes needed to bring one module's managed libraries up to date.
+   */
+  private static final class ModuleLibraryDiff {
+    final Module module;
+    final HaxeLibraryList required;
+    final HaxeLibraryList toAdd;
+    final HaxeLibraryList toRemove;
+    final HaxeLibraryList toRefresh;
+
+    ModuleLibraryDiff(@NotNull Module module, @NotNull HaxeLibraryList required) {
+      this.module = module;
+      this.required = required;
+      toAdd = new HaxeLibraryList(module);
+      toRemove = new HaxeLibraryList(module);
+      toRefresh = new HaxeLibraryList(module);
+    }
+
+    boolean isEmpty() {
+      return toAdd.isEmpty() && toRemove.isEmpty() && toRefresh.isEmpty();
+    }
+  }
+
   /**
    *  Cache for project library lists.
    */
@@ -1177,6 +1472,12 @@ public class HaxelibProjectUpdater {
     boolean myIsUpdating;
     ProjectLibraryCache myCache;
     HaxelibLibraryCacheManager mySdkManager;
+    /** Fingerprints of each module's libraries when it was last synchronized. */
+    final Map<String, Long> myModuleFingerprints = new ConcurrentHashMap<String, Long>();
+    /** When the project was put into the update queue (System.nanoTime()). */
+    long myQueuedAt;
+    /** Whether the project was marked dirty again while it was updating. */
+    boolean myNeedsRerun;
 
     // TODO: Determine if we need to track whether the project is still open.
 
@@ -1213,6 +1514,18 @@ public class HaxelibProjectUpdater {
       return mySdkManager;
     }
 
+    /**
+     * Tell whether a module is unchanged since it was last synchronized.
+     */
+    public boolean isFingerprintCurrent(@NotNull Module module, long fingerprint) {
+      Long last = myModuleFingerprints.get(module.getName());
+      return null != last && last == fingerprint;
+    }
+
+    public void setFingerprint(@NotNull Module module, long fingerprint) {
+      myModuleFingerprints.put(module.getName(), fingerprint);
+    }
+
     /**
      * Tell whether this project is dirty (needs updating).
      *
@@ -1333,12 +1646,13 @@ public class HaxelibProjectUpdater {
    */
   public final class ProjectMap {
 
-    // Hashtable is already synchronized, so we don't have to manage that ourselves.
-    final Hashtable<String, ProjectTracker> myMap;
+    // Lookups happen from every project's update thread, so they must not block.
+    // Only reference counting changes need to be synchronized.
+    final ConcurrentHashMap<String, ProjectTracker> myMap;
 
 
     public ProjectMap() {
-      myMap = new Hashtable<String, ProjectTracker>();
+      myMap = new ConcurrentHashMap<String, ProjectTracker>();
     }
 
     /**
@@ -1381,20 +1695,21 @@ public class HaxelibProjectUpdater {
 
     @Nullable
     public ProjectTracker get(@NotNull Project project) {
-      ProjectTracker tracker;
-      synchronized(this) {
-        tracker = myMap.get(project.getName());
-      }
-      return tracker;
+      return myMap.get(project.getName());
+    }
+
+    /**
+     * Tell whether the tracker is still the one in use for its project.
+     */
+    public boolean isTracked(@NotNull ProjectTracker tracker) {
+      return tracker == myMap.get(tracker.getProject().getName());
     }
 
     public boolean iterate(@NotNull Lambda<ProjectTracker> lambda) {
-      synchronized(this) {
-         for(ProjectTracker tracker : myMap.values()) {
-           if (!lambda.process(tracker)) {
-             return false;
-           }
-         }
+      for (ProjectTracker tracker : myMap.values()) {
+        if (!lambda.process(tracker)) {
+          return false;
+        }
       }
       return true;
     }
@@ -1405,19 +1720,34 @@ public class HaxelibProjectUpdater {
    * A FIFO queue for projects that need updating.  Projects are tracked
    * through the ProjectTracker class. When a project placed is in this queue,
    * it is marked dirty.  When the project is being updated, it's marked
-   * as updating.  The currently updating project can be retrieved with
-   * getUpdatingProject().
+   * as updating.
+   *
+   * Up to MAX_CONCURRENT_UPDATES projects are updated at the same time, so
+   * that one slow project doesn't hold up the others.  A project is never
+   * updated by two threads at once: asking to update a project that is already
+   * queued does nothing, and asking to update one that is currently running
+   * causes it to be run once more when it finishes.
    */
-  final class ProjectUpdateQueue {
+  class ProjectUpdateQueue {
 
     final Object updateSyncToken;
-    ConcurrentLinkedQueue<ProjectTracker> queue;
-    ProjectTracker updatingProject = null;
+    final ArrayDeque<ProjectTracker> queue;
+    final Set<ProjectTracker> updatingProjects;
+    final QueueMetrics metrics;
+    final ProjectMap projects;
+    final int maxConcurrentUpdates;
 
-    public ProjectUpdateQueue() {
-      queue = new ConcurrentLinkedQueue<ProjectTracker>();
+    /**
+     * @param projects the open projects; a project that has been closed is not re-run.
+     * @param maxConcurrentUpdates the number of projects that may update at the same time.
+     */
+    ProjectUpdateQueue(@NotNull ProjectMap projects, int maxConcurrentUpdates) {
+      this.projects = projects;
+      this.maxConcurrentUpdates = maxConcurrentUpdates;
+      queue = new ArrayDeque<ProjectTracker>();
+      updatingProjects = new HashSet<ProjectTracker>();
       updateSyncToken = new Object();
-      updatingProject = null;
+      metrics = new QueueMetrics();
     }
 
     /**
@@ -1428,32 +1758,36 @@ public class HaxelibProjectUpdater {
      * @return whether there are any projects waiting to be updated.
      */
     public boolean isEmpty() {
-      return queue.isEmpty();
+      synchronized (updateSyncToken) {
+        return queue.isEmpty();
+      }
     }
 
     /**
      * Adds a new project to the update queue.  If the project already
      * exists in the queue (as described by equals()) then it will not
-     * be added.
+     * be added.  If it is currently updating, it will be re-queued as
+     * soon as the running update finishes.
      *
      * @param tracker for the project that needs to be updated.
      * @return true if the project was added to the update queue.
      */
     public boolean add(@NotNull ProjectTracker tracker) {
-      boolean ret = false;
-      // XXX: Something seems wrong about skipping the currently updating project.
-      //      What if a project change happens while the project is already running?
-      //      Should we cancel and restart instead?  And, if so, should we have a
-      //      short delay to ensure that all identical messages are already queued?
-      if (!tracker.equalsName(getUpdatingProject())) {
-        if (queue.isEmpty() || !queue.contains(tracker)) {
-          ret = queue.add(tracker);
-          if (null == getUpdatingProject()) {
-            queueNextProject();
-          }
+      synchronized (updateSyncToken) {
+        if (updatingProjects.contains(tracker)) {
+          tracker.myNeedsRerun = true;
+          metrics.coalesced(tracker);
+          return false;
+        }
+        if (queue.contains(tracker)) {
+          metrics.coalesced(tracker);
+          return false;
         }
+        tracker.myQueuedAt = System.nanoTime();
+        queue.add(tracker);
       }
-      return ret;
+      startQueuedProjects();
+      return true;
     }
 
     /**
@@ -1469,6 +1803,7 @@ public class HaxelibProjectUpdater {
       boolean removed = false;
 
       synchronized(updateSyncToken) {
+        tracker.myNeedsRerun = false;
         if (queue.remove(tracker)) {
           tracker.setUpdating(false);
           // We haven't changed anything, so it's still dirty.
@@ -1479,56 +1814,63 @@ public class HaxelibProjectUpdater {
     }
 
     /**
-     * @return the project currently being updated, if any.
+     * @return whether the project is currently being updated.
      */
-    @Nullable
-    public ProjectTracker getUpdatingProject() {
-      ProjectTracker tracker;
+    public boolean isUpdating(@Nullable ProjectTracker tracker) {
       synchronized (updateSyncToken) {
-        tracker = updatingProject;
+        return null != tracker && updatingProjects.contains(tracker);
       }
-      return tracker;
     }
 
     /**
-     * Puts the next project on the event queue.
+     * Start as many of the queued projects as there are free update slots.
      */
-    private void queueNextProject() {
-      synchronized (updateSyncToken) {
-        LOG.assertTrue(null == updatingProject);
-
-        // Get the next project from the queue. We're done if there's
-        // nothing left.
-        updatingProject = queue.poll();  // null if empty.
-        if (updatingProject == null) return;
-
-        LOG.assertTrue(updatingProject.isDirty());
-        LOG.assertTrue(!updatingProject.isUpdating());
+    private void startQueuedProjects() {
+      while (true) {
+        final ProjectTracker next;
+        synchronized (updateSyncToken) {
+          if (updatingProjects.size() >= maxConcurrentUpdates) return;
+
+          // Get the next project from the queue. We're done if there's
+          // nothing left.
+          next = queue.poll();  // null if empty.
+          if (next == null) return;
+
+          LOG.assertTrue(next.isDirty());
+          LOG.assertTrue(!next.isUpdating());
+
+          next.setUpdating(true);
+          updatingProjects.add(next);
+          metrics.started(next, System.nanoTime() - next.myQueuedAt);
+        }
 
-        updatingProject.setUpdating(true);
+        startUpdate(next);
       }
+    }
 
+    /**
+     * Start the update once the project is ready.  It must end with finishUpdate().
+     */
+    void startUpdate(@NotNull final ProjectTracker tracker) {
       // Waiting for runWhenProjectIsInitialized() ensures that the project is
       // fully loaded and accessible.  Otherwise, we crash. ;)
-      StartupManager.getInstance(updatingProject.getProject()).runWhenProjectIsInitialized(new Runnable() {
+      StartupManager.getInstance(tracker.getProject()).runWhenProjectIsInitialized(new Runnable() {
         public void run() {
-          LOG.debug("Starting haxelib library sync...");
-          runUpdate();
+          LOG.debug("Starting haxelib library sync for " + tracker.getProject().getName() + "...");
+          runUpdate(tracker);
         }
       });
-
     }
 
     /**
      * Runs the update, either in the foreground or background, depending upon
      * the state of the myTestInForeground debug flag.
      */
-    private void runUpdate() {
-      final ProjectTracker tracker = getUpdatingProject();
-      final Project project = tracker == null ? null : tracker.getProject();
+    private void runUpdate(@NotNull final ProjectTracker tracker) {
+      final Project project = tracker.getProject();
 
       if (myTestInForeground) {
-        doUpdateWork();
+        doUpdateWork(tracker);
       } else if (myRunInForeground) {
         // TODO: Put this string in a resource bundle.
         ProgressManager.getInstance().run(new Task.Modal(project, "Synchronizing with haxelib libraries...", false) {
@@ -1536,7 +1878,7 @@ public class HaxelibProjectUpdater {
           public void run(@NotNull ProgressIndicator indicator) {
             indicator.setIndeterminate(true);
             indicator.startNonCancelableSection();
-            doUpdateWork();
+            doUpdateWork(tracker);
             indicator.finishNonCancelableSection();
           }
         });
@@ -1549,7 +1891,7 @@ public class HaxelibProjectUpdater {
               new Task.Backgroundable(project, "Synchronizing with haxelib libraries...", false, PerformInBackgroundOption.ALWAYS_BACKGROUND) {
                 @Override
                 public void run(@NotNull ProgressIndicator indicator) {
-                  doUpdateWork();
+                  doUpdateWork(tracker);
                 }
               });
           }
@@ -1560,15 +1902,18 @@ public class HaxelibProjectUpdater {
     /**
      * The basic bit of work that an update does.
      */
-    private void doUpdateWork() {
+    void doUpdateWork(@NotNull ProjectTracker tracker) {
       LOG.debug("Loading referenced libraries...");
-      ProjectTracker tracker = getUpdatingProject();
-      if (null == tracker) {
-        LOG.warn("Attempt to load libraries, but no project queued for updating.");
-        return;
+      long start = System.nanoTime();
+      try {
+        if (!tracker.getProject().isDisposed()) {
+          synchronizeClasspaths(tracker);
+        }
+      }
+      finally {
+        metrics.finished(tracker, System.nanoTime() - start);
+        finishUpdate(tracker);
       }
-      synchronizeClasspaths(tracker);
-      finishUpdate(tracker);
     }
 
     /**
@@ -1576,17 +1921,110 @@ public class HaxelibProjectUpdater {
      *
      * @param up - the project that is finishing its update run.
      */
-    private void finishUpdate(ProjectTracker up) {
+    void finishUpdate(@NotNull ProjectTracker up) {
       synchronized (updateSyncToken) {
-        LOG.assertTrue(null != updatingProject);
-        LOG.assertTrue(up.equals(updatingProject));
-
-        updatingProject.setUpdating(false);
-        updatingProject.setDirty(false);
-        updatingProject = null;
+        LOG.assertTrue(updatingProjects.contains(up));
+
+        updatingProjects.remove(up);
+        up.setUpdating(false);
+        if (up.myNeedsRerun && projects.isTracked(up)) {
+          // Somebody changed the project while we were updating it; go around again.
+          // Leave it dirty.
+          up.myNeedsRerun = false;
+          up.myQueuedAt = System.nanoTime();
+          queue.add(up);
+        } else {
+          up.myNeedsRerun = false;
+          up.setDirty(false);
+        }
       }
-      queueNextProject();
+      startQueuedProjects();
     }
   } // end class projectUpdateQueue
 
+
+  /**
+   * Statistics about the time that projects spend waiting in the update queue,
+   * and running their updates.  These are written to the debug log.
+   */
+  static final class QueueMetrics {
+
+    static final class ProjectStats {
+      int updates;
+      int coalesced;
+      long totalWaitNanos;
+      long maxWaitNanos;
+      long lastWaitNanos;
+      long totalRunNanos;
+    }
+
+    private final Map<String, ProjectStats> myStats = new ConcurrentHashMap<String, ProjectStats>();
+
+    @NotNull
+    private ProjectStats statsFor(@NotNull ProjectTracker tracker) {
+      String name = tracker.getProject().getName();
+      ProjectStats stats = myStats.get(name);
+      if (null == stats) {
+        ProjectStats created = new ProjectStats();
+        stats = myStats.putIfAbsent(name, created);
+        if (null == stats) {
+          stats = created;
+        }
+      }
+      return stats;
+    }
+
+    void coalesced(@NotNull ProjectTracker tracker) {
+      ProjectStats stats = statsFor(tracker);
+      synchronized (stats) {
+        stats.coalesced++;
+      }
+    }
+
+    void started(@NotNull ProjectTracker tracker, long waitNanos) {
+      ProjectStats stats = statsFor(tracker);
+      synchronized (stats) {
+        stats.updates++;
+        stats.lastWaitNanos = waitNanos;
+        stats.totalWaitNanos += waitNanos;
+        stats.maxWaitNanos = Math.max(stats.maxWaitNanos, waitNanos);
+      }
+      if (LOG.isDebugEnabled()) {
+        LOG.debug(tracker + " waited " + toMillis(waitNanos) + "ms in the update queue.");
+      }
+    }
+
+    void finished(@NotNull ProjectTracker tracker, long runNanos) {
+      ProjectStats stats = statsFor(tracker);
+      synchronized (stats) {
+        stats.totalRunNanos += runNanos;
+        if (LOG.isDebugEnabled()) {
+          LOG.debug(tracker + " updated in " + toMillis(runNanos) + "ms"
+                    + " (updates: " + stats.updates
+                    + ", coalesced requests: " + stats.coalesced
+                    + ", average wait: " + toMillis(stats.totalWaitNanos / stats.updates) + "ms"
+                    + ", max wait: " + toMillis(stats.maxWaitNanos) + "ms)");
+        }
+      }
+    }
+
+    /**
+     * @return how long the project last waited in the queue before its update started,
+     *         in milliseconds; -1 if it has never been updated.
+     */
+    long getLastQueueWaitMillis(@NotNull Project project) {
+      ProjectStats stats = myStats.get(project.getName());
+      if (null == stats) {
+        return -1;
+      }
+      synchronized (stats) {
+        return toMillis(stats.lastWaitNanos);
+      }
+    }
+
+    private static long toMillis(long nanos) {
+      return nanos / 1000000;
+    }
+  }
+
 }
\ No newline at end of file
@@ -70,20 +70,37 @@ public class HaxelibUtil {
   public static VirtualFile getLibraryBasePath(@NotNull final Sdk sdk) {
     VirtualFile rootDirectory = sdk.getUserData(HaxelibRootKey);
     if (null == rootDirectory) {
-      List<String> output = HaxelibCommandUtils.issueHaxelibCommand(sdk, "config");
-      for (String s : output) {
-        if (s.isEmpty()) continue;
-        VirtualFile file = LocalFileSystem.getInstance().findFileByPath(s);
-        if (null != file) {
-          rootDirectory = file;
-          sdk.putUserData(HaxelibRootKey, file);
-          break;
-        }
+      rootDirectory = queryLibraryBasePath(sdk);
+      if (null != rootDirectory) {
+        sdk.putUserData(HaxelibRootKey, rootDirectory);
       }
     }
     return rootDirectory;
   }
 
+  /**
+   * Ask haxelib for the base path, bypassing (and not updating) the value cached on the SDK.
+   */
+  @Nullable
+  static VirtualFile queryLibraryBasePath(@NotNull final Sdk sdk) {
+    List<String> output = HaxelibCommandUtils.issueHaxelibCommand(sdk, "config");
+    for (String s : output) {
+      if (s.isEmpty()) continue;
+      VirtualFile file = LocalFileSystem.getInstance().findFileByPath(s);
+      if (null != file) {
+        return file;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Set the base path cached on the SDK, e.g. when it has been restored from disk.
+   */
+  static void setLibraryBasePath(@NotNull final Sdk sdk, @Nullable VirtualFile rootDirectory) {
+    sdk.putUserData(HaxelibRootKey, rootDirectory);
+  }
+
 
   public static VirtualFile getLibraryRoot(@NotNull Sdk sdk, @NotNull String libName) {
     LocalFileSystem lfs = LocalFileSystem.getInstance();
@@ -100,14 +117,15 @@ public class HaxelibUtil {
     // if it exists, uses the path found in that file.
     // Failing that, it looks for .current in the same path, and uses the semantic
     // version found in that file to compute the path name.
-    String libDirName = HaxeFileUtil.joinPath(rootName, libName);
+    // Dots in library names are stored as commas in the repository.
+    String libDirName = HaxeFileUtil.joinPath(rootName, libName.replace('.', ','));
     VirtualFile libDir = lfs.findFileByPath(libDirName);
     if (null != libDir) {
       // Hidden ".dev" file takes precedence.  It contains the path to the library root.
       VirtualFile dotDev = libDir.findChild(".dev");
       if (null != dotDev) {
         try {
-          String libRootName = FileUtil.loadFile(new File(dotDev.getPath()));
+          String libRootName = FileUtil.loadFile(new File(dotDev.getPath())).trim();
           VirtualFile libRoot = lfs.findFileByPath(libRootName);
           if (null != libRoot) {
             return libRoot;
@@ -124,7 +142,7 @@ public class HaxelibUtil {
         try {
           String currentVer = FileUtil.loadFile(new File(dotCurrent.getPath()));
           HaxelibSemVer semver = HaxelibSemVer.create(currentVer.trim());
-          String libRootName = HaxeFileUtil.joinPath(rootName, libName, semver.toDirString());
+          String libRootName = HaxeFileUtil.joinPath(libDirName, semver.toDirString());
           VirtualFile libRoot = lfs.findFileByPath(libRootName);
           if (null != libRoot) {
             return libRoot;
@@ -181,7 +199,16 @@ public class HaxelibUtil {
   }
 
 
+  /**
+   * Get the names of the installed libraries.  The haxelib repository is read directly, if it can
+   * be found; otherwise, we ask 'haxelib list'.
+   */
   public static List<String> getInstalledLibraryNames(@NotNull Sdk sdk) {
+    List<String> fromRepository = findInstalledLibraryNames(sdk);
+    if (null != fromRepository && !fromRepository.isEmpty()) {
+      return fromRepository;
+    }
+
     final List<String> listCmdOutput = HaxelibCommandUtils.issueHaxelibCommand(sdk, "list");
     if ((listCmdOutput.size() > 0) && (! listCmdOutput.get(0).contains("Unknown command"))) {
       final List<String> installedHaxelibs = new ArrayList<String>();
@@ -196,6 +223,40 @@ public class HaxelibUtil {
   }
 
 
+  /**
+   * Find the installed libraries by reading the haxelib repository, the way 'haxelib list' does,
+   * but without starting a process.  A library is a directory containing a .current or .dev file.
+   * Directory names encode the dots in library names as commas.
+   *
+   * @return the names of the installed libraries; null if the repository couldn't be located.
+   */
+  @Nullable
+  public static List<String> findInstalledLibraryNames(@NotNull Sdk sdk) {
+    VirtualFile haxelibRoot = getLibraryBasePath(sdk);
+    return null == haxelibRoot ? null : listRepositoryLibraries(new File(haxelibRoot.getPath()));
+  }
+
+  @Nullable
+  static List<String> listRepositoryLibraries(@NotNull File repository) {
+    File[] children = repository.listFiles();
+    if (null == children) {
+      return null;
+    }
+    List<String> names = new ArrayList<String>(children.length);
+    for (File child : children) {
+      String dirName = child.getName();
+      if (dirName.startsWith(".") || !child.isDirectory()) {
+        continue;
+      }
+      if (new File(child, ".current").isFile() || new File(child, ".dev").isFile()) {
+        names.add(dirName.replace(',', '.'));
+      }
+    }
+    Collections.sort(names);
+    return names;
+  }
+
+
   /**
    * Get the libraries for the given module.  This does not include any
    * libraries from projects or SDKs.
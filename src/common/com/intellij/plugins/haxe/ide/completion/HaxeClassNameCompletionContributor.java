@@ -119,8 +119,11 @@ public class HaxeClassNameCompletionContributor extends CompletionContributor {
                                            @Nullable final InsertHandler<LookupElement> insertHandler) {
     final Project project = targetFile.getProject();
     final GlobalSearchScope scope = HaxeResolveUtil.getScopeForElement(targetFile);
-    final MyProcessor processor = new MyProcessor(resultSet, prefixPackage, insertHandler);
-    HaxeComponentIndex.processAll(project, processor, scope);
+    final MyProcessor processor = new MyProcessor(resultSet, insertHandler);
+    // Only look up the names that can match what has been typed so far (the prefix
+    // matcher understands camel humps), and add them to the lookup as they are found.
+    final PrefixMatcher matcher = resultSet.getPrefixMatcher();
+    HaxeComponentIndex.processByName(project, matcher::prefixMatches, prefixPackage, scope, processor);
   }
 
   private static void addVariantsFromImports(final CompletionResultSet resultSet,
@@ -185,28 +188,23 @@ public class HaxeClassNameCompletionContributor extends CompletionContributor {
   private static class MyProcessor implements Processor<Pair<String, HaxeClassInfo>> {
     private final CompletionResultSet myResultSet;
     @Nullable private final InsertHandler<LookupElement> myInsertHandler;
-    @Nullable private final String myPrefixPackage;
 
     private MyProcessor(CompletionResultSet resultSet,
-                        @Nullable String prefixPackage,
                         @Nullable InsertHandler<LookupElement> insertHandler) {
       myResultSet = resultSet;
-      myPrefixPackage = prefixPackage;
       myInsertHandler = insertHandler;
     }
 
     @Override
     public boolean process(Pair<String, HaxeClassInfo> pair) {
       HaxeClassInfo info = pair.getSecond();
-      if (myPrefixPackage == null || myPrefixPackage.equalsIgnoreCase(info.getValue())) {
-        String name = pair.getFirst();
-        final String qName = HaxeResolveUtil.joinQName(info.getValue(), name);
-        myResultSet.addElement(LookupElementBuilder.create(qName, name)
-                                 .withIcon(info.getCompletionIcon())
-                                 .withTailText(" " + info.getValue(), true)
-                                 .withInsertHandler(myInsertHandler));
-      }
-      return true;
+      String name = pair.getFirst();
+      final String qName = HaxeResolveUtil.joinQName(info.getValue(), name);
+      myResultSet.addElement(LookupElementBuilder.create(qName, name)
+                               .withIcon(info.getCompletionIcon())
+                               .withTailText(" " + info.getValue(), true)
+                               .withInsertHandler(myInsertHandler));
+      return !myResultSet.isStopped();
     }
   }
 }
@@ -34,6 +34,7 @@ import com.intellij.plugins.haxe.compilation.HaxeCompilerServices;
 import com.intellij.plugins.haxe.compilation.HaxeCompilerUtil;
 import com.intellij.plugins.haxe.config.sdk.HaxeSdkAdditionalDataBase;
 import com.intellij.plugins.haxe.config.sdk.HaxeSdkUtil;
+import com.intellij.plugins.haxe.ide.metrics.HaxeMetrics;
 import com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes;
 import com.intellij.plugins.haxe.lang.psi.HaxeIdentifier;
 import com.intellij.plugins.haxe.lang.psi.HaxeReferenceExpression;
@@ -95,8 +96,13 @@ public class HaxeCompilerCompletionContributor extends CompletionContributor {
                Editor     editor  = parameters.getEditor();
                myProject          = file.getProject();
 
-               List<HaxeCompilerCompletionItem> completions =
-                   compilerServices.getPossibleCompletions(file, element, editor);
+               final long start = HaxeMetrics.start();
+               List<HaxeCompilerCompletionItem> completions;
+               try {
+                 completions = compilerServices.getPossibleCompletions(file, element, editor);
+               } finally {
+                 HaxeMetrics.stop(myProject, HaxeMetrics.Operation.COMPILER_COMPLETION, start);
+               }
                for (HaxeCompilerCompletionItem completion : completions) {
                  result.addElement(completion.toLookupElement());
                }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.ide.index;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.plugins.haxe.lang.psi.HaxeClass;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StringStubIndexExtension;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
+import com.intellij.util.Processor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Types, keyed by the package that they are declared in.  Types in the
+ * default (top-level) package are keyed by the empty string.
+ */
+public class HaxeClassPackageIndex extends StringStubIndexExtension<HaxeClass> {
+  public static final StubIndexKey<String, HaxeClass> HAXE_CLASS_PACKAGE_INDEX = StubIndexKey.createIndexKey("haxe.class.package.index");
+  private static final int INDEX_VERSION = HaxeIndexUtil.BASE_INDEX_VERSION + 1;
+
+  @NotNull
+  @Override
+  public StubIndexKey<String, HaxeClass> getKey() {
+    return HAXE_CLASS_PACKAGE_INDEX;
+  }
+
+  @Override
+  public int getVersion() {
+    return super.getVersion() + INDEX_VERSION;
+  }
+
+  /**
+   * Find the packages in the scope whose names match the given one, ignoring case.
+   * There are few packages compared to types, so the keys are simply scanned.
+   */
+  @NotNull
+  public static List<String> getPackageNamesIgnoreCase(@NotNull final String packageName,
+                                                       @NotNull Project project,
+                                                       @NotNull GlobalSearchScope scope) {
+    HaxeIndexUtil.warnIfDumbMode(project);
+    final List<String> names = new ArrayList<String>();
+    StubIndex.getInstance().processAllKeys(HAXE_CLASS_PACKAGE_INDEX, new Processor<String>() {
+      @Override
+      public boolean process(String name) {
+        if (packageName.equalsIgnoreCase(name)) {
+          names.add(name);
+        }
+        return true;
+      }
+    }, scope, null);
+    return names;
+  }
+
+  /**
+   * Feed the types declared in a package to the processor.
+   *
+   * @return false if the processor stopped the iteration.
+   */
+  public static boolean processClassesInPackage(@NotNull String packageName,
+                                                @NotNull Project project,
+                                                @NotNull GlobalSearchScope scope,
+                                                @NotNull Processor<? super HaxeClass> processor) {
+    HaxeIndexUtil.warnIfDumbMode(project);
+    return StubIndex.getInstance().processElements(HAXE_CLASS_PACKAGE_INDEX, packageName, project, scope, HaxeClass.class, processor);
+  }
+}
@@ -43,7 +43,7 @@ import java.util.Map;
  */
 public class HaxeComponentFileNameIndex extends ScalarIndexExtension<String> {
   public static final ID<String, Void> HAXE_COMPONENT_FILE_NAME_INDEX = ID.create("HaxeComponentFileNameIndex");
-  private static final int INDEX_VERSION = HaxeIndexUtil.BASE_INDEX_VERSION + 4;
+  private static final int INDEX_VERSION = HaxeIndexUtil.BASE_INDEX_VERSION + 5;
   private DataIndexer<String, Void, FileContent> myDataIndexer = new MyDataIndexer();
 
   /** The list of files searched in dumb mode.  (Always empty.) */
@@ -116,32 +116,102 @@ public class HaxeComponentFileNameIndex extends ScalarIndexExtension<String> {
       .getFilesWithKey(HAXE_COMPONENT_FILE_NAME_INDEX, Collections.<String>singleton(qName), processor, filter);
   }
 
+  /**
+   * When set, every file that is indexed is also indexed the old way, from its PSI, and any
+   * differences are logged.  This is slow; it's meant for checking the lexer-based indexer
+   * against a corpus.  Turn it on by starting the IDE with {@code -Dhaxe.index.verifyAgainstPsi=true}
+   * (and rebuilding the indices).
+   */
+  private static final boolean VERIFY_AGAINST_PSI = Boolean.getBoolean("haxe.index.verifyAgainstPsi");
+
   private static class MyDataIndexer implements DataIndexer<String, Void, FileContent> {
     @Override
     @NotNull
     public Map<String, Void> map(final FileContent inputData) {
-      final PsiFile psiFile = inputData.getPsiFile();
       final String moduleName = FileUtil.getNameWithoutExtension(inputData.getFileName());
-      final List<HaxeClass> classes = HaxeResolveUtil.findComponentDeclarations(psiFile);
-      if (classes.isEmpty()) {
-        return Collections.emptyMap();
-      }
-      boolean moduleAdded = false;
-      final Map<String, Void> result = new THashMap<String, Void>(classes.size());
-      for (HaxeClass haxeClass : classes) {
-        final String className = haxeClass.getName();
-        if (className != null) {
-          if(!moduleAdded && className.equals(moduleName)) {
-            moduleAdded = true;
-          }
-          result.put(haxeClass.getQualifiedName(), null);
+      final HaxeTopLevelDeclarationScanner.Result scanned =
+        HaxeTopLevelDeclarationScanner.scan(inputData.getProject(), inputData.getContentAsText());
+      final Map<String, Void> result = mapFromScan(scanned, moduleName);
+
+      if (VERIFY_AGAINST_PSI) {
+        final List<String> differences = diff(result, mapFromPsi(inputData.getPsiFile(), moduleName));
+        if (!differences.isEmpty()) {
+          HaxeIndexUtil.LOG.warn("Lexer and PSI indexers disagree on " + inputData.getFile().getPath() + ": " + differences);
         }
       }
-      if(!moduleAdded) {
-        String mainModuleName = HaxeResolveUtil.joinQName(HaxeResolveUtil.getPackageName(psiFile), moduleName);
-        result.put(mainModuleName, null);
-      }
       return result;
     }
   }
+
+  /**
+   * Runs both the lexer-based and the PSI-based indexers over a file.
+   *
+   * @return a description of each key that the indexers don't agree upon; empty if they match.
+   */
+  @NotNull
+  public static List<String> verifyAgainstPsi(@NotNull PsiFile psiFile) {
+    final String moduleName = FileUtil.getNameWithoutExtension(psiFile.getName());
+    final HaxeTopLevelDeclarationScanner.Result scanned =
+      HaxeTopLevelDeclarationScanner.scan(psiFile.getProject(), psiFile.getViewProvider().getContents());
+    return diff(mapFromScan(scanned, moduleName), mapFromPsi(psiFile, moduleName));
+  }
+
+  @NotNull
+  private static List<String> diff(@NotNull Map<String, Void> fromLexer, @NotNull Map<String, Void> fromPsi) {
+    final List<String> differences = new ArrayList<String>();
+    for (String key : fromLexer.keySet()) {
+      if (!fromPsi.containsKey(key)) {
+        differences.add("+" + key);
+      }
+    }
+    for (String key : fromPsi.keySet()) {
+      if (!fromLexer.containsKey(key)) {
+        differences.add("-" + key);
+      }
+    }
+    return differences;
+  }
+
+  @NotNull
+  private static Map<String, Void> mapFromScan(@NotNull HaxeTopLevelDeclarationScanner.Result scanned, @NotNull String moduleName) {
+    final String packageName = scanned.getPackageName();
+    final List<String> typeNames = scanned.getTypeNames();
+    if (typeNames.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    // Mirrors AbstractHaxePsiClass.getQualifiedName(): types not named for their module are qualified by it.
+    final boolean isStdTypes = packageName.isEmpty() && "StdTypes".equals(moduleName);
+    final String modulePackage = HaxeResolveUtil.joinQName(packageName, moduleName);
+    final Map<String, Void> result = new THashMap<String, Void>(typeNames.size() + 1);
+    for (String typeName : typeNames) {
+      final boolean ancillary = !isStdTypes && !typeName.equals(moduleName);
+      result.put(HaxeResolveUtil.joinQName(ancillary ? modulePackage : packageName, typeName), null);
+    }
+    result.put(modulePackage, null);
+    return result;
+  }
+
+  @NotNull
+  private static Map<String, Void> mapFromPsi(@NotNull PsiFile psiFile, @NotNull String moduleName) {
+    final List<HaxeClass> classes = HaxeResolveUtil.findComponentDeclarations(psiFile);
+    if (classes.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    boolean moduleAdded = false;
+    final Map<String, Void> result = new THashMap<String, Void>(classes.size());
+    for (HaxeClass haxeClass : classes) {
+      final String className = haxeClass.getName();
+      if (className != null) {
+        if(!moduleAdded && className.equals(moduleName)) {
+          moduleAdded = true;
+        }
+        result.put(haxeClass.getQualifiedName(), null);
+      }
+    }
+    if(!moduleAdded) {
+      String mainModuleName = HaxeResolveUtil.joinQName(HaxeResolveUtil.getPackageName(psiFile), moduleName);
+      result.put(mainModuleName, null);
+    }
+    return result;
+  }
 }
@@ -19,128 +19,123 @@
 package com.intellij.plugins.haxe.ide.index;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Condition;
+import com.intellij.openapi.util.Conditions;
 import com.intellij.openapi.util.Pair;
-import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.plugins.haxe.HaxeComponentType;
-import com.intellij.plugins.haxe.HaxeFileType;
 import com.intellij.plugins.haxe.lang.psi.HaxeClass;
 import com.intellij.plugins.haxe.lang.psi.HaxeComponent;
 import com.intellij.plugins.haxe.util.HaxeResolveUtil;
-import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiManager;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StringStubIndexExtension;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
 import com.intellij.util.Processor;
-import com.intellij.util.indexing.*;
-import com.intellij.util.io.DataExternalizer;
-import com.intellij.util.io.EnumeratorStringDescriptor;
-import com.intellij.util.io.KeyDescriptor;
-import gnu.trove.THashMap;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
 /**
+ * Types, keyed by their short name.
+ *
  * @author: Fedor.Korotkov
  */
-public class HaxeComponentIndex extends FileBasedIndexExtension<String, HaxeClassInfo> {
-  public static final ID<String, HaxeClassInfo> HAXE_COMPONENT_INDEX = ID.create("HaxeComponentIndex");
-  private static final int INDEX_VERSION = HaxeIndexUtil.BASE_INDEX_VERSION + 6;
-  private final DataIndexer<String, HaxeClassInfo, FileContent> myIndexer = new MyDataIndexer();
-  private final DataExternalizer<HaxeClassInfo> myExternalizer = new HaxeClassInfoExternalizer();
+public class HaxeComponentIndex extends StringStubIndexExtension<HaxeClass> {
+  public static final StubIndexKey<String, HaxeClass> HAXE_COMPONENT_INDEX = StubIndexKey.createIndexKey("haxe.component.index");
+  private static final int INDEX_VERSION = HaxeIndexUtil.BASE_INDEX_VERSION + 7;
 
   @NotNull
   @Override
-  public ID<String, HaxeClassInfo> getName() {
+  public StubIndexKey<String, HaxeClass> getKey() {
     return HAXE_COMPONENT_INDEX;
   }
 
   @Override
   public int getVersion() {
-    return INDEX_VERSION;
-  }
-
-  @Override
-  public boolean dependsOnFileContent() {
-    return true;
+    return super.getVersion() + INDEX_VERSION;
   }
 
-  @Override
-  public KeyDescriptor<String> getKeyDescriptor() {
-    return new EnumeratorStringDescriptor();
-  }
-
-  @Override
-  public DataExternalizer<HaxeClassInfo> getValueExternalizer() {
-    return myExternalizer;
-  }
-
-  @Override
-  public FileBasedIndex.InputFilter getInputFilter() {
-    return HaxeSdkInputFilter.INSTANCE;
+  public static List<HaxeComponent> getItemsByName(String name, Project project, GlobalSearchScope searchScope) {
+    HaxeIndexUtil.warnIfDumbMode(project);
+    return new ArrayList<HaxeComponent>(StubIndex.getElements(HAXE_COMPONENT_INDEX, name, project, searchScope, HaxeClass.class));
   }
 
-  @NotNull
-  @Override
-  public DataIndexer<String, HaxeClassInfo, FileContent> getIndexer() {
-    return myIndexer;
+  public static void processAll(Project project, Processor<Pair<String, HaxeClassInfo>> processor, GlobalSearchScope scope) {
+    processByName(project, Conditions.<String>alwaysTrue(), null, scope, processor);
   }
 
-  public static List<HaxeComponent> getItemsByName(String name, Project project, GlobalSearchScope searchScope) {
+  /**
+   * Feed the types whose names are accepted by the filter to the processor, as they are found.
+   *
+   * When a package name is given, only the types of the packages with that name,
+   * ignoring case, are looked at (using {@link HaxeClassPackageIndex}).  Otherwise, only the names that are present
+   * in the scope are checked against the filter, and only those that match are
+   * looked up.
+   *
+   * @param nameFilter    decides which short names are interesting (e.g. a completion prefix matcher).
+   * @param packageName   package to restrict the search to; null to search all packages.
+   * @return false if the processor stopped the iteration.
+   */
+  public static boolean processByName(@NotNull final Project project,
+                                      @NotNull final Condition<String> nameFilter,
+                                      @Nullable final String packageName,
+                                      @NotNull final GlobalSearchScope scope,
+                                      @NotNull final Processor<Pair<String, HaxeClassInfo>> processor) {
     HaxeIndexUtil.warnIfDumbMode(project);
-    Collection<VirtualFile> files =
-      FileBasedIndex.getInstance().getContainingFiles(HAXE_COMPONENT_INDEX, name, searchScope);
-    final List<HaxeComponent> result = new ArrayList<HaxeComponent>();
-    for (VirtualFile vFile : files) {
-      PsiFile file = PsiManager.getInstance(project).findFile(vFile);
-      if (file == null || file.getFileType() != HaxeFileType.HAXE_FILE_TYPE) {
-        continue;
-      }
-      final HaxeComponent component = HaxeResolveUtil.findComponentDeclaration(file, name);
-      if (component != null) {
-        result.add(component);
+
+    if (null != packageName) {
+      // The package is matched ignoring case, as it always has been; what was typed
+      // may not be spelled like the package.  Report the package as it is declared.
+      for (final String declaredPackage : HaxeClassPackageIndex.getPackageNamesIgnoreCase(packageName, project, scope)) {
+        boolean keepGoing = HaxeClassPackageIndex.processClassesInPackage(declaredPackage, project, scope, new Processor<HaxeClass>() {
+          @Override
+          public boolean process(HaxeClass haxeClass) {
+            final String name = HaxeResolveUtil.splitQName(haxeClass.getQualifiedName()).getSecond();
+            if (!nameFilter.value(name)) {
+              return true;
+            }
+            return processor.process(Pair.create(name, new HaxeClassInfo(declaredPackage, HaxeComponentType.typeOf(haxeClass))));
+          }
+        });
+        if (!keepGoing) {
+          return false;
+        }
       }
+      return true;
     }
-    return result;
-  }
 
-  public static void processAll(Project project, Processor<Pair<String, HaxeClassInfo>> processor, GlobalSearchScope scope) {
-    HaxeIndexUtil.warnIfDumbMode(project);
-    final Collection<String> keys = getNames(project);
-    for (String key : keys) {
-      final List<HaxeClassInfo> values = FileBasedIndex.getInstance().getValues(HAXE_COMPONENT_INDEX, key, scope);
-      for (HaxeClassInfo value : values) {
-        final Pair<String, HaxeClassInfo> pair = Pair.create(key, value);
-        if (!processor.process(pair)) {
-          return;
+    // Collect the names first: looking up elements while iterating over the keys is not allowed.
+    final List<String> names = new ArrayList<String>();
+    StubIndex.getInstance().processAllKeys(HAXE_COMPONENT_INDEX, new Processor<String>() {
+      @Override
+      public boolean process(String name) {
+        if (nameFilter.value(name)) {
+          names.add(name);
         }
+        return true;
+      }
+    }, scope, null);
+
+    for (final String name : names) {
+      boolean keepGoing = StubIndex.getInstance().processElements(HAXE_COMPONENT_INDEX, name, project, scope, HaxeClass.class,
+                                                                  new Processor<HaxeClass>() {
+        @Override
+        public boolean process(HaxeClass haxeClass) {
+          final String packageName = HaxeResolveUtil.splitQName(haxeClass.getQualifiedName()).getFirst();
+          final HaxeClassInfo info = new HaxeClassInfo(packageName, HaxeComponentType.typeOf(haxeClass));
+          return processor.process(Pair.create(name, info));
+        }
+      });
+      if (!keepGoing) {
+        return false;
       }
     }
+    return true;
   }
 
   public static Collection<String> getNames(Project project) {
     HaxeIndexUtil.warnIfDumbMode(project);
-    return FileBasedIndex.getInstance().getAllKeys(HAXE_COMPONENT_INDEX, project);
-  }
-
-  private static class MyDataIndexer implements DataIndexer<String, HaxeClassInfo, FileContent> {
-    @Override
-    @NotNull
-    public Map<String, HaxeClassInfo> map(final FileContent inputData) {
-      final PsiFile psiFile = inputData.getPsiFile();
-      final List<HaxeClass> classes = HaxeResolveUtil.findComponentDeclarations(psiFile);
-      if (classes.isEmpty()) {
-        return Collections.emptyMap();
-      }
-      final Map<String, HaxeClassInfo> result = new THashMap<String, HaxeClassInfo>(classes.size());
-      for (HaxeClass haxeClass : classes) {
-        if (haxeClass.getName() == null) {
-          continue;
-        }
-        final Pair<String, String> packageAndName = HaxeResolveUtil.splitQName(haxeClass.getQualifiedName());
-        final HaxeClassInfo info = new HaxeClassInfo(packageAndName.getFirst(), HaxeComponentType.typeOf(haxeClass));
-        result.put(packageAndName.getSecond(), info);
-      }
-      return result;
-    }
+    return StubIndex.getInstance().getAllKeys(HAXE_COMPONENT_INDEX, project);
   }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.ide.index;
+
+import com.intellij.lexer.Lexer;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.plugins.haxe.lang.lexer.HaxeFlexLexer;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import static com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes.PPEXPRESSION;
+
+/**
+ * Maps each conditional compilation identifier (the "debug" in "#if debug") to the files that
+ * test it in an #if or #elseif condition.
+ *
+ * When a define changes, only those files lex (and so parse) differently.  Conditions are
+ * collected from every block, active or not, so the index doesn't depend on the current
+ * defines itself.
+ */
+public class HaxeConditionalIdentifierIndex extends ScalarIndexExtension<String> {
+  public static final ID<String, Void> HAXE_CONDITIONAL_IDENTIFIER_INDEX = ID.create("HaxeConditionalIdentifierIndex");
+  private static final int INDEX_VERSION = HaxeIndexUtil.BASE_INDEX_VERSION;
+  private final DataIndexer<String, Void, FileContent> myDataIndexer = new MyDataIndexer();
+
+  @NotNull
+  @Override
+  public ID<String, Void> getName() {
+    return HAXE_CONDITIONAL_IDENTIFIER_INDEX;
+  }
+
+  @NotNull
+  @Override
+  public DataIndexer<String, Void, FileContent> getIndexer() {
+    return myDataIndexer;
+  }
+
+  @Override
+  public int getVersion() {
+    return INDEX_VERSION;
+  }
+
+  @Override
+  public boolean dependsOnFileContent() {
+    return true;
+  }
+
+  @NotNull
+  @Override
+  public KeyDescriptor<String> getKeyDescriptor() {
+    return new EnumeratorStringDescriptor();
+  }
+
+  @NotNull
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return HaxeSdkInputFilter.INSTANCE;
+  }
+
+  /**
+   * Defines are given on the command line as "-D my-flag" but tested as "#if my_flag".
+   */
+  @NotNull
+  public static String normalize(@NotNull String define) {
+    final int equals = define.indexOf('=');
+    final String name = equals < 0 ? define : define.substring(0, equals);
+    return name.trim().replace('-', '_');
+  }
+
+  /**
+   * @return the files that mention any of the identifiers in their conditions.  Must be called in
+   *         a read action, and not in dumb mode.
+   */
+  @NotNull
+  public static Set<VirtualFile> getFilesReferencing(@NotNull Project project,
+                                                     @NotNull Collection<String> identifiers,
+                                                     @NotNull GlobalSearchScope scope) {
+    if (identifiers.isEmpty() || !HaxeIndexUtil.warnIfDumbMode(project)) {
+      return Collections.emptySet();
+    }
+    final Set<VirtualFile> files = new THashSet<>();
+    final FileBasedIndex index = FileBasedIndex.getInstance();
+    for (String identifier : identifiers) {
+      index.getFilesWithKey(HAXE_CONDITIONAL_IDENTIFIER_INDEX, Collections.singleton(normalize(identifier)),
+                            file -> { files.add(file); return true; }, scope);
+    }
+    return files;
+  }
+
+  /**
+   * @return the identifiers used in the file's conditions.
+   */
+  @NotNull
+  public static Set<String> scan(@NotNull CharSequence text) {
+    if (text.length() == 0) {
+      return Collections.emptySet();
+    }
+    final Set<String> identifiers = new THashSet<>();
+    // No project: we want every condition, whatever is currently defined.
+    final Lexer lexer = new HaxeFlexLexer(null);
+    lexer.start(text);
+    for (IElementType type = lexer.getTokenType(); type != null; lexer.advance(), type = lexer.getTokenType()) {
+      if (type == PPEXPRESSION && isIdentifier(lexer.getBufferSequence(), lexer.getTokenStart(), lexer.getTokenEnd())) {
+        identifiers.add(lexer.getTokenText());
+      }
+    }
+    return identifiers;
+  }
+
+  private static boolean isIdentifier(@NotNull CharSequence text, int start, int end) {
+    if (start >= end) return false;
+    final char first = text.charAt(start);
+    if (!Character.isLetter(first) && first != '_') return false;
+    final int length = end - start;
+    // The lexer gives us these as condition tokens, too.
+    if (length == 4 && "true".contentEquals(text.subSequence(start, end))) return false;
+    if (length == 5 && "false".contentEquals(text.subSequence(start, end))) return false;
+    return true;
+  }
+
+  private static class MyDataIndexer implements DataIndexer<String, Void, FileContent> {
+    @Override
+    @NotNull
+    public Map<String, Void> map(@NotNull final FileContent inputData) {
+      final Set<String> identifiers = scan(inputData.getContentAsText());
+      if (identifiers.isEmpty()) {
+        return Collections.emptyMap();
+      }
+      final Map<String, Void> result = new THashMap<>(identifiers.size());
+      for (String identifier : identifiers) {
+        result.put(identifier, null);
+      }
+      return result;
+    }
+  }
+}
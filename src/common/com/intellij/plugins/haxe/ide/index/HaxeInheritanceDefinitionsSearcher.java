@@ -25,12 +25,13 @@ import com.intellij.plugins.haxe.lang.psi.HaxeClass;
 import com.intellij.plugins.haxe.lang.psi.HaxeComponentName;
 import com.intellij.plugins.haxe.lang.psi.HaxeNamedComponent;
 import com.intellij.plugins.haxe.util.HaxeResolveUtil;
+import com.intellij.plugins.haxe.util.HaxeSuperTypeClosure;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.searches.DefinitionsScopedSearch;
+import com.intellij.psi.stubs.StubIndex;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.Processor;
-import com.intellij.util.indexing.FileBasedIndex;
 import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
 
@@ -94,28 +95,40 @@ public class HaxeInheritanceDefinitionsSearcher  {
 
   }
 
+  /**
+   * The indices are keyed by the short names of the super types, so they give the candidates
+   * level by level; whether a candidate really is a subtype of the queried class is up to its
+   * {@link HaxeSuperTypeClosure}.
+   */
   static private boolean processInheritors(final String qName, final PsiElement context, final Processor<? super PsiElement> consumer) {
+    if (null == qName || qName.isEmpty()) {
+      return true;
+    }
     final Set<String> namesSet = new THashSet<String>();
     final LinkedList<String> namesQueue = new LinkedList<String>();
-    namesQueue.add(qName);
+    final Set<HaxeClass> found = new THashSet<HaxeClass>();
+    namesQueue.add(HaxeResolveUtil.splitQName(qName).getSecond());
     final Project project = context.getProject();
     final GlobalSearchScope scope = GlobalSearchScope.allScope(project);
     while (!namesQueue.isEmpty()) {
-      final String name = namesQueue.pollFirst();
-      if (!namesSet.add(name)) {
+      final String shortName = namesQueue.pollFirst();
+      if (!namesSet.add(shortName)) {
         continue;
       }
-      List<List<HaxeClassInfo>> files = FileBasedIndex.getInstance().getValues(HaxeInheritanceIndex.HAXE_INHERITANCE_INDEX, name, scope);
-      files.addAll(FileBasedIndex.getInstance().getValues(HaxeTypeDefInheritanceIndex.HAXE_TYPEDEF_INHERITANCE_INDEX, name, scope));
-      for (List<HaxeClassInfo> subClassInfoList : files) {
-        for (HaxeClassInfo subClassInfo : subClassInfoList) {
-          final HaxeClass subClass = HaxeResolveUtil.findClassByQName(subClassInfo.getValue(), context.getManager(), scope);
-          if (subClass != null) {
-            if (!consumer.process(subClass)) {
-              return true;
-            }
-            namesQueue.add(subClass.getQualifiedName());
-          }
+      final List<HaxeClass> candidates = new ArrayList<HaxeClass>();
+      candidates.addAll(StubIndex.getElements(HaxeInheritanceIndex.HAXE_INHERITANCE_INDEX, shortName, project, scope, HaxeClass.class));
+      candidates.addAll(StubIndex.getElements(HaxeTypeDefInheritanceIndex.HAXE_TYPEDEF_INHERITANCE_INDEX, shortName, project, scope, HaxeClass.class));
+      for (HaxeClass subClass : candidates) {
+        // Same short name, different class: neither it nor its subtypes are inheritors.
+        if (!found.add(subClass) || !HaxeSuperTypeClosure.isSubTypeOf(subClass, qName)) {
+          continue;
+        }
+        if (!consumer.process(subClass)) {
+          return true;
+        }
+        final String subName = subClass.getName();
+        if (null != subName) {
+          namesQueue.add(subName);
         }
       }
     }
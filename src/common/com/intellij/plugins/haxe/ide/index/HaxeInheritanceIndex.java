@@ -17,134 +17,31 @@
  */
 package com.intellij.plugins.haxe.ide.index;
 
-import com.intellij.openapi.util.Condition;
-import com.intellij.plugins.haxe.HaxeComponentType;
 import com.intellij.plugins.haxe.lang.psi.HaxeClass;
-import com.intellij.plugins.haxe.lang.psi.HaxeType;
-import com.intellij.plugins.haxe.lang.psi.impl.AbstractHaxeTypeDefImpl;
-import com.intellij.plugins.haxe.util.HaxeResolveUtil;
-import com.intellij.psi.PsiElement;
-import com.intellij.psi.PsiFile;
-import com.intellij.util.Function;
-import com.intellij.util.containers.ContainerUtil;
-import com.intellij.util.indexing.*;
-import com.intellij.util.io.DataExternalizer;
-import com.intellij.util.io.EnumeratorStringDescriptor;
-import com.intellij.util.io.KeyDescriptor;
-import gnu.trove.THashMap;
+import com.intellij.psi.stubs.StringStubIndexExtension;
+import com.intellij.psi.stubs.StubIndexKey;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-
 /**
+ * Classes, interfaces and abstracts, keyed by the short names of the types that they extend or implement.
+ *
+ * Because the keys are not qualified, the results must be checked against the super types that
+ * they actually resolve to.  See {@link HaxeInheritanceDefinitionsSearcher}.
+ *
  * @author: Fedor.Korotkov
  */
-public class HaxeInheritanceIndex extends FileBasedIndexExtension<String, List<HaxeClassInfo>> {
-  public static final ID<String, List<HaxeClassInfo>> HAXE_INHERITANCE_INDEX = ID.create("HaxeInheritanceIndex");
-  private static final int INDEX_VERSION = HaxeIndexUtil.BASE_INDEX_VERSION + 7;
-  private final DataIndexer<String, List<HaxeClassInfo>, FileContent> myIndexer = new MyDataIndexer();
-  private final DataExternalizer<List<HaxeClassInfo>> myExternalizer = new HaxeClassInfoListExternalizer();
+public class HaxeInheritanceIndex extends StringStubIndexExtension<HaxeClass> {
+  public static final StubIndexKey<String, HaxeClass> HAXE_INHERITANCE_INDEX = StubIndexKey.createIndexKey("haxe.inheritance.index");
+  private static final int INDEX_VERSION = HaxeIndexUtil.BASE_INDEX_VERSION + 8;
 
   @NotNull
   @Override
-  public ID<String, List<HaxeClassInfo>> getName() {
+  public StubIndexKey<String, HaxeClass> getKey() {
     return HAXE_INHERITANCE_INDEX;
   }
 
   @Override
   public int getVersion() {
-    return INDEX_VERSION;
-  }
-
-  @Override
-  public boolean dependsOnFileContent() {
-    return true;
-  }
-
-  @Override
-  public KeyDescriptor<String> getKeyDescriptor() {
-    return new EnumeratorStringDescriptor();
-  }
-
-  @Override
-  public DataExternalizer<List<HaxeClassInfo>> getValueExternalizer() {
-    return myExternalizer;
-  }
-
-  @Override
-  public FileBasedIndex.InputFilter getInputFilter() {
-    return HaxeSdkInputFilter.INSTANCE;
-  }
-
-  @NotNull
-  @Override
-  public DataIndexer<String, List<HaxeClassInfo>, FileContent> getIndexer() {
-    return myIndexer;
-  }
-
-  private static class MyDataIndexer implements DataIndexer<String, List<HaxeClassInfo>, FileContent> {
-    @Override
-    @NotNull
-    public Map<String, List<HaxeClassInfo>> map(final FileContent inputData) {
-      final PsiFile psiFile = inputData.getPsiFile();
-      final PsiElement[] fileChildren = psiFile.getChildren();
-      final List<HaxeClass> classes = ContainerUtil.map(ContainerUtil.filter(fileChildren, new Condition<PsiElement>() {
-        @Override
-        public boolean value(PsiElement element) {
-          return element instanceof HaxeClass && !(element instanceof AbstractHaxeTypeDefImpl);
-        }
-      }), new Function<PsiElement, HaxeClass>() {
-        @Override
-        public HaxeClass fun(PsiElement element) {
-          return (HaxeClass)element;
-        }
-      });
-      if (classes.isEmpty()) {
-        return Collections.emptyMap();
-      }
-      final Map<String, List<HaxeClassInfo>> result = new THashMap<String, List<HaxeClassInfo>>(classes.size());
-      final Map<String, String> qNameCache = new THashMap<String, String>();
-      for (HaxeClass haxeClass : classes) {
-        final HaxeClassInfo value = new HaxeClassInfo(haxeClass.getQualifiedName(), HaxeComponentType.typeOf(haxeClass));
-        for (HaxeType haxeType : haxeClass.getHaxeExtendsList()) {
-          if (haxeType == null) continue;
-          final String classNameCandidate = haxeType.getText();
-          final String key = classNameCandidate.indexOf('.') != -1 ?
-                             classNameCandidate :
-                             getQNameAndCache(qNameCache, fileChildren, classNameCandidate);
-          put(result, key, value);
-        }
-        for (HaxeType haxeType : haxeClass.getHaxeImplementsList()) {
-          if (haxeType == null) continue;
-          final String classNameCandidate = haxeType.getText();
-          final String key = classNameCandidate.indexOf('.') != -1 ?
-                             classNameCandidate :
-                             getQNameAndCache(qNameCache, fileChildren, classNameCandidate);
-          put(result, key, value);
-        }
-      }
-      return result;
-    }
-
-    private static String getQNameAndCache(Map<String, String> qNameCache, PsiElement[] fileChildren, String classNameCandidate) {
-      String result = qNameCache.get(classNameCandidate);
-      if (result == null) {
-        result = HaxeResolveUtil.getQName(fileChildren, classNameCandidate, true);
-        qNameCache.put(classNameCandidate, result);
-      }
-      return result;
-    }
-
-    private static void put(Map<String, List<HaxeClassInfo>> map, String key, HaxeClassInfo value) {
-      List<HaxeClassInfo> infos = map.get(key);
-      if (infos == null) {
-        infos = new ArrayList<HaxeClassInfo>();
-        map.put(key, infos);
-      }
-      infos.add(value);
-    }
+    return super.getVersion() + INDEX_VERSION;
   }
 }
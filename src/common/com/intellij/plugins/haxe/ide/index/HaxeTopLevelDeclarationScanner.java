@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.ide.index;
+
+import com.intellij.lexer.Lexer;
+import com.intellij.openapi.project.Project;
+import com.intellij.plugins.haxe.lang.lexer.HaxeLexer;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.TokenSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypeSets.COMMENTS;
+import static com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypeSets.WHITESPACES;
+import static com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes.*;
+
+/**
+ * Finds the package and the top-level type names in a Haxe file using only the lexer.
+ *
+ * This is much cheaper than building PSI, and is good enough for indices that only need
+ * the names of the types in a module.  Conditional compilation is handled by the lexer
+ * itself: tokens in inactive blocks come back as {@link com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypeSets#PPBODY},
+ * and are skipped along with the rest of the comments, exactly as the parser does.
+ */
+public class HaxeTopLevelDeclarationScanner {
+
+  private static final TokenSet SKIPPED = TokenSet.orSet(WHITESPACES, COMMENTS);
+  private static final TokenSet TYPE_KEYWORDS = TokenSet.create(KCLASS, KINTERFACE, KENUM, KABSTRACT, KTYPEDEF);
+
+  public static class Result {
+    public static final Result EMPTY = new Result("", Collections.emptyList());
+
+    private final String myPackageName;
+    private final List<String> myTypeNames;
+
+    Result(@NotNull String packageName, @NotNull List<String> typeNames) {
+      myPackageName = packageName;
+      myTypeNames = typeNames;
+    }
+
+    @NotNull
+    public String getPackageName() {
+      return myPackageName;
+    }
+
+    /** The names of the types declared at the top level of the file, in declaration order. */
+    @NotNull
+    public List<String> getTypeNames() {
+      return myTypeNames;
+    }
+  }
+
+  private HaxeTopLevelDeclarationScanner() {}
+
+  /**
+   * @param project Project whose compiler definitions decide the active conditional compilation blocks.
+   * @param text Contents of the file.
+   */
+  @NotNull
+  public static Result scan(@Nullable Project project, @NotNull CharSequence text) {
+    if (text.length() == 0) {
+      return Result.EMPTY;
+    }
+
+    final Lexer lexer = new HaxeLexer(project);
+    lexer.start(text);
+
+    String packageName = "";
+    final List<String> typeNames = new ArrayList<>();
+
+    int braceDepth = 0;
+    boolean expectingTypeName = false;
+    boolean seenDeclaration = false;
+
+    for (IElementType type = lexer.getTokenType(); type != null; lexer.advance(), type = lexer.getTokenType()) {
+      if (SKIPPED.contains(type)) {
+        continue;
+      }
+      if (type == PLCURLY) {
+        braceDepth++;
+        expectingTypeName = false;
+        continue;
+      }
+      if (type == PRCURLY) {
+        if (braceDepth > 0) braceDepth--;
+        continue;
+      }
+      if (braceDepth > 0) {
+        continue;
+      }
+
+      if (type == KPACKAGE && !seenDeclaration) {
+        packageName = scanPackageName(lexer);
+        seenDeclaration = true;
+      }
+      else if (TYPE_KEYWORDS.contains(type)) {
+        // 'enum abstract' is followed by the name just like the other keywords.
+        expectingTypeName = true;
+        seenDeclaration = true;
+      }
+      else {
+        if (expectingTypeName && type == ID) {
+          typeNames.add(lexer.getTokenText());
+        }
+        expectingTypeName = false;
+      }
+    }
+    return new Result(packageName, typeNames);
+  }
+
+  /**
+   * Reads a package path, leaving the lexer on the token that ended it.
+   */
+  @NotNull
+  private static String scanPackageName(@NotNull Lexer lexer) {
+    final StringBuilder name = new StringBuilder();
+    for (lexer.advance(); lexer.getTokenType() != null; lexer.advance()) {
+      final IElementType type = lexer.getTokenType();
+      if (SKIPPED.contains(type)) {
+        continue;
+      }
+      if (type == ID || type == ODOT) {
+        name.append(lexer.getTokenText());
+      }
+      else {
+        break;
+      }
+    }
+    return name.toString();
+  }
+}
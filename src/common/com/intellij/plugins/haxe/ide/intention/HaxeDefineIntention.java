@@ -29,6 +29,7 @@ import com.intellij.util.IncorrectOperationException;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collections;
 import java.util.Set;
 
 /**
@@ -65,7 +66,7 @@ public class HaxeDefineIntention implements IntentionAction {
     final HaxeProjectSettings projectSettings = HaxeProjectSettings.getInstance(file.getProject());
     final Set<String> definitions = projectSettings.getUserCompilerDefinitionsAsSet();
     projectSettings.setUserCompilerDefinitions(changeDefinitions(definitions));
-    HaxeUtil.reparseProjectFiles(project);
+    HaxeUtil.reparseFilesReferencingDefines(project, Collections.singleton(myWord));
   }
 
   private String[] changeDefinitions(Set<String> definitions) {
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.ide.metrics;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.plugins.haxe.util.HaxeDebugLogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-project performance counters and latency histograms for the expensive parts of the plugin:
+ * reference resolution, class resolution, expression evaluation and compiler completion.
+ *
+ * Collection is off by default, so that the instrumented code pays no more than a volatile
+ * read.  Turn it on for a project with the "Show Haxe Metrics" internal action or through JMX
+ * (see {@link HaxeMetricsMXBean}), or for every project by starting the IDE with
+ * {@code -Dhaxe.metrics=true}.
+ *
+ * Instrument code like this:
+ * <pre>
+ *   final long start = HaxeMetrics.start();
+ *   try {
+ *     ...
+ *   } finally {
+ *     HaxeMetrics.stop(project, HaxeMetrics.Operation.RESOLVE, start);
+ *   }
+ * </pre>
+ */
+public class HaxeMetrics implements HaxeMetricsMXBean, Disposable {
+  private static final HaxeDebugLogger LOG = HaxeDebugLogger.getLogger();
+
+  public enum Operation {
+    RESOLVE("resolve"),
+    RESOLVE_HAXE_CLASS("resolveHaxeClass"),
+    EXPRESSION_EVALUATION("expressionEvaluation"),
+    COMPILER_COMPLETION("compilerCompletion");
+
+    private final String key;
+
+    Operation(String key) {
+      this.key = key;
+    }
+
+    public String getKey() {
+      return key;
+    }
+  }
+
+  public enum Counter {
+    RESOLVE_REQUESTS("resolveRequests"),
+    RESOLVE_DUMB_REQUESTS("resolveDumbRequests"),
+    RESOLVE_CACHE_MISSES("resolveCacheMisses"),
+    RESOLVE_CIRCULAR_SKIPS("resolveCircularSkips");
+
+    private final String key;
+
+    Counter(String key) {
+      this.key = key;
+    }
+
+    public String getKey() {
+      return key;
+    }
+  }
+
+  /** How many projects are collecting; while none are, the instrumentation entry points return at once. */
+  private static final AtomicInteger ourEnabledCount = new AtomicInteger();
+
+  private final Project project;
+  private final Map<Operation, HaxeMetricsHistogram> histograms = new EnumMap<>(Operation.class);
+  private final Map<Counter, AtomicLong> counters = new EnumMap<>(Counter.class);
+  private ObjectName registeredName;
+  private boolean enabled;
+  private boolean disposed;
+
+  public HaxeMetrics(@NotNull Project project) {
+    this.project = project;
+    setEnabled(Boolean.getBoolean("haxe.metrics"));
+    for (Operation operation : Operation.values()) {
+      histograms.put(operation, new HaxeMetricsHistogram());
+    }
+    for (Counter counter : Counter.values()) {
+      counters.put(counter, new AtomicLong());
+    }
+  }
+
+  public static HaxeMetrics getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, HaxeMetrics.class);
+  }
+
+  // Instrumentation entry points.  These are static so that nothing is looked up while collection is off.
+
+  /** @return a start time to hand to {@link #stop}, or 0 if metrics are not being collected. */
+  public static long start() {
+    return 0 < ourEnabledCount.get() ? System.nanoTime() : 0;
+  }
+
+  public static void stop(@Nullable Project project, @NotNull Operation operation, long start) {
+    if (0 == start || null == project || project.isDisposed()) return;
+    final HaxeMetrics metrics = getInstance(project);
+    if (metrics.isEnabled()) {
+      metrics.histograms.get(operation).record(System.nanoTime() - start);
+    }
+  }
+
+  public static void count(@Nullable Project project, @NotNull Counter counter) {
+    if (0 == ourEnabledCount.get() || null == project || project.isDisposed()) return;
+    final HaxeMetrics metrics = getInstance(project);
+    if (metrics.isEnabled()) {
+      metrics.counters.get(counter).incrementAndGet();
+    }
+  }
+
+  // Accessors.
+
+  @NotNull
+  public HaxeMetricsHistogram getHistogram(@NotNull Operation operation) {
+    return histograms.get(operation);
+  }
+
+  public long getCount(@NotNull Counter counter) {
+    return counters.get(counter).get();
+  }
+
+  // HaxeMetricsMXBean
+
+  @Override
+  public synchronized boolean isEnabled() {
+    return enabled;
+  }
+
+  @Override
+  public synchronized void setEnabled(boolean enabled) {
+    if (disposed || this.enabled == enabled) return;
+    this.enabled = enabled;
+    if (enabled) {
+      ourEnabledCount.incrementAndGet();
+    }
+    else {
+      ourEnabledCount.decrementAndGet();
+    }
+  }
+
+  @Override
+  public void reset() {
+    for (HaxeMetricsHistogram histogram : histograms.values()) {
+      histogram.reset();
+    }
+    for (AtomicLong counter : counters.values()) {
+      counter.set(0);
+    }
+  }
+
+  @Override
+  public String getReport() {
+    final StringBuilder report = new StringBuilder();
+    report.append("Haxe metrics for ").append(project.getName())
+          .append(isEnabled() ? "" : " (collection is off)").append('\n');
+    for (Operation operation : Operation.values()) {
+      report.append("  ").append(operation.getKey()).append(": ").append(histograms.get(operation)).append('\n');
+    }
+    for (Counter counter : Counter.values()) {
+      report.append("  ").append(counter.getKey()).append(": ").append(getCount(counter)).append('\n');
+    }
+    final long requests = getCount(Counter.RESOLVE_REQUESTS);
+    if (requests > 0) {
+      // Dumb mode requests bypass the cache, so they show up as misses, too.
+      final long misses = getCount(Counter.RESOLVE_CACHE_MISSES) - getCount(Counter.RESOLVE_DUMB_REQUESTS);
+      report.append(String.format("  resolve cache effectiveness: %2.2f%%\n", (1.0 - ((double)misses / requests)) * 100));
+    }
+    return report.toString();
+  }
+
+  @Override
+  public Map<String, Long> getCounters() {
+    final Map<String, Long> result = new LinkedHashMap<>();
+    for (Counter counter : Counter.values()) {
+      result.put(counter.getKey(), getCount(counter));
+    }
+    return result;
+  }
+
+  @Override
+  public Map<String, Long> getLatencies() {
+    final Map<String, Long> result = new LinkedHashMap<>();
+    for (Operation operation : Operation.values()) {
+      final HaxeMetricsHistogram histogram = histograms.get(operation);
+      final String key = operation.getKey();
+      result.put(key + ".count", histogram.getCount());
+      result.put(key + ".totalMicros", histogram.getTotalMicros());
+      result.put(key + ".meanMicros", histogram.getMeanMicros());
+      result.put(key + ".p50Micros", histogram.getPercentileMicros(50));
+      result.put(key + ".p90Micros", histogram.getPercentileMicros(90));
+      result.put(key + ".p99Micros", histogram.getPercentileMicros(99));
+      result.put(key + ".maxMicros", histogram.getMaxMicros());
+    }
+    return result;
+  }
+
+  // JMX registration
+
+  void registerMBean() {
+    if (null != registeredName) return;
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName("com.intellij.plugins.haxe:type=Metrics,project="
+                                             + ObjectName.quote(project.getName() + "@" + project.getLocationHash()));
+      if (!server.isRegistered(name)) {
+        server.registerMBean(this, name);
+        registeredName = name;
+      }
+    }
+    catch (Exception e) {
+      // Metrics are a debugging aid; never let them get in the way.
+      LOG.debug("Could not register Haxe metrics MBean for " + project.getName(), e);
+    }
+  }
+
+  @Override
+  public void dispose() {
+    setEnabled(false);
+    synchronized (this) {
+      disposed = true;
+    }
+    if (null == registeredName) return;
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+    }
+    catch (Exception e) {
+      LOG.debug("Could not unregister Haxe metrics MBean " + registeredName, e);
+    }
+    registeredName = null;
+  }
+}
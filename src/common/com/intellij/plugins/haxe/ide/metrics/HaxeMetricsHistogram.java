@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.ide.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with power-of-two microsecond buckets.  Bucket 0 holds
+ * everything under 1us, bucket n holds [2^(n-1), 2^n) microseconds.  Percentiles are reported
+ * as the upper bound of the bucket they fall in, which is plenty for spotting slow paths.
+ */
+public class HaxeMetricsHistogram {
+  private static final int BUCKETS = 32;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  public void record(long nanos) {
+    if (nanos < 0) nanos = 0;
+    buckets.incrementAndGet(bucketFor(nanos));
+    count.incrementAndGet();
+    totalNanos.addAndGet(nanos);
+    long max;
+    while (nanos > (max = maxNanos.get())) {
+      if (maxNanos.compareAndSet(max, nanos)) break;
+    }
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getTotalMicros() {
+    return totalNanos.get() / 1000;
+  }
+
+  public long getMeanMicros() {
+    final long n = count.get();
+    return 0 == n ? 0 : totalNanos.get() / n / 1000;
+  }
+
+  public long getMaxMicros() {
+    return maxNanos.get() / 1000;
+  }
+
+  /**
+   * @param percentile - 0 to 100.
+   * @return the upper bound, in microseconds, of the bucket holding the given percentile.
+   */
+  public long getPercentileMicros(double percentile) {
+    final long n = count.get();
+    if (0 == n) return 0;
+    final long rank = Math.max(1, (long)Math.ceil(n * percentile / 100.0));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets.get(i);
+      if (seen >= rank) {
+        return 1L << i;
+      }
+    }
+    return getMaxMicros();
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets.set(i, 0);
+    }
+    count.set(0);
+    totalNanos.set(0);
+    maxNanos.set(0);
+  }
+
+  @NotNull
+  public String toString() {
+    return String.format("count=%d total=%dms mean=%dus p50<=%dus p90<=%dus p99<=%dus max=%dus",
+                         getCount(), getTotalMicros() / 1000, getMeanMicros(),
+                         getPercentileMicros(50), getPercentileMicros(90), getPercentileMicros(99),
+                         getMaxMicros());
+  }
+
+  private static int bucketFor(long nanos) {
+    final long micros = nanos / 1000;
+    if (0 == micros) return 0;
+    return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.ide.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link HaxeMetrics}.  Each open project registers one instance, named
+ * {@code com.intellij.plugins.haxe:type=Metrics,project=<project name>}.
+ */
+public interface HaxeMetricsMXBean {
+
+  /** Whether this project is collecting; off unless turned on here, by the action, or with -Dhaxe.metrics=true. */
+  boolean isEnabled();
+
+  void setEnabled(boolean enabled);
+
+  /** Clear this project's counters and histograms. */
+  void reset();
+
+  /** Human readable dump of everything below. */
+  String getReport();
+
+  /** Counter values, by counter name. */
+  Map<String, Long> getCounters();
+
+  /**
+   * Histogram statistics, keyed as {@code <operation>.<statistic>}, e.g. {@code resolve.p99Micros}.
+   * Times are in microseconds.
+   */
+  Map<String, Long> getLatencies();
+}
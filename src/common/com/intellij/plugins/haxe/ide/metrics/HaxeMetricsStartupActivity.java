@@ -0,0 +1,31 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.ide.metrics;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Publishes each project's {@link HaxeMetrics} over JMX as soon as the project opens, so that
+ * collection can be turned on from a JMX console before anything has been measured.
+ */
+public class HaxeMetricsStartupActivity implements StartupActivity {
+  @Override
+  public void runActivity(@NotNull Project project) {
+    HaxeMetrics.getInstance(project).registerMBean();
+  }
+}
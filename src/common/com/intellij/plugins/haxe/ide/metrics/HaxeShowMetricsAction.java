@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.ide.metrics;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.PlatformDataKeys;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+
+/**
+ * Internal action that shows the current project's {@link HaxeMetrics}, and lets the user turn
+ * collection on and off or reset the numbers.
+ */
+public class HaxeShowMetricsAction extends AnAction {
+  private static final String TITLE = "Haxe Metrics";
+  private static final String REFRESH = "Refresh";
+  private static final String RESET = "Reset";
+  private static final String ENABLE = "Start Collecting";
+  private static final String DISABLE = "Stop Collecting";
+  private static final String CLOSE = "Close";
+
+  @Override
+  public void actionPerformed(AnActionEvent e) {
+    final Project project = e.getData(PlatformDataKeys.PROJECT);
+    if (null == project) return;
+    final HaxeMetrics metrics = HaxeMetrics.getInstance(project);
+
+    while (true) {
+      final String[] options = {REFRESH, RESET, metrics.isEnabled() ? DISABLE : ENABLE, CLOSE};
+      final int answer = Messages.showDialog(project, metrics.getReport(), TITLE, options, 0, Messages.getInformationIcon());
+      if (answer < 0 || CLOSE.equals(options[answer])) {
+        return;
+      }
+      switch (options[answer]) {
+        case RESET:
+          metrics.reset();
+          break;
+        case ENABLE:
+          metrics.setEnabled(true);
+          break;
+        case DISABLE:
+          metrics.setEnabled(false);
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  @Override
+  public void update(AnActionEvent e) {
+    e.getPresentation().setEnabledAndVisible(null != e.getData(PlatformDataKeys.PROJECT));
+  }
+}
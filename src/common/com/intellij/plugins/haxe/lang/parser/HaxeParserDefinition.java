@@ -27,6 +27,7 @@ import com.intellij.plugins.haxe.lang.lexer.HaxeLexer;
 import com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypeSets;
 import com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes;
 import com.intellij.plugins.haxe.lang.psi.HaxeFile;
+import com.intellij.plugins.haxe.lang.psi.stubs.HaxeStubElementTypes;
 import com.intellij.psi.FileViewProvider;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
@@ -46,7 +47,7 @@ public class HaxeParserDefinition implements ParserDefinition {
   }
 
   public IFileElementType getFileNodeType() {
-    return HaxeTokenTypeSets.HAXE_FILE;
+    return HaxeStubElementTypes.HAXE_FILE;
   }
 
   @NotNull
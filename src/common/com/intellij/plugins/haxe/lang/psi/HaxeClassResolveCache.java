@@ -3,6 +3,7 @@
  * Copyright 2014-2014 AS3Boyan
  * Copyright 2014-2014 Elias Ku
  * Copyright 2017-2017 Ilya Malanin
+ * Copyright 2020 Eric Bishton
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,45 +22,118 @@ package com.intellij.plugins.haxe.lang.psi;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.progress.ProgressIndicatorProvider;
 import com.intellij.openapi.project.Project;
-import com.intellij.psi.impl.AnyPsiChangeListener;
-import com.intellij.psi.impl.PsiManagerImpl;
-import com.intellij.util.containers.ContainerUtil;
-import com.intellij.util.messages.MessageBus;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.concurrent.ConcurrentMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Caches the (constraint-only) resolve results for classes.
+ *
+ * The result is kept in a {@link CachedValue} on the class itself, so it goes away with the
+ * class.  It depends on the class' own file, the files of the types used as constraints on its
+ * type parameters, and on files being added, moved or removed (which can change what a name
+ * resolves to).
+ *
  * @author: Fedor.Korotkov
  */
 public class HaxeClassResolveCache {
-  private final ConcurrentMap<HaxeClass, HaxeClassResolveResult> myMap = ContainerUtil.createConcurrentWeakMap();
+  private static final Key<CachedValue<HaxeClassResolveResult>> RESOLVE_RESULT = Key.create("HAXE_CLASS_RESOLVE_RESULT");
+
+  private final AtomicLong myHits = new AtomicLong();
+  private final AtomicLong myMisses = new AtomicLong();
+  private final AtomicLong myEvictions = new AtomicLong();
 
   public static HaxeClassResolveCache getInstance(Project project) {
     ProgressIndicatorProvider.checkCanceled(); // We hope this method is being called often enough to cancel daemon processes smoothly
     return ServiceManager.getService(project, HaxeClassResolveCache.class);
   }
 
-  public HaxeClassResolveCache(@NotNull MessageBus messageBus) {
-    messageBus.connect().subscribe(PsiManagerImpl.ANY_PSI_CHANGE_TOPIC, new AnyPsiChangeListener() {
-      @Override
-      public void beforePsiChanged(boolean isPhysical) {
-        myMap.clear();
-      }
+  public void put(@NotNull HaxeClass haxeClass, @NotNull final HaxeClassResolveResult result) {
+    final Object[] dependencies = collectDependencies(haxeClass, result);
+    final CachedValue<HaxeClassResolveResult> value = CachedValuesManager.getManager(haxeClass.getProject()).createCachedValue(
+      new CachedValueProvider<HaxeClassResolveResult>() {
+        @Override
+        public Result<HaxeClassResolveResult> compute() {
+          return Result.create(result, dependencies);
+        }
+      }, false);
+    value.getValue(); // Take the dependency stamps now, not on the first get().
+    haxeClass.putUserData(RESOLVE_RESULT, value);
+  }
 
-      @Override
-      public void afterPsiChanged(boolean isPhysical) {
-      }
-    });
+  @Nullable
+  public HaxeClassResolveResult get(@NotNull HaxeClass haxeClass) {
+    final CachedValue<HaxeClassResolveResult> value = haxeClass.getUserData(RESOLVE_RESULT);
+    if (null == value) {
+      myMisses.incrementAndGet();
+      return null;
+    }
+    if (!value.hasUpToDateValue()) {
+      // Don't let getValue() hand back the old result.
+      haxeClass.putUserData(RESOLVE_RESULT, null);
+      myEvictions.incrementAndGet();
+      myMisses.incrementAndGet();
+      return null;
+    }
+    myHits.incrementAndGet();
+    return value.getValue();
   }
 
-  public void put(@NotNull HaxeClass haxeClass, @NotNull HaxeClassResolveResult result) {
-    myMap.put(haxeClass, result);
+  public long getHitCount() {
+    return myHits.get();
   }
 
-  @Nullable
-  public HaxeClassResolveResult get(HaxeClass haxeClass) {
-    return myMap.get(haxeClass);
+  public long getMissCount() {
+    return myMisses.get();
+  }
+
+  public long getEvictionCount() {
+    return myEvictions.get();
+  }
+
+  public void resetCounters() {
+    myHits.set(0);
+    myMisses.set(0);
+    myEvictions.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return "HaxeClassResolveCache{hits=" + getHitCount()
+           + ", misses=" + getMissCount()
+           + ", evictions=" + getEvictionCount() + "}";
+  }
+
+  /**
+   * Only what the result was actually built from: constraint types have already been resolved
+   * into the result, so this costs no further resolves.
+   */
+  @NotNull
+  private static Object[] collectDependencies(@NotNull HaxeClass haxeClass, @NotNull HaxeClassResolveResult result) {
+    final Set<Object> dependencies = new THashSet<>();
+    addFile(dependencies, haxeClass);
+    for (HaxeClassResolveResult constraint : result.getSpecialization().map.values()) {
+      if (null != constraint) {
+        addFile(dependencies, constraint.getHaxeClass());
+      }
+    }
+    dependencies.add(VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS);
+    return dependencies.toArray();
+  }
+
+  private static void addFile(@NotNull Set<Object> dependencies, @Nullable HaxeClass haxeClass) {
+    final PsiFile file = null == haxeClass ? null : haxeClass.getContainingFile();
+    if (null != file) {
+      dependencies.add(file);
+    }
   }
 }
@@ -29,6 +29,8 @@ import com.intellij.plugins.haxe.HaxeFileType;
 import com.intellij.plugins.haxe.HaxeLanguage;
 import com.intellij.plugins.haxe.ide.hierarchy.HaxeHierarchyUtils;
 import com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes;
+import com.intellij.plugins.haxe.lang.psi.stubs.HaxeFileStub;
+import com.intellij.plugins.haxe.lang.psi.stubs.HaxeStubUtil;
 import com.intellij.plugins.haxe.model.HaxeFileModel;
 import com.intellij.plugins.haxe.util.HaxeElementGenerator;
 import com.intellij.plugins.haxe.util.HaxeResolveUtil;
@@ -119,6 +121,10 @@ public class HaxeFile extends PsiFileBase
 
   @Override
   public String getPackageName() {
+    final HaxeFileStub stub = HaxeStubUtil.getFileStub(this);
+    if (stub != null) {
+      return stub.getPackageName();
+    }
     PsiPackageStatement statement = getPackageStatement();
     return statement == null ? "" : statement.getPackageName();
   }
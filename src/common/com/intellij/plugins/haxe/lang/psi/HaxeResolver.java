@@ -20,7 +20,9 @@
 package com.intellij.plugins.haxe.lang.psi;
 
 import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
+import com.intellij.plugins.haxe.ide.metrics.HaxeMetrics;
 import com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes;
 import com.intellij.plugins.haxe.metadata.psi.HaxeMeta;
 import com.intellij.plugins.haxe.metadata.psi.HaxeMetadataCompileTimeMeta;
@@ -40,7 +42,6 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.intellij.plugins.haxe.util.HaxeStringUtil.elide;
 
@@ -59,13 +60,7 @@ public class HaxeResolver implements ResolveCache.AbstractResolver<HaxeReference
   public static final HaxeResolver INSTANCE = new HaxeResolver();
 
   public static ThreadLocal<Boolean> isExtension = ThreadLocal.withInitial(()->new Boolean(false));
-  public static ThreadLocal<Stack<String>> referencesProcessing = ThreadLocal.withInitial(()->new Stack<String>());
-
-  private static boolean reportCacheMetrics = false;   // Should always be false when checked in.
-  private static AtomicInteger dumbRequests = new AtomicInteger(0);
-  private static AtomicInteger requests = new AtomicInteger(0);
-  private static AtomicInteger resolves = new AtomicInteger(0);
-  private final static int REPORT_FREQUENCY = 100;
+  public static final HaxeRecursionGuard<HaxeReference> referencesProcessing = new HaxeRecursionGuard<>("HaxeResolver");
 
   public static final List<? extends PsiElement> EMPTY_LIST = Collections.emptyList();
 
@@ -74,8 +69,11 @@ public class HaxeResolver implements ResolveCache.AbstractResolver<HaxeReference
     // Set this true when debugging the resolver.
     boolean skipCachingForDebug = false;  // Should always be false when checked in.
 
+    final Project project = reference.getProject();
+
     // Kill circular resolutions -- before checking the cache.
     if (isResolving(reference)) {
+      HaxeMetrics.count(project, HaxeMetrics.Counter.RESOLVE_CIRCULAR_SKIPS);
       reportSkip(reference);
       return EMPTY_LIST;
     }
@@ -83,71 +81,57 @@ public class HaxeResolver implements ResolveCache.AbstractResolver<HaxeReference
     // If we are in dumb mode (e.g. we are still indexing files and resolving may
     // fail until the indices are complete), we don't want to cache the (likely incorrect)
     // results.
-    boolean isDumb = DumbService.isDumb(reference.getProject());
+    boolean isDumb = DumbService.isDumb(project);
     boolean skipCaching = skipCachingForDebug || isDumb;
-    List<? extends PsiElement> elements
-      = skipCaching ? doResolve(reference, incompleteCode)
-                    : ResolveCache.getInstance(reference.getProject()).resolveWithCaching(
-                        reference, this::doResolve,true, incompleteCode);
-
-    if (reportCacheMetrics) {
-      if (skipCachingForDebug) {
-        LOG.debug("Resolve cache is disabled.  No metrics computed.");
-        reportCacheMetrics = false;
-      } else {
-        int dumb = isDumb ? dumbRequests.incrementAndGet() : dumbRequests.get();
-        int requestCount = isDumb ? requests.get() : requests.incrementAndGet();
-        if ((dumb + requestCount) % REPORT_FREQUENCY == 0) {
-          int res = resolves.get();
-          Formatter formatter = new Formatter();
-          formatter.format("Resolve requests: %d; cache misses: %d; (%2.2f%% effective); Dumb requests: %d",
-                           requestCount, res,
-                           (1.0 - (Float.intBitsToFloat(res)/Float.intBitsToFloat(requestCount))) * 100,
-                           dumb);
-          LOG.debug(formatter.toString());
-        }
-      }
-    }
+    HaxeMetrics.count(project, isDumb ? HaxeMetrics.Counter.RESOLVE_DUMB_REQUESTS : HaxeMetrics.Counter.RESOLVE_REQUESTS);
 
-    return elements;
+    final long start = HaxeMetrics.start();
+    try {
+      return skipCaching ? doResolve(reference, incompleteCode)
+                         : ResolveCache.getInstance(project).resolveWithCaching(
+                             reference, this::doResolve, true, incompleteCode);
+    } finally {
+      HaxeMetrics.stop(project, HaxeMetrics.Operation.RESOLVE, start);
+    }
   }
 
   private boolean isResolving(@NotNull HaxeReference reference) {
-    Stack<String> stack = referencesProcessing.get();
-    String referenceText = reference.getText();
-    return stack.contains(referenceText);
+    return referencesProcessing.isActive(reference);
   }
 
   private void reportSkip(HaxeReference reference) {
     if (LOG.isTraceEnabled()) {
       LOG.trace(traceMsg("-----------------------------------------"));
-      LOG.trace(traceMsg("Skipping circular resolve for reference: " + reference.getText()));
+      LOG.trace(traceMsg("Skipping circular resolve for reference: " + reference.getText()
+                         + " at depth " + referencesProcessing.getDepth()));
       LOG.trace(traceMsg("-----------------------------------------"));
     }
   }
 
   private List<? extends PsiElement> doResolve(@NotNull HaxeReference reference, boolean incompleteCode) {
-    Stack<String> stack = referencesProcessing.get();
     boolean traceEnabled = LOG.isTraceEnabled();
 
-    String referenceText = reference.getText();
-    stack.push(referenceText);
+    if (!referencesProcessing.enter(reference)) {
+      // resolve() has normally caught this already, before consulting the cache.
+      reportSkip(reference);
+      return EMPTY_LIST;
+    }
     try {
       if (traceEnabled) {
         LOG.trace(traceMsg("-----------------------------------------"));
-        LOG.trace(traceMsg("Resolving reference: " + referenceText));
+        LOG.trace(traceMsg("Resolving reference: " + reference.getText() + " at depth " + referencesProcessing.getDepth()));
       }
 
       List<? extends PsiElement> foundElements = doResolveInner(reference, incompleteCode);
 
       if (traceEnabled) {
-        LOG.trace(traceMsg("Finished reference:  " + referenceText));
+        LOG.trace(traceMsg("Finished reference:  " + reference.getText()));
         LOG.trace(traceMsg("-----------------------------------------"));
       }
 
       return foundElements;
     } finally {
-      stack.pop();
+      referencesProcessing.exit(reference);
     }
   }
 
@@ -155,9 +139,7 @@ public class HaxeResolver implements ResolveCache.AbstractResolver<HaxeReference
 
     isExtension.set(false);
 
-    if (reportCacheMetrics) {
-      resolves.incrementAndGet();
-    }
+    HaxeMetrics.count(reference.getProject(), HaxeMetrics.Counter.RESOLVE_CACHE_MISSES);
 
     // TODO: Optimization for literals needs vetting before making it available.
     // Shortcut for literals -- optimization.
@@ -27,11 +27,11 @@ import com.intellij.openapi.util.Pair;
 import com.intellij.plugins.haxe.HaxeComponentType;
 import com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes;
 import com.intellij.plugins.haxe.lang.psi.*;
+import com.intellij.plugins.haxe.lang.psi.stubs.HaxeMemberStub;
 import com.intellij.plugins.haxe.model.HaxeBaseMemberModel;
 import com.intellij.plugins.haxe.model.HaxeClassModel;
 import com.intellij.plugins.haxe.model.HaxeEnumValueModel;
 import com.intellij.plugins.haxe.model.HaxeMethodModel;
-import com.intellij.plugins.haxe.model.type.ResultHolder;
 import com.intellij.plugins.haxe.util.HaxeDebugUtil;
 import com.intellij.plugins.haxe.util.HaxePresentableUtil;
 import com.intellij.plugins.haxe.util.HaxeResolveUtil;
@@ -41,6 +41,9 @@ import com.intellij.psi.PsiNamedElement;
 import com.intellij.psi.PsiReference;
 import com.intellij.psi.impl.source.SourceTreeToPsiMap;
 import com.intellij.psi.impl.source.tree.ChildRole;
+import com.intellij.psi.stubs.IStubElementType;
+import com.intellij.psi.stubs.NamedStub;
+import com.intellij.psi.stubs.StubElement;
 import com.intellij.psi.tree.IElementType;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.IncorrectOperationException;
@@ -54,21 +57,27 @@ import java.util.Set;
 /**
  * @author: Fedor.Korotkov
  */
-abstract public class AbstractHaxeNamedComponent extends HaxePsiCompositeElementImpl
+abstract public class AbstractHaxeNamedComponent extends HaxeStubBasedPsiElementBase<StubElement>
   implements HaxeNamedComponent, PsiNamedElement {
 
   private String myName;
-  public ResultHolder _cachedType;
-  public long _cachedTypeStamp;
 
   public AbstractHaxeNamedComponent(@NotNull ASTNode node) {
     super(node);
   }
 
+  public AbstractHaxeNamedComponent(@NotNull StubElement stub, @NotNull IStubElementType nodeType) {
+    super(stub, nodeType);
+  }
+
   @Override
   @Nullable
   @NonNls
   public String getName() {
+    final StubElement stub = getStub();
+    if (stub instanceof NamedStub) {
+      return ((NamedStub)stub).getName();
+    }
     if (ApplicationManager.getApplication().isReadAccessAllowed()) {
       final HaxeComponentName name = getComponentName();
       if (name != null) {
@@ -245,6 +254,10 @@ abstract public class AbstractHaxeNamedComponent extends HaxePsiCompositeElement
 
   @Override
   public boolean isStatic() {
+    final StubElement stub = getStub();
+    if (stub instanceof HaxeMemberStub) {
+      return ((HaxeMemberStub)stub).isStatic();
+    }
     AbstractHaxeNamedComponent element = this;
 
     final HaxePsiModifier[] declarationAttributeList = PsiTreeUtil.getChildrenOfType(element, HaxePsiModifier.class);
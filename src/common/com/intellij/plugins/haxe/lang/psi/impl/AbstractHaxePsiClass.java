@@ -29,10 +29,13 @@ import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.plugins.haxe.HaxeComponentType;
 import com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes;
 import com.intellij.plugins.haxe.lang.psi.*;
+import com.intellij.plugins.haxe.lang.psi.stubs.HaxeClassStub;
 import com.intellij.plugins.haxe.metadata.psi.HaxeMeta;
 import com.intellij.plugins.haxe.model.*;
 import com.intellij.plugins.haxe.model.type.HaxeGenericResolver;
+import com.intellij.plugins.haxe.util.HaxeMemberTable;
 import com.intellij.plugins.haxe.util.HaxeResolveUtil;
+import com.intellij.plugins.haxe.util.HaxeSuperTypeClosure;
 import com.intellij.plugins.haxe.util.UsefulPsiTreeUtil;
 import com.intellij.psi.*;
 import com.intellij.psi.impl.InheritanceImplUtil;
@@ -42,6 +45,7 @@ import com.intellij.psi.impl.PsiSuperMethodImplUtil;
 import com.intellij.psi.impl.source.tree.ChildRole;
 import com.intellij.psi.impl.source.tree.java.PsiTypeParameterListImpl;
 import com.intellij.psi.javadoc.PsiDocComment;
+import com.intellij.psi.stubs.IStubElementType;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.IncorrectOperationException;
 import com.intellij.util.containers.ContainerUtil;
@@ -70,6 +74,16 @@ public abstract class AbstractHaxePsiClass extends AbstractHaxeNamedComponent im
     super(node);
   }
 
+  public AbstractHaxePsiClass(@NotNull HaxeClassStub stub, @NotNull IStubElementType nodeType) {
+    super(stub, nodeType);
+  }
+
+  @Nullable
+  @Override
+  public HaxeClassStub getStub() {
+    return (HaxeClassStub)super.getStub();
+  }
+
   @Override
   public HaxeNamedComponent getTypeComponent() {
     return this;
@@ -78,6 +92,10 @@ public abstract class AbstractHaxePsiClass extends AbstractHaxeNamedComponent im
   @NotNull
   @Override
   public String getQualifiedName() {
+    final HaxeClassStub stub = getStub();
+    if (stub != null) {
+      return stub.getQualifiedName();
+    }
     String name = getName();
     if (getParent() == null) {
       return name == null ? "" : name;
@@ -175,9 +193,8 @@ public abstract class AbstractHaxePsiClass extends AbstractHaxeNamedComponent im
   public List<HaxeMethod> getHaxeMethods(@Nullable HaxeGenericResolver resolver) {
     // XXX: This implementation is equivalent to getAllMethods().  That
     //      may not be what we want.
-    final List<HaxeNamedComponent> alltypes = HaxeResolveUtil.findNamedSubComponents(resolver, this);
-    final List<HaxeNamedComponent> methods = HaxeResolveUtil.filterNamedComponentsByType(alltypes, HaxeComponentType.METHOD);
-    final List<HaxeMethod> result = new ArrayList<>();
+    final List<HaxeNamedComponent> methods = HaxeMemberTable.getInstance(this, resolver).getMethods();
+    final List<HaxeMethod> result = new ArrayList<>(methods.size());
     for (HaxeNamedComponent method : methods) {
       result.add((HaxeMethod)method);
     }
@@ -187,8 +204,7 @@ public abstract class AbstractHaxePsiClass extends AbstractHaxeNamedComponent im
   @NotNull
   @Override
   public List<HaxeNamedComponent> getHaxeFields(@Nullable HaxeGenericResolver resolver) {
-    final List<HaxeNamedComponent> result = HaxeResolveUtil.findNamedSubComponents(resolver, this);
-    return HaxeResolveUtil.filterNamedComponentsByType(result, HaxeComponentType.FIELD);
+    return HaxeMemberTable.getInstance(this, resolver).getFields();
   }
 
   @NotNull
@@ -200,33 +216,22 @@ public abstract class AbstractHaxePsiClass extends AbstractHaxeNamedComponent im
   @Nullable
   @Override
   public HaxeNamedComponent findHaxeFieldByName(@NotNull final String name, @Nullable HaxeGenericResolver resolver) {
-    return ContainerUtil.find(getHaxeFields(resolver), new Condition<HaxeNamedComponent>() {
-      @Override
-      public boolean value(HaxeNamedComponent component) {
-        return name.equals(component.getName());
-      }
-    });
+    return HaxeMemberTable.getInstance(this, resolver).find(name, HaxeComponentType.FIELD);
   }
 
   @Override
   public HaxeNamedComponent findHaxeMethodByName(@NotNull final String name, @Nullable HaxeGenericResolver resolver) {
-    return ContainerUtil.find(getHaxeMethods(resolver), new Condition<HaxeNamedComponent>() {
-      @Override
-      public boolean value(HaxeNamedComponent component) {
-        return name.equals(component.getName());
-      }
-    });
+    return HaxeMemberTable.getInstance(this, resolver).find(name, HaxeComponentType.METHOD);
   }
 
   /** Optimized path to replace findHaxeMethod and findHaxeField when used together. */
   @Override
   public HaxeNamedComponent findHaxeMemberByName(@NotNull final String name, @Nullable HaxeGenericResolver resolver) {
-    return ContainerUtil.find(HaxeResolveUtil.findNamedSubComponents(resolver, this),
-                              component -> {
-      HaxeComponentType type = HaxeComponentType.typeOf(component);
-      return ((type == HaxeComponentType.FIELD || type == HaxeComponentType.METHOD)
-              && name.equals(component.getName()));
-                              });
+    final HaxeMemberTable.Member member = HaxeMemberTable.getInstance(this, resolver).getMember(name);
+    if (null != member && (member.type == HaxeComponentType.FIELD || member.type == HaxeComponentType.METHOD)) {
+      return member.component;
+    }
+    return null;
   }
 
   @Nullable
@@ -356,6 +361,9 @@ public abstract class AbstractHaxePsiClass extends AbstractHaxeNamedComponent im
 
   @Override
   public boolean isInheritor(@NotNull PsiClass baseClass, boolean checkDeep) {
+    if (checkDeep && baseClass instanceof HaxeClass && baseClass != this) {
+      return HaxeSuperTypeClosure.isSubTypeOf(this, baseClass.getQualifiedName());
+    }
     return InheritanceImplUtil.isInheritor(this, baseClass, checkDeep);
   }
 
@@ -21,11 +21,13 @@ package com.intellij.plugins.haxe.lang.psi.impl;
 
 import com.intellij.lang.ASTNode;
 import com.intellij.plugins.haxe.lang.psi.*;
+import com.intellij.plugins.haxe.lang.psi.stubs.HaxeClassStub;
 import com.intellij.plugins.haxe.model.type.HaxeClassReference;
 import com.intellij.plugins.haxe.model.type.HaxeGenericResolver;
 import com.intellij.plugins.haxe.model.type.ResultHolder;
 import com.intellij.plugins.haxe.model.type.SpecificHaxeClassReference;
 import com.intellij.plugins.haxe.util.HaxeResolveUtil;
+import com.intellij.psi.stubs.IStubElementType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -39,6 +41,10 @@ public abstract class AbstractHaxeTypeDefImpl extends AbstractHaxePsiClass imple
     super(node);
   }
 
+  public AbstractHaxeTypeDefImpl(@NotNull HaxeClassStub stub, @NotNull IStubElementType nodeType) {
+    super(stub, nodeType);
+  }
+
   public HaxeClassResolveResult getTargetClass() {
     return getTargetClass(new HaxeGenericSpecialization());
   }
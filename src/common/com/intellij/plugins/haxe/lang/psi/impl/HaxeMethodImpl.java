@@ -20,6 +20,8 @@ package com.intellij.plugins.haxe.lang.psi.impl;
 
 import com.intellij.lang.ASTNode;
 import com.intellij.plugins.haxe.lang.psi.HaxeMethod;
+import com.intellij.plugins.haxe.lang.psi.stubs.HaxeMethodStub;
+import com.intellij.psi.stubs.IStubElementType;
 
 /**
  * This is effectively an alias for the mixin class, except with a more
@@ -31,4 +33,8 @@ public abstract class HaxeMethodImpl extends HaxeMethodPsiMixinImpl implements H
   protected HaxeMethodImpl(ASTNode node) {
     super(node);
   }
+
+  protected HaxeMethodImpl(HaxeMethodStub stub, IStubElementType nodeType) {
+    super(stub, nodeType);
+  }
 }
@@ -24,6 +24,7 @@ import com.intellij.lang.ASTNode;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes;
 import com.intellij.plugins.haxe.lang.psi.*;
+import com.intellij.plugins.haxe.lang.psi.stubs.HaxeMethodStub;
 import com.intellij.plugins.haxe.model.HaxeMethodModel;
 import com.intellij.plugins.haxe.util.UsefulPsiTreeUtil;
 import com.intellij.psi.*;
@@ -32,6 +33,7 @@ import com.intellij.psi.impl.PsiSuperMethodImplUtil;
 import com.intellij.psi.javadoc.PsiDocComment;
 import com.intellij.psi.search.LocalSearchScope;
 import com.intellij.psi.search.SearchScope;
+import com.intellij.psi.stubs.IStubElementType;
 import com.intellij.psi.util.MethodSignature;
 import com.intellij.psi.util.MethodSignatureBackedByPsiMethod;
 import com.intellij.psi.util.PsiTreeUtil;
@@ -60,6 +62,16 @@ public abstract class HaxeMethodPsiMixinImpl extends AbstractHaxeNamedComponent
     super(node);
   }
 
+  protected HaxeMethodPsiMixinImpl(@NotNull HaxeMethodStub stub, @NotNull IStubElementType nodeType) {
+    super(stub, nodeType);
+  }
+
+  @Nullable
+  @Override
+  public HaxeMethodStub getStub() {
+    return (HaxeMethodStub)super.getStub();
+  }
+
   @Override
   @NotNull
   @NonNls
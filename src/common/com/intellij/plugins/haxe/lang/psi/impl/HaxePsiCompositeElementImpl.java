@@ -31,6 +31,7 @@ import com.intellij.plugins.haxe.metadata.psi.impl.HaxeMetadataListOwnerImpl;
 import com.intellij.plugins.haxe.metadata.psi.impl.HaxeMetadataTypeName;
 import com.intellij.plugins.haxe.metadata.util.HaxeMetadataUtils;
 import com.intellij.plugins.haxe.util.UsefulPsiTreeUtil;
+import com.intellij.psi.NavigatablePsiElement;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiModifier;
 import com.intellij.psi.ResolveState;
@@ -70,11 +71,18 @@ public class HaxePsiCompositeElementImpl extends ASTWrapperPsiElement implements
   }
 
   public String getDebugName() {
+    return getDebugName(this);
+  }
+
+  /**
+   * Shared with {@link HaxeStubBasedPsiElementBase}, which can't inherit from this class.
+   */
+  static String getDebugName(@NotNull PsiElement element) {
     String name = null;
     String text = null;
     try {
-      text = getText();
-      name = getName();
+      text = element.getText();
+      name = element instanceof NavigatablePsiElement ? ((NavigatablePsiElement)element).getName() : null;
     } catch (ProcessCanceledException e) {
       // ignore it.
     }
@@ -112,7 +120,7 @@ public class HaxePsiCompositeElementImpl extends ASTWrapperPsiElement implements
                                      @NotNull ResolveState state,
                                      PsiElement lastParent,
                                      @NotNull PsiElement place) {
-    for (PsiElement element : getDeclarationElementToProcess(lastParent)) {
+    for (PsiElement element : getDeclarationElementToProcess(this, lastParent)) {
       if (!processor.execute(element, state)) {
         return false;
       }
@@ -120,40 +128,40 @@ public class HaxePsiCompositeElementImpl extends ASTWrapperPsiElement implements
     return super.processDeclarations(processor, state, lastParent, place);
   }
 
-  private List<PsiElement> getDeclarationElementToProcess(PsiElement lastParent) {
-    final boolean isBlock = this instanceof HaxeBlockStatement || this instanceof HaxeSwitchCaseBlock;
+  static List<PsiElement> getDeclarationElementToProcess(@NotNull PsiElement self, PsiElement lastParent) {
+    final boolean isBlock = self instanceof HaxeBlockStatement || self instanceof HaxeSwitchCaseBlock;
     final PsiElement stopper = isBlock ? lastParent : null;
     final List<PsiElement> result = new ArrayList<PsiElement>();
-    addVarDeclarations(result, PsiTreeUtil.getChildrenOfType(this, HaxeFieldDeclaration.class));
-    addLocalVarDeclarations(result, UsefulPsiTreeUtil.getChildrenOfType(this, HaxeLocalVarDeclarationList.class, stopper));
-
-    addDeclarations(result, PsiTreeUtil.getChildrenOfType(this, HaxeMethodDeclaration.class));
-    addDeclarations(result, UsefulPsiTreeUtil.getChildrenOfType(this, HaxeLocalFunctionDeclaration.class, stopper));
-    addDeclarations(result, PsiTreeUtil.getChildrenOfType(this, HaxeClassDeclaration.class));
-    addDeclarations(result, PsiTreeUtil.getChildrenOfType(this, HaxeExternClassDeclaration.class));
-    addDeclarations(result, PsiTreeUtil.getChildrenOfType(this, HaxeEnumDeclaration.class));
-    addDeclarations(result, PsiTreeUtil.getChildrenOfType(this, HaxeInterfaceDeclaration.class));
-    addDeclarations(result, PsiTreeUtil.getChildrenOfType(this, HaxeTypedefDeclaration.class));
-
-    final HaxeParameterList parameterList = PsiTreeUtil.getChildOfType(this, HaxeParameterList.class);
+    addVarDeclarations(result, PsiTreeUtil.getChildrenOfType(self, HaxeFieldDeclaration.class));
+    addLocalVarDeclarations(result, UsefulPsiTreeUtil.getChildrenOfType(self, HaxeLocalVarDeclarationList.class, stopper));
+
+    addDeclarations(result, PsiTreeUtil.getChildrenOfType(self, HaxeMethodDeclaration.class));
+    addDeclarations(result, UsefulPsiTreeUtil.getChildrenOfType(self, HaxeLocalFunctionDeclaration.class, stopper));
+    addDeclarations(result, PsiTreeUtil.getChildrenOfType(self, HaxeClassDeclaration.class));
+    addDeclarations(result, PsiTreeUtil.getChildrenOfType(self, HaxeExternClassDeclaration.class));
+    addDeclarations(result, PsiTreeUtil.getChildrenOfType(self, HaxeEnumDeclaration.class));
+    addDeclarations(result, PsiTreeUtil.getChildrenOfType(self, HaxeInterfaceDeclaration.class));
+    addDeclarations(result, PsiTreeUtil.getChildrenOfType(self, HaxeTypedefDeclaration.class));
+
+    final HaxeParameterList parameterList = PsiTreeUtil.getChildOfType(self, HaxeParameterList.class);
     if (parameterList != null) {
       result.addAll(parameterList.getParameterList());
     }
-    final HaxeOpenParameterList openParameterList = PsiTreeUtil.getChildOfType(this, HaxeOpenParameterList.class);
+    final HaxeOpenParameterList openParameterList = PsiTreeUtil.getChildOfType(self, HaxeOpenParameterList.class);
     if (openParameterList != null) {
       result.add(openParameterList);
     }
-    final HaxeGenericParam tygenericParameParam = PsiTreeUtil.getChildOfType(this, HaxeGenericParam.class);
+    final HaxeGenericParam tygenericParameParam = PsiTreeUtil.getChildOfType(self, HaxeGenericParam.class);
     if (tygenericParameParam != null) {
       result.addAll(tygenericParameParam.getGenericListPartList());
     }
 
-    if (this instanceof HaxeForStatement && ((HaxeForStatement)this).getIterable() != lastParent) {
-      result.add(this);
+    if (self instanceof HaxeForStatement && ((HaxeForStatement)self).getIterable() != lastParent) {
+      result.add(self);
     }
 
-    if (this instanceof HaxeCatchStatement) {
-      final HaxeParameter catchParameter = PsiTreeUtil.getChildOfType(this, HaxeParameter.class);
+    if (self instanceof HaxeCatchStatement) {
+      final HaxeParameter catchParameter = PsiTreeUtil.getChildOfType(self, HaxeParameter.class);
       if (catchParameter != null) {
         result.add(catchParameter);
       }
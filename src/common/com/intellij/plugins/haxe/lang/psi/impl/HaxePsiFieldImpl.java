@@ -22,6 +22,7 @@ package com.intellij.plugins.haxe.lang.psi.impl;
 import com.intellij.lang.ASTNode;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.plugins.haxe.lang.psi.*;
+import com.intellij.plugins.haxe.lang.psi.stubs.HaxeFieldStub;
 import com.intellij.plugins.haxe.model.HaxeEnumValueModel;
 import com.intellij.plugins.haxe.model.HaxeFieldModel;
 import com.intellij.plugins.haxe.model.HaxeModel;
@@ -31,6 +32,7 @@ import com.intellij.psi.*;
 import com.intellij.psi.javadoc.PsiDocComment;
 import com.intellij.psi.search.LocalSearchScope;
 import com.intellij.psi.search.SearchScope;
+import com.intellij.psi.stubs.IStubElementType;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.IncorrectOperationException;
 import org.apache.log4j.Level;
@@ -54,6 +56,16 @@ public abstract class HaxePsiFieldImpl extends AbstractHaxeNamedComponent implem
     super(node);
   }
 
+  public HaxePsiFieldImpl(@NotNull HaxeFieldStub stub, @NotNull IStubElementType nodeType) {
+    super(stub, nodeType);
+  }
+
+  @Nullable
+  @Override
+  public HaxeFieldStub getStub() {
+    return (HaxeFieldStub)super.getStub();
+  }
+
   @Override
   public HaxeModel getModel() {
     if (this instanceof HaxeEnumValueDeclaration) {
@@ -27,6 +27,7 @@ import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.plugins.haxe.ide.HaxeLookupElement;
 import com.intellij.plugins.haxe.ide.refactoring.move.HaxeFileMoveHandler;
+import com.intellij.plugins.haxe.ide.metrics.HaxeMetrics;
 import com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes;
 import com.intellij.plugins.haxe.lang.psi.*;
 import com.intellij.plugins.haxe.metadata.psi.HaxeMeta;
@@ -282,7 +283,13 @@ abstract public class HaxeReferenceImpl extends HaxeExpressionImpl implements Ha
   @Override
   public HaxeClassResolveResult resolveHaxeClass() {
     if (LOG.isTraceEnabled()) LOG.trace(traceMsg("Begin resolving Haxe class:" + this.getText()));
-    HaxeClassResolveResult result = resolveHaxeClassInternal();
+    final long start = HaxeMetrics.start();
+    HaxeClassResolveResult result;
+    try {
+      result = resolveHaxeClassInternal();
+    } finally {
+      HaxeMetrics.stop(getProject(), HaxeMetrics.Operation.RESOLVE_HAXE_CLASS, start);
+    }
     if (LOG.isTraceEnabled()) LOG.trace(traceMsg("Finished resolving Haxe class " + this.getText() + " as " + result.debugDump()));
     return result;
   }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.lang.psi.impl;
+
+import com.intellij.extapi.psi.StubBasedPsiElementBase;
+import com.intellij.lang.ASTNode;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.plugins.haxe.lang.psi.HaxeModifierList;
+import com.intellij.plugins.haxe.lang.psi.HaxeModifierListOwner;
+import com.intellij.plugins.haxe.lang.psi.HaxePsiCompositeElement;
+import com.intellij.plugins.haxe.metadata.HaxeMetadataList;
+import com.intellij.plugins.haxe.metadata.psi.HaxeMeta;
+import com.intellij.plugins.haxe.metadata.psi.HaxeMetadataListOwner;
+import com.intellij.plugins.haxe.metadata.psi.impl.HaxeMetadataTypeName;
+import com.intellij.plugins.haxe.metadata.util.HaxeMetadataUtils;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.ResolveState;
+import com.intellij.psi.scope.PsiScopeProcessor;
+import com.intellij.psi.stubs.IStubElementType;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The stub-capable twin of {@link HaxePsiCompositeElementImpl}.
+ *
+ * Named components (classes, fields, methods) are the only elements that we serialize into stubs,
+ * but they share their mixin hierarchy with parameters, local variables and the like.  Those
+ * elements are always created from the AST and behave exactly as they did when they derived from
+ * {@link HaxePsiCompositeElementImpl}.
+ *
+ * Anything added here should also be added to {@link HaxePsiCompositeElementImpl}.
+ */
+public class HaxeStubBasedPsiElementBase<T extends StubElement> extends StubBasedPsiElementBase<T>
+  implements HaxePsiCompositeElement, HaxeModifierListOwner, HaxeMetadataListOwner {
+
+  public HaxeStubBasedPsiElementBase(@NotNull ASTNode node) {
+    super(node);
+  }
+
+  public HaxeStubBasedPsiElementBase(@NotNull T stub, @NotNull IStubElementType nodeType) {
+    super(stub, nodeType);
+  }
+
+  @Override
+  public IElementType getTokenType() {
+    // Don't load the AST just to find out what we are.
+    final T stub = getStub();
+    return null != stub ? stub.getStubType() : getNode().getElementType();
+  }
+
+  public String getDebugName() {
+    return HaxePsiCompositeElementImpl.getDebugName(this);
+  }
+
+  public String toDebugString() {
+    return getTokenType().toString() + getDebugName();
+  }
+
+  public String toString() {
+    String out = getTokenType().toString();
+    if (!ApplicationManager.getApplication().isUnitTestMode()) {
+      out += " " + getDebugName();
+    }
+    return out;
+  }
+
+  @Override
+  public boolean processDeclarations(@NotNull PsiScopeProcessor processor,
+                                     @NotNull ResolveState state,
+                                     PsiElement lastParent,
+                                     @NotNull PsiElement place) {
+    for (PsiElement element : HaxePsiCompositeElementImpl.getDeclarationElementToProcess(this, lastParent)) {
+      if (!processor.execute(element, state)) {
+        return false;
+      }
+    }
+    return super.processDeclarations(processor, state, lastParent, place);
+  }
+
+  // HaxeModifierListOwner implementations
+
+  @Override
+  public boolean hasModifierProperty(@PsiModifier.ModifierConstant @NonNls @NotNull String name) {
+    HaxeModifierList list = getModifierList();
+    return null == list ? false : list.hasModifierProperty(name);
+  }
+
+  @Nullable
+  @Override
+  public HaxeModifierList getModifierList() {
+    return null;  // This list is built in sub-classes.
+  }
+
+  // HaxeMetadataListOwner implementations
+
+  @Nullable
+  @Override
+  public HaxeMetadataList getMetadataList(@Nullable Class<? extends HaxeMeta> metadataType) {
+    return HaxeMetadataUtils.getMetadataList(this, metadataType);
+  }
+
+  @Override
+  public boolean hasMetadata(HaxeMetadataTypeName name, @Nullable Class<? extends HaxeMeta> metadataType) {
+    return HaxeMetadataUtils.hasMeta(this, metadataType, name);
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.lang.psi.stubs;
+
+import com.intellij.plugins.haxe.lang.psi.HaxeClass;
+import com.intellij.psi.stubs.NamedStub;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Stub for all top-level type declarations: classes, interfaces, enums, abstracts and typedefs.
+ */
+public interface HaxeClassStub extends NamedStub<HaxeClass> {
+  @NotNull
+  String getQualifiedName();
+
+  /**
+   * The names of the types that this type extends or implements (or, for a typedef, aliases).
+   * Names are fully qualified when the declaring file alone is enough to qualify them (a type
+   * declared in the same file, or a plain or aliased import); otherwise they are left exactly as
+   * written in the source.  See {@link HaxeStubUtil#computeSuperTypeNames}.
+   */
+  @NotNull
+  List<String> getSuperTypeNames();
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.lang.psi.stubs;
+
+import com.intellij.openapi.util.Pair;
+import com.intellij.plugins.haxe.ide.index.HaxeClassPackageIndex;
+import com.intellij.plugins.haxe.ide.index.HaxeComponentIndex;
+import com.intellij.plugins.haxe.ide.index.HaxeInheritanceIndex;
+import com.intellij.plugins.haxe.ide.index.HaxeSymbolIndex;
+import com.intellij.plugins.haxe.ide.index.HaxeTypeDefInheritanceIndex;
+import com.intellij.plugins.haxe.lang.psi.HaxeClass;
+import com.intellij.plugins.haxe.util.HaxeResolveUtil;
+import com.intellij.psi.stubs.IndexSink;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubInputStream;
+import com.intellij.psi.stubs.StubOutputStream;
+import com.intellij.util.io.StringRef;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class HaxeClassStubElementType extends HaxeStubElementType<HaxeClassStub, HaxeClass> {
+
+  private final boolean myIsTypedef;
+
+  HaxeClassStubElementType(@NotNull @NonNls String debugName,
+                           @NotNull PsiFactory<HaxeClassStub, HaxeClass> psiFactory,
+                           boolean isTypedef) {
+    super(debugName, psiFactory);
+    myIsTypedef = isTypedef;
+  }
+
+  @NotNull
+  @Override
+  public HaxeClassStub createStub(@NotNull HaxeClass psi, StubElement parentStub) {
+    return new HaxeClassStubImpl(parentStub, this, psi.getName(), psi.getQualifiedName(),
+                                 HaxeStubUtil.computeSuperTypeNames(psi));
+  }
+
+  @Override
+  public void serialize(@NotNull HaxeClassStub stub, @NotNull StubOutputStream dataStream) throws IOException {
+    dataStream.writeName(stub.getName());
+    dataStream.writeName(stub.getQualifiedName());
+    final List<String> superTypeNames = stub.getSuperTypeNames();
+    dataStream.writeVarInt(superTypeNames.size());
+    for (String superTypeName : superTypeNames) {
+      dataStream.writeName(superTypeName);
+    }
+  }
+
+  @NotNull
+  @Override
+  public HaxeClassStub deserialize(@NotNull StubInputStream dataStream, StubElement parentStub) throws IOException {
+    final String name = StringRef.toString(dataStream.readName());
+    final String qualifiedName = StringRef.toString(dataStream.readName());
+    final int superTypeCount = dataStream.readVarInt();
+    final List<String> superTypeNames = new ArrayList<>(superTypeCount);
+    for (int i = 0; i < superTypeCount; ++i) {
+      superTypeNames.add(StringRef.toString(dataStream.readName()));
+    }
+    return new HaxeClassStubImpl(parentStub, this, name, qualifiedName == null ? "" : qualifiedName, superTypeNames);
+  }
+
+  @Override
+  public void indexStub(@NotNull HaxeClassStub stub, @NotNull IndexSink sink) {
+    final String name = stub.getName();
+    if (null == name) {
+      return;
+    }
+    // Ancillary types (those not named for their module) are keyed by their own name, not the module name.
+    final Pair<String, String> packageAndName = HaxeResolveUtil.splitQName(stub.getQualifiedName());
+    sink.occurrence(HaxeComponentIndex.HAXE_COMPONENT_INDEX, packageAndName.getSecond());
+    sink.occurrence(HaxeClassPackageIndex.HAXE_CLASS_PACKAGE_INDEX, packageAndName.getFirst());
+    sink.occurrence(HaxeSymbolIndex.HAXE_SYMBOL_INDEX, name);
+
+    // Inheritors are keyed by the short name of the super type; the searcher sorts out which
+    // of them actually refer to the type that it's looking for.
+    for (String superTypeName : stub.getSuperTypeNames()) {
+      final String key = HaxeResolveUtil.splitQName(superTypeName).getSecond();
+      sink.occurrence(myIsTypedef ? HaxeTypeDefInheritanceIndex.HAXE_TYPEDEF_INHERITANCE_INDEX
+                                  : HaxeInheritanceIndex.HAXE_INHERITANCE_INDEX,
+                      key);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.lang.psi.stubs;
+
+import com.intellij.plugins.haxe.lang.psi.HaxeClass;
+import com.intellij.psi.stubs.IStubElementType;
+import com.intellij.psi.stubs.NamedStubBase;
+import com.intellij.psi.stubs.StubElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+public class HaxeClassStubImpl extends NamedStubBase<HaxeClass> implements HaxeClassStub {
+  private final String myQualifiedName;
+  private final List<String> mySuperTypeNames;
+
+  public HaxeClassStubImpl(StubElement parent,
+                           @NotNull IStubElementType elementType,
+                           @Nullable String name,
+                           @NotNull String qualifiedName,
+                           @NotNull List<String> superTypeNames) {
+    super(parent, elementType, name);
+    myQualifiedName = qualifiedName;
+    mySuperTypeNames = superTypeNames;
+  }
+
+  @NotNull
+  @Override
+  public String getQualifiedName() {
+    return myQualifiedName;
+  }
+
+  @NotNull
+  @Override
+  public List<String> getSuperTypeNames() {
+    return mySuperTypeNames;
+  }
+}
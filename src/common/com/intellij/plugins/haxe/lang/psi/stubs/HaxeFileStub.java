@@ -0,0 +1,26 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.lang.psi.stubs;
+
+import com.intellij.plugins.haxe.lang.psi.HaxeFile;
+import com.intellij.psi.stubs.PsiFileStub;
+import org.jetbrains.annotations.NotNull;
+
+public interface HaxeFileStub extends PsiFileStub<HaxeFile> {
+  /** @return the package declared by the file, or the empty string for the root package. */
+  @NotNull
+  String getPackageName();
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.lang.psi.stubs;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.plugins.haxe.HaxeLanguage;
+import com.intellij.plugins.haxe.ide.index.HaxeSdkInputFilter;
+import com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes;
+import com.intellij.plugins.haxe.lang.psi.HaxeFile;
+import com.intellij.plugins.haxe.util.HaxeResolveUtil;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.StubBuilder;
+import com.intellij.psi.stubs.DefaultStubBuilder;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubInputStream;
+import com.intellij.psi.stubs.StubOutputStream;
+import com.intellij.psi.tree.IStubFileElementType;
+import com.intellij.util.io.StringRef;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+public class HaxeFileStubElementType extends IStubFileElementType<HaxeFileStub> {
+
+  /**
+   * Bump this whenever the format or the content of any Haxe stub changes.  Doing so
+   * invalidates all stub indices and forces a re-index of all Haxe files.
+   */
+  private static final int STUB_VERSION = 2;
+
+  HaxeFileStubElementType() {
+    super("HAXE_FILE", HaxeLanguage.INSTANCE);
+  }
+
+  @Override
+  public int getStubVersion() {
+    return STUB_VERSION;
+  }
+
+  @NotNull
+  @Override
+  public String getExternalId() {
+    return "haxe.FILE";
+  }
+
+  @Override
+  public StubBuilder getBuilder() {
+    return new Builder();
+  }
+
+  @Override
+  public boolean shouldBuildStubFor(VirtualFile file) {
+    return HaxeSdkInputFilter.INSTANCE.acceptInput(file);
+  }
+
+  @Override
+  public void serialize(@NotNull HaxeFileStub stub, @NotNull StubOutputStream dataStream) throws IOException {
+    dataStream.writeName(stub.getPackageName());
+  }
+
+  @NotNull
+  @Override
+  public HaxeFileStub deserialize(@NotNull StubInputStream dataStream, StubElement parentStub) throws IOException {
+    return new HaxeFileStubImpl(null, StringRef.toString(dataStream.readName()));
+  }
+
+  private static class Builder extends DefaultStubBuilder {
+    @NotNull
+    @Override
+    protected StubElement createStubForFile(@NotNull PsiFile file) {
+      if (file instanceof HaxeFile) {
+        return new HaxeFileStubImpl((HaxeFile)file, HaxeResolveUtil.getPackageName(file));
+      }
+      return super.createStubForFile(file);
+    }
+
+    @Override
+    public boolean skipChildProcessingWhenBuildingStubs(@NotNull ASTNode parent, @NotNull ASTNode node) {
+      // Nothing inside of a function body or an initializer is ever stubbed, so don't bother walking them.
+      return node.getElementType() == HaxeTokenTypes.BLOCK_STATEMENT
+             || node.getElementType() == HaxeTokenTypes.VAR_INIT;
+    }
+  }
+}
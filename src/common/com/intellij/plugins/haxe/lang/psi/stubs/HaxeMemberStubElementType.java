@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.lang.psi.stubs;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.plugins.haxe.ide.index.HaxeSymbolIndex;
+import com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes;
+import com.intellij.plugins.haxe.lang.psi.HaxeNamedComponent;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.stubs.IndexSink;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubInputStream;
+import com.intellij.psi.stubs.StubOutputStream;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.util.io.StringRef;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Shared handling for fields, methods and enum values.
+ */
+public abstract class HaxeMemberStubElementType<StubT extends HaxeMemberStub<PsiT>, PsiT extends PsiNamedElement>
+  extends HaxeStubElementType<StubT, PsiT> {
+
+  protected HaxeMemberStubElementType(@NotNull @NonNls String debugName, @NotNull PsiFactory<StubT, PsiT> psiFactory) {
+    super(debugName, psiFactory);
+  }
+
+  protected abstract StubT newStub(StubElement parentStub, @Nullable String name, boolean isStatic);
+
+  @NotNull
+  @Override
+  public StubT createStub(@NotNull PsiT psi, StubElement parentStub) {
+    return newStub(parentStub, psi.getName(), ((HaxeNamedComponent)psi).isStatic());
+  }
+
+  /**
+   * Only the members that are declared directly in a type's body are stubbed.  That includes
+   * the body of a typedef's structure, but the same productions are used for the members of
+   * anonymous structures wherever they appear, and the others are not interesting to the indices.
+   */
+  @Override
+  public boolean shouldCreateStub(ASTNode node) {
+    ASTNode parent = node.getTreeParent();
+    if (null != parent && parent.getElementType() == HaxeTokenTypes.ANONYMOUS_TYPE_FIELD_LIST) {
+      parent = parent.getTreeParent();
+    }
+    return null != parent && isMemberContainer(parent);
+  }
+
+  private static boolean isMemberContainer(@NotNull ASTNode node) {
+    // Not a TokenSet: this class is loaded while HaxeTokenTypes is still being initialized.
+    final IElementType type = node.getElementType();
+    return type == HaxeTokenTypes.CLASS_BODY
+           || type == HaxeTokenTypes.ABSTRACT_BODY
+           || type == HaxeTokenTypes.INTERFACE_BODY
+           || type == HaxeTokenTypes.EXTERN_CLASS_DECLARATION_BODY
+           || type == HaxeTokenTypes.ENUM_BODY
+           || type == HaxeTokenTypes.ANONYMOUS_TYPE_BODY && isTypedefStructure(node);
+  }
+
+  /**
+   * typedef Name = { ... }
+   */
+  private static boolean isTypedefStructure(@NotNull ASTNode body) {
+    final ASTNode anonymousType = body.getTreeParent();
+    final ASTNode typeOrAnonymous = null == anonymousType ? null : anonymousType.getTreeParent();
+    final ASTNode typedef = null == typeOrAnonymous ? null : typeOrAnonymous.getTreeParent();
+    return null != typedef
+           && anonymousType.getElementType() == HaxeTokenTypes.ANONYMOUS_TYPE
+           && typeOrAnonymous.getElementType() == HaxeTokenTypes.TYPE_OR_ANONYMOUS
+           && typedef.getElementType() == HaxeTokenTypes.TYPEDEF_DECLARATION;
+  }
+
+  @Override
+  public void serialize(@NotNull StubT stub, @NotNull StubOutputStream dataStream) throws IOException {
+    dataStream.writeName(stub.getName());
+    dataStream.writeBoolean(stub.isStatic());
+  }
+
+  @NotNull
+  @Override
+  public StubT deserialize(@NotNull StubInputStream dataStream, StubElement parentStub) throws IOException {
+    final String name = StringRef.toString(dataStream.readName());
+    final boolean isStatic = dataStream.readBoolean();
+    return newStub(parentStub, name, isStatic);
+  }
+
+  @Override
+  public void indexStub(@NotNull StubT stub, @NotNull IndexSink sink) {
+    final String name = stub.getName();
+    if (null != name && !HaxeTokenTypes.ONEW.toString().equals(name)) {  // Constructors are not symbols.
+      sink.occurrence(HaxeSymbolIndex.HAXE_SYMBOL_INDEX, name);
+    }
+  }
+}
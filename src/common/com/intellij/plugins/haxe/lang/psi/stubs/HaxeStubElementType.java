@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.lang.psi.stubs;
+
+import com.intellij.plugins.haxe.HaxeLanguage;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.stubs.IStubElementType;
+import com.intellij.psi.stubs.StubElement;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Base for all Haxe stub element types.  Instances must be created via {@link HaxeStubElementTypes},
+ * so that the parser (through {@link com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes}) and the
+ * stub indices agree on a single instance per element type.
+ */
+public abstract class HaxeStubElementType<StubT extends StubElement, PsiT extends PsiElement> extends IStubElementType<StubT, PsiT> {
+
+  /**
+   * Creates the stub-backed PSI for an element; this is always a constructor reference to the
+   * generated implementation class.
+   */
+  public interface PsiFactory<StubT, PsiT> {
+    PsiT create(StubT stub, IStubElementType elementType);
+  }
+
+  protected final PsiFactory<StubT, PsiT> myPsiFactory;
+
+  protected HaxeStubElementType(@NotNull @NonNls String debugName, @NotNull PsiFactory<StubT, PsiT> psiFactory) {
+    super(debugName, HaxeLanguage.INSTANCE);
+    myPsiFactory = psiFactory;
+  }
+
+  @Override
+  public PsiT createPsi(@NotNull StubT stub) {
+    return myPsiFactory.create(stub, this);
+  }
+
+  @NotNull
+  @Override
+  public String getExternalId() {
+    return "haxe." + toString();
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.lang.psi.stubs;
+
+import com.intellij.plugins.haxe.lang.lexer.HaxeElementType;
+import com.intellij.plugins.haxe.lang.psi.impl.*;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Holder for the element types that are backed by stubs.  The parser's element types for these
+ * rules are created here (see the elementTypeFactory attribute in haxe.bnf), and this class is
+ * registered as the plugin's stubElementTypeHolder.
+ *
+ * Nothing in here may refer to {@link com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes} during
+ * class initialization: this class is initialized *from* HaxeTokenTypes.
+ */
+public interface HaxeStubElementTypes {
+
+  HaxeFileStubElementType HAXE_FILE = new HaxeFileStubElementType();
+
+  HaxeClassStubElementType CLASS_DECLARATION =
+    new HaxeClassStubElementType("CLASS_DECLARATION", HaxeClassDeclarationImpl::new, false);
+  HaxeClassStubElementType INTERFACE_DECLARATION =
+    new HaxeClassStubElementType("INTERFACE_DECLARATION", HaxeInterfaceDeclarationImpl::new, false);
+  HaxeClassStubElementType EXTERN_CLASS_DECLARATION =
+    new HaxeClassStubElementType("EXTERN_CLASS_DECLARATION", HaxeExternClassDeclarationImpl::new, false);
+  HaxeClassStubElementType EXTERN_INTERFACE_DECLARATION =
+    new HaxeClassStubElementType("EXTERN_INTERFACE_DECLARATION", HaxeExternInterfaceDeclarationImpl::new, false);
+  HaxeClassStubElementType ABSTRACT_CLASS_DECLARATION =
+    new HaxeClassStubElementType("ABSTRACT_CLASS_DECLARATION", HaxeAbstractClassDeclarationImpl::new, false);
+  HaxeClassStubElementType ENUM_DECLARATION =
+    new HaxeClassStubElementType("ENUM_DECLARATION", HaxeEnumDeclarationImpl::new, false);
+  HaxeClassStubElementType TYPEDEF_DECLARATION =
+    new HaxeClassStubElementType("TYPEDEF_DECLARATION", HaxeTypedefDeclarationImpl::new, true);
+
+  HaxeFieldStubElementType FIELD_DECLARATION =
+    new HaxeFieldStubElementType("FIELD_DECLARATION", HaxeFieldDeclarationImpl::new);
+  HaxeFieldStubElementType ENUM_VALUE_DECLARATION =
+    new HaxeFieldStubElementType("ENUM_VALUE_DECLARATION", HaxeEnumValueDeclarationImpl::new);
+  HaxeFieldStubElementType ANONYMOUS_TYPE_FIELD =
+    new HaxeFieldStubElementType("ANONYMOUS_TYPE_FIELD", HaxeAnonymousTypeFieldImpl::new);
+  HaxeMethodStubElementType METHOD_DECLARATION =
+    new HaxeMethodStubElementType("METHOD_DECLARATION", HaxeMethodDeclarationImpl::new);
+
+  /**
+   * Element type factory for the parser.  Rules with stubs get their stub element type; anything
+   * else gets a plain element type, just as it would without a factory.
+   */
+  @NotNull
+  static IElementType getElementType(@NotNull @NonNls String name) {
+    switch (name) {
+      case "CLASS_DECLARATION":             return CLASS_DECLARATION;
+      case "INTERFACE_DECLARATION":         return INTERFACE_DECLARATION;
+      case "EXTERN_CLASS_DECLARATION":      return EXTERN_CLASS_DECLARATION;
+      case "EXTERN_INTERFACE_DECLARATION":  return EXTERN_INTERFACE_DECLARATION;
+      case "ABSTRACT_CLASS_DECLARATION":    return ABSTRACT_CLASS_DECLARATION;
+      case "ENUM_DECLARATION":              return ENUM_DECLARATION;
+      case "TYPEDEF_DECLARATION":           return TYPEDEF_DECLARATION;
+      case "FIELD_DECLARATION":             return FIELD_DECLARATION;
+      case "ENUM_VALUE_DECLARATION":        return ENUM_VALUE_DECLARATION;
+      case "ANONYMOUS_TYPE_FIELD":          return ANONYMOUS_TYPE_FIELD;
+      case "METHOD_DECLARATION":            return METHOD_DECLARATION;
+      default:                              return new HaxeElementType(name);
+    }
+  }
+}
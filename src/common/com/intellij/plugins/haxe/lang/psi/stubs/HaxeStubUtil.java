@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.lang.psi.stubs;
+
+import com.intellij.plugins.haxe.lang.psi.*;
+import com.intellij.plugins.haxe.util.HaxeResolveUtil;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.impl.source.PsiFileImpl;
+import com.intellij.psi.stubs.StubElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class HaxeStubUtil {
+
+  private HaxeStubUtil() {}
+
+  /**
+   * @return the stub for a file, if the file's PSI is currently backed by stubs (that is, its AST is not loaded).
+   */
+  @Nullable
+  public static HaxeFileStub getFileStub(@Nullable PsiFile file) {
+    if (file instanceof PsiFileImpl) {
+      final StubElement stub = ((PsiFileImpl)file).getStub();
+      if (stub instanceof HaxeFileStub) {
+        return (HaxeFileStub)stub;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the types declared in a file, if they can be found without loading its AST; null otherwise.
+   */
+  @Nullable
+  public static List<HaxeClass> getClassesFromStub(@Nullable PsiFile file) {
+    final HaxeFileStub stub = getFileStub(file);
+    if (null == stub) {
+      return null;
+    }
+    final List<HaxeClass> classes = new ArrayList<>();
+    for (Object child : stub.getChildrenStubs()) {
+      if (child instanceof HaxeClassStub) {
+        classes.add(((HaxeClassStub)child).getPsi());
+      }
+    }
+    return classes;
+  }
+
+  /**
+   * Collects the names of the types that a class extends or implements, or that a typedef aliases
+   * or extends.
+   *
+   * This must not resolve anything outside of the class' own file: it is used while building
+   * stubs, when other files may not be consulted.
+   */
+  @NotNull
+  public static List<String> computeSuperTypeNames(@NotNull HaxeClass haxeClass) {
+    final List<HaxeType> types = new ArrayList<>();
+    if (haxeClass instanceof HaxeTypedefDeclaration) {
+      // Don't use getHaxeExtendsList() for typedefs; it resolves the target type.
+      final HaxeTypeOrAnonymous typeOrAnonymous = ((HaxeTypedefDeclaration)haxeClass).getTypeOrAnonymous();
+      final HaxeType type = typeOrAnonymous == null ? null : typeOrAnonymous.getType();
+      final HaxeAnonymousType anonymousType = typeOrAnonymous == null ? null : typeOrAnonymous.getAnonymousType();
+      if (anonymousType != null) {
+        final HaxeAnonymousTypeBody body = anonymousType.getAnonymousTypeBody();
+        final HaxeTypeExtendsList typeExtendsList = body == null ? null : body.getTypeExtendsList();
+        if (typeExtendsList != null) {
+          types.addAll(typeExtendsList.getTypeList());
+        }
+      }
+      else if (type != null) {
+        types.add(type);
+      }
+    }
+    else {
+      types.addAll(haxeClass.getHaxeExtendsList());
+      types.addAll(haxeClass.getHaxeImplementsList());
+    }
+    if (types.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    final PsiFile file = haxeClass.getContainingFile();
+    final List<String> result = new ArrayList<>(types.size());
+    for (HaxeType type : types) {
+      if (null == type) continue;
+      // Generic parameters are not part of the name.
+      final HaxeReferenceExpression reference = type.getReferenceExpression();
+      final String name = null != reference ? reference.getText() : type.getText();
+      result.add(qualifyFromFile(file, name));
+    }
+    return result;
+  }
+
+  /**
+   * Qualifies a type name using only the declarations and imports in the given file.
+   *
+   * @return the qualified name, or the name unchanged if the file alone can't qualify it.
+   */
+  @NotNull
+  private static String qualifyFromFile(@Nullable PsiFile file, @NotNull String name) {
+    if (name.indexOf('.') >= 0 || !(file instanceof HaxeFile)) {
+      return name;
+    }
+    for (HaxeClass declared : HaxeResolveUtil.findComponentDeclarations(file)) {
+      if (name.equals(declared.getName())) {
+        return declared.getQualifiedName();
+      }
+    }
+    // Later imports shadow earlier ones.
+    final List<HaxeImportStatement> imports = ((HaxeFile)file).getImportStatements();
+    for (int i = imports.size() - 1; i >= 0; --i) {
+      final HaxeImportStatement importStatement = imports.get(i);
+      final HaxeReferenceExpression importReference = importStatement.getReferenceExpression();
+      if (null == importReference || null != importStatement.getWildcard()) {
+        continue;
+      }
+      final String importPath = importReference.getText();
+      final HaxeIdentifier alias = importStatement.getAlias();
+      if (null != alias) {
+        if (name.equals(alias.getText())) {
+          return importPath;
+        }
+      }
+      else if (importPath.equals(name) || importPath.endsWith("." + name)) {
+        return importPath;
+      }
+    }
+    return name;
+  }
+}
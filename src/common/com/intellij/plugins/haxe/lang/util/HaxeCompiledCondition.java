@@ -0,0 +1,350 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.lang.util;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.plugins.haxe.lang.util.HaxeConditionalExpression.CalculationException;
+import com.intellij.plugins.haxe.lang.util.HaxeConditionalExpression.CompareException;
+import com.intellij.plugins.haxe.util.HaxeDebugLogger;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes.*;
+import static com.intellij.plugins.haxe.lang.util.HaxeAstUtil.*;
+
+/**
+ * An immutable, compiled form of a conditional compilation expression.
+ *
+ * The lexer creates a new {@link HaxeConditionalExpression} for every #if and #elseif each time a
+ * file is (re-)lexed.  Those all compile down to one shared instance per distinct condition, and
+ * the results of evaluating it are memoized per set of defines by {@link HaxeConditionalDefines}.
+ *
+ * The program is the RPN form of the condition, with constants already converted to their values.
+ * It is evaluated from the end, the same way the RPN token stack used to be.
+ */
+public final class HaxeCompiledCondition {
+
+  static final HaxeDebugLogger LOG = HaxeConditionalExpression.LOG;
+
+  /**
+   * Compiled conditions, keyed by their token types and text.  Values are weakly held: the result
+   * caches in {@link HaxeConditionalDefines} keep the ones in use alive.
+   */
+  private static final ConcurrentMap<String, HaxeCompiledCondition> ourInterned = ContainerUtil.createConcurrentWeakValueMap();
+
+  /** Incomplete and empty conditions are always false. */
+  public static final HaxeCompiledCondition ALWAYS_FALSE = new HaxeCompiledCondition("", new Instruction[0]);
+
+  private enum Kind {
+    CONSTANT,
+    IDENTIFIER,
+    UNARY,
+    BINARY,
+    ERROR     // Only reported if evaluation gets to it, as before.
+  }
+
+  private static final class Instruction {
+    final Kind kind;
+    final IElementType operator;
+    final Object value;  // The constant's value, the identifier's name, or the error message.
+
+    Instruction(Kind kind, IElementType operator, Object value) {
+      this.kind = kind;
+      this.operator = operator;
+      this.value = value;
+    }
+
+    @Override
+    public String toString() {
+      return null != operator ? operator.toString() : String.valueOf(value);
+    }
+  }
+
+  private final String myText;
+  private final Instruction[] myProgram;
+
+  private HaxeCompiledCondition(@NotNull String text, @NotNull Instruction[] program) {
+    myText = text;
+    myProgram = program;
+  }
+
+  /**
+   * Get the shared compiled form of a condition.
+   *
+   * @param key  identifies the condition; must include the token types as well as their text.
+   * @param text the condition as written, for logging.
+   * @param rpn  the condition's tokens in RPN order, as produced by the shunting yard.
+   */
+  @NotNull
+  static HaxeCompiledCondition intern(@NotNull String key, @NotNull String text, @NotNull List<ASTNode> rpn) {
+    HaxeCompiledCondition compiled = ourInterned.get(key);
+    if (null == compiled) {
+      compiled = new HaxeCompiledCondition(text, compile(rpn));
+      HaxeCompiledCondition existing = ourInterned.putIfAbsent(key, compiled);
+      if (null != existing) {
+        compiled = existing;
+      }
+    }
+    return compiled;
+  }
+
+  /**
+   * Get the shared form of a condition that couldn't be converted to RPN.  Evaluating it logs the
+   * error and returns false.
+   */
+  @NotNull
+  static HaxeCompiledCondition internError(@NotNull String key, @NotNull String text, @NotNull String message) {
+    HaxeCompiledCondition compiled = new HaxeCompiledCondition(text, new Instruction[]{new Instruction(Kind.ERROR, null, message)});
+    HaxeCompiledCondition existing = ourInterned.putIfAbsent(key, compiled);
+    return null != existing ? existing : compiled;
+  }
+
+  /**
+   * @return the shared instance, if the condition has already been compiled; null, otherwise.
+   */
+  @Nullable
+  static HaxeCompiledCondition findInterned(@NotNull String key) {
+    return ourInterned.get(key);
+  }
+
+  @NotNull
+  private static Instruction[] compile(@NotNull List<ASTNode> rpn) {
+    Instruction[] program = new Instruction[rpn.size()];
+    for (int i = 0; i < program.length; ++i) {
+      program[i] = compile(rpn.get(i));
+    }
+    return program;
+  }
+
+  @NotNull
+  private static Instruction compile(@NotNull ASTNode node) {
+    IElementType type = node.getElementType();
+    try {
+      if (isCCOperator(node)) {
+        return new Instruction(getArity(node) == HaxeOperatorPrecedenceTable.Arity.UNARY ? Kind.UNARY : Kind.BINARY, type, null);
+      }
+      if (isConstant(node)) {
+        return new Instruction(Kind.CONSTANT, null, constantValue(node));
+      }
+      if (isIdentifier(node)) {
+        return new Instruction(Kind.IDENTIFIER, null, node.getText());
+      }
+      String typename = type != null ? type.toString() : "<null>";
+      throw new CalculationException("Unexpected AST Node type " + typename);
+    }
+    catch (CalculationException e) {
+      return new Instruction(Kind.ERROR, null, e.getMessage());
+    }
+  }
+
+  @NotNull
+  private static HaxeOperatorPrecedenceTable.Arity getArity(@NotNull ASTNode node) throws CalculationException {
+    HaxeOperatorPrecedenceTable.Arity arity = HaxeOperatorPrecedenceTable.getArity(node.getElementType());
+    if (null == arity) {
+      throw new CalculationException("NULL arity from node: '" + node.toString() + "'.");
+    }
+    switch (arity) {
+      case UNARY:
+      case BINARY:
+        break;
+      default:
+        String msg = "Unexpected arity of " + arity.toString() + " from operator '" + node.toString() + "'.";
+        throw new CalculationException(msg);
+    }
+    return arity;
+  }
+
+  @NotNull
+  private static Object constantValue(ASTNode node) throws CalculationException {
+    if (isTrueKeyword(node))        { return Boolean.TRUE; }
+    if (isFalseKeyword(node))       { return Boolean.FALSE; }
+    if (isString(node))             { return node.getText(); }
+    if (isNumber(node)) {
+      try {
+        return Float.valueOf(node.getText());
+      }
+      catch (NumberFormatException e) {
+        throw new CalculationException("Unrecognized number: " + node.getText());
+      }
+    }
+
+    throw new CalculationException("Unrecognized value token: " + node.toString());
+  }
+
+  /**
+   * Evaluate the condition, using the memoized result if these defines have seen it before.
+   */
+  public boolean evaluate(@NotNull HaxeConditionalDefines defines) {
+    return this == ALWAYS_FALSE ? false : defines.evaluate(this);
+  }
+
+  /**
+   * Evaluate the condition without consulting the cache.
+   */
+  boolean calculate(@NotNull HaxeConditionalDefines defines) {
+    if (myProgram.length == 0) {
+      return false;
+    }
+    boolean ret = false;
+    int[] position = {myProgram.length};
+    try {
+      ret = objectIsTrue(calculate(position, defines));
+      if (LOG.isDebugEnabled()) {  // Don't create the strings unless we are debugging them...
+        LOG.debug(myText + " --> " + programToString() + " ==> " + (ret ? "true" : "false"));
+      }
+      if (position[0] > 0) {
+        throw new CalculationException("Invalid Expression: Tokens left after calculating: " + programToString(position[0]));
+      }
+    }
+    catch (CalculationException e) {
+      String msg = "Error calculating conditional compiler expression '" + myText + "'";
+      // Add stack info if in debug mode.
+      LOG.info(msg, LOG.isDebugEnabled() ? e : null);
+    }
+    return ret;
+  }
+
+  @NotNull
+  private Object calculate(int[] position, HaxeConditionalDefines defines) throws CalculationException {
+    if (position[0] <= 0) {
+      return Boolean.FALSE;
+    }
+    Instruction instruction = myProgram[--position[0]];
+    switch (instruction.kind) {
+      case UNARY: {
+        Object rhs = calculate(position, defines);
+        return applyUnary(instruction.operator, rhs);
+      }
+      case BINARY: {
+        Object rhs = calculate(position, defines);
+        Object lhs = calculate(position, defines);
+        return applyBinary(instruction.operator, lhs, rhs);
+      }
+      case CONSTANT:
+        return instruction.value;
+      case IDENTIFIER:
+        return defines.lookup((String)instruction.value);
+      default:
+        throw new CalculationException((String)instruction.value);
+    }
+  }
+
+  private String programToString() {
+    return programToString(myProgram.length);
+  }
+
+  private String programToString(int length) {
+    StringBuilder s = new StringBuilder();
+    for (int i = 0; i < length; ++i) {
+      if (i > 0) s.append(" ");
+      s.append(myProgram[i]);
+    }
+    return s.toString();
+  }
+
+  @Override
+  public String toString() {
+    return myText;
+  }
+
+  @NotNull
+  static Object identifierValue(String s) {
+    if (KTRUE.toString().equals(s))   { return Boolean.TRUE; }
+    if (KFALSE.toString().equals(s))  { return Boolean.FALSE; }
+
+    FloatResult result = new FloatResult();
+    if (isFloat(s, result))           { return result.result; }
+
+    // De-quote strings and recurse...
+    if ((s.startsWith("\"") && s.endsWith("\"")) || (s.startsWith("'") && s.endsWith("'"))) {
+      if (s.length() <= 2) {
+        return "";
+      } else {
+        return identifierValue(s.substring(1, s.length() - 1));
+      }
+    }
+
+    return s;
+  }
+
+  // Parodies Haxe parser is_true function
+  // https://github.com/HaxeFoundation/haxe/blob/development/src/syntax/parser.mly#L1596
+  private static boolean objectIsTrue(Object o) {
+    if (o == null)            { return false; }
+    if (o instanceof Boolean) { return (Boolean)o; }
+    if (o instanceof Float)   { return !((Float)o == 0.0); }
+    if (o instanceof String)  { return !((String)o).isEmpty(); }
+    return true;
+  }
+
+  // Parodies Haxe parser cmp function
+  // https://github.com/HaxeFoundation/haxe/blob/development/src/syntax/parser.mly#L1600
+  private static int objectCompare(Object lhs, Object rhs) throws CompareException {
+    if (lhs == null && rhs == null) { return 0; }
+    if (lhs instanceof Boolean && rhs instanceof Boolean) { return ((Boolean)lhs).compareTo((Boolean)rhs); }
+    if (lhs instanceof String && rhs instanceof String)   { return ((String)lhs).compareTo((String)rhs); }
+
+    // For String vs Float, convert the strings to floats.  Errors converting are thrown past this function.
+    if (lhs instanceof String  && rhs instanceof Float)  { lhs = identifierValue((String)lhs); }
+    if (lhs instanceof Float   && rhs instanceof String) { rhs = identifierValue((String)rhs); }
+
+    if (lhs instanceof Float && rhs instanceof Float) {
+      // To get the same behavior as OCaml, NaN needs to be treated as less than all other numbers,
+      // rather than larger, as Java likes to do it.
+      int result = ((Float)lhs).compareTo((Float)rhs);
+      if (((Float)lhs).isNaN()) { result = -result; }
+      if (((Float)rhs).isNaN()) { result = -result; }
+      return result;
+    }
+
+    throw new CompareException("Invalid value comparison between '"
+                               + String.valueOf(lhs) + "' and '" + String.valueOf(rhs) + "'.");
+  }
+
+  // Parodies Haxe parser eval function
+  // https://github.com/HaxeFoundation/haxe/blob/development/src/syntax/parser.mly#L1619
+  @NotNull
+  private static Object applyUnary(IElementType optype, Object value) throws CalculationException {
+    if (optype.equals(ONOT))  { return !objectIsTrue(value); }
+    throw new CalculationException("Unexpected unary operator encountered: " + optype.toString());
+  }
+
+  // Parodies Haxe parser eval function at lines 1617, 1618, and 1621-1634
+  // https://github.com/HaxeFoundation/haxe/blob/development/src/syntax/parser.mly#L1617
+  @NotNull
+  private static Object applyBinary(IElementType optype, Object lhs, Object rhs) throws CalculationException {
+    try {
+      if (optype.equals(OCOND_AND))            { return objectIsTrue(lhs) && objectIsTrue(rhs); }
+      if (optype.equals(OCOND_OR))             { return objectIsTrue(lhs) || objectIsTrue(rhs); }
+      if (optype.equals(OEQ))                  { return objectCompare(lhs, rhs) == 0; }
+      if (optype.equals(ONOT_EQ))              { return objectCompare(lhs, rhs) != 0; }
+      if (optype.equals(OGREATER))             { return objectCompare(lhs, rhs) >  0; }
+      if (optype.equals(OGREATER_OR_EQUAL))    { return objectCompare(lhs, rhs) >= 0; }
+      if (optype.equals(OLESS_OR_EQUAL))       { return objectCompare(lhs, rhs) <= 0; }
+      if (optype.equals(OLESS))                { return objectCompare(lhs, rhs) <  0; }
+      throw new CalculationException("Unexpected operator when comparing '"
+                                     + lhs.toString() + " " + optype.toString() + " " + rhs.toString() + "'.");
+    } catch (CompareException e) {
+      // parser eval#1625 maps any calculation failures to false.
+      return Boolean.FALSE;
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.lang.util;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.plugins.haxe.config.HaxeProjectSettings;
+import com.intellij.plugins.haxe.util.HaxeTrackedModifiable;
+import com.intellij.util.containers.ContainerUtil;
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable snapshot of the defines used to evaluate conditional compilation expressions,
+ * along with the results of the conditions evaluated against it.
+ *
+ * A project keeps its snapshot until its defines change; the new snapshot starts with an
+ * empty result cache.
+ */
+public final class HaxeConditionalDefines {
+
+  private static final Key<HaxeConditionalDefines> SNAPSHOT_KEY = Key.create("haxe.conditional.defines.snapshot");
+
+  /**
+   * Used when there is no Project context.  Nothing is defined.
+   */
+  public static final HaxeConditionalDefines NONE = new HaxeConditionalDefines(new String[0], null, null);
+
+  /** Define name -> value.  Names use underscores in place of dashes, as they are looked up. */
+  private final Map<String, Object> myValues;
+  private final ConcurrentMap<HaxeCompiledCondition, Boolean> myResults = ContainerUtil.newConcurrentMap();
+
+  /** The raw defines string this was created from (in unit test mode). */
+  @Nullable private final String mySource;
+  /** The state of the project settings this was created from. */
+  @Nullable private final HaxeTrackedModifiable.Stamp myStamp;
+
+  private HaxeConditionalDefines(@NotNull String[] definitions, @Nullable String source, @Nullable HaxeTrackedModifiable.Stamp stamp) {
+    mySource = source;
+    myStamp = stamp;
+    myValues = new THashMap<>(definitions.length);
+    for (String def : definitions) {
+      String[] split = def.split("=", 2);
+
+      // Dashes are subtraction operators, so definitions (on the command line) that
+      // contain dashes are mapped to an equivalent using underscores (when looking up definitions).
+      String name = split[0].replace('-', '_');
+      Object value = split.length > 1 ? HaxeCompiledCondition.identifierValue(split[1]) : Boolean.TRUE;
+
+      // The first definition wins.
+      if (!myValues.containsKey(name)) {
+        myValues.put(name, value);
+      }
+    }
+  }
+
+  /**
+   * Get the current defines for a project.
+   */
+  @NotNull
+  public static HaxeConditionalDefines forProject(@Nullable Project project) {
+    if (null == project) {
+      return NONE;
+    }
+
+    HaxeConditionalDefines snapshot = project.getUserData(SNAPSHOT_KEY);
+    if (ApplicationManager.getApplication().isUnitTestMode()) {
+      final Object userData = project.getUserData(HaxeConditionalExpression.DEFINES_KEY);
+      final String source = userData instanceof String ? (String)userData : null;
+      if (null != snapshot && null == snapshot.myStamp && Objects.equals(source, snapshot.mySource)) {
+        return snapshot;
+      }
+      snapshot = new HaxeConditionalDefines(null != source ? source.split(",") : new String[0], source, null);
+    }
+    else {
+      if (null != snapshot && null != snapshot.myStamp && !snapshot.myStamp.isOutOfDate()) {
+        return snapshot;
+      }
+      final HaxeProjectSettings settings = HaxeProjectSettings.getInstance(project);
+      // Take the stamp first, so that a concurrent change leaves us out of date rather than stale.
+      final HaxeTrackedModifiable.Stamp stamp = settings.getStamp();
+      snapshot = new HaxeConditionalDefines(settings.getUserCompilerDefinitions(), null, stamp);
+    }
+    project.putUserData(SNAPSHOT_KEY, snapshot);
+    return snapshot;
+  }
+
+  /**
+   * @return the value of a define; false if it isn't defined.
+   */
+  @NotNull
+  public Object lookup(@NotNull String name) {
+    Object value = myValues.get(name);
+    return null != value ? value : Boolean.FALSE;
+  }
+
+  /** @return the memoized result of a condition; null if it hasn't been evaluated against these defines. */
+  @Nullable
+  Boolean getCachedResult(@NotNull HaxeCompiledCondition condition) {
+    return myResults.get(condition);
+  }
+
+  int getCachedResultCount() {
+    return myResults.size();
+  }
+
+  boolean evaluate(@NotNull HaxeCompiledCondition condition) {
+    Boolean result = myResults.get(condition);
+    if (null == result) {
+      result = condition.calculate(this);
+      myResults.putIfAbsent(condition, result);
+    }
+    return result;
+  }
+}
@@ -16,23 +16,18 @@
 package com.intellij.plugins.haxe.lang.util;
 
 import com.intellij.lang.ASTNode;
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
-import com.intellij.plugins.haxe.config.HaxeProjectSettings;
 import com.intellij.plugins.haxe.lang.parser.HaxeAstFactory;
 import com.intellij.plugins.haxe.util.HaxeDebugLogger;
 import com.intellij.psi.tree.IElementType;
 import com.intellij.util.containers.Stack;
-import gnu.trove.THashSet;
 import org.apache.log4j.Level;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 import static com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes.*;
 import static com.intellij.plugins.haxe.lang.util.HaxeAstUtil.*;
@@ -69,8 +64,7 @@ public class HaxeConditionalExpression {
   //}
 
   private final ArrayList<ASTNode> tokens = new ArrayList<ASTNode>();
-  private boolean evaluated = false;    // Cleared when dirty.
-  private boolean evalResult = false;   // Cleared when dirty.
+  private HaxeCompiledCondition compiled = null;  // Cleared when dirty.
   private StringBuilder builder = null;
 
   public HaxeConditionalExpression(@Nullable ArrayList<ASTNode> startTokens) {
@@ -85,7 +79,7 @@ public class HaxeConditionalExpression {
 
   private void createToken(@NotNull CharSequence chars, @NotNull IElementType tokenType) {
     tokens.add(HaxeAstFactory.leaf(tokenType, chars));
-    evaluated = false;
+    compiled = null;
   }
 
   public void extend(@NotNull CharSequence chars, @NotNull IElementType tokenType) {
@@ -163,12 +157,50 @@ public class HaxeConditionalExpression {
   }
 
   public boolean evaluate(Project project) {
-    // Evaluation can be expensive, so we cache the result in order to speed parsing.
-    if (!evaluated) {
-      evalResult = reevaluate(project);
-      evaluated = true;
+    // Evaluation can be expensive, so the results are cached per condition and set of defines.
+    return compile().evaluate(HaxeConditionalDefines.forProject(project));
+  }
+
+  /**
+   * @return the shared, compiled form of this condition.
+   */
+  @NotNull
+  public HaxeCompiledCondition compile() {
+    if (null == compiled) {
+      compiled = doCompile();
+    }
+    return compiled;
+  }
+
+  @NotNull
+  private HaxeCompiledCondition doCompile() {
+    if (!isComplete()) {
+      return HaxeCompiledCondition.ALWAYS_FALSE;
+    }
+    String key = internKey();
+    HaxeCompiledCondition existing = HaxeCompiledCondition.findInterned(key);
+    if (null != existing) {
+      return existing;
+    }
+    try {
+      return HaxeCompiledCondition.intern(key, toString(), infixToRPN());
+    } catch (CalculationException e) {
+      return HaxeCompiledCondition.internError(key, toString(), e.getMessage());
+    }
+  }
+
+  /**
+   * Whitespace doesn't matter, but the token types do: a string "cpp" is not the identifier cpp.
+   */
+  @NotNull
+  private String internKey() {
+    StringBuilder key = new StringBuilder();
+    for (ASTNode token : tokens) {
+      if (!isWhitespace(token)) {
+        key.append(token.getElementType().getIndex()).append(':').append(token.getChars()).append('\u0000');
+      }
     }
-    return evalResult;
+    return key.toString();
   }
 
   public String tokensToString(List<ASTNode> nodes) {
@@ -191,45 +223,14 @@ public class HaxeConditionalExpression {
   }
 
   /* =================================================================================================
-   * Beyond this point are members and methods for evaluation.  At some point, they should become a
-   * HaxeConditionalExpressionEvaluator class.
+   * Beyond this point are members and methods for compilation.  Evaluation is done by
+   * HaxeCompiledCondition.
    * =================================================================================================
    */
 
-  /** Defines that we want in place if there is no Project context. */
-  private final static Set<String> SDK_DEFINES = new THashSet<String>(Arrays.asList(
-    "macro"
-  ));
   /** Used for setting defines in the test bed. */
   public static Key<Object> DEFINES_KEY = Key.create("haxe.test.defines");
 
-  /** Evaluation Context */
-  @Nullable
-  private Project context;
-
-  private boolean reevaluate(Project context) {
-    this.context = context;
-    boolean ret = false;
-    if (isComplete()) {
-      try {
-        Stack<ASTNode> rpn = infixToRPN();
-        String rpnString = LOG.isDebugEnabled() ? tokensToString(rpn) : null;
-        ret = objectIsTrue(calculateRPN(rpn));
-        if (LOG.isDebugEnabled()) {  // Don't create the strings unless we are debugging them...
-          LOG.debug(toString() + " --> " + rpnString + " ==> " + (ret ? "true" : "false"));
-        }
-        if (!rpn.isEmpty()) {
-          throw new CalculationException("Invalid Expression: Tokens left after calculating: " + rpn.toString());
-        }
-      } catch (CalculationException e) {
-        String msg = "Error calculating conditional compiler expression '" + toString() + "'";
-        // Add stack info if in debug mode.
-        LOG.info( msg, LOG.isDebugEnabled() ? e : null );
-      }
-    }
-    return ret;
-  }
-
   /**
    * Converts an infix expression into an RPN expression.  (Re-orders and removes parenthesis.)
    * For example: !(cpp && js) -> cpp js && !
@@ -305,190 +306,6 @@ public class HaxeConditionalExpression {
     return rpnOutput;
   }
 
-  private Object calculateRPN(Stack<ASTNode> rpn) throws CalculationException {
-    while (!rpn.isEmpty()) {
-      ASTNode node = rpn.tryPop();
-      if (isCCOperator(node)) {
-        switch (getArity(node)) {
-          case UNARY: {
-            Object rhs = calculateRPN(rpn);
-            return applyUnary(node, rhs);
-          }
-          case BINARY: {
-            Object rhs = calculateRPN(rpn);
-            Object lhs = calculateRPN(rpn);
-            return applyBinary(node, lhs, rhs);
-          }
-        }
-      } else if (isConstant(node)) {
-        return constantValue(node);
-      } else if (isIdentifier(node)) {
-        return lookupIdentifier(node);
-      } else {
-        String typename = node.getElementType() != null ? node.getElementType().toString() : "<null>";
-        throw new CalculationException("Unexpected AST Node type " + typename);
-      }
-    }
-    return false;
-  }
-
-  @NotNull
-  private HaxeOperatorPrecedenceTable.Arity getArity(@NotNull ASTNode node)
-    throws CalculationException {
-    HaxeOperatorPrecedenceTable.Arity arity = HaxeOperatorPrecedenceTable.getArity(node.getElementType());
-    if (null == arity) {
-      throw new CalculationException("NULL arity from node: '" + node.toString() + "'.");
-    }
-
-    // This could just as well be done in the routine above... Doing it here makes that one more understandable.
-    switch(arity) {
-      case UNARY:
-      case BINARY:
-        break;
-      default:
-        String msg = "Unexpected arity of " + arity.toString() + " from operator '" + node.toString() + "'.";
-        throw new CalculationException(msg);
-    }
-    return arity;
-  }
-
-  @NotNull
-  private Object constantValue(ASTNode node) throws CalculationException {
-    if (isTrueKeyword(node))        { return new Boolean(true); }
-    if (isFalseKeyword(node))       { return new Boolean(false); }
-    if (isString(node))             { return new String(node.getText()); }
-    if (isNumber(node))             { return new Float(node.getText()); }
-
-    throw new CalculationException("Unrecognized value token: " + node.toString());
-  }
-
-  @NotNull
-  private Object identifierValue(String s) throws CalculationException {
-    if (KTRUE.toString().equals(s))   { return new Boolean(true); }
-    if (KFALSE.toString().equals(s))  { return new Boolean(false); }
-
-    FloatResult result = new FloatResult();
-    if (isFloat(s,result))            { return result.result; }
-
-    // De-quote strings and recurse...
-    if ((s.startsWith("\"") && s.endsWith("\"")) || (s.startsWith("'") && s.endsWith("'"))) {
-      if (s.length() <= 2) {
-        return new String();
-      } else {
-        return identifierValue(s.substring(1, s.length() - 1));
-      }
-    }
-
-    return s;
-  }
-
-  @NotNull
-  private Object lookupIdentifier(ASTNode identifier) throws CalculationException {
-    if (identifier == null) {
-      return new Boolean(false);
-    }
-    if (context == null) {
-      return SDK_DEFINES.contains(identifier);
-    }
-    String[] definitions = null;
-    if (ApplicationManager.getApplication().isUnitTestMode()) {
-      final Object userData = context.getUserData(DEFINES_KEY);
-      if (userData instanceof String) {
-        definitions = ((String)userData).split(",");
-      }
-    }
-    else {
-      definitions = HaxeProjectSettings.getInstance(context).getUserCompilerDefinitions();
-    }
-    String name = identifier.getText();
-    if (definitions != null) {
-      for (String def : definitions) {
-        String[] split = def.split("=", 2);
-
-        // Dashes are subtraction operators, so definitions (on the command line) that
-        // contain dashes are mapped to an equivalent using underscores (when looking up definitions).
-        String possible = split.length > 0 ? split[0].replaceAll("-","_") : null;
-        String value = split.length > 1 ? split[1] : null;
-
-        if (possible.equals(name)) {
-          if (null == value) {
-            return new Boolean(true);
-          } else {
-            return identifierValue(value);
-          }
-        }
-      }
-    }
-    return new Boolean(false);
-  }
-
-
-  // Parodies Haxe parser is_true function
-  // https://github.com/HaxeFoundation/haxe/blob/development/src/syntax/parser.mly#L1596
-  private boolean objectIsTrue(Object o) {
-    if (o == null)            { return false; }
-    if (o instanceof Boolean) { return (Boolean)o; }
-    if (o instanceof Float)   { return !((Float)o == 0.0); }
-    if (o instanceof String)  { return !((String)o).isEmpty(); }
-    return true;
-  }
-
-  // Parodies Haxe parser cmp function
-  // https://github.com/HaxeFoundation/haxe/blob/development/src/syntax/parser.mly#L1600
-  private int objectCompare(Object lhs, Object rhs) throws CompareException, CalculationException {
-    if (lhs == null && rhs == null) { return 0; }
-    if (lhs instanceof Boolean && rhs instanceof Boolean) { return ((Boolean)lhs).compareTo((Boolean)rhs); }
-    if (lhs instanceof String && rhs instanceof String)   { return ((String)lhs).compareTo((String)rhs); }
-
-    // For String vs Float, convert the strings to floats.  Errors converting are thrown past this function.
-    if (lhs instanceof String  && rhs instanceof Float)  { lhs = identifierValue((String)lhs); }
-    if (lhs instanceof Float   && rhs instanceof String) { rhs = identifierValue((String)rhs); }
-
-    if (lhs instanceof Float && rhs instanceof Float) {
-      // To get the same behavior as OCaml, NaN needs to be treated as less than all other numbers,
-      // rather than larger, as Java likes to do it.
-      int result = ((Float)lhs).compareTo((Float)rhs);
-      if (((Float)lhs).isNaN()) { result = -result; }
-      if (((Float)rhs).isNaN()) { result = -result; }
-      return result;
-    }
-
-    throw new CompareException("Invalid value comparison between '"
-                                   + lhs.toString() + "' and '" + rhs.toString() + "'.");
-  }
-
-  // Parodies Haxe parser eval function
-  // https://github.com/HaxeFoundation/haxe/blob/development/src/syntax/parser.mly#L1619
-  @NotNull
-  private Object applyUnary(ASTNode op, Object value) throws CalculationException {
-    IElementType optype = op.getElementType();
-    if (optype.equals(ONOT))  { return !objectIsTrue(value); }
-    throw new CalculationException("Unexpected unary operator encountered: " + op.toString());
-  }
-
-  // Parodies Haxe parser eval function at lines 1617, 1618, and 1621-1634
-  // https://github.com/HaxeFoundation/haxe/blob/development/src/syntax/parser.mly#L1617
-  @NotNull
-  private Object applyBinary(ASTNode op, Object lhs, Object rhs) throws CalculationException {
-    IElementType optype = op.getElementType();
-    try {
-      if (optype.equals(OCOND_AND))            { return objectIsTrue(lhs) && objectIsTrue(rhs); }
-      if (optype.equals(OCOND_OR))             { return objectIsTrue(lhs) || objectIsTrue(rhs); }
-      if (optype.equals(OEQ))                  { return objectCompare(lhs, rhs) == 0; }
-      if (optype.equals(ONOT_EQ))              { return objectCompare(lhs, rhs) != 0; }
-      if (optype.equals(OGREATER))             { return objectCompare(lhs, rhs) >  0; }
-      if (optype.equals(OGREATER_OR_EQUAL))    { return objectCompare(lhs, rhs) >= 0; }
-      if (optype.equals(OLESS_OR_EQUAL))       { return objectCompare(lhs, rhs) <= 0; }
-      if (optype.equals(OLESS))                { return objectCompare(lhs, rhs) <  0; }
-      throw new CalculationException("Unexpected operator when comparing '"
-                                     + lhs.toString() + " " + optype.toString() + " " + rhs.toString() + "'.");
-    } catch (CompareException e) {
-      // parser eval#1625 maps any calculation failures to false.
-      return new Boolean(false);
-    }
-  }
-
-
   public static class CalculationException extends Exception {
     public CalculationException(String message) {
       super(message);
@@ -16,19 +16,21 @@
  */
 package com.intellij.plugins.haxe.model;
 
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.plugins.haxe.lang.psi.HaxeFile;
 import com.intellij.plugins.haxe.util.HaxeFileUtil;
 import com.intellij.plugins.haxe.util.HaxeNameUtils;
 import com.intellij.psi.JavaPsiFacade;
-import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -39,7 +41,9 @@ public class HaxePackageModel implements HaxeExposableModel {
   private final String name;
   protected final String path;
   private final FullyQualifiedInfo qualifiedInfo;
-
+  // Models for sub-packages, so that resolving the same path doesn't build new ones every time.
+  // Whether the package still exists is always checked against the package tree.
+  private final Map<String, HaxePackageModel> childModels = ContainerUtil.newConcurrentMap();
 
   public HaxePackageModel(@NotNull HaxeSourceRootModel root,
                           @NotNull String name,
@@ -94,25 +98,27 @@ public class HaxePackageModel implements HaxeExposableModel {
     }
 
     int index = name.indexOf('.');
-    if (-1 == index) {
-      PsiDirectory directory = root.access(path.isEmpty() ? name : path + '.' + name);
-      if (directory != null) {
-        return new HaxePackageModel(root, name, this);
-      }
+    String childName = -1 == index ? name : name.substring(0, index);
+    if (root.findPackage(path.isEmpty() ? childName : path + '.' + childName) == null) {
       return null;
     }
-
-    HaxePackageModel child = new HaxePackageModel(root, name.substring(0,index), this);
-    return child.getChild(name.substring(index+1));
+    HaxePackageModel child = childModels.get(childName);
+    if (child == null) {
+      HaxePackageModel created = new HaxePackageModel(root, childName, this);
+      child = childModels.putIfAbsent(childName, created);
+      if (child == null) child = created;
+    }
+    return -1 == index ? child : child.getChild(name.substring(index + 1));
   }
 
 
   @NotNull
   public List<HaxePackageModel> getChildren() {
-    PsiDirectory directory = root.access(path);
-    if (directory != null) {
-      return Arrays.stream(directory.getSubdirectories())
-        .map(subDirectory -> new HaxePackageModel(root, subDirectory.getName(), this))
+    HaxePackageTree.Node node = root.findPackage(path);
+    if (node != null) {
+      return node.getSubPackageNames().stream()
+        .map(this::getChild)
+        .filter(Objects::nonNull)
         .collect(Collectors.toList());
     }
     return Collections.emptyList();
@@ -131,10 +137,11 @@ public class HaxePackageModel implements HaxeExposableModel {
     if (null != fname && !fname.isEmpty()) {
       String packagePath = HaxeFileUtil.joinPath(parts.subList(0, parts.size() - 1));
       String accessPath = null != packagePath && !packagePath.isEmpty() ? HaxeFileUtil.joinPath(path, packagePath) : path;
-      PsiDirectory directory = root.access(accessPath);
+      HaxePackageTree.Node node = root.findPackage(accessPath);
 
-      if (directory != null && directory.isValid()) {
-        PsiFile file = directory.findFile(fname + ".hx");
+      if (node != null) {
+        VirtualFile virtualFile = node.getFile(fname + HaxePackageTree.HAXE_EXTENSION);
+        PsiFile file = virtualFile != null ? PsiManager.getInstance(project.getProject()).findFile(virtualFile) : null;
         if (file != null && file.isValid() && file instanceof HaxeFile) {
           return (HaxeFile)file;
         }
@@ -156,11 +163,13 @@ public class HaxePackageModel implements HaxeExposableModel {
 
   @Override
   public List<HaxeModel> getExposedMembers() {
-    PsiDirectory directory = root.access(path);
-    if (directory != null) {
-      PsiFile[] files = directory.getFiles();
+    HaxePackageTree.Node node = root.findPackage(path);
+    if (node != null) {
+      PsiManager psiManager = PsiManager.getInstance(project.getProject());
 
-      return Arrays.stream(files)
+      return node.getFiles().stream()
+        .filter(VirtualFile::isValid)
+        .map(psiManager::findFile)
         .filter(file -> file instanceof HaxeFile)
         .flatMap(file -> {
           HaxeFileModel fileModel = HaxeFileModel.fromElement(file);
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.model;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.plugins.haxe.util.HaxeStringUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The packages and files below a source root, as a trie of directories.
+ *
+ * Each node reads its directory's children from the VFS the first time they are asked for, and
+ * keeps them until a file or directory is created, deleted, moved, or renamed in that directory
+ * (see {@link HaxeProjectModel}, which forwards the VFS events).  Lookups by qualified name then
+ * walk the trie without going through PSI directories.
+ */
+public class HaxePackageTree {
+
+  public static final String HAXE_EXTENSION = ".hx";
+
+  public static class Node {
+    private final VirtualFile directory;
+    // Immutable once built; replaced as a whole.
+    private volatile Map<String, Node> subPackages;
+    private volatile Map<String, VirtualFile> files;
+
+    Node(@NotNull VirtualFile directory) {
+      this.directory = directory;
+    }
+
+    @NotNull
+    public VirtualFile getDirectory() {
+      return directory;
+    }
+
+    @Nullable
+    public Node getSubPackage(@NotNull String name) {
+      return getSubPackageMap().get(name);
+    }
+
+    @NotNull
+    public Collection<String> getSubPackageNames() {
+      return getSubPackageMap().keySet();
+    }
+
+    /**
+     * @param fileName - name of the file, including the extension.
+     */
+    @Nullable
+    public VirtualFile getFile(@NotNull String fileName) {
+      final VirtualFile file = getFileMap().get(fileName);
+      return null != file && file.isValid() ? file : null;
+    }
+
+    /** @return the Haxe source files in the package. */
+    @NotNull
+    public Collection<VirtualFile> getFiles() {
+      return getFileMap().values();
+    }
+
+    @NotNull
+    private Map<String, Node> getSubPackageMap() {
+      Map<String, Node> map;
+      while (null == (map = subPackages)) {
+        load();
+      }
+      return map;
+    }
+
+    @NotNull
+    private Map<String, VirtualFile> getFileMap() {
+      Map<String, VirtualFile> map;
+      while (null == (map = files)) {
+        load();
+      }
+      return map;
+    }
+
+    private synchronized void load() {
+      if (null != subPackages && null != files) return;
+
+      final Map<String, Node> newSubPackages = new HashMap<>();
+      final Map<String, VirtualFile> newFiles = new HashMap<>();
+      if (directory.isValid()) {
+        for (VirtualFile child : directory.getChildren()) {
+          if (child.isDirectory()) {
+            newSubPackages.put(child.getName(), new Node(child));
+          }
+          else if (child.getName().endsWith(HAXE_EXTENSION)) {
+            newFiles.put(child.getName(), child);
+          }
+        }
+      }
+      files = newFiles.isEmpty() ? Collections.emptyMap() : newFiles;
+      subPackages = newSubPackages.isEmpty() ? Collections.emptyMap() : newSubPackages;
+    }
+
+    /** Forget the contents of this directory.  Sub-packages that are still there are rebuilt from scratch. */
+    synchronized void invalidate() {
+      subPackages = null;
+      files = null;
+    }
+  }
+
+  private final VirtualFile root;
+  private final Node rootNode;
+
+  HaxePackageTree(@NotNull VirtualFile root) {
+    this.root = root;
+    this.rootNode = new Node(root);
+  }
+
+  @NotNull
+  public Node getRootNode() {
+    return rootNode;
+  }
+
+  /**
+   * @param packagePath - dotted package path.  Empty for the root package.
+   * @return the node for the package, or null if there is no such directory.
+   */
+  @Nullable
+  public Node findPackage(@Nullable String packagePath) {
+    if (null == packagePath || packagePath.isEmpty()) {
+      return rootNode;
+    }
+    Node current = rootNode;
+    for (String part : HaxeStringUtil.split(packagePath, '.')) {
+      current = current.getSubPackage(part);
+      if (null == current) break;
+    }
+    return current;
+  }
+
+  /**
+   * Called when the children of a directory change.
+   *
+   * @param directoryPath - VFS path of the directory whose children changed.
+   */
+  void childrenChanged(@NotNull String directoryPath) {
+    final String rootPath = root.getPath();
+    if (directoryPath.equals(rootPath)) {
+      rootNode.invalidate();
+      return;
+    }
+    if (!directoryPath.startsWith(rootPath + '/')) {
+      return;
+    }
+    // Only nodes that were loaded can hold stale data, so don't load anything on the way down.
+    Node current = rootNode;
+    for (String part : HaxeStringUtil.split(directoryPath.substring(rootPath.length() + 1), '/')) {
+      final Map<String, Node> loaded = current.subPackages;
+      current = null == loaded ? null : loaded.get(part);
+      if (null == current) return;
+    }
+    current.invalidate();
+  }
+}
@@ -24,9 +24,15 @@ import com.intellij.openapi.roots.ModuleRootListener;
 import com.intellij.openapi.roots.OrderEnumerator;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.messages.MessageBusConnection;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -137,12 +143,54 @@ public class HaxeProjectModel {
   }
 
   private void addProjectListeners() {
-    project.getMessageBus().connect().subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootListener() {
+    MessageBusConnection connection = project.getMessageBus().connect();
+    connection.subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootListener() {
       @Override
       public void rootsChanged(ModuleRootEvent event) {
         rootsCache = null;
       }
     });
+    connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+      // Structural events are checked both before and after, so that both the old and new
+      // parents of moved and renamed files are seen.
+      @Override
+      public void before(@NotNull List<? extends VFileEvent> events) {
+        updatePackageTrees(events);
+      }
+
+      @Override
+      public void after(@NotNull List<? extends VFileEvent> events) {
+        updatePackageTrees(events);
+      }
+    });
+  }
+
+  private void updatePackageTrees(@NotNull List<? extends VFileEvent> events) {
+    RootsCache cache = rootsCache;
+    if (cache == null) return;  // Nothing has been loaded yet.
+
+    for (VFileEvent event : events) {
+      if (event instanceof VFileContentChangeEvent) continue;
+      if (event instanceof VFilePropertyChangeEvent &&
+          !VirtualFile.PROP_NAME.equals(((VFilePropertyChangeEvent)event).getPropertyName())) continue;
+
+      String path = event.getPath();
+      int slash = path.lastIndexOf('/');
+      if (slash <= 0) continue;
+      String parentPath = path.substring(0, slash);
+
+      for (HaxeSourceRootModel root : cache.roots) {
+        childrenChanged(root, parentPath);
+      }
+      childrenChanged(cache.sdkRoot, parentPath);
+    }
+  }
+
+  private static void childrenChanged(@NotNull HaxeSourceRootModel root, @NotNull String directoryPath) {
+    HaxePackageTree tree = root.getPackageTree();
+    if (tree != null) {
+      tree.childrenChanged(directoryPath);
+    }
   }
 
   private RootsCache getRootsCache() {
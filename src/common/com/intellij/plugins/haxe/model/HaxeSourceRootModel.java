@@ -17,7 +17,6 @@
 package com.intellij.plugins.haxe.model;
 
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.plugins.haxe.util.HaxeStringUtil;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiFileSystemItem;
 import com.intellij.psi.PsiManager;
@@ -30,6 +29,7 @@ public class HaxeSourceRootModel {
   public final VirtualFile root;
   public final PsiDirectory directory;
   private final HaxePackageModel rootPackage;
+  private final HaxePackageTree packageTree;
 
   public HaxeSourceRootModel(HaxeProjectModel projectModel, VirtualFile root) {
     this.project = projectModel;
@@ -37,8 +37,10 @@ public class HaxeSourceRootModel {
     this.directory = projectModel != null && root != null ? PsiManager.getInstance(project.getProject()).findDirectory(root) : null;
     if (project == null || root == null) {
       rootPackage = null;
+      packageTree = null;
     }
     else {
+      packageTree = new HaxePackageTree(root);
       rootPackage = new HaxePackageModel(this, "", null);
     }
   }
@@ -60,15 +62,19 @@ public class HaxeSourceRootModel {
 
   @Nullable
   public PsiDirectory access(String packagePath) {
-    if (this == DUMMY) return null;
+    final HaxePackageTree.Node node = findPackage(packagePath);
+    return node != null ? PsiManager.getInstance(project.getProject()).findDirectory(node.getDirectory()) : null;
+  }
 
-    if ((packagePath == null) || packagePath.isEmpty()) return directory;
-    PsiDirectory current = directory;
-    for (String part : HaxeStringUtil.split(packagePath, '.')) {
-      if (current == null) break;
-      current = current.findSubdirectory(part);
-    }
-    return current;
+  @Nullable
+  public HaxePackageTree.Node findPackage(String packagePath) {
+    if (this == DUMMY || packageTree == null) return null;
+    return packageTree.findPackage(packagePath);
+  }
+
+  @Nullable
+  public HaxePackageTree getPackageTree() {
+    return packageTree;
   }
 
   public HaxeModel resolve(FullyQualifiedInfo info) {
@@ -27,7 +27,8 @@ public class HaxeStdPackageModel extends HaxePackageModel {
   }
 
   private HaxeFileModel getStdFileModel() {
-    // TODO: This is called by the resolver a LOT.  Cache the result and create a listener to invalidate.
+    // This is called by the resolver a LOT.  The lookup goes through the source root's package tree,
+    // and the model is cached on the file.
     final HaxeFile file = getFile(STD_TYPES);
     if (file != null) {
       return HaxeStdTypesFileModel.fromFile(file);
@@ -24,6 +24,7 @@ import com.intellij.lang.annotation.Annotation;
 import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.plugins.haxe.HaxeBundle;
 import com.intellij.plugins.haxe.ide.annotator.HaxeStandardAnnotation;
+import com.intellij.plugins.haxe.ide.metrics.HaxeMetrics;
 import com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypeSets;
 import com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes;
 import com.intellij.plugins.haxe.lang.psi.*;
@@ -55,7 +56,12 @@ public class HaxeExpressionEvaluator {
   @NotNull
   static public HaxeExpressionEvaluatorContext evaluate(PsiElement element, HaxeExpressionEvaluatorContext context,
                                                         HaxeGenericResolver resolver) {
-    context.result = handle(element, context, resolver);
+    final long start = HaxeMetrics.start();
+    try {
+      context.result = handle(element, context, resolver);
+    } finally {
+      HaxeMetrics.stop(null == element ? null : element.getProject(), HaxeMetrics.Operation.EXPRESSION_EVALUATION, start);
+    }
     return context;
   }
 
@@ -749,7 +755,7 @@ public class HaxeExpressionEvaluator {
     if (element instanceof HaxeGuard) {  // Guard expression for if statement or switch case.
       HaxeExpression guardExpression = ((HaxeGuard)element).getExpression();
       SpecificTypeReference expr = handle(guardExpression, context, resolver).getType();
-      if (!SpecificTypeReference.getBool(element).canAssign(expr)) {
+      if (!SpecificTypeReference.getStdPrimitive(SpecificTypeReference.BOOL, element).canAssign(expr)) {
         context.addError(
           guardExpression,
           "If expr " + expr + " should be bool",
@@ -24,7 +24,11 @@ import com.intellij.psi.PsiElement;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class HaxeGenericResolver {
   // This must remain ordered, thus the LinkedHashMap.
@@ -97,6 +101,21 @@ public class HaxeGenericResolver {
     return HaxeTypeResolver.resolveDeclarationParametersToTypes(hc, this);
   }
 
+  /**
+   * @return A key that is equal for any two resolvers that map the same names to structurally
+   *         the same types, constant values included.
+   */
+  @NotNull
+  public Object getStructuralKey() {
+    if (resolvers.isEmpty()) return Collections.emptyList();
+    final List<Object> key = new ArrayList<>(resolvers.size() * 2);
+    for (Map.Entry<String, ResultHolder> entry : resolvers.entrySet()) {
+      key.add(entry.getKey());
+      key.add(HaxeTypeKeys.withConstant(entry.getValue()));
+    }
+    return key;
+  }
+
   /**
    * @return whether or not this resolver has any entries.
    */
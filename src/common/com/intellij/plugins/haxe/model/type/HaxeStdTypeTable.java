@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.model.type;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Key;
+import com.intellij.plugins.haxe.model.HaxeClassModel;
+import com.intellij.plugins.haxe.model.HaxeProjectModel;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-project table of the classes in the standard package, keyed by the names that
+ * {@link SpecificTypeReference} asks for (Int, Bool, haxe.Constraints.Function, ...).
+ *
+ * The type evaluator asks for the same handful of std types over and over again.  Without this
+ * table, every request walks the std package model and wraps the result in a fresh
+ * {@link HaxeClassReference}.  The table is dropped whenever the project roots change, which
+ * is also when {@link HaxeProjectModel} rebuilds its std package.
+ */
+public final class HaxeStdTypeTable {
+  private static final Key<CachedValue<HaxeStdTypeTable>> STD_TYPE_TABLE_KEY = new Key<>("HAXE_STD_TYPE_TABLE");
+
+  /** Stands in for a name that the std package doesn't have, because the maps can't hold null. */
+  private static final Object MISSING = new Object();
+
+  private final Project project;
+  private final ConcurrentMap<String, Object> references = ContainerUtil.newConcurrentMap();
+  private final ConcurrentMap<String, SpecificHaxeClassReference> primitives = ContainerUtil.newConcurrentMap();
+
+  private HaxeStdTypeTable(@NotNull Project project) {
+    this.project = project;
+  }
+
+  @NotNull
+  public static HaxeStdTypeTable getInstance(@NotNull Project project) {
+    return CachedValuesManager.getManager(project).getCachedValue(
+      project, STD_TYPE_TABLE_KEY,
+      () -> CachedValueProvider.Result.create(new HaxeStdTypeTable(project), ProjectRootManager.getInstance(project)),
+      false);
+  }
+
+  /**
+   * Get the shared reference to a std class.  The reference's element context is the class
+   * itself, so it is safe to keep around for as long as the class is valid.
+   *
+   * @param name - name of the class, relative to the std package.
+   * @return the shared reference, or null if there is no such class in the std package.
+   */
+  @Nullable
+  public HaxeClassReference getClassReference(@NotNull String name) {
+    Object cached = references.get(name);
+    if (cached instanceof HaxeClassReference && !isValid((HaxeClassReference)cached)) {
+      // The std file was re-parsed (somebody edited it); look it up again.
+      references.remove(name, cached);
+      primitives.remove(name);
+      cached = null;
+    }
+    if (null == cached) {
+      final HaxeClassModel model = HaxeProjectModel.fromProject(project).getStdPackage().getClassModel(name);
+      cached = null != model && null != model.getPsi() ? model.getReference() : MISSING;
+      final Object previous = references.putIfAbsent(name, cached);
+      if (null != previous) {
+        cached = previous;
+      }
+    }
+    return cached instanceof HaxeClassReference ? (HaxeClassReference)cached : null;
+  }
+
+  /**
+   * Get the shared, constant-free, non-generic type reference to a std class.
+   *
+   * The element context of the returned reference is the std class, not the caller's code, so it
+   * is only suitable for type comparisons; results that are handed back to the user (and may end
+   * up in annotations or fixes) should be created with the SpecificTypeReference factories.
+   *
+   * @param name - name of the class, relative to the std package.
+   * @return the shared reference, or null if there is no such class in the std package.
+   */
+  @Nullable
+  public SpecificHaxeClassReference getPrimitive(@NotNull String name) {
+    final HaxeClassReference reference = getClassReference(name);
+    if (null == reference) {
+      return null;
+    }
+    SpecificHaxeClassReference primitive = primitives.get(name);
+    if (null == primitive || primitive.getHaxeClassReference() != reference) {
+      primitive = SpecificHaxeClassReference.withoutGenerics(reference);
+      primitives.put(name, primitive);
+    }
+    return primitive;
+  }
+
+  private static boolean isValid(@NotNull HaxeClassReference reference) {
+    return null != reference.clazz && reference.elementContext.isValid();
+  }
+}
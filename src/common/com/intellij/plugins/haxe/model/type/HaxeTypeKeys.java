@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.model.type;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.plugins.haxe.lang.psi.HaxeClass;
+import com.intellij.plugins.haxe.lang.psi.HaxeMethod;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Structural keys for types, for use in caches.  Two types get equal keys if they refer to the
+ * same classes (or type parameter names) with the same arguments, all the way down.
+ *
+ * Classes are identified by qualified name and file, rather than by PSI, so that equal keys
+ * are found again after the PSI for an unchanged file is reloaded.  Names that don't resolve
+ * (type parameters, mostly) only mean the same thing within the same declaration.
+ */
+final class HaxeTypeKeys {
+
+  /** Stands for a missing type; distinct from any class, including one named "Unknown". */
+  static final Object NO_TYPE = new Object() {
+    @Override
+    public String toString() {
+      return "<no type>";
+    }
+  };
+
+  private HaxeTypeKeys() {}
+
+  /**
+   * @return the key of a type, leaving out its constant value.
+   */
+  @NotNull
+  static Object of(@Nullable ResultHolder holder) {
+    if (null == holder) return NO_TYPE;
+    final SpecificHaxeClassReference classType = holder.getClassType();
+    if (null == classType) {
+      // Function types and the like; their presentation is as structural as we get.
+      return holder.getType().toStringWithoutConstant();
+    }
+    final HaxeClassReference reference = classType.getHaxeClassReference();
+    final Object type = null != reference.clazz ? classKey(reference.clazz.haxeClass) : unresolvedKey(reference);
+    final ResultHolder[] specifics = classType.getSpecifics();
+    if (specifics.length == 0) return type;
+    return Arrays.asList(type, of(specifics));
+  }
+
+  /**
+   * @return the key of a type, including its constant value.
+   */
+  @NotNull
+  static Object withConstant(@Nullable ResultHolder holder) {
+    final Object constant = null == holder ? null : holder.getType().getConstant();
+    return null == constant ? of(holder) : Arrays.asList(of(holder), constant);
+  }
+
+  @NotNull
+  static List<Object> of(@NotNull ResultHolder[] holders) {
+    if (holders.length == 0) return Collections.emptyList();
+    final List<Object> key = new ArrayList<>(holders.length);
+    for (ResultHolder holder : holders) {
+      key.add(of(holder));
+    }
+    return key;
+  }
+
+  @NotNull
+  private static Object classKey(@NotNull HaxeClass haxeClass) {
+    final String qualifiedName = haxeClass.getQualifiedName();
+    if (null == qualifiedName || qualifiedName.isEmpty()) {
+      return haxeClass;  // Anonymous structures have nothing else to tell them apart.
+    }
+    return Arrays.asList(qualifiedName, fileKey(haxeClass));
+  }
+
+  @NotNull
+  private static Object unresolvedKey(@NotNull HaxeClassReference reference) {
+    final PsiElement scope = PsiTreeUtil.getParentOfType(reference.elementContext, HaxeMethod.class, HaxeClass.class);
+    return Arrays.asList(reference.getName(), null != scope ? scope : fileKey(reference.elementContext));
+  }
+
+  @Nullable
+  private static Object fileKey(@NotNull PsiElement element) {
+    final PsiFile file = element.getContainingFile();
+    if (null == file) return null;
+    final VirtualFile virtualFile = file.getOriginalFile().getVirtualFile();
+    return null != virtualFile ? virtualFile : file;
+  }
+}
@@ -28,16 +28,25 @@ import com.intellij.plugins.haxe.model.type.SpecificFunctionReference.Argument;
 import com.intellij.plugins.haxe.util.HaxeAbstractEnumUtil;
 import com.intellij.plugins.haxe.util.HaxeResolveUtil;
 import com.intellij.plugins.haxe.util.UsefulPsiTreeUtil;
+import com.intellij.openapi.util.Key;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiMethod;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 public class HaxeTypeResolver {
   @NotNull
@@ -45,23 +54,42 @@ public class HaxeTypeResolver {
     return getFieldOrMethodReturnType(comp, null);
   }
 
-  // @TODO: Check if cache works
+  private static final Key<CachedValue<ConcurrentMap<Object, ResultHolder>>> RETURN_TYPE_CACHE_KEY = Key.create("HAXE_RETURN_TYPE_CACHE");
+
+  /**
+   * Gets the type of a field, or the return type of a method, inferring it from the
+   * initializer or method body if it isn't declared.
+   *
+   * Results are cached on the component per generic resolver (see {@link HaxeGenericResolver#getStructuralKey()}).
+   * An inferred type can depend on the bodies of methods in any file, so the cache is dropped
+   * on any PSI change in the project.
+   */
   @NotNull
   static public ResultHolder getFieldOrMethodReturnType(@NotNull AbstractHaxeNamedComponent comp, @Nullable HaxeGenericResolver resolver) {
-    // @TODO: cache should check if any related type has changed, which return depends
-    if (comp.getContainingFile() == null) {
+    final PsiFile file = comp.getContainingFile();
+    if (file == null) {
       return SpecificHaxeClassReference.getUnknown(comp).createHolder();
     }
 
-    // EMB - Skip the cache while debugging.  There may be a recursive issue.  There are definitely multi-threading issues.
-    //long stamp = comp.getContainingFile().getModificationStamp();
-    //if (comp._cachedType == null || comp._cachedTypeStamp != stamp) {
-    //  comp._cachedType = _getFieldOrMethodReturnType(comp, resolver);
-    //  comp._cachedTypeStamp = stamp;
-    //}
-    //
-    //return comp._cachedType;
-    return _getFieldOrMethodReturnType(comp, resolver);
+    final ConcurrentMap<Object, ResultHolder> cache = CachedValuesManager.getManager(comp.getProject()).getCachedValue(
+      comp, RETURN_TYPE_CACHE_KEY,
+      () -> CachedValueProvider.Result.create(ContainerUtil.newConcurrentMap(), PsiModificationTracker.MODIFICATION_COUNT),
+      false);
+
+    // Don't use computeIfAbsent: inference can come back around to this same component.
+    final Object key = null == resolver ? Collections.emptyList() : resolver.getStructuralKey();
+    ResultHolder result = cache.get(key);
+    if (null == result) {
+      result = _getFieldOrMethodReturnType(comp, resolver);
+      // Unknown is also what we get when a recursion guard cut the inference short, so don't keep it.
+      if (result.isUnknown()) {
+        return result;
+      }
+      cache.putIfAbsent(key, result.duplicate());
+      return result;
+    }
+    // Callers are free to modify what they get back.
+    return result.duplicate();
   }
 
   @NotNull
@@ -19,6 +19,7 @@
  */
 package com.intellij.plugins.haxe.model.type;
 
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
 import com.intellij.plugins.haxe.lang.psi.HaxeClass;
 import com.intellij.plugins.haxe.lang.psi.HaxeClassResolveResult;
@@ -28,19 +29,24 @@ import com.intellij.plugins.haxe.lang.psi.impl.AbstractHaxeNamedComponent;
 import com.intellij.plugins.haxe.lang.psi.impl.AbstractHaxeTypeDefImpl;
 import com.intellij.plugins.haxe.model.*;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.Stack;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 public class SpecificHaxeClassReference extends SpecificTypeReference {
   private static final String CONSTANT_VALUE_DELIMITER = " = ";
-  private static final Key<Set<SpecificHaxeClassReference>> COMPATIBLE_TYPES_KEY = new Key<>("HAXE_COMPATIBLE_TYPES");
-  private static final Key<Set<SpecificHaxeClassReference>> INFER_TYPES_KEY = new Key<>("HAXE_INFER_TYPES");
-  private static final ThreadLocal<Stack<HaxeClass>> processedElements = ThreadLocal.withInitial(Stack::new);
+  private static final Key<CachedValue<ConcurrentMap<TypeClosureKey, Set<SpecificHaxeClassReference>>>> TYPE_CLOSURE_CACHE_KEY
+    = new Key<>("HAXE_TYPE_CLOSURE_CACHE");
+  /** Cache key kind for {@link #getInferTypes()}; the compatible type closures use their {@link Compatibility}. */
+  private static final Object INFER_TYPES = "infer";
 
   @NotNull private final HaxeClassReference clazz;
   @NotNull private final ResultHolder[] specifics;
@@ -204,62 +210,81 @@ public class SpecificHaxeClassReference extends SpecificTypeReference {
   }
 
   Set<SpecificHaxeClassReference> getCompatibleTypes(Compatibility direction) {
-    HaxeClassModel model = getHaxeClassModel();
-    if (null == model || !model.hasGenericParams()) {
-      // If we want to cache all results, then we need a better caching mechanism.
-      // This breaks for generic types.  The first check of the generic sets up
-      // the compatible types, and then all other instances are checked against that set.
-      // So, this fails because the cached types for Null<T> are Null<String> and String:
-      //  class Test{
-      //    var x:Null<String> = null;
-      //    var y:Null<Test> = null;
-      //    function new() {
-      //      x = "New String";
-      //      y = this; // <<< ERROR SomethingElse should be Null<SomethingElse>.
-      //    }
-      //  }
-      Set<SpecificHaxeClassReference> result = context.getUserData(COMPATIBLE_TYPES_KEY);
-      if (result == null) {
-        processedElements.get().clear();
-        result = getCompatibleTypesInternal(direction);
-        result.add(this);
-        context.putUserData(COMPATIBLE_TYPES_KEY, result);
-      }
-      return result;
-    } else {
-      processedElements.get().clear();
-      Set<SpecificHaxeClassReference>result = getCompatibleTypesInternal(direction);
-      result.add(this);
+    return getCachedTypes(direction, reference -> {
+      Set<SpecificHaxeClassReference> result = reference.getCompatibleTypesInternal(direction, newVisitedSet());
+      result.add(reference);
       return result;
-    }
+    });
   }
 
   Set<SpecificHaxeClassReference> getInferTypes() {
-    HaxeClassModel model = getHaxeClassModel();
-    if (null == model || !model.hasGenericParams()) {
-      // Breaks on generics.  See note on getCompatibleTypes.
-      Set<SpecificHaxeClassReference> result = context.getUserData(INFER_TYPES_KEY);
-      if (result == null) {
-        processedElements.get().clear();
-        result = getInferTypesInternal();
-        context.putUserData(INFER_TYPES_KEY, result);
+    return getCachedTypes(INFER_TYPES, reference -> reference.getInferTypesInternal(newVisitedSet()));
+  }
+
+  /**
+   * Each closure walk keeps its own set of the classes it has visited, so a walk started from
+   * inside another one (the compatible types of a typedef's target, say) is complete in its own
+   * right and can be cached, and doesn't disturb the walk it was started from.
+   */
+  @NotNull
+  private static Set<HaxeClass> newVisitedSet() {
+    return Collections.newSetFromMap(new IdentityHashMap<>());
+  }
+
+  /**
+   * Look up (or compute and remember) one of the type closures of this reference.
+   *
+   * Results are kept on the referenced class, keyed by the kind of closure and the structure of
+   * the type arguments, so {@code Null<String>} and {@code Null<Test>} get separate entries.
+   * Since the closures follow @:from/@:to declarations, typedefs and super-types into other files,
+   * the cache is cleared on any out-of-code-block change in the project.
+   */
+  @NotNull
+  private Set<SpecificHaxeClassReference> getCachedTypes(@NotNull Object kind,
+                                                         @NotNull Function<SpecificHaxeClassReference, Set<SpecificHaxeClassReference>> compute) {
+    final HaxeClass haxeClass = getHaxeClass();
+    if (null == haxeClass || null == haxeClass.getModel()) {
+      return compute.apply(this);
+    }
+
+    final Project project = haxeClass.getProject();
+    final ConcurrentMap<TypeClosureKey, Set<SpecificHaxeClassReference>> cache =
+      CachedValuesManager.getManager(project).getCachedValue(
+        haxeClass, TYPE_CLOSURE_CACHE_KEY,
+        () -> CachedValueProvider.Result.create(ContainerUtil.newConcurrentMap(),
+                                                PsiModificationTracker.getInstance(project).getOutOfCodeBlockModificationTracker()),
+        false);
+
+    final TypeClosureKey key = new TypeClosureKey(kind, getSpecifics());
+    Set<SpecificHaxeClassReference> result = cache.get(key);
+    if (null == result) {
+      // Don't use computeIfAbsent: the closure of one type often includes a lookup of another
+      // type's closure on the same class (Null<Null<T>>, etc.).
+      //
+      // The results share type arguments with the reference they were computed from, so compute
+      // them from a copy that the caller can't change out from under the cache.
+      final ResultHolder[] specifics = new ResultHolder[getSpecifics().length];
+      for (int i = 0; i < specifics.length; ++i) {
+        final ResultHolder specific = getSpecifics()[i];
+        specifics[i] = null != specific ? specific.duplicate() : null;
+      }
+      final SpecificHaxeClassReference detached = new SpecificHaxeClassReference(clazz, specifics, null, null, context);
+      result = Collections.unmodifiableSet(compute.apply(detached));
+      final Set<SpecificHaxeClassReference> previous = cache.putIfAbsent(key, result);
+      if (null != previous) {
+        result = previous;
       }
-      return result;
-    } else {
-      processedElements.get().clear();
-      return getInferTypesInternal();
     }
+    return result;
   }
 
-  private Set<SpecificHaxeClassReference> getCompatibleTypesInternal(Compatibility direction) {
-    final Stack<HaxeClass> stack = processedElements.get();
+  private Set<SpecificHaxeClassReference> getCompatibleTypesInternal(Compatibility direction, Set<HaxeClass> visited) {
     final HaxeClassModel model = getHaxeClassModel();
     final HaxeGenericResolver genericResolver = getGenericResolver();
 
     final Set<SpecificHaxeClassReference> list = new HashSet<>();
     if (model == null) return list;
-    if (stack.contains(model.haxeClass)) return list;
-    stack.push(model.haxeClass);
+    if (!visited.add(model.haxeClass)) return list;
 
     list.addAll(getCompatibleMapTypes(model, genericResolver));
     // TODO: list.addAll(getCompatibleFunctionTypes(model, genericResolver));
@@ -270,14 +295,14 @@ public class SpecificHaxeClassReference extends SpecificTypeReference {
         SpecificHaxeClassReference type = ((AbstractHaxeTypeDefImpl)model.haxeClass).getTargetClass(genericResolver);
         if (type != null) {
           list.add(type);
-          list.addAll(type.getCompatibleTypesInternal(direction));
+          list.addAll(type.getCompatibleTypesInternal(direction, visited));
         }
       } else
       for (HaxeType extendsType : model.haxeClass.getHaxeExtendsList()) {
         SpecificHaxeClassReference type = propagateGenericsToType(extendsType, genericResolver);
         if (type != null) {
           if (model.isInterface()) list.add(type);
-          list.addAll(type.getCompatibleTypesInternal(direction));
+          list.addAll(type.getCompatibleTypesInternal(direction, visited));
         }
       }
 
@@ -286,7 +311,7 @@ public class SpecificHaxeClassReference extends SpecificTypeReference {
         SpecificHaxeClassReference type = propagateGenericsToType(interfaceReference.getPsi(), genericResolver);
         if (type != null) {
           list.add(type);
-          list.addAll(type.getCompatibleTypesInternal(direction));
+          list.addAll(type.getCompatibleTypesInternal(direction, visited));
         }
       }
     } else {
@@ -296,7 +321,7 @@ public class SpecificHaxeClassReference extends SpecificTypeReference {
         SpecificHaxeClassReference type = propagateGenericsToType(extendsType, genericResolver);
         if (type != null) {
           list.add(type);
-          list.addAll(type.getCompatibleTypesInternal(direction));
+          list.addAll(type.getCompatibleTypesInternal(direction, visited));
         }
       }
     }
@@ -353,7 +378,7 @@ public class SpecificHaxeClassReference extends SpecificTypeReference {
       SpecificHaxeClassReference ref = new SpecificHaxeClassReference(
         model.getReference(), resolver.getSpecifics(), null, null, context);
       list.add(SpecificHaxeClassReference.getEnum(context, ref));
-      list.add(SpecificHaxeClassReference.getEnumValue(context));
+      list.add(getStdPrimitive(ENUM_VALUE, context));
     }
 
     // For Enum<enumName>, add enumName.
@@ -362,15 +387,14 @@ public class SpecificHaxeClassReference extends SpecificTypeReference {
       if (specifics.length == 1) {
         SpecificHaxeClassReference ref = specifics[0].getClassType();
         list.add(ref);
-        list.add(SpecificHaxeClassReference.getEnumValue(context));
+        list.add(getStdPrimitive(ENUM_VALUE, context));
       }
     }
 
     return list;
   }
 
-  private Set<SpecificHaxeClassReference> getInferTypesInternal() {
-    final Stack<HaxeClass> stack = processedElements.get();
+  private Set<SpecificHaxeClassReference> getInferTypesInternal(Set<HaxeClass> visited) {
     final HaxeClassModel model = getHaxeClassModel();
     final HaxeGenericResolver genericResolver = getGenericResolver();
 
@@ -378,8 +402,7 @@ public class SpecificHaxeClassReference extends SpecificTypeReference {
     list.add(this);
 
     if (model == null) return list;
-    if (stack.contains(model.haxeClass)) return list;
-    stack.push(model.haxeClass);
+    if (!visited.add(model.haxeClass)) return list;
 
     if (!model.isAbstract()) {
       if (model.haxeClass instanceof HaxeTypedefDeclaration) {
@@ -392,7 +415,7 @@ public class SpecificHaxeClassReference extends SpecificTypeReference {
       for (HaxeType extendsType : model.haxeClass.getHaxeExtendsList()) {
         SpecificHaxeClassReference type = propagateGenericsToType(extendsType, genericResolver);
         if (type != null) {
-          list.addAll(type.getInferTypesInternal());
+          list.addAll(type.getInferTypesInternal(visited));
         }
       }
 
@@ -400,14 +423,14 @@ public class SpecificHaxeClassReference extends SpecificTypeReference {
       for (HaxeClassReferenceModel interfaceReference : interfaces) {
         SpecificHaxeClassReference type = propagateGenericsToType(interfaceReference.getPsi(), genericResolver);
         if (type != null) {
-          list.addAll(type.getInferTypesInternal());
+          list.addAll(type.getInferTypesInternal(visited));
         }
       }
     } else {
       for (HaxeType extendsType : model.getAbstractToList()) {
         SpecificHaxeClassReference type = propagateGenericsToType(extendsType, genericResolver);
         if (type != null) {
-          list.addAll(type.getInferTypesInternal());
+          list.addAll(type.getInferTypesInternal(visited));
         }
       }
     }
@@ -467,4 +490,33 @@ public class SpecificHaxeClassReference extends SpecificTypeReference {
     HaxeClass clazz = getHaxeClass();
     return HaxeClassResolveResult.create(clazz, getGenericResolver().getSpecialization(clazz));
   }
+
+  /**
+   * Identifies a type closure by kind and by the structure of the type arguments (see
+   * {@link HaxeTypeKeys}); constant values are not part of the key.
+   */
+  static final class TypeClosureKey {
+    private final Object kind;
+    private final List<Object> arguments;
+    private final int hash;
+
+    TypeClosureKey(@NotNull Object kind, @NotNull ResultHolder[] specifics) {
+      this.kind = kind;
+      this.arguments = HaxeTypeKeys.of(specifics);
+      this.hash = 31 * kind.hashCode() + arguments.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof TypeClosureKey)) return false;
+      final TypeClosureKey other = (TypeClosureKey)o;
+      return hash == other.hash && kind.equals(other.kind) && arguments.equals(other.arguments);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
 }
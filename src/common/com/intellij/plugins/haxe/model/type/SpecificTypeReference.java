@@ -25,7 +25,6 @@ import com.intellij.plugins.haxe.lang.psi.HaxeEnumDeclaration;
 import com.intellij.plugins.haxe.lang.psi.impl.HaxeDummyASTNode;
 import com.intellij.plugins.haxe.lang.psi.impl.HaxePsiCompositeElementImpl;
 import com.intellij.plugins.haxe.model.HaxeClassModel;
-import com.intellij.plugins.haxe.model.HaxeProjectModel;
 import com.intellij.plugins.haxe.util.HaxeProjectUtil;
 import com.intellij.psi.PsiElement;
 import org.jetbrains.annotations.NotNull;
@@ -65,8 +64,7 @@ public abstract class SpecificTypeReference {
 
   public static SpecificTypeReference createArray(@NotNull ResultHolder elementType) {
     final PsiElement context = elementType.getElementContext();
-    final HaxeClassReference classReference = getStdClassReference(ARRAY, context);
-    return SpecificHaxeClassReference.withGenerics(classReference, new ResultHolder[]{elementType}, null);
+    return stdClass(ARRAY, context, new ResultHolder[]{elementType}, null);
   }
 
   public static SpecificTypeReference createMap(@NotNull ResultHolder keyType, @NotNull ResultHolder valueType) {
@@ -143,8 +141,7 @@ public abstract class SpecificTypeReference {
   }
 
   public static SpecificHaxeClassReference getStdClass(@NotNull String mapClass, @NotNull PsiElement context, @NotNull ResultHolder[] specifics) {
-    final HaxeClassReference classReference = getStdClassReference(mapClass, context);
-    return SpecificHaxeClassReference.withGenerics(classReference, specifics, null);
+    return stdClass(mapClass, context, specifics, null);
   }
 
   public static SpecificHaxeClassReference getVoid(@NotNull PsiElement context) {
@@ -172,18 +169,15 @@ public abstract class SpecificTypeReference {
   }
 
   public static SpecificHaxeClassReference getString(@NotNull PsiElement context) {
-    HaxeClassReference ref = getStdClassReference(STRING, context);
-    return SpecificHaxeClassReference.withoutGenerics(ref);
+    return primitive(STRING, context);
   }
 
   public static SpecificHaxeClassReference getEnumValue(@NotNull PsiElement context) {
-    HaxeClassReference ref = getStdClassReference(ENUM_VALUE, context);
-    return SpecificHaxeClassReference.withoutGenerics(ref);
+    return primitive(ENUM_VALUE, context);
   }
 
   public static SpecificHaxeClassReference getEnum(@NotNull PsiElement context, @NotNull SpecificHaxeClassReference enumType) {
-    HaxeClassReference ref = getStdClassReference(ENUM, context);
-    return SpecificHaxeClassReference.withGenerics(ref, new ResultHolder[]{enumType.createHolder()});
+    return stdClass(ENUM, context, new ResultHolder[]{enumType.createHolder()}, null);
   }
 
   public static SpecificHaxeClassReference getUnknown(@NotNull PsiElement context) {
@@ -196,8 +190,7 @@ public abstract class SpecificTypeReference {
 
   public static SpecificHaxeClassReference getIterator(SpecificHaxeClassReference type) {
     final PsiElement context = type.getElementContext();
-    final HaxeClassReference classReference = getStdClassReference(ITERATOR, context);
-    return SpecificHaxeClassReference.withGenerics(classReference, new ResultHolder[]{type.createHolder()});
+    return stdClass(ITERATOR, context, new ResultHolder[]{type.createHolder()}, null);
   }
 
   public static SpecificHaxeClassReference getFunction(@NotNull PsiElement context) {
@@ -205,11 +198,24 @@ public abstract class SpecificTypeReference {
   }
 
   public static SpecificHaxeClassReference primitive(String name, @NotNull PsiElement context) {
-    return SpecificHaxeClassReference.withoutGenerics(getStdClassReference(name, context));
+    return stdClass(name, context, ResultHolder.EMPTY, null);
   }
 
   public static SpecificHaxeClassReference primitive(String name, @NotNull PsiElement context, Object constant) {
-    return SpecificHaxeClassReference.withoutGenerics(getStdClassReference(name, context), constant);
+    return stdClass(name, context, ResultHolder.EMPTY, constant);
+  }
+
+  /**
+   * Get the project-wide shared reference to a std type, such as {@link #BOOL} or {@link #INT}.
+   *
+   * Nothing is allocated, but the element context of the result is the std class rather than
+   * the given context, so use this only for type checks, never for results that are returned to
+   * callers.  Falls back to {@link #primitive(String, PsiElement)} if the std class can't be found.
+   */
+  @NotNull
+  public static SpecificHaxeClassReference getStdPrimitive(String name, @NotNull PsiElement context) {
+    final SpecificHaxeClassReference shared = HaxeStdTypeTable.getInstance(context.getProject()).getPrimitive(name);
+    return null != shared ? shared : primitive(name, context);
   }
 
   public SpecificTypeReference withRangeConstraint(HaxeRange range) {
@@ -378,21 +384,21 @@ public abstract class SpecificTypeReference {
 
   public abstract boolean canBeTypeVariable();
 
+  /**
+   * Create a reference to a std class.  The class reference itself is shared project-wide (see
+   * {@link HaxeStdTypeTable}); only the specific reference, carrying the caller's context, is new.
+   */
   @NotNull
-  private static HaxeClassReference getStdClassReference(String className, PsiElement context) {
-    final HaxeClassModel model = getStdTypeModel(className, context);
-    HaxeClassReference classReference;
-    if (model != null) {
-      classReference = new HaxeClassReference(model, context);
-    } else {
-      classReference = new HaxeClassReference(className, context);
-    }
-    return classReference;
+  private static SpecificHaxeClassReference stdClass(String className, @NotNull PsiElement context,
+                                                     @NotNull ResultHolder[] specifics, @Nullable Object constant) {
+    return new SpecificHaxeClassReference(getStdClassReference(className, context), specifics, constant, null, context);
   }
 
-  @Nullable
-  private static HaxeClassModel getStdTypeModel(String name, PsiElement context) {
-    return HaxeProjectModel.fromElement(context).getStdPackage().getClassModel(name);
+  @NotNull
+  private static HaxeClassReference getStdClassReference(String className, PsiElement context) {
+    final HaxeClassReference shared = HaxeStdTypeTable.getInstance(context.getProject()).getClassReference(className);
+    // Unresolved references are left to find their class from the context later on.
+    return null != shared ? shared : new HaxeClassReference(className, context);
   }
 
   @NotNull
@@ -38,12 +38,9 @@ import com.intellij.openapi.extensions.PluginId;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
-import com.intellij.openapi.util.Computable;
-import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.openapi.wm.impl.status.StatusBarUtil;
 import com.intellij.plugins.haxe.HaxeBundle;
 import com.intellij.plugins.haxe.build.FieldWrapper;
@@ -54,21 +51,19 @@ import com.intellij.plugins.haxe.compilation.LimeUtil;
 import com.intellij.plugins.haxe.config.HaxeTarget;
 import com.intellij.plugins.haxe.config.NMETarget;
 import com.intellij.plugins.haxe.config.OpenFLTarget;
-import com.intellij.plugins.haxe.haxelib.HaxelibClasspathUtils;
 import com.intellij.plugins.haxe.ide.module.HaxeModuleSettings;
 import com.intellij.plugins.haxe.runner.HaxeApplicationConfiguration;
 import com.intellij.plugins.haxe.runner.NMERunningState;
 import com.intellij.plugins.haxe.runner.OpenFLRunningState;
+import com.intellij.plugins.haxe.runner.debugger.HxcppDebugConnection.FrameValues;
+import com.intellij.plugins.haxe.runner.debugger.HxcppDebugConnection.MessageListener;
 import com.intellij.plugins.haxe.util.HaxeFileUtil;
 import com.intellij.plugins.haxe.util.HaxeResolveUtil;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
-import com.intellij.psi.search.FilenameIndex;
-import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.ui.ColoredTextContainer;
 import com.intellij.ui.SimpleTextAttributes;
 import com.intellij.util.concurrency.QueueProcessor;
-import com.intellij.util.io.URLUtil;
 import com.intellij.util.ui.MessageCategory;
 import com.intellij.xdebugger.*;
 import com.intellij.xdebugger.breakpoints.XBreakpointHandler;
@@ -79,15 +74,17 @@ import com.intellij.xdebugger.evaluation.XDebuggerEvaluator;
 import com.intellij.xdebugger.frame.*;
 import com.intellij.xdebugger.impl.XSourcePositionImpl;
 import com.intellij.xdebugger.impl.ui.tree.nodes.XValueNodeImpl;
-import gnu.trove.THashSet;
 import haxe.root.JavaProtocol;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.UUID;
 import java.util.Vector;
 import java.util.regex.Matcher;
@@ -320,15 +317,31 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
       mClassesWithStatics = new Vector<String>();
       mProject = project;
       mModule = module;
-      mDeferredQueue =
-        new LinkedList<Pair<debugger.Command, MessageListener>>();
-      mListenerQueue = new LinkedList<MessageListener>();
+      mSourceCache = new HaxeDebugSourceCache(project, module);
       mServerSocket = new java.net.ServerSocket(port);
       mBreakpointHandlers = this.createBreakpointHandlers();
       mMap =
         new HashMap<XLineBreakpoint<XBreakpointProperties>, Integer>();
 
       mWriteQueue = QueueProcessor.createRunnableQueueProcessor(QueueProcessor.ThreadToUse.POOLED);
+      mConnection = new HxcppDebugConnection
+        (new HxcppDebugConnection.Events() {
+          public void threadEvent(int messageId, debugger.Message message) {
+            DebugProcess.this.handleThreadEvent(messageId, message);
+          }
+
+          public void error(String message) {
+            DebugProcess.this.error(message);
+          }
+
+          public void warn(String message) {
+            DebugProcess.this.warn(message);
+          }
+        }, new java.util.concurrent.Executor() {
+          public void execute(@NotNull Runnable command) {
+            mWriteQueue.add(command);
+          }
+        });
     }
 
     public void setExecutionResult(ExecutionResult executionResult) {
@@ -336,6 +349,13 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
     }
 
     public void start() {
+      // Find the class paths while the program is starting up, rather than at the first stop.
+      ApplicationManager.getApplication().executeOnPooledThread
+        (new Runnable() {
+          public void run() {
+            mSourceCache.prewarm();
+          }
+        });
       ApplicationManager.getApplication().executeOnPooledThread
         (new Runnable() {
           public void run() {
@@ -387,21 +407,25 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
 
     @Override
     public void resume() {
+      mConnection.newStopGeneration();
       this.expectOK(debugger.Command.Continue(1));
     }
 
     @Override
     public void startStepOver() {
+      mConnection.newStopGeneration();
       this.expectOK(debugger.Command.Next(1));
     }
 
     @Override
     public void startStepInto() {
+      mConnection.newStopGeneration();
       this.expectOK(debugger.Command.Step(1));
     }
 
     @Override
     public void startStepOut() {
+      mConnection.newStopGeneration();
       this.expectOK(debugger.Command.Finish(1));
     }
 
@@ -416,14 +440,7 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
           catch (IOException e) {
           }
         }
-        if (mDebugSocket != null) {
-          try {
-            mDebugSocket.close();
-            mDebugSocket = null;
-          }
-          catch (IOException e) {
-          }
-        }
+        mConnection.close();
         // Stop the write queue. Otherwise we get a bunch of pointless dialogs.
         mWriteQueue.dismissLastTasks(0);
       }
@@ -452,7 +469,7 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
     }
 
     private void expectOK(debugger.Command command) {
-      this.enqueueCommand(command, new MessageListener() {
+      mConnection.enqueueCommand(command, new MessageListener() {
         public void handleMessage(int messageId,
                                   debugger.Message message) {
           if (messageId != JavaProtocol.IdOK) {
@@ -465,58 +482,23 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
     }
 
     private void where() {
-      this.enqueueCommand(debugger.Command.WhereCurrentThread(false),
-                          new MessageListener() {
-                            public void handleMessage(int messageId,
-                                                      debugger.Message message) {
-                              if (messageId != JavaProtocol.IdThreadsWhere) {
-                                DebugProcess.this.error
-                                  ("Debugger protocol error: expected " +
-                                   "IdThreadsWhere, but got: " +
-                                   JavaProtocol.messageToString(message));
-                                return;
-                              }
-                              getSession().positionReached
-                                (new SuspendContext(DebugProcess.this.mProject,
-                                                    DebugProcess.this.mModule,
-                                                    message));
-                            }
-                          });
-    }
-
-    private void enqueueCommand(final debugger.Command command,
-                                MessageListener listener) {
-//            System.out.println("Writing command: " +
-//                               JavaProtocol.commandToString(command));
-      try {
-        synchronized (this) {
-          if (mDebugSocket == null) {
-            mDeferredQueue.add(Pair.create(command, listener));
-            return;
-          }
-          mListenerQueue.add(listener);
-          final OutputStream os = mDebugSocket.getOutputStream();
-          mWriteQueue.add(new Runnable() {
-            public void run() {
-              try {
-                JavaProtocol.writeCommand(os, command);
-              }
-              catch (RuntimeException e) {
-                DebugProcess.this.error
-                  ("Debugger protocol error: exception while writing " +
-                   "command " + JavaProtocol.commandToString(command) + ": " +
-                   e);
-              }
-            }
-          });
-        }
-      }
-      catch (IOException e) {
-        DebugProcess.this.error
-          ("Debugger error: exception queueing write " +
-           "command " + JavaProtocol.commandToString(command) + ": " +
-           e);
-      }
+      mConnection.enqueueCommand(debugger.Command.WhereCurrentThread(false),
+                                 new MessageListener() {
+                                   public void handleMessage(int messageId,
+                                                             debugger.Message message) {
+                                     if (messageId != JavaProtocol.IdThreadsWhere) {
+                                       DebugProcess.this.error
+                                         ("Debugger protocol error: expected " +
+                                          "IdThreadsWhere, but got: " +
+                                          JavaProtocol.messageToString(message));
+                                       return;
+                                     }
+                                     getSession().positionReached
+                                       (new SuspendContext(DebugProcess.this.mProject,
+                                                           DebugProcess.this.mModule,
+                                                           message));
+                                   }
+                                 });
     }
 
     private void readLoop() throws IOException {
@@ -524,83 +506,55 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
       synchronized (this) {
          serverSocket = mServerSocket;
       }
+      if (serverSocket == null) {
+        // Stopped before the program got going.
+        return;
+      }
       // Don't synchronize around the accept.  It locks up the rest of the debugger still
       // running on the AWT thread if the application isn't starting correctly.
       java.net.Socket debugSocket = serverSocket.accept();
       synchronized (this) {
-        mDebugSocket = debugSocket;
-        mServerSocket.close();
+        serverSocket.close();
         mServerSocket = null;
-        JavaProtocol.readClientIdentification
-          (mDebugSocket.getInputStream());
-        // XXX: Put this on the write thread/queue, instead of just posting it?
-        JavaProtocol.writeServerIdentification
-          (mDebugSocket.getOutputStream());
-        // Enqueue a classList callback to populate the class list
-        this.enqueueCommand(debugger.Command.Classes(null),
-                            new MessageListener() {
-                              public void handleMessage(int messageId,
-                                                        debugger.Message message) {
-                                if (messageId == JavaProtocol.IdClasses) {
-                                  DebugProcess.this.handlePartialClassList
-                                    ((debugger.ClassList)message.params[0]);
-                                }
-                              }
-                            });
       }
-      while (true) {
-        synchronized (this) {
-          debugSocket = mDebugSocket;
-        }
-        if (debugSocket == null) {
-          break;
-        }
-        debugger.Message message = JavaProtocol.readMessage
-          (debugSocket.getInputStream());
-//      System.out.println("Received message: " +
-//                         JavaProtocol.messageToString(message));
-        int messageId = JavaProtocol.getMessageId(message);
-        if (messageId == JavaProtocol.IdThreadCreated) {
-          // Console it out
-        }
-        else if (messageId == JavaProtocol.IdThreadTerminated) {
-          // Console it out
-        }
-        else if (messageId == JavaProtocol.IdThreadStarted) {
-          // Console it out
-        }
-        else if (messageId == JavaProtocol.IdThreadStopped) {
-          if (mStoppedOnce) {
-            // Send a where to solicit current thread stack frame
-            this.where();
-          }
-          else {
-            mStoppedOnce = true;
-            while (!mDeferredQueue.isEmpty()) {
-              Pair<debugger.Command, MessageListener> p =
-                mDeferredQueue.removeFirst();
-              this.enqueueCommand(p.getFirst(),
-                                  p.getSecond());
-            }
-            this.resume();
-          }
+      // XXX: Put the identification on the write thread/queue, instead of just posting it?
+      mConnection.connect(debugSocket);
+      // Enqueue a classList callback to populate the class list
+      mConnection.enqueueCommand(debugger.Command.Classes(null),
+                                 new MessageListener() {
+                                   public void handleMessage(int messageId,
+                                                             debugger.Message message) {
+                                     if (messageId == JavaProtocol.IdClasses) {
+                                       DebugProcess.this.handlePartialClassList
+                                         ((debugger.ClassList)message.params[0]);
+                                     }
+                                   }
+                                 });
+      mConnection.readLoop();
+    }
+
+    /** Called on the read loop's thread. */
+    private void handleThreadEvent(int messageId, debugger.Message message) {
+      if (messageId == JavaProtocol.IdThreadCreated) {
+        // Console it out
+      }
+      else if (messageId == JavaProtocol.IdThreadTerminated) {
+        // Console it out
+      }
+      else if (messageId == JavaProtocol.IdThreadStarted) {
+        // Console it out
+      }
+      else if (messageId == JavaProtocol.IdThreadStopped) {
+        if (mStoppedOnce) {
+          // Send a where to solicit current thread stack frame
+          this.where();
         }
         else {
-          MessageListener listener = null;
-          synchronized (this) {
-            if (!mListenerQueue.isEmpty()) {
-              listener = mListenerQueue.removeFirst();
-            }
-          }
-          if (listener == null) {
-            DebugProcess.this.error
-              ("Debugger protocol error: unsolicited response: " +
-               JavaProtocol.messageToString(message));
-            break;
-          }
-          else {
-            listener.handleMessage(messageId, message);
-          }
+          mStoppedOnce = true;
+          // Now that the program is waiting, send what was asked for while
+          // it was starting up (e.g. the breakpoints), then let it go.
+          mConnection.sendDeferred();
+          this.resume();
         }
       }
     }
@@ -613,7 +567,7 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
         }
         if (classList.index == 1) {
           // Continued
-          this.enqueueCommand
+          mConnection.enqueueCommand
             (debugger.Command.Classes
                ((String)classList.params[0]),
              new MessageListener() {
@@ -652,7 +606,7 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
 
       String path = getRelativePath(mProject, position.getFile());
 
-      DebugProcess.this.enqueueCommand
+      mConnection.enqueueCommand
         (debugger.Command.AddFileLineBreakpoint
           (path, position.getLine() + 1), new MessageListener() {
           public void handleMessage(int messageId,
@@ -678,7 +632,7 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
       }
 
       int id = mMap.remove(breakpoint);
-      DebugProcess.this.enqueueCommand
+      mConnection.enqueueCommand
         (debugger.Command.DeleteBreakpointRange(id, id),
          new MessageListener() {
            public void handleMessage(int messageId,
@@ -705,11 +659,6 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
         };
     }
 
-    private abstract class MessageListener {
-      public abstract void handleMessage(int messageId,
-                                         debugger.Message message);
-    }
-
     private class SuspendContext extends XSuspendContext {
       public SuspendContext(Project project, Module module,
                             debugger.Message threadsWhereMessages) {
@@ -768,44 +717,72 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
                             debugger.FrameList frameList) {
         super("Thread " + number);
 
-        mStackFrames = new Vector<XStackFrame>();
+        mThreadNumber = number;
+        mProject = project;
+        mModule = module;
+        mFrameLists = new ArrayList<debugger.FrameList>();
+        mStackFrames = new ArrayList<StackFrame>();
 
-        this.addFrameList(project, module, frameList);
+        this.addFrameList(frameList);
       }
 
       public XStackFrame getTopFrame() {
-        return ((mStackFrames.size() > 0) ?
-                mStackFrames.elementAt(0) : null);
+        return ((mFrameLists.size() > 0) ? getStackFrame(0) : null);
       }
 
       public void computeStackFrames(int firstFrameIndex,
                                      XStackFrameContainer container) {
-        if (firstFrameIndex < mStackFrames.size()) {
-          container.addStackFrames
-            (mStackFrames.subList(firstFrameIndex,
-                                  mStackFrames.size() - 1), true);
+        if (firstFrameIndex < mFrameLists.size()) {
+          // As before, the bottom frame of the stack is left out.
+          int lastFrameIndex = mFrameLists.size() - 1;
+
+          // Frames are only built when the UI asks for them, and the
+          // files for the whole page are looked up in one go.
+          List<String> fileNames = new ArrayList<String>();
+          for (int i = firstFrameIndex; i < lastFrameIndex; ++i) {
+            fileNames.add((String)mFrameLists.get(i).params[4]);
+          }
+          mSourceCache.resolveAll(fileNames);
+
+          List<XStackFrame> frames = new ArrayList<XStackFrame>();
+          for (int i = firstFrameIndex; i < lastFrameIndex; ++i) {
+            frames.add(getStackFrame(i));
+          }
+          container.addStackFrames(frames, true);
         }
       }
 
-      private void addFrameList(Project project, Module module,
-                                debugger.FrameList frameList) {
-        if (frameList == debugger.FrameList.Terminator) {
-          return;
+      private synchronized StackFrame getStackFrame(int index) {
+        while (mStackFrames.size() <= index) {
+          mStackFrames.add(null);
         }
+        StackFrame frame = mStackFrames.get(index);
+        if (null == frame) {
+          frame = new StackFrame(mProject, mModule, mThreadNumber,
+                                 mFrameLists.get(index));
+          mStackFrames.set(index, frame);
+        }
+        return frame;
+      }
 
-        mStackFrames.addElement(new StackFrame(project, module,
-                                               frameList));
-
-        this.addFrameList(project, module, (debugger.FrameList)
-          frameList.params[6]);
+      private void addFrameList(debugger.FrameList frameList) {
+        while (frameList != debugger.FrameList.Terminator) {
+          mFrameLists.add(frameList);
+          frameList = (debugger.FrameList)frameList.params[6];
+        }
       }
 
-      private Vector<XStackFrame> mStackFrames;
+      private final int mThreadNumber;
+      private final Project mProject;
+      private final Module mModule;
+      private final List<debugger.FrameList> mFrameLists;
+      private final List<StackFrame> mStackFrames;
     }
 
     private class StackFrame extends XStackFrame {
       public StackFrame(final Project project, final Module module,
-                        debugger.FrameList frameList) {
+                        int threadNumber, debugger.FrameList frameList) {
+        mThreadNumber = threadNumber;
         mFrameNumber = (Integer)frameList.params[1];
         mFileName = (String)frameList.params[4];
         mLineNumber = (((Integer)frameList.params[5]).intValue());
@@ -813,73 +790,7 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
           ((String)frameList.params[2] + "." +
            (String)frameList.params[3]);
 
-        VirtualFileManager vfm = VirtualFileManager.getInstance();
-        VirtualFile file = vfm.findFileByUrl(vfm.constructUrl(URLUtil.FILE_PROTOCOL, mFileName));
-        if (null == file || !file.exists()) {
-
-          // Filename index can only deal with the name, not any paths.
-          String fileName = VfsUtil.extractFileName(mFileName);
-          if (fileName == null) {
-            fileName = mFileName;
-          }
-
-          final String fileNameToLookFor = fileName;
-          final java.util.Collection<VirtualFile> files =
-            ApplicationManager.getApplication().runReadAction(
-              new Computable<java.util.Collection<VirtualFile>>() {
-                @Override
-                public java.util.Collection<VirtualFile> compute() {
-
-                  java.util.Collection<VirtualFile> files =
-                    FilenameIndex.getVirtualFilesByName(
-                      project, fileNameToLookFor, GlobalSearchScope.moduleScope(module));
-                  if (files.isEmpty()) {
-                    files = FilenameIndex.getVirtualFilesByName(
-                      project, fileNameToLookFor, GlobalSearchScope.moduleWithDependenciesScope(module));
-                  }
-                  if (files.isEmpty()) {
-                    files = FilenameIndex.getVirtualFilesByName(
-                      project, fileNameToLookFor, GlobalSearchScope.moduleWithLibrariesScope(module));
-                  }
-                  if (files.isEmpty()) {
-                    files = FilenameIndex.getVirtualFilesByName(
-                      project, fileNameToLookFor, GlobalSearchScope.allScope(project));
-                  }
-                  return files;
-                }
-              }
-            );
-
-          java.util.Collection<VirtualFile> matches = new THashSet<VirtualFile>();
-          if (!files.isEmpty()) {
-            for (VirtualFile f : files) {
-              if (f.getPath().endsWith(mFileName)) {
-                matches.add(f);
-              }
-            }
-          }
-          if (matches.isEmpty()) {
-            // If we don't have a match yet, then walk the classpath looking for
-            // an appropriate file.
-            file = HaxelibClasspathUtils.findFileOnClasspath(module, mFileName);
-          }
-          else if (matches.size() == 1) {
-            // Got one.  If it's a good file, keep it.  Otherwise, try to pick it
-            // out of the classpath.
-            VirtualFile possible = matches.iterator().next();
-            file = possible.isValid() ? possible : HaxelibClasspathUtils.findFileOnClasspath(module, possible.toString());
-          }
-          else {
-            // Too many matches. Get the first that occurs on the classpath.
-            file = HaxelibClasspathUtils.findFirstFileOnClasspath(module, matches);
-          }
-        }
-
-        // Now, work around the fact that IDEA treats symlinks as separate files.
-        // XXX: This should be controlled via an UI option.
-        if (null != file) {
-          file = HaxeFileUtil.getCanonicalFile(file);
-        }
+        VirtualFile file = mSourceCache.resolve(mFileName);
 
         mSourcePosition =
           XSourcePositionImpl.create(file, mLineNumber - 1);
@@ -906,25 +817,18 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
 
       @Override
       public void computeChildren(@NotNull final XCompositeNode node) {
-        // Move to the stack frame
-        DebugProcess.this.enqueueCommand
-          (debugger.Command.SetFrame(mFrameNumber),
-           new MessageListener() {
-             public void handleMessage(int messageId,
-                                       debugger.Message message) {
-               if (messageId == JavaProtocol.IdThreadLocation) {
-                 StackFrame.this.computeChildrenCurrentFrame
-                   (node);
-               }
-               else {
-                 DebugProcess.this.warn
-                   ("Failed to set stack frame to " +
-                    mFrameNumber + "; got message; " +
-                    JavaProtocol.messageToString(message));
-               }
-             }
-             // Get var names
-           });
+        final FrameValues frame =
+          mConnection.getFrameValues(mThreadNumber, mFrameNumber);
+        List<String> names = mConnection.getVariableNames(frame);
+        if (names != null) {
+          // Already listed (and fetched) during this stop.
+          this.addVariables(node, frame, names);
+          return;
+        }
+
+        // Move to the stack frame and get the var names in one burst.
+        mConnection.listVariables(frame,
+                                  this.createVariablesListener(node, frame));
       }
 
       public void customizePresentation
@@ -948,42 +852,55 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
         return wrapper.get(null);
       }
 
-      private void computeChildrenCurrentFrame
-        (@NotNull final XCompositeNode node) {
-        DebugProcess.this.enqueueCommand
-          (debugger.Command.Variables(false),
-           new MessageListener() {
-             public void handleMessage(int messageId,
-                                       debugger.Message message) {
-               if (messageId == JavaProtocol.IdVariables) {
-                 XValueChildrenList childrenList =
-                   new XValueChildrenList();
-                 debugger.StringList stringList =
-                   (debugger.StringList)
-                     message.params[0];
-                 addChildren(childrenList, stringList);
-                 if (true) {
-                   node.addChildren(childrenList, true);
-                 } else {
-                   // Note: Removed because it cluttered the variable list.
-                   //       It's a candidate for reinstatement, possibly with
-                   //       a control variable.
-                   node.addChildren(childrenList, false);
-                   // Add all statics to the list of variables.
-                   addStaticChildren(node);
-                 }
-               }
-               else {
-                 DebugProcess.this.warn
-                   ("Failed to get variables; got message " +
-                    JavaProtocol.messageToString(message));
-               }
-             }
-           });
+      private MessageListener createVariablesListener
+        (@NotNull final XCompositeNode node, final FrameValues frame) {
+        return new MessageListener() {
+          public void handleMessage(int messageId,
+                                    debugger.Message message) {
+            if (mConnection.isDiscarded(frame)) {
+              // The debugger couldn't be moved onto the frame, so these are
+              // some other frame's variables.
+              node.setErrorMessage("Could not get to this stack frame");
+            }
+            else if (messageId == JavaProtocol.IdVariables) {
+              List<String> names = getVariableNames
+                ((debugger.StringList)message.params[0]);
+              mConnection.setVariableNames(frame, names);
+              // Ask for all of the values now, in one burst, rather than
+              // one at a time as the UI gets around to showing them.
+              mConnection.fetchStructured(frame, names, null);
+              StackFrame.this.addVariables(node, frame, names);
+            }
+            else {
+              DebugProcess.this.warn
+                ("Failed to get variables; got message " +
+                 JavaProtocol.messageToString(message));
+            }
+          }
+        };
+      }
+
+      private void addVariables(@NotNull XCompositeNode node,
+                                FrameValues frame, List<String> names) {
+        XValueChildrenList childrenList =
+          new XValueChildrenList(names.size());
+        for (String name : names) {
+          childrenList.add(name, new Value(frame, name));
+        }
+        if (true) {
+          node.addChildren(childrenList, true);
+        } else {
+          // Note: Removed because it cluttered the variable list.
+          //       It's a candidate for reinstatement, possibly with
+          //       a control variable.
+          node.addChildren(childrenList, false);
+          // Add all statics to the list of variables.
+          addStaticChildren(node);
+        }
       }
 
-      private void addChildren(XValueChildrenList childrenList,
-                               debugger.StringList stringList) {
+      private List<String> getVariableNames(debugger.StringList stringList) {
+        List<String> names = new ArrayList<String>();
         while (true) {
           if (stringList == debugger.StringList.Terminator) {
             break;
@@ -991,11 +908,12 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
 
           String string = (String)stringList.params[0];
           if (! isIntermediateVariableName(string)) {
-            childrenList.add(string, new Value(string));
+            names.add(string);
           }
 
           stringList = (debugger.StringList)stringList.params[1];
         }
+        return names;
       }
 
       /** Determines whether a variable name has been introduced by
@@ -1018,11 +936,17 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
 
       private class Value extends XValue {
         public Value(String name) {
+          this(null, name);
+        }
+
+        public Value(@Nullable FrameValues frame, String name) {
+          mFrame = frame;
           mName = name;
           mExpression = name;
         }
 
         public Value(String name, boolean isClassStatics) {
+          mFrame = null;
           if (!isClassStatics) {
             mName = name;
             mExpression = name;
@@ -1073,7 +997,7 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
 //                                               "expression " +
 //                                               Value.this.mExpression  + 
 //                                               " to " + expression);
-//                            DebugProcess.this.enqueueCommand
+//                            mConnection.enqueueCommand
 //                                (debugger.Command.SetExpression
 //                                 (false, mExpression, expression),
 //                                 new MessageListener()
@@ -1158,8 +1082,8 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
         private void fetchValue(@NotNull final XValueNode node,
                                 @NotNull final XValuePlace place) {
           mWaitingForChildrenResults = true;
-          DebugProcess.this.enqueueCommand
-            (debugger.Command.GetStructured(false, mExpression),
+          mConnection.fetchStructured
+            (mFrame, Collections.singletonList(mExpression),
              new MessageListener() {
                public void handleMessage(int messageId,
                                          debugger.Message message) {
@@ -1237,7 +1161,7 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
           debugger.StructuredValueList next =
             (debugger.StructuredValueList)list.params[2];
 
-          Value val = new Value(name);
+          Value val = new Value(mFrame, name);
           val.fromStructuredValue(structuredValue);
           mChildren.add(val);
 
@@ -1316,6 +1240,8 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
           return description;
         }
 
+        // The frame that the expression is evaluated in, if any.
+        @Nullable private final FrameValues mFrame;
         private String mName;
         private String mExpression;
         private javax.swing.Icon mIcon;
@@ -1329,6 +1255,7 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
         private boolean mChildrenComputationRequested;
       }
 
+      private final int mThreadNumber;
       private int mFrameNumber;
       private String mFileName;
       private int mLineNumber;
@@ -1339,13 +1266,12 @@ public class HaxeDebugRunner extends DefaultProgramRunner {
     private Vector<String> mClassesWithStatics;
     private Project mProject;
     private Module mModule;
+    private final HaxeDebugSourceCache mSourceCache;
+    // Only used on the read loop's thread.
     private boolean mStoppedOnce;
-    private LinkedList<Pair<debugger.Command,
-      MessageListener>> mDeferredQueue;
-    private QueueProcessor<Runnable> mWriteQueue;
-    private LinkedList<MessageListener> mListenerQueue;
+    private final QueueProcessor<Runnable> mWriteQueue;
+    private final HxcppDebugConnection mConnection;
     private java.net.ServerSocket mServerSocket;
-    private java.net.Socket mDebugSocket;
     private ExecutionResult mExecutionResult;
     private XBreakpointHandler[] mBreakpointHandlers;
     private HashMap<XLineBreakpoint<XBreakpointProperties>, Integer> mMap;
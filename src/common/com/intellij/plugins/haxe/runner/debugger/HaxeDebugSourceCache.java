@@ -0,0 +1,292 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.runner.debugger;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.vfs.VFileProperty;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.plugins.haxe.haxelib.HaxeClasspath;
+import com.intellij.plugins.haxe.haxelib.HaxeClasspathEntry;
+import com.intellij.plugins.haxe.haxelib.HaxelibClasspathUtils;
+import com.intellij.plugins.haxe.util.HaxeFileUtil;
+import com.intellij.psi.search.FilenameIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.io.URLUtil;
+import gnu.trove.THashSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the file names that the hxcpp debugger reports in its stack frames to
+ * the files in the IDE.
+ *
+ * The debugger reports paths as the compiler saw them: usually relative to one
+ * of the class paths, sometimes absolute.  Finding them used to take a handful
+ * of file name index searches for every frame of every stop.  This cache lives
+ * for one debug session; it knows the class path directories (and the files
+ * in them) up front, and remembers every answer it has given, including the
+ * misses.
+ */
+class HaxeDebugSourceCache {
+  private static final Logger LOG = Logger.getInstance("#com.intellij.plugins.haxe.runner.debugger.HaxeDebugSourceCache");
+
+  /** How much of the class path {@link #prewarm} walks before letting go of the read lock. */
+  static final int PREWARM_DIRECTORIES_PER_READ_ACTION = 20;
+
+  private final Project myProject;
+  private final Module myModule;
+
+  /** Debugger file name -> file.  An empty Ref records that the file could not be found. */
+  private final Map<String, Ref<VirtualFile>> myResolved = new ConcurrentHashMap<String, Ref<VirtualFile>>();
+
+  /** Class path directories, in the order that the compiler searches them. */
+  private volatile List<VirtualFile> myRoots;
+
+  HaxeDebugSourceCache(@NotNull Project project, @NotNull Module module) {
+    myProject = project;
+    myModule = module;
+  }
+
+  /**
+   * Gather the class path directories and record the files in them.  This is
+   * intended to be called on a pooled thread when the debug session starts, so
+   * that the first stop doesn't pay for it.
+   *
+   * The roots are walked in class path order and the first file recorded for a
+   * path wins, just as in {@link #lookup}.  The walk is done a few directories
+   * per read action, so that it doesn't hold off write actions for long.
+   */
+  void prewarm() {
+    List<VirtualFile> roots = ApplicationManager.getApplication().runReadAction(new Computable<List<VirtualFile>>() {
+      @Override
+      public List<VirtualFile> compute() {
+        return getRoots();
+      }
+    });
+    for (final VirtualFile root : roots) {
+      final Deque<VirtualFile> pending = new ArrayDeque<VirtualFile>();
+      pending.add(root);
+      while (!pending.isEmpty()) {
+        boolean keepGoing = ApplicationManager.getApplication().runReadAction(new Computable<Boolean>() {
+          @Override
+          public Boolean compute() {
+            if (myModule.isDisposed()) {
+              return false;
+            }
+            recordFiles(root, pending, PREWARM_DIRECTORIES_PER_READ_ACTION);
+            return true;
+          }
+        });
+        if (!keepGoing) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Record the source files in (at most) the next {@code maxDirectories}
+   * directories of a breadth-first walk of {@code root}.  Paths that are
+   * already known are left alone.
+   */
+  private void recordFiles(@NotNull VirtualFile root, @NotNull Deque<VirtualFile> pending, int maxDirectories) {
+    for (int i = 0; i < maxDirectories && !pending.isEmpty(); ++i) {
+      VirtualFile dir = pending.removeFirst();
+      if (!dir.isValid()) {
+        continue;
+      }
+      for (VirtualFile file : dir.getChildren()) {
+        if (file.isDirectory()) {
+          // Symlinked directories can form cycles; the compiler won't find anything new there anyway.
+          if (!file.is(VFileProperty.SYMLINK)) {
+            pending.addLast(file);
+          }
+        }
+        else if ("hx".equals(file.getExtension())) {
+          String relativePath = VfsUtilCore.getRelativePath(file, root, '/');
+          if (null != relativePath && !myResolved.containsKey(relativePath)) {
+            myResolved.putIfAbsent(relativePath, Ref.create(getCanonicalFile(file)));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Resolve all of the given debugger file names in one read action.
+   * Names that are already known are not looked up again.
+   */
+  void resolveAll(@NotNull Collection<String> fileNames) {
+    final List<String> unknown = new ArrayList<String>();
+    for (String fileName : fileNames) {
+      if (!myResolved.containsKey(fileName)) {
+        unknown.add(fileName);
+      }
+    }
+    if (unknown.isEmpty()) {
+      return;
+    }
+    ApplicationManager.getApplication().runReadAction(new Runnable() {
+      @Override
+      public void run() {
+        for (String fileName : unknown) {
+          resolve(fileName);
+        }
+      }
+    });
+  }
+
+  /**
+   * Find the file that the debugger is talking about.
+   *
+   * @param fileName as reported in a debugger frame.
+   * @return the (canonical) file, or null if it can't be found.
+   */
+  @Nullable
+  VirtualFile resolve(@NotNull final String fileName) {
+    Ref<VirtualFile> known = myResolved.get(fileName);
+    if (null != known) {
+      return known.get();
+    }
+
+    VirtualFile file = ApplicationManager.getApplication().runReadAction(new Computable<VirtualFile>() {
+      @Override
+      public VirtualFile compute() {
+        return lookup(fileName);
+      }
+    });
+
+    if (null != file) {
+      file = getCanonicalFile(file);
+    }
+    myResolved.put(fileName, Ref.create(file));
+    return file;
+  }
+
+  /**
+   * Work around the fact that IDEA treats symlinks as separate files.
+   * Files that aren't on the local file system are returned as they are.
+   */
+  @NotNull
+  private static VirtualFile getCanonicalFile(@NotNull VirtualFile file) {
+    // XXX: This should be controlled via an UI option.
+    VirtualFile canonical = HaxeFileUtil.getCanonicalFile(file);
+    return null != canonical ? canonical : file;
+  }
+
+  @Nullable
+  private VirtualFile lookup(@NotNull String fileName) {
+    VirtualFileManager vfm = VirtualFileManager.getInstance();
+    VirtualFile file = vfm.findFileByUrl(vfm.constructUrl(URLUtil.FILE_PROTOCOL, fileName));
+    if (null != file && file.exists()) {
+      return file;
+    }
+
+    // Emulate the compiler: the first class path containing the file wins.
+    for (VirtualFile root : getRoots()) {
+      if (root.isValid()) {
+        file = root.findFileByRelativePath(fileName);
+        if (null != file) {
+          return file;
+        }
+      }
+    }
+
+    return searchIndex(fileName);
+  }
+
+  /**
+   * The slow path, for files that aren't on the class path: search the file
+   * name index over increasingly wide scopes.
+   */
+  @Nullable
+  private VirtualFile searchIndex(@NotNull String path) {
+    // Filename index can only deal with the name, not any paths.
+    String fileName = VfsUtil.extractFileName(path);
+    if (fileName == null) {
+      fileName = path;
+    }
+
+    Collection<VirtualFile> files = FilenameIndex.getVirtualFilesByName(
+      myProject, fileName, GlobalSearchScope.moduleWithLibrariesScope(myModule));
+    if (files.isEmpty()) {
+      files = FilenameIndex.getVirtualFilesByName(myProject, fileName, GlobalSearchScope.allScope(myProject));
+    }
+
+    Collection<VirtualFile> matches = new THashSet<VirtualFile>();
+    for (VirtualFile f : files) {
+      if (f.isValid() && f.getPath().endsWith(path)) {
+        matches.add(f);
+      }
+    }
+    if (matches.size() == 1) {
+      return matches.iterator().next();
+    }
+    if (matches.size() > 1) {
+      // Too many matches. Get the first that occurs on the classpath.
+      return HaxelibClasspathUtils.findFirstFileOnClasspath(myModule, matches);
+    }
+    return null;
+  }
+
+  /** Overridden by tests. */
+  @NotNull
+  List<VirtualFile> getRoots() {
+    List<VirtualFile> roots = myRoots;
+    if (null == roots) {
+      final List<VirtualFile> found = new ArrayList<VirtualFile>();
+      if (!myModule.isDisposed()) {
+        final VirtualFileManager vfm = VirtualFileManager.getInstance();
+        HaxeClasspath classpath = HaxelibClasspathUtils.getFullClasspath(myModule);
+        classpath.iterate(new HaxeClasspath.Lambda() {
+          @Override
+          public boolean processEntry(HaxeClasspathEntry entry) {
+            String dirUrl = entry.getUrl();
+            if (!URLUtil.containsScheme(dirUrl)) {
+              dirUrl = vfm.constructUrl(URLUtil.FILE_PROTOCOL, dirUrl);
+            }
+            VirtualFile dir = vfm.findFileByUrl(dirUrl);
+            if (null != dir && dir.isDirectory()) {
+              found.add(dir);
+            }
+            return true;
+          }
+        });
+        for (VirtualFile root : ModuleRootManager.getInstance(myModule).getSourceRoots()) {
+          if (!found.contains(root)) {
+            found.add(root);
+          }
+        }
+      }
+      LOG.debug("Debugger source cache has " + found.size() + " class path directories.");
+      roots = Collections.unmodifiableList(found);
+      myRoots = roots;
+    }
+    return roots;
+  }
+}
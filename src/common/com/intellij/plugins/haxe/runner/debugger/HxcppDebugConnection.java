@@ -0,0 +1,547 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ * Copyright 2014-2014 AS3Boyan
+ * Copyright 2014-2014 Elias Ku
+ * Copyright 2017-2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.runner.debugger;
+
+import com.intellij.openapi.util.Pair;
+import haxe.root.JavaProtocol;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * The IDE's end of a conversation with a program built with the hxcpp
+ * debugger: the socket, matching replies to commands, and what has been
+ * learned about the stack frames during the current stop.
+ *
+ * Nothing here needs an XDebugSession, so the protocol can be driven without
+ * the IDE.  {@link HaxeDebugRunner} puts the debugger UI on top of it.
+ */
+class HxcppDebugConnection {
+
+  /** Told about the reply to one command, on the read loop's thread. */
+  interface MessageListener {
+    void handleMessage(int messageId, debugger.Message message);
+  }
+
+  /** Told about whatever the debuggee says, or goes wrong, without being asked. */
+  interface Events {
+    /**
+     * ThreadCreated, ThreadStarted, ThreadStopped or ThreadTerminated, on the
+     * read loop's thread.  The stop generation has already been bumped for a
+     * ThreadStopped.
+     */
+    void threadEvent(int messageId, debugger.Message message);
+
+    /** A failure that ends the session. */
+    void error(String message);
+
+    /** A failure that the session can carry on after. */
+    void warn(String message);
+  }
+
+  /**
+   * @param writer runs the socket writes, one at a time and in order, off the
+   *               caller's thread.
+   */
+  HxcppDebugConnection(@NotNull Events events, @NotNull Executor writer) {
+    mEvents = events;
+    mWriter = writer;
+  }
+
+  /**
+   * Exchanges identifications with a debuggee that has just connected.
+   * Commands enqueued from here on are sent straight away.
+   */
+  void connect(@NotNull Socket socket) throws IOException {
+    JavaProtocol.readClientIdentification(socket.getInputStream());
+    JavaProtocol.writeServerIdentification(socket.getOutputStream());
+    synchronized (this) {
+      mSocket = socket;
+    }
+  }
+
+  synchronized boolean isConnected() {
+    return mSocket != null;
+  }
+
+  /** Hangs up.  The read loop returns quietly. */
+  void close() {
+    Socket socket;
+    synchronized (this) {
+      socket = mSocket;
+      mSocket = null;
+    }
+    if (socket != null) {
+      try {
+        socket.close();
+      }
+      catch (IOException e) {
+      }
+    }
+  }
+
+  void enqueueCommand(final debugger.Command command,
+                      MessageListener listener) {
+    this.enqueueCommands
+      (Collections.singletonList(Pair.create(command, listener)));
+  }
+
+  /**
+   * Sends a burst of commands without waiting for any of the replies.
+   * Commands enqueued before the debuggee connects are kept until
+   * {@link #sendDeferred()}.
+   *
+   * The debugger answers commands strictly in the order that they were
+   * sent, but the protocol carries no request ids.  So, every command is
+   * given the next sequence number, and each reply is matched to the
+   * oldest sequence number that is still outstanding.
+   */
+  void enqueueCommands
+    (final List<Pair<debugger.Command, MessageListener>> commands) {
+    if (commands.isEmpty()) {
+      return;
+    }
+    try {
+      synchronized (this) {
+        if (mSocket == null) {
+          mDeferredQueue.addAll(commands);
+          return;
+        }
+        final List<debugger.Command> burst =
+          new ArrayList<debugger.Command>(commands.size());
+        for (Pair<debugger.Command, MessageListener> p : commands) {
+          mPendingListeners.put(mNextRequestSequence++, p.getSecond());
+          burst.add(p.getFirst());
+        }
+        final OutputStream os = mSocket.getOutputStream();
+        mWriter.execute(new Runnable() {
+          public void run() {
+            try {
+              mWriteCodec.writeCommands(os, burst);
+            }
+            catch (IOException | RuntimeException e) {
+              mEvents.error
+                ("Debugger protocol error: exception while writing " +
+                 "command " + commandsToString(commands) + ": " +
+                 e);
+            }
+          }
+        });
+      }
+    }
+    catch (IOException e) {
+      mEvents.error
+        ("Debugger error: exception queueing write " +
+         "command " + commandsToString(commands) + ": " +
+         e);
+    }
+  }
+
+  /** Sends whatever was enqueued before the debuggee connected. */
+  void sendDeferred() {
+    List<Pair<debugger.Command, MessageListener>> deferred;
+    synchronized (this) {
+      deferred = new ArrayList<Pair<debugger.Command, MessageListener>>
+        (mDeferredQueue);
+      mDeferredQueue.clear();
+    }
+    this.enqueueCommands(deferred);
+  }
+
+  /**
+   * Reads until the connection is closed, handing replies to their
+   * listeners and everything else to the {@link Events}.
+   */
+  void readLoop() throws IOException {
+    while (true) {
+      Socket socket;
+      synchronized (this) {
+        socket = mSocket;
+      }
+      if (socket == null) {
+        return;
+      }
+      debugger.Message message;
+      try {
+        message = mReadCodec.readMessage(socket.getInputStream());
+      }
+      catch (IOException e) {
+        if (!this.isConnected()) {
+          return;
+        }
+        throw e;
+      }
+      int messageId = JavaProtocol.getMessageId(message);
+      if (messageId == JavaProtocol.IdThreadCreated ||
+          messageId == JavaProtocol.IdThreadTerminated ||
+          messageId == JavaProtocol.IdThreadStarted) {
+        mEvents.threadEvent(messageId, message);
+      }
+      else if (messageId == JavaProtocol.IdThreadStopped) {
+        this.newStopGeneration();
+        mEvents.threadEvent(messageId, message);
+      }
+      else {
+        MessageListener listener = null;
+        synchronized (this) {
+          if (mNextReplySequence < mNextRequestSequence) {
+            listener = mPendingListeners.remove(mNextReplySequence++);
+          }
+        }
+        if (listener == null) {
+          mEvents.error
+            ("Debugger protocol error: unsolicited response: " +
+             JavaProtocol.messageToString(message));
+          return;
+        }
+        listener.handleMessage(messageId, message);
+      }
+    }
+  }
+
+  /**
+   * Forgets everything that was learned about the stack frames during the
+   * last stop.  Called whenever the debuggee stops or is set running.
+   */
+  synchronized void newStopGeneration() {
+    mStopGeneration++;
+    mFrameValues.clear();
+    // The debugger picks its own thread and frame when it stops.
+    mCurrentThreadNumber = -1;
+    mCurrentFrameNumber = -1;
+  }
+
+  synchronized FrameValues getFrameValues(int threadNumber, int frameNumber) {
+    FrameKey key = new FrameKey(threadNumber, frameNumber, mStopGeneration);
+    FrameValues values = mFrameValues.get(key);
+    if (values == null) {
+      values = new FrameValues(key);
+      mFrameValues.put(key, values);
+    }
+    return values;
+  }
+
+  /** @return the frame's variable names, if already listed during this stop. */
+  @Nullable
+  synchronized List<String> getVariableNames(FrameValues frame) {
+    return frame.isDiscarded() ? null : frame.mVariableNames;
+  }
+
+  synchronized void setVariableNames(FrameValues frame, List<String> names) {
+    if (!frame.isDiscarded()) {
+      frame.mVariableNames = names;
+    }
+  }
+
+  /**
+   * @return true if moving the debugger onto the frame failed, so whatever
+   *         came back for it since may belong to another thread or frame.
+   */
+  synchronized boolean isDiscarded(FrameValues frame) {
+    return frame.isDiscarded();
+  }
+
+  /**
+   * Moves the debugger to the stack frame and lists its variables, in one
+   * burst.
+   */
+  synchronized void listVariables(FrameValues frame,
+                                  MessageListener listener) {
+    List<Pair<debugger.Command, MessageListener>> burst =
+      new ArrayList<Pair<debugger.Command, MessageListener>>();
+    this.addSetFrame(burst, frame);
+    burst.add(Pair.create(debugger.Command.Variables(false), listener));
+    this.enqueueCommands(burst);
+  }
+
+  /**
+   * Adds whatever it takes to get the debugger onto the frame's thread and
+   * frame to the burst: nothing if it is already there, or a SetCurrentThread
+   * and/or a SetFrame.  The caller must hold the lock until the burst is
+   * enqueued, so that nothing else can move the debugger in between.
+   */
+  void addSetFrame(List<Pair<debugger.Command, MessageListener>> burst,
+                   final FrameValues frame) {
+    final int threadNumber = frame.mKey.mThreadNumber;
+    final int frameNumber = frame.mKey.mFrameNumber;
+    if (frame.mKey.mGeneration != mStopGeneration) {
+      return;
+    }
+    if (threadNumber != mCurrentThreadNumber) {
+      mCurrentThreadNumber = threadNumber;
+      // Don't trust the frame that the debugger lands on in another thread.
+      mCurrentFrameNumber = -1;
+      burst.add(Pair.create
+        (debugger.Command.SetCurrentThread(threadNumber),
+         this.createMoveListener(frame, "thread " + threadNumber)));
+    }
+    if (frameNumber != mCurrentFrameNumber) {
+      mCurrentFrameNumber = frameNumber;
+      burst.add(Pair.create
+        (debugger.Command.SetFrame(frameNumber),
+         this.createMoveListener(frame, "stack frame " + frameNumber)));
+    }
+  }
+
+  private MessageListener createMoveListener(final FrameValues frame,
+                                             final String where) {
+    return new MessageListener() {
+      public void handleMessage(int messageId, debugger.Message message) {
+        // A SetCurrentThread may be answered with a plain OK.
+        if (messageId != JavaProtocol.IdThreadLocation &&
+            messageId != JavaProtocol.IdOK) {
+          synchronized (HxcppDebugConnection.this) {
+            // Whatever comes back for this frame (or for another one with
+            // the same key, that counted on the debugger being there) until
+            // the next move comes from somewhere else, so don't keep it.
+            mCurrentThreadNumber = -1;
+            mCurrentFrameNumber = -1;
+            frame.mFailedMoves++;
+            FrameValues registered = mFrameValues.remove(frame.mKey);
+            if (registered != null && registered != frame) {
+              registered.mFailedMoves++;
+            }
+          }
+          mEvents.warn
+            ("Failed to set " + where + "; got message; " +
+             JavaProtocol.messageToString(message));
+        }
+      }
+    };
+  }
+
+  /**
+   * Fetches the structured values of expressions in a stack frame, all in
+   * one burst.  Values that have already been fetched during this stop,
+   * or that are already on their way, are not asked for again.  Nothing is
+   * cached for a frame that the debugger couldn't be moved onto; its values
+   * are asked for every time.
+   *
+   * @param frame the frame to evaluate in, or null to evaluate uncached in
+   *              whatever frame the debugger is on.
+   * @param listener told about each result, or null just to fill the cache.
+   */
+  void fetchStructured(@Nullable final FrameValues frame,
+                       Collection<String> expressions,
+                       @Nullable MessageListener listener) {
+    List<Pair<debugger.Command, MessageListener>> burst =
+      new ArrayList<Pair<debugger.Command, MessageListener>>();
+    List<debugger.Message> cached = new ArrayList<debugger.Message>();
+    synchronized (this) {
+      boolean current = (frame != null &&
+                         frame.mKey.mGeneration == mStopGeneration);
+      boolean cacheable = (current && !frame.isDiscarded());
+      for (final String expression : expressions) {
+        if (!cacheable) {
+          if (listener != null) {
+            if (current && burst.isEmpty()) {
+              // Try to get onto the frame again.
+              this.addSetFrame(burst, frame);
+            }
+            burst.add(Pair.create
+              (debugger.Command.GetStructured(false, expression),
+               current ? this.createUncachedListener(frame, listener) :
+                         listener));
+          }
+          continue;
+        }
+        debugger.Message result = frame.mResults.get(expression);
+        if (result != null) {
+          cached.add(result);
+          continue;
+        }
+        List<MessageListener> waiting = frame.mWaiting.get(expression);
+        if (waiting == null) {
+          waiting = new ArrayList<MessageListener>();
+          frame.mWaiting.put(expression, waiting);
+          if (burst.isEmpty()) {
+            this.addSetFrame(burst, frame);
+          }
+          burst.add(Pair.create
+            (debugger.Command.GetStructured(false, expression),
+             new MessageListener() {
+               public void handleMessage(int messageId,
+                                         debugger.Message message) {
+                 List<MessageListener> toNotify;
+                 boolean discarded;
+                 synchronized (HxcppDebugConnection.this) {
+                   discarded = frame.isDiscarded();
+                   if (!discarded) {
+                     // Errors are kept too; asking again during the same
+                     // stop would get the same answer.
+                     frame.mResults.put(expression, message);
+                   }
+                   toNotify = frame.mWaiting.remove(expression);
+                 }
+                 if (toNotify != null) {
+                   for (MessageListener l : toNotify) {
+                     if (discarded) {
+                       // The debugger wasn't on the frame; ask again.
+                       HxcppDebugConnection.this.fetchStructured
+                         (frame, Collections.singletonList(expression), l);
+                     }
+                     else {
+                       l.handleMessage(messageId, message);
+                     }
+                   }
+                 }
+               }
+             }));
+        }
+        if (listener != null) {
+          waiting.add(listener);
+        }
+      }
+      this.enqueueCommands(burst);
+    }
+    if (listener != null) {
+      for (debugger.Message message : cached) {
+        listener.handleMessage(JavaProtocol.getMessageId(message), message);
+      }
+    }
+  }
+
+  /**
+   * Passes a reply for a frame that isn't cached on to the listener, unless
+   * the move onto the frame failed in the meantime, in which case the
+   * listener is told that the value is unavailable.  The caller must hold
+   * the lock.
+   */
+  private MessageListener createUncachedListener(final FrameValues frame,
+                                                 final MessageListener listener) {
+    final int failedMoves = frame.mFailedMoves;
+    return new MessageListener() {
+      public void handleMessage(int messageId, debugger.Message message) {
+        boolean moved;
+        synchronized (HxcppDebugConnection.this) {
+          moved = (frame.mFailedMoves == failedMoves);
+        }
+        if (!moved) {
+          message = debugger.Message.ErrorInternal
+            ("Could not get to thread " + frame.mKey.mThreadNumber +
+             ", stack frame " + frame.mKey.mFrameNumber);
+          messageId = JavaProtocol.getMessageId(message);
+        }
+        listener.handleMessage(messageId, message);
+      }
+    };
+  }
+
+  private static String commandsToString
+    (List<Pair<debugger.Command, MessageListener>> commands) {
+    StringBuilder builder = new StringBuilder();
+    for (Pair<debugger.Command, MessageListener> p : commands) {
+      if (builder.length() > 0) {
+        builder.append(", ");
+      }
+      builder.append(JavaProtocol.commandToString(p.getFirst()));
+    }
+    return builder.toString();
+  }
+
+  /** One stack frame of one thread, during one stop of the debuggee. */
+  static class FrameKey {
+    FrameKey(int threadNumber, int frameNumber, int generation) {
+      mThreadNumber = threadNumber;
+      mFrameNumber = frameNumber;
+      mGeneration = generation;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof FrameKey)) {
+        return false;
+      }
+      FrameKey other = (FrameKey)o;
+      return (mThreadNumber == other.mThreadNumber &&
+              mFrameNumber == other.mFrameNumber &&
+              mGeneration == other.mGeneration);
+    }
+
+    @Override
+    public int hashCode() {
+      return (mThreadNumber * 31 + mFrameNumber) * 31 + mGeneration;
+    }
+
+    private final int mThreadNumber;
+    private final int mFrameNumber;
+    private final int mGeneration;
+  }
+
+  /**
+   * What has been fetched for a stack frame during one stop: its variable
+   * names and the replies to GetStructured, by expression.  Guarded by the
+   * connection.
+   */
+  static class FrameValues {
+    FrameValues(FrameKey key) {
+      mKey = key;
+    }
+
+    private boolean isDiscarded() {
+      return mFailedMoves > 0;
+    }
+
+    private final FrameKey mKey;
+    // How many times moving the debugger onto this frame has failed.  Once
+    // it has, nothing more is cached here.
+    private int mFailedMoves;
+    private List<String> mVariableNames;
+    private final HashMap<String, debugger.Message> mResults =
+      new HashMap<String, debugger.Message>();
+    // Listeners for the replies that are still on their way.
+    private final HashMap<String, List<MessageListener>> mWaiting =
+      new HashMap<String, List<MessageListener>>();
+  }
+
+  private final Events mEvents;
+  private final Executor mWriter;
+  // Only used on the read loop's thread.
+  private final HxcppDebuggerCodec mReadCodec = new HxcppDebuggerCodec();
+  // Only used on mWriter's thread.
+  private final HxcppDebuggerCodec mWriteCodec = new HxcppDebuggerCodec();
+  // Everything below is guarded by this.
+  private Socket mSocket;
+  private final LinkedList<Pair<debugger.Command, MessageListener>>
+    mDeferredQueue = new LinkedList<Pair<debugger.Command, MessageListener>>();
+  // Listeners for the commands that haven't been answered yet, by
+  // sequence number.  See enqueueCommands().
+  private final HashMap<Integer, MessageListener> mPendingListeners =
+    new HashMap<Integer, MessageListener>();
+  private int mNextRequestSequence;
+  private int mNextReplySequence;
+  // Bumped each time the debuggee stops or runs.
+  private int mStopGeneration;
+  // The thread and frame that the debugger will evaluate in, as of the last
+  // command sent, or -1 if unknown.
+  private int mCurrentThreadNumber = -1;
+  private int mCurrentFrameNumber = -1;
+  private final HashMap<FrameKey, FrameValues> mFrameValues =
+    new HashMap<FrameKey, FrameValues>();
+}
@@ -0,0 +1,687 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.runner.debugger;
+
+import haxe.lang.ParamEnum;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the hxcpp debugger protocol without going through the
+ * Haxe runtime.
+ *
+ * The generated {@link debugger.HaxeProtocol} serializes each message with
+ * haxe.Serializer, turns the result into a String, writes an eight digit
+ * length, and then writes the String.  Reading does the same in reverse,
+ * building haxe.root.Array and friends along the way and creating the enum
+ * values by reflection.  This class produces and accepts the same bytes, but
+ * works directly on a byte buffer that is reused from message to message and
+ * creates the {@link debugger.Command} and {@link debugger.Message} values
+ * (and the lists inside them) directly.
+ *
+ * Only the subset of the serialization format that the protocol uses is
+ * supported: enums (by name or index), strings (and string references),
+ * ints, bools, null, and references to previously decoded enums.
+ *
+ * An instance keeps its buffers between calls, so it must only be used by
+ * one thread at a time.  Use one for reading and one for writing.
+ */
+public final class HxcppDebuggerCodec {
+
+  /** Length of the decimal message length that precedes every message. */
+  private static final int HEADER_LENGTH = 8;
+  private static final int MAX_MESSAGE_LENGTH = 99999999;
+
+  private static final Map<String, EnumType> ourTypesByName = new HashMap<>();
+  private static final Map<Class<?>, EnumType> ourTypesByClass = new HashMap<>();
+
+  static {
+    register(debugger.Command.class, debugger.Command.__hx_constructs, debugger.Command::new);
+    register(debugger.Message.class, debugger.Message.__hx_constructs, debugger.Message::new);
+    register(debugger.BreakpointList.class, debugger.BreakpointList.__hx_constructs, debugger.BreakpointList::new);
+    register(debugger.BreakpointLocationList.class, debugger.BreakpointLocationList.__hx_constructs, debugger.BreakpointLocationList::new);
+    register(debugger.BreakpointStatusList.class, debugger.BreakpointStatusList.__hx_constructs, debugger.BreakpointStatusList::new);
+    register(debugger.ClassList.class, debugger.ClassList.__hx_constructs, debugger.ClassList::new);
+    register(debugger.FrameList.class, debugger.FrameList.__hx_constructs, debugger.FrameList::new);
+    register(debugger.StringList.class, debugger.StringList.__hx_constructs, debugger.StringList::new);
+    register(debugger.StructuredValue.class, debugger.StructuredValue.__hx_constructs, debugger.StructuredValue::new);
+    register(debugger.StructuredValueList.class, debugger.StructuredValueList.__hx_constructs, debugger.StructuredValueList::new);
+    register(debugger.StructuredValueListType.class, debugger.StructuredValueListType.__hx_constructs, debugger.StructuredValueListType::new);
+    register(debugger.StructuredValueType.class, debugger.StructuredValueType.__hx_constructs, debugger.StructuredValueType::new);
+    register(debugger.StructuredValueTypeList.class, debugger.StructuredValueTypeList.__hx_constructs, debugger.StructuredValueTypeList::new);
+    register(debugger.ThreadStatus.class, debugger.ThreadStatus.__hx_constructs, debugger.ThreadStatus::new);
+    register(debugger.ThreadWhereList.class, debugger.ThreadWhereList.__hx_constructs, debugger.ThreadWhereList::new);
+  }
+
+  // Decoding state.
+  private byte[] myInput = new byte[4096];
+  /** The message being decoded; usually myInput. */
+  private byte[] myData;
+  private int myPos;
+  private int myEnd;
+  private final ArrayList<String> myStringCache = new ArrayList<>();
+  private final ArrayList<Object> myObjectCache = new ArrayList<>();
+  private byte[] myScratch = new byte[256];
+  // Enums waiting for their last parameter; see readEnum().
+  private EnumType[] myPendingTypes = new EnumType[64];
+  private int[] myPendingIndices = new int[64];
+  private Object[][] myPendingParams = new Object[64][];
+  private int myPendingCount;
+
+  // Encoding state.
+  private byte[] myOutput = new byte[4096];
+  private int myLength;
+  private final HashMap<String, Integer> myStringIds = new HashMap<>();
+
+
+  // ---- Public API ----
+
+  public void writeCommand(@NotNull OutputStream output, @NotNull debugger.Command command) throws IOException {
+    write(output, command);
+  }
+
+  /**
+   * Writes several commands back to back with a single flush, so that a burst of requests leaves
+   * in as few packets as possible.
+   */
+  public void writeCommands(@NotNull OutputStream output, @NotNull List<debugger.Command> commands) throws IOException {
+    if (commands.size() == 1) {
+      write(output, commands.get(0));
+      return;
+    }
+    ByteArrayOutputStream burst = new ByteArrayOutputStream();
+    for (debugger.Command command : commands) {
+      int length = encode(command);
+      burst.write(myOutput, 0, length);
+    }
+    burst.writeTo(output);
+    output.flush();
+  }
+
+  public void writeMessage(@NotNull OutputStream output, @NotNull debugger.Message message) throws IOException {
+    write(output, message);
+  }
+
+  @NotNull
+  public debugger.Command readCommand(@NotNull InputStream input) throws IOException {
+    return expect(debugger.Command.class, read(input));
+  }
+
+  @NotNull
+  public debugger.Message readMessage(@NotNull InputStream input) throws IOException {
+    return expect(debugger.Message.class, read(input));
+  }
+
+  /**
+   * Encode a value, including its length header.  The result is only valid
+   * until the next call to an encoding method.
+   *
+   * @return the number of valid bytes at the start of {@link #getEncoded()}.
+   */
+  public int encode(@NotNull ParamEnum value) {
+    myLength = HEADER_LENGTH;
+    myStringIds.clear();
+    writeValue(value);
+
+    int length = myLength - HEADER_LENGTH;
+    if (length > MAX_MESSAGE_LENGTH) {
+      throw new IllegalArgumentException("Debugger message is too long to send: " + length + " bytes");
+    }
+    for (int i = HEADER_LENGTH - 1; i >= 0; --i) {
+      myOutput[i] = (byte)('0' + length % 10);
+      length /= 10;
+    }
+    return myLength;
+  }
+
+  @NotNull
+  public byte[] getEncoded() {
+    return myOutput;
+  }
+
+  /**
+   * Decode one message body (without its length header).
+   */
+  @Nullable
+  public Object decode(@NotNull byte[] bytes, int offset, int length) {
+    myStringCache.clear();
+    myObjectCache.clear();
+    myData = bytes;
+    myPos = offset;
+    myEnd = offset + length;
+    try {
+      return readValue();
+    }
+    finally {
+      // Don't hold on to the strings from this message.
+      myData = null;
+      Arrays.fill(myPendingParams, 0, myPendingCount, null);
+      myPendingCount = 0;
+      myStringCache.clear();
+      myObjectCache.clear();
+    }
+  }
+
+
+  // ---- Framing ----
+
+  private void write(@NotNull OutputStream output, @NotNull ParamEnum value) throws IOException {
+    int length = encode(value);
+    output.write(myOutput, 0, length);
+    output.flush();
+  }
+
+  @Nullable
+  private Object read(@NotNull InputStream input) throws IOException {
+    readFully(input, HEADER_LENGTH);
+    int length = 0;
+    for (int i = 0; i < HEADER_LENGTH; ++i) {
+      int c = myInput[i];
+      if (c < '0' || c > '9') {
+        throw new IOException("Debugger protocol error: bad message length");
+      }
+      length = length * 10 + (c - '0');
+    }
+    readFully(input, length);
+    return decode(myInput, 0, length);
+  }
+
+  private void readFully(@NotNull InputStream input, int length) throws IOException {
+    if (myInput.length < length) {
+      myInput = new byte[Math.max(length, myInput.length * 2)];
+    }
+    int read = 0;
+    while (read < length) {
+      int n = input.read(myInput, read, length - read);
+      if (n < 0) {
+        throw new EOFException("Debugger connection closed");
+      }
+      read += n;
+    }
+  }
+
+  @NotNull
+  private static <T> T expect(@NotNull Class<T> type, @Nullable Object value) throws IOException {
+    if (!type.isInstance(value)) {
+      throw new IOException("Debugger protocol error: expected " + type.getSimpleName() + ", but got " + value);
+    }
+    return type.cast(value);
+  }
+
+
+  // ---- Decoding ----
+
+  @Nullable
+  private Object readValue() {
+    char tag = nextChar();
+    switch (tag) {
+      case 'n':
+        return null;
+      case 'z':
+        return 0;
+      case 'i':
+        return readInt();
+      case 't':
+        return Boolean.TRUE;
+      case 'f':
+        return Boolean.FALSE;
+      case 'y':
+        return readString();
+      case 'R': {
+        int n = readInt();
+        if (n < 0 || n >= myStringCache.size()) {
+          throw error("Invalid string reference");
+        }
+        return myStringCache.get(n);
+      }
+      case 'r': {
+        int n = readInt();
+        if (n < 0 || n >= myObjectCache.size()) {
+          throw error("Invalid reference");
+        }
+        return myObjectCache.get(n);
+      }
+      case 'w': {
+        EnumType type = readEnumType();
+        return readEnum(type, type.indexOf(readStringValue()));
+      }
+      case 'j': {
+        EnumType type = readEnumType();
+        return readEnum(type, readEnumIndex(type));
+      }
+      default:
+        throw error("Unsupported value type '" + tag + "'");
+    }
+  }
+
+  @NotNull
+  private EnumType readEnumType() {
+    String name = readStringValue();
+    EnumType type = ourTypesByName.get(name);
+    if (null == type) {
+      throw error("Enum not found " + name);
+    }
+    return type;
+  }
+
+  private int readEnumIndex(@NotNull EnumType type) {
+    expectChar(':');
+    int index = readInt();
+    if (index < 0 || index >= type.constructs.length) {
+      throw error("Unknown enum index " + type.name + "@" + index);
+    }
+    return index;
+  }
+
+  /**
+   * Read the parameters of an enum value and create it.
+   *
+   * Lists in the protocol are enums whose last parameter is the rest of the
+   * list, and they can be thousands of elements long.  Rather than recursing
+   * for that last parameter, the enclosing values are kept on a stack until
+   * the end of the list is reached.
+   */
+  @NotNull
+  private Object readEnum(@NotNull EnumType type, int index) {
+    final int base = myPendingCount;
+    Object value;
+    while (true) {
+      expectChar(':');
+      int nargs = readInt();
+      if (nargs == 0) {
+        value = type.constants[index];
+        if (null == value) {
+          throw error("Constructor " + type.constructs[index] + " needs parameters");
+        }
+        break;
+      }
+
+      Object[] params = new Object[nargs];
+      for (int i = 0; i < nargs - 1; ++i) {
+        params[i] = readValue();
+      }
+      char tag = peekChar();
+      if (tag != 'w' && tag != 'j') {
+        params[nargs - 1] = readValue();
+        value = type.factory.create(index, params);
+        break;
+      }
+
+      pushPending(type, index, params);
+      ++myPos;
+      type = readEnumType();
+      index = tag == 'w' ? type.indexOf(readStringValue()) : readEnumIndex(type);
+    }
+
+    // Like haxe.Unserializer, the innermost value is cached first.
+    myObjectCache.add(value);
+    while (myPendingCount > base) {
+      --myPendingCount;
+      Object[] params = myPendingParams[myPendingCount];
+      params[params.length - 1] = value;
+      value = myPendingTypes[myPendingCount].factory.create(myPendingIndices[myPendingCount], params);
+      myPendingParams[myPendingCount] = null;
+      myObjectCache.add(value);
+    }
+    return value;
+  }
+
+  private void pushPending(@NotNull EnumType type, int index, @NotNull Object[] params) {
+    if (myPendingCount == myPendingTypes.length) {
+      int size = myPendingCount * 2;
+      myPendingTypes = Arrays.copyOf(myPendingTypes, size);
+      myPendingIndices = Arrays.copyOf(myPendingIndices, size);
+      myPendingParams = Arrays.copyOf(myPendingParams, size);
+    }
+    myPendingTypes[myPendingCount] = type;
+    myPendingIndices[myPendingCount] = index;
+    myPendingParams[myPendingCount] = params;
+    ++myPendingCount;
+  }
+
+  @NotNull
+  private String readStringValue() {
+    Object value = readValue();
+    if (!(value instanceof String)) {
+      throw error("Expected a string, but got " + value);
+    }
+    return (String)value;
+  }
+
+  @NotNull
+  private String readString() {
+    int length = readInt();
+    expectChar(':');
+    if (length < 0 || myPos + length > myEnd) {
+      throw error("Invalid string length");
+    }
+    int start = myPos;
+    myPos += length;
+
+    boolean encoded = false;
+    for (int i = start; i < myPos; ++i) {
+      byte b = myData[i];
+      if (b == '%' || b == '+') {
+        encoded = true;
+        break;
+      }
+    }
+    String s = encoded ? urlDecode(start, myPos) : new String(myData, start, length, StandardCharsets.ISO_8859_1);
+    myStringCache.add(s);
+    return s;
+  }
+
+  @NotNull
+  private String urlDecode(int start, int end) {
+    if (myScratch.length < end - start) {
+      myScratch = new byte[end - start];
+    }
+    int n = 0;
+    for (int i = start; i < end; ++i) {
+      byte b = myData[i];
+      if (b == '%' && i + 2 < end) {
+        int hi = Character.digit(myData[i + 1], 16);
+        int lo = Character.digit(myData[i + 2], 16);
+        if (hi < 0 || lo < 0) {
+          throw error("Invalid escape in string");
+        }
+        myScratch[n++] = (byte)((hi << 4) | lo);
+        i += 2;
+      }
+      else if (b == '+') {
+        myScratch[n++] = ' ';
+      }
+      else {
+        myScratch[n++] = b;
+      }
+    }
+    return new String(myScratch, 0, n, StandardCharsets.UTF_8);
+  }
+
+  private int readInt() {
+    int value = 0;
+    boolean negative = false;
+    int first = myPos;
+    while (myPos < myEnd) {
+      int c = myData[myPos];
+      if (c == '-' && myPos == first) {
+        negative = true;
+      }
+      else if (c >= '0' && c <= '9') {
+        value = value * 10 + (c - '0');
+      }
+      else {
+        break;
+      }
+      ++myPos;
+    }
+    return negative ? -value : value;
+  }
+
+  private char nextChar() {
+    if (myPos >= myEnd) {
+      throw error("Unexpected end of message");
+    }
+    return (char)myData[myPos++];
+  }
+
+  private char peekChar() {
+    if (myPos >= myEnd) {
+      throw error("Unexpected end of message");
+    }
+    return (char)myData[myPos];
+  }
+
+  private void expectChar(char expected) {
+    if (nextChar() != expected) {
+      throw error("Invalid enum format");
+    }
+  }
+
+  @NotNull
+  private RuntimeException error(@NotNull String message) {
+    return new IllegalStateException("Debugger protocol error: " + message + " at offset " + myPos);
+  }
+
+
+  // ---- Encoding ----
+
+  private void writeValue(@Nullable Object value) {
+    if (null == value) {
+      put('n');
+    }
+    else if (value instanceof Integer) {
+      int i = (Integer)value;
+      if (i == 0) {
+        put('z');
+      }
+      else {
+        put('i');
+        putInt(i);
+      }
+    }
+    else if (value instanceof Boolean) {
+      put((Boolean)value ? 't' : 'f');
+    }
+    else if (value instanceof String) {
+      writeString((String)value);
+    }
+    else if (value instanceof ParamEnum) {
+      writeEnum((ParamEnum)value);
+    }
+    else {
+      throw new IllegalArgumentException("Cannot serialize " + value);
+    }
+  }
+
+  /**
+   * Write an enum value.  As in readEnum(), a last parameter that is itself an
+   * enum (the rest of a list) is handled by looping, not by recursion.
+   */
+  private void writeEnum(@NotNull ParamEnum e) {
+    while (true) {
+      EnumType type = ourTypesByClass.get(e.getClass());
+      if (null == type) {
+        throw new IllegalArgumentException("Cannot serialize " + e.getClass().getName());
+      }
+      put('w');
+      writeString(type.name);
+      writeString(type.wireNames[e.index]);
+      put(':');
+      Object[] params = e.params;
+      if (null == params || params.length == 0) {
+        put('0');
+        return;
+      }
+      putInt(params.length);
+      for (int i = 0; i < params.length - 1; ++i) {
+        writeValue(params[i]);
+      }
+      Object last = params[params.length - 1];
+      if (!(last instanceof ParamEnum)) {
+        writeValue(last);
+        return;
+      }
+      e = (ParamEnum)last;
+    }
+  }
+
+  private void writeString(@NotNull String s) {
+    Integer id = myStringIds.get(s);
+    if (null != id) {
+      put('R');
+      putInt(id);
+      return;
+    }
+    myStringIds.put(s, myStringIds.size());
+
+    put('y');
+    if (isUnreserved(s)) {
+      putInt(s.length());
+      put(':');
+      ensureCapacity(s.length());
+      for (int i = 0; i < s.length(); ++i) {
+        myOutput[myLength++] = (byte)s.charAt(i);
+      }
+      return;
+    }
+
+    byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+    int encodedLength = 0;
+    for (byte b : utf8) {
+      encodedLength += isUnreserved(b) ? 1 : 3;
+    }
+    putInt(encodedLength);
+    put(':');
+    ensureCapacity(encodedLength);
+    for (byte b : utf8) {
+      if (isUnreserved(b)) {
+        myOutput[myLength++] = b;
+      }
+      else {
+        myOutput[myLength++] = '%';
+        myOutput[myLength++] = (byte)Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16));
+        myOutput[myLength++] = (byte)Character.toUpperCase(Character.forDigit(b & 0xF, 16));
+      }
+    }
+  }
+
+  /**
+   * The characters that haxe.StringTools.urlEncode leaves alone.
+   */
+  private static boolean isUnreserved(int c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+           || c == '-' || c == '_' || c == '.' || c == '!' || c == '~' || c == '*' || c == '\'' || c == '(' || c == ')';
+  }
+
+  private static boolean isUnreserved(@NotNull String s) {
+    for (int i = 0; i < s.length(); ++i) {
+      if (!isUnreserved(s.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void put(char c) {
+    ensureCapacity(1);
+    myOutput[myLength++] = (byte)c;
+  }
+
+  private void putInt(int value) {
+    ensureCapacity(11);
+    if (value < 0) {
+      myOutput[myLength++] = '-';
+      value = -value;
+    }
+    int start = myLength;
+    do {
+      myOutput[myLength++] = (byte)('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+    // Digits were written least significant first.
+    for (int i = start, j = myLength - 1; i < j; ++i, --j) {
+      byte t = myOutput[i];
+      myOutput[i] = myOutput[j];
+      myOutput[j] = t;
+    }
+  }
+
+  private void ensureCapacity(int more) {
+    if (myLength + more > myOutput.length) {
+      byte[] bigger = new byte[Math.max(myLength + more, myOutput.length * 2)];
+      System.arraycopy(myOutput, 0, bigger, 0, myLength);
+      myOutput = bigger;
+    }
+  }
+
+
+  // ---- Enum registry ----
+
+  private interface EnumFactory {
+    ParamEnum create(int index, Object[] params);
+  }
+
+  private static final class EnumType {
+    final String name;
+    final String[] constructs;
+    /** The Haxe constructor names.  Haxe escapes a few names (e.g. "Array" becomes "_Array") in Java. */
+    final String[] wireNames;
+    /** Values of the constructors that don't take parameters; null for those that do. */
+    final Object[] constants;
+    final EnumFactory factory;
+    final Map<String, Integer> indices = new HashMap<>();
+
+    EnumType(@NotNull Class<?> enumClass, @NotNull String[] constructs, @NotNull EnumFactory factory) {
+      this.name = enumClass.getName();
+      this.constructs = constructs;
+      this.factory = factory;
+      this.wireNames = new String[constructs.length];
+      this.constants = new Object[constructs.length];
+      for (int i = 0; i < constructs.length; ++i) {
+        String construct = constructs[i];
+        wireNames[i] = construct.startsWith("_") ? construct.substring(1) : construct;
+        indices.put(construct, i);
+        indices.put(wireNames[i], i);
+        constants[i] = getConstant(enumClass, construct);
+      }
+    }
+
+    int indexOf(@NotNull String construct) {
+      Integer index = indices.get(construct);
+      if (null == index) {
+        throw new IllegalStateException("Debugger protocol error: unknown constructor " + name + "." + construct);
+      }
+      return index;
+    }
+
+    @Nullable
+    private static Object getConstant(@NotNull Class<?> enumClass, @NotNull String construct) {
+      try {
+        Field field = enumClass.getField(construct);
+        if (Modifier.isStatic(field.getModifiers()) && enumClass.isAssignableFrom(field.getType())) {
+          return field.get(null);
+        }
+      }
+      catch (NoSuchFieldException | IllegalAccessException e) {
+        // Takes parameters.
+      }
+      return null;
+    }
+  }
+
+  private static void register(@NotNull Class<? extends ParamEnum> enumClass,
+                               @NotNull String[] constructs,
+                               @NotNull EnumFactory factory) {
+    EnumType type = new EnumType(enumClass, constructs, factory);
+    ourTypesByName.put(type.name, type);
+    ourTypesByClass.put(enumClass, type);
+  }
+}
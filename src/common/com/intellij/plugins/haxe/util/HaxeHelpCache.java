@@ -23,6 +23,7 @@ import com.intellij.openapi.module.Module;
 import com.intellij.plugins.haxe.config.sdk.HaxeSdkAdditionalDataBase;
 import com.intellij.plugins.haxe.haxelib.HaxelibCache;
 import com.intellij.plugins.haxe.haxelib.HaxelibCommandUtils;
+import com.intellij.plugins.haxe.haxelib.HaxelibPersistentCache;
 import com.intellij.plugins.haxe.ide.HXMLCompletionItem;
 
 import java.util.ArrayList;
@@ -46,8 +47,8 @@ public class HaxeHelpCache {
     return defines;
   }
 
-  private static List<HXMLCompletionItem> metaTags;
-  private static List<HXMLCompletionItem> defines;
+  private static volatile List<HXMLCompletionItem> metaTags;
+  private static volatile List<HXMLCompletionItem> defines;
 
   public HaxeHelpCache() {
     if (ApplicationManager.getApplication().isUnitTestMode()) {
@@ -68,24 +69,38 @@ public class HaxeHelpCache {
   }
 
   private void load() {
-    ArrayList<String> commandLineArguments = new ArrayList<String>();
     Module module = HaxelibCache.getHaxeModule();
-    String haxePath = HaxeHelpUtil.getHaxePath(module);
-    HaxeSdkAdditionalDataBase haxeSdkData = HaxeSdkUtilBase.getSdkData(module);
+    final String haxePath = HaxeHelpUtil.getHaxePath(module);
+    final HaxeSdkAdditionalDataBase haxeSdkData = HaxeSdkUtilBase.getSdkData(module);
+
+    // Serve what the last session saved, and refresh it in the background if haxe has changed since.
+    HaxelibPersistentCache.Help stored = HaxelibPersistentCache.readHelp(haxePath);
+    if (null != stored) {
+      metaTags = toCompletionItems(stored.metaTags);
+      defines = toCompletionItems(stored.defines);
+      if (!HaxelibPersistentCache.isUpToDate(stored)) {
+        ApplicationManager.getApplication().executeOnPooledThread(() -> runHaxeHelp(haxePath, haxeSdkData));
+      }
+      return;
+    }
+    runHaxeHelp(haxePath, haxeSdkData);
+  }
+
+  private static void runHaxeHelp(String haxePath, HaxeSdkAdditionalDataBase haxeSdkData) {
+    HaxelibPersistentCache.Help help = HaxelibPersistentCache.createHelp(haxePath);
+    ArrayList<String> commandLineArguments = new ArrayList<String>();
 
     commandLineArguments.add(haxePath);
     commandLineArguments.add("--help-metas");
 
     List<String> strings = HaxelibCommandUtils.getProcessStdout(commandLineArguments, haxeSdkData);
 
-    metaTags = new ArrayList<HXMLCompletionItem>();
-
     for (int i = 0, size = strings.size(); i < size; i++) {
       String string = strings.get(i);
       Matcher matcher = META_TAG_PATTERN.matcher(string);
 
       if (matcher.find()) {
-        metaTags.add(new HXMLCompletionItem(matcher.group(1), matcher.group(2)));
+        help.metaTags.add(new String[]{matcher.group(1), matcher.group(2)});
       }
     }
 
@@ -95,15 +110,29 @@ public class HaxeHelpCache {
 
     strings = HaxelibCommandUtils.getProcessStdout(commandLineArguments, haxeSdkData);
 
-    defines = new ArrayList<HXMLCompletionItem>();
-
     for (int i = 0; i < strings.size(); i++) {
       String string = strings.get(i);
       Matcher matcher = DEFINE_PATTERN.matcher(string);
 
       if (matcher.find()) {
-        defines.add(new HXMLCompletionItem(matcher.group(1), matcher.group(2)));
+        help.defines.add(new String[]{matcher.group(1), matcher.group(2)});
+      }
+    }
+
+    metaTags = toCompletionItems(help.metaTags);
+    defines = toCompletionItems(help.defines);
+    if (!help.metaTags.isEmpty() || !help.defines.isEmpty()) {
+      HaxelibPersistentCache.writeHelp(help);
+    }
+  }
+
+  private static List<HXMLCompletionItem> toCompletionItems(List<String[]> pairs) {
+    List<HXMLCompletionItem> items = new ArrayList<HXMLCompletionItem>(pairs.size());
+    for (String[] pair : pairs) {
+      if (pair.length >= 2) {
+        items.add(new HXMLCompletionItem(pair[0], pair[1]));
       }
     }
+    return items;
   }
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.util;
+
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.plugins.haxe.HaxeComponentType;
+import com.intellij.plugins.haxe.lang.psi.HaxeClass;
+import com.intellij.plugins.haxe.lang.psi.HaxeNamedComponent;
+import com.intellij.plugins.haxe.lang.psi.HaxeType;
+import com.intellij.plugins.haxe.model.type.HaxeGenericResolver;
+import com.intellij.plugins.haxe.model.type.HaxeGenericResolverUtil;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import gnu.trove.THashSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * The members of a class and all of its supertypes, hashed by name.
+ *
+ * This holds the same components that {@link HaxeResolveUtil#findNamedSubComponents} returns,
+ * but looking up a name doesn't require walking the whole hierarchy.  When more than one
+ * component has a name, the one closest to the class (in breadth-first order) is the one that
+ * is found, as before.
+ *
+ * The table is cached on the class and depends on the files of the class and of all of its
+ * supertypes.  Abstract forwarding depends on the generic resolver, so for hierarchies that
+ * contain abstracts the table is only cached when no resolver is given.
+ */
+public class HaxeMemberTable {
+
+  private static final Key<CachedValue<HaxeMemberTable>> MEMBER_TABLE_KEY =
+    Key.create("HAXE_MEMBER_TABLE");
+
+  /** A member, together with the bucket information needed to filter it. */
+  public static class Member {
+    public final HaxeNamedComponent component;
+    public final HaxeComponentType type;
+    public final boolean isStatic;
+    public final boolean isInherited;
+
+    Member(@NotNull HaxeNamedComponent component, boolean isInherited) {
+      this.component = component;
+      this.type = HaxeComponentType.typeOf(component);
+      this.isStatic = component.isStatic();
+      this.isInherited = isInherited;
+    }
+  }
+
+  private final Map<String, Member> byName = new LinkedHashMap<>();
+  private final List<HaxeNamedComponent> fields = new ArrayList<>();
+  private final List<HaxeNamedComponent> methods = new ArrayList<>();
+  private boolean dependsOnResolver = false;
+
+  private HaxeMemberTable() {}
+
+  @NotNull
+  public static HaxeMemberTable getInstance(@NotNull HaxeClass haxeClass, @Nullable HaxeGenericResolver resolver) {
+    final HaxeMemberTable cached = CachedValuesManager.getManager(haxeClass.getProject())
+      .getCachedValue(haxeClass, MEMBER_TABLE_KEY, () -> build(haxeClass), false);
+    if (null != resolver && cached.dependsOnResolver) {
+      return build(haxeClass, resolver);
+    }
+    return cached;
+  }
+
+  /**
+   * @return the member closest to the class with the given name, whatever its type.
+   */
+  @Nullable
+  public HaxeNamedComponent find(@NotNull String name) {
+    final Member member = byName.get(name);
+    return null == member ? null : member.component;
+  }
+
+  /**
+   * @return the member with the given name, if the member is of the given type.
+   */
+  @Nullable
+  public HaxeNamedComponent find(@NotNull String name, @NotNull HaxeComponentType type) {
+    final Member member = byName.get(name);
+    return null != member && member.type == type ? member.component : null;
+  }
+
+  @Nullable
+  public Member getMember(@NotNull String name) {
+    return byName.get(name);
+  }
+
+  /** @return all fields, one per name. */
+  @NotNull
+  public List<HaxeNamedComponent> getFields() {
+    return new ArrayList<>(fields);
+  }
+
+  /** @return all methods, one per name. */
+  @NotNull
+  public List<HaxeNamedComponent> getMethods() {
+    return new ArrayList<>(methods);
+  }
+
+  /**
+   * @return the members in the requested buckets.
+   *
+   * @param inherited - null for all members; otherwise only inherited (true) or own (false) members.
+   * @param isStatic - null for all members; otherwise only static (true) or instance (false) members.
+   * @param type - null for all members; otherwise only members of the given type.
+   */
+  @NotNull
+  public List<HaxeNamedComponent> getMembers(@Nullable Boolean inherited, @Nullable Boolean isStatic, @Nullable HaxeComponentType type) {
+    final List<HaxeNamedComponent> result = new ArrayList<>();
+    for (Member member : byName.values()) {
+      if (null != inherited && inherited != member.isInherited) continue;
+      if (null != isStatic && isStatic != member.isStatic) continue;
+      if (null != type && type != member.type) continue;
+      result.add(member.component);
+    }
+    return result;
+  }
+
+  @NotNull
+  private static CachedValueProvider.Result<HaxeMemberTable> build(@NotNull HaxeClass haxeClass) {
+    final Set<Object> dependencies = new THashSet<>();
+    final HaxeMemberTable table = build(haxeClass, null, dependencies);
+    dependencies.add(VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS);
+    if (table.dependsOnResolver) {
+      // Forwarded members come from the underlying types, wherever those are.
+      dependencies.add(PsiModificationTracker.getInstance(haxeClass.getProject()).getOutOfCodeBlockModificationTracker());
+    }
+    return new CachedValueProvider.Result<>(table, dependencies.toArray());
+  }
+
+  @NotNull
+  private static HaxeMemberTable build(@NotNull HaxeClass haxeClass, @NotNull HaxeGenericResolver resolver) {
+    return build(haxeClass, resolver, new THashSet<>());
+  }
+
+  /** Same walk as {@link HaxeResolveUtil#findNamedSubComponents}. */
+  @NotNull
+  private static HaxeMemberTable build(@NotNull HaxeClass rootClass,
+                                       @Nullable HaxeGenericResolver resolver,
+                                       @NotNull Set<Object> dependencies) {
+    final HaxeMemberTable table = new HaxeMemberTable();
+    final LinkedList<HaxeClass> classes = new LinkedList<>();
+    final Set<HaxeClass> processed = new THashSet<>();
+    classes.add(rootClass);
+    while (!classes.isEmpty()) {
+      final HaxeClass haxeClass = classes.pollFirst();
+      final boolean inherited = haxeClass != rootClass;
+      addDependency(dependencies, haxeClass.getContainingFile());
+
+      table.addAll(HaxeResolveUtil.getNamedSubComponents(haxeClass), inherited, dependencies);
+      if (haxeClass.isAbstract()) {
+        table.dependsOnResolver = true;
+        if (null == resolver) {
+          resolver = HaxeGenericResolverUtil.generateResolverFromScopeParents(haxeClass);
+        }
+        table.addAll(HaxeAbstractForwardUtil.findAbstractForwardingNamedSubComponents(haxeClass, resolver), inherited, dependencies);
+      }
+
+      final List<HaxeType> baseTypes = new ArrayList<>();
+      baseTypes.addAll(haxeClass.getHaxeExtendsList());
+      baseTypes.addAll(haxeClass.getHaxeImplementsList());
+      for (HaxeClass baseClass : HaxeResolveUtil.tyrResolveClassesByQName(baseTypes)) {
+        if (processed.add(baseClass)) {
+          classes.add(baseClass);
+        }
+      }
+    }
+    return table;
+  }
+
+  private void addAll(@Nullable List<HaxeNamedComponent> components, boolean inherited, @NotNull Set<Object> dependencies) {
+    if (null == components) return;
+    for (HaxeNamedComponent component : components) {
+      final String name = component.getName();
+      if (null == name || byName.containsKey(name)) {
+        continue;
+      }
+      final Member member = new Member(component, inherited);
+      byName.put(name, member);
+      if (member.type == HaxeComponentType.FIELD) {
+        fields.add(component);
+      } else if (member.type == HaxeComponentType.METHOD) {
+        methods.add(component);
+      }
+      addDependency(dependencies, component.getContainingFile());
+    }
+  }
+
+  private static void addDependency(@NotNull Set<Object> dependencies, @Nullable PsiFile file) {
+    if (null != file) {
+      dependencies.add(file);
+    }
+  }
+}
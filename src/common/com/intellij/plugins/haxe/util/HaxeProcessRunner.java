@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.util;
+
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.plugins.haxe.config.sdk.HaxeSdkAdditionalDataBase;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs an external process without polling it.
+ *
+ * Each output stream gets its own pump, which blocks reading lines and appends them to the
+ * result.  A third task waits for the process to exit and for the pumps to finish, and then
+ * completes the future.  Cancellation (through a {@link ProgressIndicator} or the future) and
+ * timeouts kill the process.
+ */
+public class HaxeProcessRunner {
+  private static final HaxeDebugLogger LOG = HaxeDebugLogger.getLogger();
+
+  /** How often a ProgressIndicator is checked for cancellation. */
+  static final long CANCEL_CHECK_MILLIS = 50;
+
+  public static class Options {
+    boolean mixedOutput = false;
+    File workingDirectory = null;
+    HaxeSdkAdditionalDataBase sdkData = null;
+    long timeoutMillis = 0;
+    int maxOutputLines = Integer.MAX_VALUE;
+    ProgressIndicator indicator = null;
+
+    /** Send stderr to stdout. */
+    public Options mixedOutput(boolean mixed) {
+      mixedOutput = mixed;
+      return this;
+    }
+
+    public Options workingDirectory(@Nullable File dir) {
+      workingDirectory = dir;
+      return this;
+    }
+
+    /** SDK whose environment the process runs in. */
+    public Options sdk(@Nullable HaxeSdkAdditionalDataBase sdk) {
+      sdkData = sdk;
+      return this;
+    }
+
+    /** Kill the process after this long.  0 (the default) for no limit. */
+    public Options timeout(long millis) {
+      timeoutMillis = millis;
+      return this;
+    }
+
+    /** Keep at most this many lines of each stream.  Later lines are read and thrown away. */
+    public Options maxOutputLines(int lines) {
+      maxOutputLines = lines;
+      return this;
+    }
+
+    /** Kill the process when the indicator is canceled. */
+    public Options indicator(@Nullable ProgressIndicator progressIndicator) {
+      indicator = progressIndicator;
+      return this;
+    }
+  }
+
+  private HaxeProcessRunner() {}
+
+  /**
+   * Start the process.  The future completes when the process has exited and all of its output
+   * has been read.  It completes exceptionally with an {@link IOException} if the process can't
+   * be started, a {@link TimeoutException} if it runs too long, or a {@link CancellationException}
+   * if it is canceled.  Canceling the future kills the process.
+   */
+  @NotNull
+  public static CompletableFuture<HaxeProcessUtil.Result> start(@NotNull List<String> command, @NotNull Options options) {
+    final CompletableFuture<HaxeProcessUtil.Result> future = new CompletableFuture<>();
+    final Process process;
+    try {
+      final ProcessBuilder builder = HaxeProcessUtil.createProcessBuilder(command, options.workingDirectory, options.sdkData);
+      if (options.mixedOutput) {
+        builder.redirectErrorStream(true);
+      }
+      process = builder.start();
+    }
+    catch (IOException e) {
+      future.completeExceptionally(e);
+      return future;
+    }
+
+    final HaxeProcessUtil.Result result = new HaxeProcessUtil.Result();
+    final Future<?> stdoutPump = pump(process.getInputStream(), result.stdout, options.maxOutputLines);
+    final Future<?> stderrPump = options.mixedOutput ? null : pump(process.getErrorStream(), result.stderr, options.maxOutputLines);
+
+    AppExecutorUtil.getAppExecutorService().execute(() -> {
+      try {
+        final int exitCode = process.waitFor();
+        stdoutPump.get();
+        if (null != stderrPump) stderrPump.get();
+        result.exitCode = exitCode;
+        future.complete(result);
+      }
+      catch (Exception e) {
+        future.completeExceptionally(e);
+      }
+    });
+
+    final ScheduledFuture<?> timeout = options.timeoutMillis <= 0 ? null :
+      AppExecutorUtil.getAppScheduledExecutorService().schedule(
+        () -> future.completeExceptionally(new TimeoutException("Process timed out after " + options.timeoutMillis + "ms: " + command)),
+        options.timeoutMillis, TimeUnit.MILLISECONDS);
+
+    final ProgressIndicator indicator = options.indicator;
+    final ScheduledFuture<?> cancelCheck = null == indicator ? null :
+      AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(() -> {
+        if (indicator.isCanceled()) {
+          future.cancel(false);
+        }
+      }, CANCEL_CHECK_MILLIS, CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+
+    // However the future finishes, the process and the watchers go away with it.
+    future.whenComplete((r, t) -> {
+      if (null != timeout) timeout.cancel(false);
+      if (null != cancelCheck) cancelCheck.cancel(false);
+      if (process.isAlive()) {
+        LOG.debug("Killing process " + command.get(0));
+        process.destroyForcibly();
+      }
+    });
+    return future;
+  }
+
+  @NotNull
+  private static Future<?> pump(@NotNull InputStream stream, @NotNull List<String> lines, int maxLines) {
+    return AppExecutorUtil.getAppExecutorService().submit(() -> {
+      int dropped = 0;
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+        String line;
+        while (null != (line = reader.readLine())) {
+          if (lines.size() < maxLines) {
+            lines.add(line);
+          } else {
+            dropped++;
+          }
+        }
+      }
+      catch (IOException e) {
+        // The process was killed; keep what we have.
+      }
+      if (dropped > 0) {
+        LOG.debug("Dropped " + dropped + " lines of process output.");
+      }
+    });
+  }
+}
@@ -27,13 +27,16 @@ import org.apache.log4j.Level;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class HaxeProcessUtil {
   private static HaxeDebugLogger LOG = HaxeDebugLogger.getLogger();
@@ -215,13 +218,13 @@ public class HaxeProcessUtil {
     checkEdtAndReadAction(command.toString());
 
     int ret = 255;
-    Process process = null;
     boolean weAllocatedTimeLog = false;
     if (null == timeLog && LOG.isDebugEnabled()) {
       timeLog = HaxeDebugTimeLog.startNew("runProcess", HaxeDebugTimeLog.Since.StartAndPrevious);
       weAllocatedTimeLog = true;
     }
 
+    CompletableFuture<Result> future = null;
     try {
       LOG.info("Starting external process: " + command.toString());
 
@@ -231,35 +234,19 @@ public class HaxeProcessUtil {
 
       File fdir = null != dir ? new File(dir.getPath()) : null;
       LOG.debug("Working directory is " + (null == dir ? "<null>" : dir.getPath()));
-      ProcessBuilder builder = createProcessBuilder(command, fdir, sdkData);
-      if (mixedOutput)
-        builder.redirectErrorStream(true);
 
       if (null != timeLog) {
         timeLog.stamp("Executing " + command.toString());
       }
-      process = builder.start();
-      LOG.debug("External process has started.");
-      InputStreamReader stdoutReader = new InputStreamReader(process.getInputStream());
-      BufferedReader bufferedStdout = new BufferedReader(stdoutReader);
-
-      InputStreamReader stderrReader = mixedOutput ? null : new InputStreamReader(process.getErrorStream());
-      BufferedReader bufferedStderr = mixedOutput ? null : new BufferedReader(stderrReader);
-
-      do {
-        try {
-          // Let our forked process get a little work done.
-          Thread.sleep(2);
-        } catch (InterruptedException e) {
-          ; // Swallow it.
-        }
-        GatherOutput(mixedOutput, stdout, stderr, bufferedStdout, bufferedStderr, interruptible);
-      }
-      while (process.isAlive());
-      ret = process.exitValue();
+      future = HaxeProcessRunner.start(command, new HaxeProcessRunner.Options()
+        .mixedOutput(mixedOutput)
+        .workingDirectory(fdir)
+        .sdk(sdkData));
 
-      // Pick up any uncollected output.
-      GatherOutput(mixedOutput, stdout, stderr, bufferedStdout, bufferedStderr, interruptible);
+      Result result = waitFor(future, interruptible);
+      if (null != stdout) stdout.addAll(result.stdout);
+      if (null != stderr) stderr.addAll(result.stderr);
+      ret = result.exitCode;
 
       String message = "Process exited cleanly: Return value = " + Integer.toString(ret);
       LOG.debug(message);
@@ -282,8 +269,8 @@ public class HaxeProcessUtil {
         timeLog.stamp(message);
       }
     }finally {
-      if (null != process && process.isAlive()) {
-        process.destroyForcibly();
+      if (null != future && !future.isDone()) {
+        future.cancel(false);  // Kills the process.
       }
       if (weAllocatedTimeLog) {
         timeLog.print();
@@ -292,36 +279,36 @@ public class HaxeProcessUtil {
     return ret;
   }
 
-
-  private static void GatherOutput(boolean mixedOutput,
-                                   List<String> stdout,
-                                   List<String> stderr,
-                                   BufferedReader bufferedStdout,
-                                   BufferedReader bufferedStderr,
-                                   boolean interruptible) throws IOException {
-    while (bufferedStdout.ready()) {
-      if (null != stdout) {
-        stdout.add(bufferedStdout.readLine());
+  /**
+   * Wait for a process started by {@link HaxeProcessRunner} to finish.  The wait ends as soon as the
+   * process does; when the wait is interruptible, cancellation is also checked every so often.
+   *
+   * @throws IOException if the process could not be started or its output could not be read.
+   */
+  @NotNull
+  private static Result waitFor(@NotNull CompletableFuture<Result> future, boolean interruptible) throws IOException {
+    while (true) {
+      try {
+        if (!interruptible) {
+          return future.get();
+        }
+        ProgressManager.checkCanceled();
+        return future.get(HaxeProcessRunner.CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS);
       }
-      else {
-        // Goes to the bit bucket.
-        bufferedStdout.readLine();
+      catch (TimeoutException e) {
+        // Not done yet; check for cancellation again.
       }
-    }
-    if (!mixedOutput) {
-      while (bufferedStderr.ready()) {
-        if (null != stderr) {
-          stderr.add(bufferedStderr.readLine());
-        }
-        else {
-          // bit bucket.
-          bufferedStderr.readLine();
-        }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ProcessCanceledException();
+      }
+      catch (CancellationException e) {
+        throw new ProcessCanceledException();
+      }
+      catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        throw cause instanceof IOException ? (IOException)cause : new IOException(cause);
       }
-    }
-
-    if (interruptible) {
-      ProgressManager.checkCanceled();
     }
   }
 
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.util;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Small integer ids for the qualified names of a project's types, as used by {@link HaxeSuperTypeClosure}.
+ *
+ * The table belongs to the project, so it goes away when the project is closed.  Only names
+ * that turn up in a super type closure are added; looking a name up never adds it.
+ */
+public class HaxeQualifiedNameIds {
+
+  private final ConcurrentMap<String, Integer> myIds = new ConcurrentHashMap<>();
+  private final List<String> myNames = new ArrayList<>();  // Guarded by myNames.
+
+  public static HaxeQualifiedNameIds getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, HaxeQualifiedNameIds.class);
+  }
+
+  /**
+   * @return the id of the qualified name, adding it to the table if it isn't there yet.  Ids start at 1.
+   */
+  public int intern(@NotNull String qName) {
+    final Integer id = myIds.get(qName);
+    if (null != id) {
+      return id;
+    }
+    synchronized (myNames) {
+      Integer added = myIds.get(qName);
+      if (null == added) {
+        myNames.add(qName);
+        added = myNames.size();
+        myIds.put(qName, added);
+      }
+      return added;
+    }
+  }
+
+  /**
+   * @return the id of the qualified name, or 0 if no super type closure has mentioned it.
+   */
+  public int getId(@NotNull String qName) {
+    final Integer id = myIds.get(qName);
+    return null == id ? 0 : id;
+  }
+
+  @Nullable
+  public String getName(int id) {
+    synchronized (myNames) {
+      return id > 0 && id <= myNames.size() ? myNames.get(id - 1) : null;
+    }
+  }
+
+  public int size() {
+    return myIds.size();
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A thread static guard against re-entering work on an element that is already in progress.
+ *
+ * Elements are compared by identity, so two different references with the same text are
+ * not mistaken for each other, and nothing is allocated to check whether an element is active.
+ * Use it like this:
+ * <pre>
+ *   if (!guard.enter(element)) return EMPTY;  // Circular.
+ *   try {
+ *     ...
+ *   } finally {
+ *     guard.exit(element);
+ *   }
+ * </pre>
+ */
+public class HaxeRecursionGuard<T> {
+  static final HaxeDebugLogger LOG = HaxeDebugLogger.getLogger();
+  final String debugName;
+
+  private final ThreadLocal<Map<T, Boolean>> active = ThreadLocal.withInitial(IdentityHashMap::new);
+  private final ThreadLocal<int[]> maxDepth = ThreadLocal.withInitial(() -> new int[1]);
+
+  public HaxeRecursionGuard() {
+    this(HaxeDebugUtil.getCallerCanonicalName());
+  }
+
+  public HaxeRecursionGuard(String debugName) {
+    this.debugName = null == debugName ? "Anonymous" : debugName;
+  }
+
+  /**
+   * Mark an element as in progress on this thread.
+   *
+   * @return true if the element was not already in progress; false if this is a recursive visit.
+   */
+  public boolean enter(@NotNull T element) {
+    final Map<T, Boolean> map = active.get();
+    if (null != map.putIfAbsent(element, Boolean.TRUE)) {
+      return false;
+    }
+    final int[] max = maxDepth.get();
+    if (map.size() > max[0]) {
+      max[0] = map.size();
+    }
+    return true;
+  }
+
+  /** Mark an element that was successfully {@link #enter}ed as finished. */
+  public void exit(@NotNull T element) {
+    if (null == active.get().remove(element)) {
+      LOG.debug(HaxeDebugUtil.traceThreadMessage(
+        debugName + " exited an element it was not guarding, from " + HaxeDebugUtil.getCallerCanonicalName()));
+    }
+  }
+
+  public boolean isActive(@NotNull T element) {
+    return active.get().containsKey(element);
+  }
+
+  /** @return how many elements are in progress on this thread. */
+  public int getDepth() {
+    return active.get().size();
+  }
+
+  /** @return the deepest this thread has gone since the last {@link #clear()}. */
+  public int getMaxDepth() {
+    return maxDepth.get()[0];
+  }
+
+  /**
+   * Forget all elements in progress on this thread.  For callers that use the guard as a
+   * "visited" set for one top-level walk, and so never {@link #exit} their elements.
+   */
+  public void clear() {
+    active.get().clear();
+    maxDepth.get()[0] = 0;
+  }
+
+  public String toString() {
+    return debugName + ": depth " + getDepth();
+  }
+}
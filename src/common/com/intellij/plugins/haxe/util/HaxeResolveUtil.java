@@ -29,6 +29,8 @@ import com.intellij.plugins.haxe.HaxeComponentType;
 import com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes;
 import com.intellij.plugins.haxe.lang.psi.*;
 import com.intellij.plugins.haxe.lang.psi.impl.*;
+import com.intellij.plugins.haxe.lang.psi.stubs.HaxeFileStub;
+import com.intellij.plugins.haxe.lang.psi.stubs.HaxeStubUtil;
 import com.intellij.plugins.haxe.model.*;
 import com.intellij.plugins.haxe.model.type.*;
 import com.intellij.psi.*;
@@ -114,6 +116,10 @@ public class HaxeResolveUtil {
   @NotNull
   @NonNls
   public static String getPackageName(@Nullable final PsiFile file) {
+    final HaxeFileStub stub = HaxeStubUtil.getFileStub(file);
+    if (stub != null) {
+      return stub.getPackageName();
+    }
     final HaxePackageStatement packageStatement = PsiTreeUtil.getChildOfType(file, HaxePackageStatement.class);
     return getPackageName(packageStatement);
   }
@@ -199,6 +205,10 @@ public class HaxeResolveUtil {
     if (file == null) {
       return Collections.emptyList();
     }
+    final List<HaxeClass> fromStub = HaxeStubUtil.getClassesFromStub(file);
+    if (fromStub != null) {
+      return fromStub;
+    }
     final HaxeClass[] components = PsiTreeUtil.getChildrenOfType(file, HaxeClass.class);
     if (components == null) {
       return Collections.emptyList();
@@ -210,8 +220,7 @@ public class HaxeResolveUtil {
   public static HaxeClass findComponentDeclaration(@Nullable PsiFile file, @NotNull String componentName) {
     final List<HaxeClass> declarations = findComponentDeclarations(file);
     for (HaxeClass haxeClass : declarations) {
-      final HaxeComponentName identifier = haxeClass.getComponentName();
-      if (identifier != null && componentName.equals(identifier.getText())) {
+      if (componentName.equals(haxeClass.getName())) {
         return haxeClass;
       }
     }
@@ -485,12 +494,7 @@ public class HaxeResolveUtil {
     return HaxeClassResolveResult.EMPTY;
   }
 
-  private static ThreadLocal<Stack<PsiElement>> resolveStack = new ThreadLocal<Stack<PsiElement>>() {
-    @Override
-    protected Stack<PsiElement> initialValue() {
-      return new Stack<PsiElement>();
-    }
-  };
+  private static final HaxeRecursionGuard<PsiElement> resolveStack = new HaxeRecursionGuard<>("HaxeResolveUtil.resolveStack");
 
   private static void traceMessage(String message, int depth) {
     if (LOG.isTraceEnabled()) {
@@ -527,33 +531,33 @@ public class HaxeResolveUtil {
       specialization = new HaxeGenericSpecialization();
     }
 
-    final Stack<PsiElement> stack = resolveStack.get();
-
     if (element == null || element instanceof PsiPackage) {
-      traceMessage("Cannot resolve " + (element == null ? "null value" : "package statement"), stack.size());
+      traceMessage("Cannot resolve " + (element == null ? "null value" : "package statement"), resolveStack.getDepth());
       return HaxeClassResolveResult.EMPTY;
     }
 
-    if (stack.search(element) > 0) {
+    if (!resolveStack.enter(element)) {
       // We're already trying to resolve this element.  Prevent stack overflow.
-      String msg = "Cannot resolve recursive/cyclic definition of " + element.getText()
-                   + ", found at " + HaxeDebugUtil.elementLocation(element);
-      traceMessage(msg, stack.size());
-      // LOG.warn(msg); // Too wordy.
+      if (LOG.isTraceEnabled()) {
+        String msg = "Cannot resolve recursive/cyclic definition of " + element.getText()
+                     + ", found at " + HaxeDebugUtil.elementLocation(element);
+        traceMessage(msg, resolveStack.getDepth());
+        // LOG.warn(msg); // Too wordy.
+      }
       return HaxeClassResolveResult.EMPTY;
     }
 
     try {
-      stack.push(element);
-
       String elementString = null;
       if (LOG.isTraceEnabled()) {
         elementString = element instanceof HaxePsiCompositeElementImpl
                         ? ((HaxePsiCompositeElementImpl)element).toDebugString()
-                        : element.toString();
+                        : element instanceof HaxeStubBasedPsiElementBase
+                          ? ((HaxeStubBasedPsiElementBase)element).toDebugString()
+                          : element.toString();
         elementString = HaxeStringUtil.elideBetween(elementString, '{', '}');
         elementString = HaxeStringUtil.elide(elementString, 80);
-        traceMessage("Resolving: " + elementString, stack.size()-1);
+        traceMessage("Resolving: " + elementString, resolveStack.getDepth()-1);
       }
 
       HaxeClassResolveResult result = getHaxeClassResolveResultInternal(element, specialization);
@@ -561,7 +565,7 @@ public class HaxeResolveUtil {
       if (LOG.isDebugEnabled()) {
         String msg = "Element " + elementString + " resolved as " + result.toString();
         if (LOG.isTraceEnabled()) {
-          traceMessage(msg, stack.size()-1);
+          traceMessage(msg, resolveStack.getDepth()-1);
         } else if (LOG.isDebugEnabled()) {
           LOG.debug(msg);
         }
@@ -569,14 +573,7 @@ public class HaxeResolveUtil {
       return result;
     }
     finally {
-      try {
-        stack.pop();
-      }
-      catch (EmptyStackException e) {
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("Unexpected excessive stack pop. " + e.toString());
-        }
-      }
+      resolveStack.exit(element);
     }
   }
 
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.util;
+
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.plugins.haxe.lang.psi.HaxeClass;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import gnu.trove.THashSet;
+import gnu.trove.TIntArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * The complete set of super types (classes, interfaces, and typedef targets) of a class,
+ * stored as a sorted array of the project's {@link HaxeQualifiedNameIds}.
+ *
+ * The closure is cached on the class and depends on the files of the class and of every type
+ * in the closure, so an edit only invalidates the closures that the edited file contributed to.
+ * Files being added, moved, or deleted can change what a name resolves to, so those invalidate
+ * everything.
+ */
+public class HaxeSuperTypeClosure {
+
+  private HaxeSuperTypeClosure() {}
+
+  /**
+   * @return the sorted ids of the qualified names of all super types of the class.
+   */
+  @NotNull
+  public static int[] getSuperTypeIds(@NotNull HaxeClass haxeClass) {
+    return CachedValuesManager.getManager(haxeClass.getProject())
+      .getCachedValue(haxeClass, () -> computeClosure(haxeClass));
+  }
+
+  /**
+   * @return the qualified names of all super types of the class, in no particular order.
+   */
+  @NotNull
+  public static List<String> getSuperTypeNames(@NotNull HaxeClass haxeClass) {
+    final HaxeQualifiedNameIds table = HaxeQualifiedNameIds.getInstance(haxeClass.getProject());
+    final int[] ids = getSuperTypeIds(haxeClass);
+    final List<String> names = new ArrayList<>(ids.length);
+    for (int id : ids) {
+      names.add(table.getName(id));
+    }
+    return names;
+  }
+
+  /**
+   * @return whether the class extends or implements (directly or not) the named type.
+   */
+  public static boolean isSubTypeOf(@NotNull HaxeClass haxeClass, @Nullable String superQName) {
+    if (null == superQName || superQName.isEmpty()) {
+      return false;
+    }
+    // Computing the closure adds its names to the table, so a name that isn't there by now
+    // can't be in it; looking it up mustn't add it.
+    final int[] ids = getSuperTypeIds(haxeClass);
+    final int id = HaxeQualifiedNameIds.getInstance(haxeClass.getProject()).getId(superQName);
+    return 0 != id && Arrays.binarySearch(ids, id) >= 0;
+  }
+
+  @NotNull
+  private static CachedValueProvider.Result<int[]> computeClosure(@NotNull HaxeClass haxeClass) {
+    final HaxeQualifiedNameIds table = HaxeQualifiedNameIds.getInstance(haxeClass.getProject());
+    final Set<Object> dependencies = new THashSet<>();
+    final Set<PsiClass> visited = new THashSet<>();
+    final TIntArrayList ids = new TIntArrayList();
+    final LinkedList<PsiClass> queue = new LinkedList<>();
+
+    dependencies.add(haxeClass.getContainingFile());
+    visited.add(haxeClass);
+    queue.add(haxeClass);
+    while (!queue.isEmpty()) {
+      final PsiClass current = queue.pollFirst();
+      for (PsiClass superClass : current.getSupers()) {
+        if (!(superClass instanceof HaxeClass) || !visited.add(superClass)) {
+          continue;
+        }
+        final String qName = superClass.getQualifiedName();
+        if (null != qName && !qName.isEmpty()) {
+          ids.add(table.intern(qName));
+        }
+        final PsiFile file = superClass.getContainingFile();
+        if (null != file) {
+          dependencies.add(file);
+        }
+        queue.add(superClass);
+      }
+    }
+    dependencies.add(VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS);
+
+    final int[] closure = ids.toNativeArray();
+    Arrays.sort(closure);
+    return new CachedValueProvider.Result<>(closure, dependencies.toArray());
+  }
+}
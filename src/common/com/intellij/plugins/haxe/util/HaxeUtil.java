@@ -22,44 +22,80 @@ import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.roots.ContentIterator;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.plugins.haxe.HaxeBundle;
-import com.intellij.plugins.haxe.HaxeFileType;
+import com.intellij.plugins.haxe.ide.index.HaxeConditionalIdentifierIndex;
+import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.util.FileContentUtil;
-import com.intellij.util.indexing.FileBasedIndex;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * @author: Fedor.Korotkov
  */
 public class HaxeUtil {
-  public static void reparseProjectFiles(@NotNull final Project project) {
-    Task.Backgroundable task = new Task.Backgroundable(project, HaxeBundle.message("haxe.project.reparsing"), false) {
+  /** How many files to reparse per trip to the EDT, so that the UI stays responsive. */
+  private static final int REPARSE_BATCH_SIZE = 100;
+
+  /**
+   * Reparse only the files whose conditional compilation blocks test one of the given defines.
+   * Everything else lexes the same no matter what they are set to.
+   *
+   * @param changedDefines define names (or "name=value" strings) that were added, removed or changed.
+   */
+  public static void reparseFilesReferencingDefines(@NotNull final Project project,
+                                                    @NotNull final Collection<String> changedDefines) {
+    if (changedDefines.isEmpty()) {
+      return;
+    }
+    Task.Backgroundable task = new Task.Backgroundable(project, HaxeBundle.message("haxe.project.reparsing"), true) {
       public void run(@NotNull ProgressIndicator indicator) {
-        final Collection<VirtualFile> haxeFiles = new ArrayList<VirtualFile>();
-        final VirtualFile baseDir = project.getBaseDir();
-        if (baseDir != null) {
-          FileBasedIndex.getInstance().iterateIndexableFiles(new ContentIterator() {
-            public boolean processFile(VirtualFile file) {
-              if (HaxeFileType.HAXE_FILE_TYPE == file.getFileType()) {
-                haxeFiles.add(file);
-              }
-              return true;
-            }
-          }, project, indicator);
+        indicator.setIndeterminate(true);
+        final Set<VirtualFile> files = DumbService.getInstance(project).runReadActionInSmartMode(
+          () -> HaxeConditionalIdentifierIndex.getFilesReferencing(project, changedDefines, GlobalSearchScope.allScope(project)));
+        if (files.isEmpty()) {
+          return;
+        }
+
+        final List<VirtualFile> toReparse = new ArrayList<>(files);
+        indicator.setIndeterminate(false);
+        for (int start = 0; start < toReparse.size(); start += REPARSE_BATCH_SIZE) {
+          indicator.checkCanceled();
+          indicator.setFraction((double)start / toReparse.size());
+          final List<VirtualFile> batch = toReparse.subList(start, Math.min(start + REPARSE_BATCH_SIZE, toReparse.size()));
+          ApplicationManager.getApplication().invokeAndWait(
+            () -> FileContentUtil.reparseFiles(project, batch, !project.isDefault()),
+            ModalityState.NON_MODAL);
         }
-        ApplicationManager.getApplication().invokeAndWait(new Runnable() {
-          public void run() {
-            FileContentUtil.reparseFiles(project, haxeFiles, !project.isDefault());
-          }
-        }, ModalityState.NON_MODAL);
       }
     };
     ProgressManager.getInstance().run(task);
   }
+
+  /**
+   * @return the names of the defines that differ between the two lists, including those whose
+   *         value changed.
+   */
+  @NotNull
+  public static Set<String> getChangedDefineNames(@NotNull String[] before, @NotNull String[] after) {
+    final Set<String> oldDefines = new TreeSet<>(Arrays.asList(before));
+    final Set<String> newDefines = new TreeSet<>(Arrays.asList(after));
+    final Set<String> changed = new TreeSet<>();
+    for (String define : oldDefines) {
+      if (!newDefines.contains(define)) changed.add(HaxeConditionalIdentifierIndex.normalize(define));
+    }
+    for (String define : newDefines) {
+      if (!oldDefines.contains(define)) changed.add(HaxeConditionalIdentifierIndex.normalize(define));
+    }
+    changed.remove("");
+    return changed;
+  }
 }
@@ -0,0 +1,4 @@
+import com.bar.<caret>
+
+class ImportFromPackage {
+}
\ No newline at end of file
@@ -0,0 +1,4 @@
+import Com.Bar.<caret>
+
+class ImportFromPackageIgnoringCase {
+}
\ No newline at end of file
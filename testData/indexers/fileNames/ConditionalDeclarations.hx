@@ -0,0 +1,19 @@
+package foo;
+
+#if never_defined_for_this_test
+class OnlyWhenDefined {}
+#else
+class ConditionalDeclarations {}
+#end
+
+#if !never_defined_for_this_test
+class WhenNotDefined {
+#if never_defined_for_this_test
+  }
+  class Unbalanced {
+#end
+}
+#end
+
+// class InAComment {}
+/* typedef AlsoInAComment = Int; */
@@ -0,0 +1,31 @@
+package foo.bar;
+
+import haxe.ds.StringMap;
+
+@:final
+class ModuleWithHelpers {
+  var map:StringMap<String>;
+
+  function new() {
+    var s = 'class NotAClass ${ { inner: 1 } }';
+  }
+}
+
+private class Helper implements IHelper {}
+
+interface IHelper {
+  function help():Void;
+}
+
+enum abstract Kind(Int) {
+  var First = 1;
+}
+
+abstract Wrapper(String) from String {}
+
+typedef Point = { x:Int, y:Int };
+
+enum Color {
+  Red;
+  Rgb(r:Int, g:Int, b:Int);
+}
@@ -0,0 +1,19 @@
+package ;
+
+class Widget {
+  public static var instances:Int;
+  var label:String;
+
+  function new() {}
+  public function draw() {}
+  static function create() {}
+}
+
+interface Drawable {
+  function paint():Void;
+}
+
+enum Shade {
+  Light;
+  Dark(level:Int);
+}
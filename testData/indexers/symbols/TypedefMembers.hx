@@ -0,0 +1,21 @@
+package ;
+
+typedef Point = {
+  x:Int,
+  ?y:Int
+}
+
+typedef Shape = {
+  var area:Float;
+  function outline():Array<Point>;
+}
+
+typedef Point3 = {> Point,
+  z:Int
+}
+
+class Holder {
+  var nested:{ notIndexedField:Int };
+
+  function take(arg:{ notIndexedArg:String }) {}
+}
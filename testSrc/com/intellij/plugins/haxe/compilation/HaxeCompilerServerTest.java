@@ -0,0 +1,226 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.compilation;
+
+import com.intellij.plugins.haxe.util.HaxeCompilerServerClient;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class HaxeCompilerServerTest extends TestCase {
+
+  private static final List<String> ARGS = Collections.singletonList("--display");
+
+  private int myPort;
+  private boolean myCanStart = true;
+  private boolean myHangs = false;
+  private long myNow = 1000;
+  private final List<FakeServerProcess> myProcesses = new ArrayList<>();
+  private HaxeCompilerServer myServer;
+
+  /** Stands in for "haxe --wait": listens on the port and answers, or never answers. */
+  private static class FakeServerProcess extends Process {
+    final ServerSocket socket;
+    final List<Socket> unanswered = Collections.synchronizedList(new ArrayList<>());
+    final Thread thread;
+    volatile boolean alive = true;
+
+    FakeServerProcess(int port, final boolean hangs) throws IOException {
+      socket = new ServerSocket();
+      socket.setReuseAddress(true);
+      socket.bind(new InetSocketAddress(InetAddress.getByName(HaxeCompilerServerClient.LOCALHOST), port));
+      thread = new Thread(() -> {
+        while (!socket.isClosed()) {
+          try {
+            Socket client = socket.accept();
+            InputStream in = client.getInputStream();
+            int b;
+            while ((b = in.read()) > 0) {
+              // Skip the request.
+            }
+            if (b < 0 || hangs) {
+              // Health checks hang up without a request.
+              unanswered.add(client);
+              continue;
+            }
+            OutputStream out = client.getOutputStream();
+            out.write("<type>Int</type>\n".getBytes(StandardCharsets.UTF_8));
+            client.close();
+          }
+          catch (IOException e) {
+            return;
+          }
+        }
+      });
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+      return new ByteArrayOutputStream();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+      return new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+      thread.join();
+      return 0;
+    }
+
+    @Override
+    public int exitValue() {
+      if (alive) {
+        throw new IllegalThreadStateException();
+      }
+      return 0;
+    }
+
+    @Override
+    public void destroy() {
+      alive = false;
+      try {
+        socket.close();
+        synchronized (unanswered) {
+          for (Socket client : unanswered) {
+            client.close();
+          }
+        }
+      }
+      catch (IOException e) {
+        // Going away anyway.
+      }
+    }
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    try (ServerSocket unused = new ServerSocket(0)) {
+      myPort = unused.getLocalPort();
+    }
+    myServer = new HaxeCompilerServer("/no/sdk", null, new HaxeCompilerServerClient(myPort, 200)) {
+      @Override
+      Process startProcess() throws IOException {
+        if (!myCanStart) {
+          throw new IOException("No compiler");
+        }
+        FakeServerProcess process = new FakeServerProcess(myPort, myHangs);
+        myProcesses.add(process);
+        return process;
+      }
+
+      @Override
+      long currentTimeMillis() {
+        return myNow;
+      }
+    };
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      myServer.stop();
+      for (FakeServerProcess process : myProcesses) {
+        process.destroy();
+      }
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  private HaxeCompilerServerClient.Result run(int timeoutMillis, Runnable checkCanceled) {
+    return myServer.run(ARGS, null, timeoutMillis, checkCanceled);
+  }
+
+  public void testStartsOnDemandAndStaysUp() {
+    assertEquals(Collections.singletonList("<type>Int</type>"), run(5000, null).stderr);
+    assertEquals(Collections.singletonList("<type>Int</type>"), run(5000, null).stderr);
+    assertEquals(1, myProcesses.size());
+  }
+
+  public void testRestartsAServerThatDied() {
+    assertNotNull(run(5000, null));
+    myProcesses.get(0).destroy();
+    HaxeCompilerServerClient.Result result = run(5000, null);
+    assertNotNull(result);
+    assertEquals(0, result.exitCode);
+    assertEquals(2, myProcesses.size());
+  }
+
+  public void testSlowCompilationKeepsTheServer() {
+    myHangs = true;
+    HaxeCompilerServerClient.Result result = run(3 * HaxeCompilerServerClient.POLL_MILLIS, null);
+    assertNotNull("A timeout must not fall back to a direct compile", result);
+    assertEquals(1, result.exitCode);
+    assertEquals(1, myProcesses.size());
+    assertTrue(myProcesses.get(0).isAlive());
+  }
+
+  public void testCanceledWhileWaiting() {
+    myHangs = true;
+    final int[] checks = {0};
+    try {
+      run(0, () -> {
+        if (++checks[0] > 2) {
+          throw new IllegalStateException("canceled");
+        }
+      });
+      fail("Expected the request to be canceled");
+    }
+    catch (IllegalStateException expected) {
+    }
+    assertTrue(myProcesses.get(0).isAlive());
+  }
+
+  public void testBacksOffAfterRepeatedFailures() {
+    myCanStart = false;
+    for (int i = 0; i < HaxeCompilerServer.MAX_FAILURES; i++) {
+      assertNull("Callers should fall back to a direct compile", run(5000, null));
+    }
+
+    // Backing off: no attempt to start, even though it would work now.
+    myCanStart = true;
+    assertNull(run(5000, null));
+    assertTrue(myProcesses.isEmpty());
+
+    myNow += HaxeCompilerServer.FAILURE_BACKOFF_MILLIS;
+    assertNotNull(run(5000, null));
+    assertEquals(1, myProcesses.size());
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.compiler;
+
+import com.google.common.base.Joiner;
+import com.intellij.ide.highlighter.XmlFileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.plugins.haxe.compilation.HaxeCompletionOutputParser;
+import com.intellij.plugins.haxe.ide.completion.HaxeCompilerCompletionItem;
+import com.intellij.psi.PsiFileFactory;
+import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.psi.xml.XmlDocument;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import com.intellij.testFramework.EdtTestUtil;
+import com.intellij.testFramework.fixtures.IdeaProjectTestFixture;
+import com.intellij.testFramework.fixtures.IdeaTestFixtureFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares {@link HaxeCompletionOutputParser} with the way HaxeCompilerServices
+ * used to read "--display" output: join it into one string, build an XML PSI
+ * file from that, and walk the tags.
+ *
+ * Run it with the test class path:
+ * <pre>
+ *   java ... com.intellij.plugins.haxe.compiler.HaxeCompletionOutputParserBenchmark [display-output.txt ...]
+ * </pre>
+ * An output file is what the compiler wrote to stderr for one "--display"
+ * request, e.g. captured with {@code haxe ... --display Main.hx@123 2> out.txt}.
+ * Without any files, a Std-sized synthetic result (5000 items with multi-line
+ * docs) is used.  The old path needs PSI, so this starts a light test project.
+ *
+ * This is a plain warm-up-then-measure loop rather than a JMH benchmark, since
+ * JMH isn't part of the build.  Use a quiet machine, and compare runs, not
+ * absolute numbers.
+ */
+public class HaxeCompletionOutputParserBenchmark {
+
+  private static final int WARMUP_ROUNDS = 20;
+  private static final int MEASURED_ROUNDS = 20;
+
+  public static void main(final String[] args) throws Throwable {
+    final Map<String, List<String>> outputs = new LinkedHashMap<>();
+    if (args.length == 0) {
+      outputs.put("synthetic", syntheticOutput(5000, 10));
+    }
+    for (String arg : args) {
+      outputs.put(arg, Files.readAllLines(Paths.get(arg), StandardCharsets.UTF_8));
+    }
+
+    final IdeaProjectTestFixture fixture =
+      IdeaTestFixtureFactory.getFixtureFactory().createLightFixtureBuilder().getFixture();
+    EdtTestUtil.runInEdtAndWait(() -> {
+      fixture.setUp();
+      try {
+        for (Map.Entry<String, List<String>> output : outputs.entrySet()) {
+          run(fixture.getProject(), output.getKey(), output.getValue());
+        }
+      }
+      finally {
+        fixture.tearDown();
+      }
+    });
+    System.exit(0);
+  }
+
+  private static void run(final Project project, String name, final List<String> output) {
+    int items = HaxeCompletionOutputParser.parse(output, HaxeCompletionOutputParser.NO_LIMIT).size();
+    int oldItems = parseWithPsi(project, output).size();
+    System.out.println(name + ": " + output.size() + " lines, " + items + " items (" + oldItems + " the old way)");
+
+    report("  XML PSI", () -> parseWithPsi(project, output));
+    report("  StAX   ", () -> HaxeCompletionOutputParser.parse(output, HaxeCompletionOutputParser.NO_LIMIT));
+  }
+
+  private static void report(String name, Runnable round) {
+    for (int i = 0; i < WARMUP_ROUNDS; ++i) {
+      round.run();
+    }
+    long best = Long.MAX_VALUE;
+    long total = 0;
+    for (int i = 0; i < MEASURED_ROUNDS; ++i) {
+      long start = System.nanoTime();
+      round.run();
+      long elapsed = System.nanoTime() - start;
+      best = Math.min(best, elapsed);
+      total += elapsed;
+    }
+    System.out.printf("%s: %8.2f ms/parse (best %8.2f)%n", name, total / 1e6 / MEASURED_ROUNDS, best / 1e6);
+  }
+
+  /** A {@code <list>} result like the compiler gives for Std-sized types. */
+  static List<String> syntheticOutput(int items, int docLines) {
+    List<String> output = new ArrayList<>();
+    output.add("<list>");
+    for (int i = 0; i < items; i++) {
+      output.add("<i n=\"member" + i + "\" k=\"method\"><t>value : T -&gt; ?fallback : Null&lt;T&gt; -&gt; Array&lt;T&gt;</t><d>");
+      for (int j = 0; j < docLines; j++) {
+        output.add("\tLine " + j + " of the documentation for member " + i + ", with &lt;code&gt; and such.");
+      }
+      output.add("</d></i>");
+    }
+    output.add("</list>");
+    return output;
+  }
+
+  /** HaxeCompilerServices.parseCompletionFromXml, as it was before HaxeCompletionOutputParser. */
+  private static List<HaxeCompilerCompletionItem> parseWithPsi(Project project, List<String> stderr) {
+    List<HaxeCompilerCompletionItem> completions = new ArrayList<HaxeCompilerCompletionItem>();
+    String s = Joiner.on("").join(stderr);
+    if (s.isEmpty()) {
+      return completions;
+    }
+
+    XmlFile xmlFile = (XmlFile)PsiFileFactory.getInstance(project).createFileFromText("data.xml", XmlFileType.INSTANCE, s);
+    XmlDocument document = xmlFile.getDocument();
+    XmlTag rootTag = null != document ? document.getRootTag() : null;
+    if (null == rootTag) {
+      return completions;
+    }
+
+    if ("list".equals(rootTag.getName())) {
+      for (XmlTag xmlTag : rootTag.findSubTags("i")) {
+        XmlAttribute nAttr = xmlTag.getAttribute("n");
+        XmlAttribute kAttr = xmlTag.getAttribute("k");
+        HaxeCompilerCompletionItem item = new HaxeCompilerCompletionItem(null == nAttr ? null : nAttr.getValue());
+        item.setMemberType(null == kAttr ? null : kAttr.getValue());
+        XmlTag typeTag = xmlTag.findFirstSubTag("t");
+        XmlTag docTag = xmlTag.findFirstSubTag("d");
+        if (typeTag != null) {
+          HaxeCompletionOutputParser.parseFunctionParams(getFormattedText(typeTag.getValue().getText()), item);
+        }
+        if (docTag != null) {
+          item.setDocumentation(getFormattedText(docTag.getValue().getText()));
+        }
+        completions.add(item);
+      }
+    }
+    else if ("type".equals(rootTag.getName())) {
+      HaxeCompilerCompletionItem item = new HaxeCompilerCompletionItem("Type");
+      HaxeCompletionOutputParser.parseFunctionParams(getFormattedText(rootTag.getValue().getTrimmedText()), item);
+      completions.add(item);
+    }
+    return completions;
+  }
+
+  private static String getFormattedText(String text) {
+    if (null == text) {
+      return null;
+    }
+    return text.replaceAll("\t", "")
+      .replaceAll("\n", "")
+      .replaceAll("&lt;", "<")
+      .replaceAll("&gt;", ">")
+      .trim();
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.compiler;
+
+import com.intellij.plugins.haxe.compilation.HaxeCompletionOutputParser;
+import com.intellij.plugins.haxe.ide.completion.HaxeCompilerCompletionItem;
+import com.intellij.testFramework.UsefulTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class HaxeCompletionOutputParserTest extends UsefulTestCase {
+
+  private static HaxeCompilerCompletionItem item(String name, String kind, List<String> params, String ret, String doc) {
+    HaxeCompilerCompletionItem item = new HaxeCompilerCompletionItem(name);
+    item.setMemberType(kind);
+    item.setParameters(params);
+    item.setReturnType(ret);
+    item.setDocumentation(doc);
+    return item;
+  }
+
+  private static List<HaxeCompilerCompletionItem> parse(String... lines) {
+    return HaxeCompletionOutputParser.parse(Arrays.asList(lines), HaxeCompletionOutputParser.NO_LIMIT);
+  }
+
+  public void testFieldList() {
+    List<HaxeCompilerCompletionItem> items = parse(
+      "<list>",
+      "<i n=\"length\" k=\"var\"><t>Int</t><d></d></i>",
+      "<i n=\"charAt\" k=\"method\"><t>index : Int -&gt; String</t><d>",
+      "\tReturns the character at the given position.",
+      "</d></i>",
+      "</list>");
+    assertEquals(2, items.size());
+    assertEquals(item("length", "var", new ArrayList<>(), "Int", ""), items.get(0));
+    assertEquals(item("charAt", "method", Arrays.asList("index:Int"), "String", "Returns the character at the given position."),
+                 items.get(1));
+  }
+
+  public void testTypeResult() {
+    List<HaxeCompilerCompletionItem> items = parse("<type>", "a : Int -&gt; b : Map&lt;String, Int&gt; -&gt; Void", "</type>");
+    assertEquals(1, items.size());
+    assertEquals(item("Type", null, Arrays.asList("a:Int", "b:Map<String, Int>"), "Void", null), items.get(0));
+  }
+
+  public void testSkipsLeadingOutput() {
+    List<HaxeCompilerCompletionItem> items = parse("src/Main.hx:3: Warning : Something", "<list>", "<i n=\"x\" k=\"var\"><t>Float</t></i>", "</list>");
+    assertEquals(1, items.size());
+    assertEquals("x", items.get(0).toString());
+  }
+
+  public void testLimit() {
+    List<String> output = new ArrayList<>();
+    output.add("<list>");
+    for (int i = 0; i < 100; i++) {
+      output.add("<i n=\"f" + i + "\" k=\"var\"><t>Int</t></i>");
+    }
+    output.add("</list>");
+    assertEquals(10, HaxeCompletionOutputParser.parse(output, 10).size());
+  }
+
+  public void testUnknownAndBrokenOutput() {
+    assertEmpty(parse("<il><i k=\"local\">x</i></il>"));
+    assertEmpty(parse("<list><i n=\"x\""));
+    assertEmpty(parse("Error: no completion point"));
+    assertEmpty(parse());
+  }
+
+  /** Many lines go through the reader; no item may lose or pick up text from its neighbours. */
+  public void testLargeOutputKeepsEveryItemIntact() {
+    List<HaxeCompilerCompletionItem> items =
+      HaxeCompletionOutputParser.parse(HaxeCompletionOutputParserBenchmark.syntheticOutput(5000, 10), HaxeCompletionOutputParser.NO_LIMIT);
+    assertEquals(5000, items.size());
+    for (int i = 0; i < items.size(); i++) {
+      StringBuilder doc = new StringBuilder();
+      for (int j = 0; j < 10; j++) {
+        doc.append("Line ").append(j).append(" of the documentation for member ").append(i).append(", with <code> and such.");
+      }
+      assertEquals(item("member" + i, "method", Arrays.asList("value:T", "?fallback:Null<T>"), "Array<T>", doc.toString()),
+                   items.get(i));
+    }
+  }
+}
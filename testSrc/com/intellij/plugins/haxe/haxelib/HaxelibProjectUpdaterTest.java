@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.haxelib;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.plugins.haxe.HaxeCodeInsightFixtureTestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+public class HaxelibProjectUpdaterTest extends HaxeCodeInsightFixtureTestCase {
+
+  private final HaxelibProjectUpdater myUpdater = HaxelibProjectUpdater.INSTANCE;
+  private HaxelibProjectUpdater.ProjectMap myProjects;
+  private final List<HaxelibProjectUpdater.ProjectTracker> myRunning = new ArrayList<>();
+
+  @Override
+  protected String getBasePath() {
+    return "/haxelib/";
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myProjects = myUpdater.new ProjectMap();
+  }
+
+  /** A queue whose updates start at once and run until the test finishes them. */
+  private HaxelibProjectUpdater.ProjectUpdateQueue newQueue(int slots) {
+    return myUpdater.new ProjectUpdateQueue(myProjects, slots) {
+      @Override
+      void startUpdate(@NotNull HaxelibProjectUpdater.ProjectTracker tracker) {
+        doUpdateWork(tracker);
+      }
+
+      @Override
+      void doUpdateWork(@NotNull HaxelibProjectUpdater.ProjectTracker tracker) {
+        myRunning.add(tracker);
+      }
+    };
+  }
+
+  private HaxelibProjectUpdater.ProjectTracker newTracker() {
+    HaxelibProjectUpdater.ProjectTracker tracker = myUpdater.new ProjectTracker(getProject());
+    tracker.setDirty(true);
+    return tracker;
+  }
+
+  public void testUpdatesAreBoundedBySlots() {
+    HaxelibProjectUpdater.ProjectUpdateQueue queue = newQueue(2);
+    HaxelibProjectUpdater.ProjectTracker first = newTracker();
+    HaxelibProjectUpdater.ProjectTracker second = newTracker();
+    HaxelibProjectUpdater.ProjectTracker third = newTracker();
+
+    assertTrue(queue.add(first));
+    assertTrue(queue.add(second));
+    assertTrue(queue.add(third));
+    assertEquals(Arrays.asList(first, second), myRunning);
+    assertFalse(queue.isEmpty());
+    assertTrue(queue.isUpdating(first));
+    assertFalse(queue.isUpdating(third));
+
+    // A free slot starts the next one in line.
+    queue.finishUpdate(second);
+    assertEquals(Arrays.asList(first, second, third), myRunning);
+    assertTrue(queue.isEmpty());
+    assertFalse(second.isDirty());
+    assertFalse(second.isUpdating());
+    assertTrue(third.isUpdating());
+  }
+
+  public void testQueuedProjectIsCoalesced() {
+    HaxelibProjectUpdater.ProjectUpdateQueue queue = newQueue(1);
+    HaxelibProjectUpdater.ProjectTracker running = newTracker();
+    HaxelibProjectUpdater.ProjectTracker waiting = newTracker();
+    queue.add(running);
+    assertTrue(queue.add(waiting));
+    assertFalse(queue.add(waiting));
+
+    queue.finishUpdate(running);
+    queue.finishUpdate(waiting);
+    assertEquals(Arrays.asList(running, waiting), myRunning);
+    assertTrue(queue.isEmpty());
+  }
+
+  public void testChangedWhileUpdatingRunsAgain() {
+    HaxelibProjectUpdater.ProjectUpdateQueue queue = newQueue(1);
+    HaxelibProjectUpdater.ProjectTracker tracker = myProjects.add(getProject());
+    tracker.setDirty(true);
+    queue.add(tracker);
+
+    // Changed twice while updating: one more run, not two.
+    assertFalse(queue.add(tracker));
+    assertFalse(queue.add(tracker));
+    assertTrue(tracker.myNeedsRerun);
+
+    queue.finishUpdate(tracker);
+    assertEquals(Arrays.asList(tracker, tracker), myRunning);
+    assertTrue(tracker.isDirty());
+    assertFalse(tracker.myNeedsRerun);
+
+    queue.finishUpdate(tracker);
+    assertEquals(2, myRunning.size());
+    assertFalse(tracker.isDirty());
+  }
+
+  public void testClosedProjectIsNotRunAgain() {
+    HaxelibProjectUpdater.ProjectUpdateQueue queue = newQueue(1);
+    HaxelibProjectUpdater.ProjectTracker tracker = myProjects.add(getProject());
+    tracker.setDirty(true);
+    queue.add(tracker);
+    assertFalse(queue.add(tracker));
+
+    // Closed while updating: the tracker isn't the project's any more.
+    assertTrue(myProjects.remove(getProject()));
+    assertFalse(myProjects.isTracked(tracker));
+    queue.finishUpdate(tracker);
+    assertEquals(Collections.singletonList(tracker), myRunning);
+    assertTrue(queue.isEmpty());
+    assertFalse(tracker.isUpdating());
+  }
+
+  public void testRemovedFromQueueIsNotRun() {
+    HaxelibProjectUpdater.ProjectUpdateQueue queue = newQueue(1);
+    HaxelibProjectUpdater.ProjectTracker running = newTracker();
+    HaxelibProjectUpdater.ProjectTracker waiting = newTracker();
+    queue.add(running);
+    queue.add(waiting);
+
+    assertTrue(queue.remove(waiting));
+    assertFalse(queue.remove(waiting));
+    queue.finishUpdate(running);
+    assertEquals(Collections.singletonList(running), myRunning);
+    assertTrue(waiting.isDirty());
+  }
+
+  public void testNormalizesRootUrls() {
+    assertEquals("file:///work/lib/src", HaxelibProjectUpdater.normalizeRootUrl("file:///work/lib/src"));
+    assertEquals("file:///work/lib/src", HaxelibProjectUpdater.normalizeRootUrl("file:///work/lib/src/"));
+    assertEquals("file:///work/lib/src", HaxelibProjectUpdater.normalizeRootUrl("/work/lib/src/"));
+    assertEquals("file:///work/lib/lib.jar", HaxelibProjectUpdater.normalizeRootUrl("jar:///work/lib/lib.jar!/"));
+  }
+
+  public void testClasspathUrlsMatchTheRootsThatWouldBeAdded() throws Exception {
+    VirtualFile src = myFixture.getTempDirFixture().findOrCreateDir("mylib/src");
+    VirtualFile extra = myFixture.getTempDirFixture().findOrCreateDir("mylib/extra");
+    HaxeClasspath classpath = new HaxeClasspath();
+    // Written the ways that haxelib and the project files write them.
+    classpath.add(new HaxeClasspathEntry("src", src.getUrl() + "/"));
+    classpath.add(new HaxeClasspathEntry("extra", extra.getPath()));
+    // Never added as a root, so it mustn't make the library look stale.
+    classpath.add(new HaxeClasspathEntry("missing", src.getPath() + "/../no-such-dir"));
+
+    // What addClasspathRoots() would have left in the library.
+    assertEquals(new HashSet<>(Arrays.asList(src.getUrl(), extra.getUrl())),
+                 HaxelibProjectUpdater.getClasspathUrls(classpath));
+    assertTrue(HaxelibProjectUpdater.getClasspathUrls((HaxeClasspath)null).isEmpty());
+  }
+}
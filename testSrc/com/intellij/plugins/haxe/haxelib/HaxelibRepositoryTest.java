@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.haxelib;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.UsefulTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+public class HaxelibRepositoryTest extends UsefulTestCase {
+
+  private File myRepository;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myRepository = FileUtil.createTempDirectory("haxelib", "repo");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myRepository);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  private void createLibrary(String dirName, String marker, String content) throws IOException {
+    File dir = new File(myRepository, dirName);
+    assertTrue(dir.mkdirs());
+    if (null != marker) {
+      FileUtil.writeToFile(new File(dir, marker), content);
+    }
+  }
+
+  public void testListsLibrariesWithCurrentOrDev() throws IOException {
+    createLibrary("lime", ".current", "7.8.0");
+    createLibrary("hxcpp", ".dev", "/work/hxcpp");
+    createLibrary("not-a-library", null, null);
+    createLibrary(".hidden", ".current", "1.0.0");
+    FileUtil.writeToFile(new File(myRepository, "stray.txt"), "");
+
+    assertEquals(Arrays.asList("hxcpp", "lime"), HaxelibUtil.listRepositoryLibraries(myRepository));
+  }
+
+  public void testCommasBecomeDots() throws IOException {
+    createLibrary("haxe,ui", ".current", "1.0.0");
+
+    List<String> names = HaxelibUtil.listRepositoryLibraries(myRepository);
+    assertEquals(Arrays.asList("haxe.ui"), names);
+  }
+
+  public void testLibraryStampFollowsCurrentVersion() throws IOException {
+    createLibrary("lime", ".current", "7.8.0");
+    File current = new File(myRepository, "lime/.current");
+    long before = HaxelibPersistentCache.computeLibraryStamp(myRepository.getPath(), "lime", null);
+
+    FileUtil.writeToFile(current, "7.9.0");
+    assertTrue(current.setLastModified(current.lastModified() + 10000));
+    long after = HaxelibPersistentCache.computeLibraryStamp(myRepository.getPath(), "lime", null);
+
+    assertTrue(before != after);
+  }
+
+  public void testMissingRepository() {
+    assertNull(HaxelibUtil.listRepositoryLibraries(new File(myRepository, "missing")));
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.ide;
+
+import com.intellij.plugins.haxe.HaxeCodeInsightFixtureTestCase;
+import com.intellij.plugins.haxe.ide.index.HaxeComponentFileNameIndex;
+import com.intellij.psi.PsiFile;
+
+import java.util.List;
+
+/**
+ * Checks the lexer-based file name indexer against the PSI-based one.
+ */
+public class HaxeComponentFileNameIndexTest extends HaxeCodeInsightFixtureTestCase {
+  @Override
+  protected String getBasePath() {
+    return "/indexers/fileNames/";
+  }
+
+  protected void doTest() throws Throwable {
+    final PsiFile file = myFixture.configureByFile(getTestName(false) + ".hx");
+    final List<String> differences = HaxeComponentFileNameIndex.verifyAgainstPsi(file);
+    assertTrue("Lexer and PSI indexers disagree: " + differences, differences.isEmpty());
+  }
+
+  public void testModuleWithHelpers() throws Throwable {
+    doTest();
+  }
+
+  public void testConditionalDeclarations() throws Throwable {
+    doTest();
+  }
+}
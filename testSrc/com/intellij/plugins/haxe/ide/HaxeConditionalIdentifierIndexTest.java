@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.ide;
+
+import com.intellij.plugins.haxe.ide.index.HaxeConditionalIdentifierIndex;
+import com.intellij.plugins.haxe.util.HaxeUtil;
+import com.intellij.testFramework.UsefulTestCase;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class HaxeConditionalIdentifierIndexTest extends UsefulTestCase {
+
+  private static void assertScan(String text, String... expected) {
+    final Set<String> found = new TreeSet<>(HaxeConditionalIdentifierIndex.scan(text));
+    assertEquals(new TreeSet<>(Arrays.asList(expected)), found);
+  }
+
+  public void testNoConditions() {
+    assertScan("class Foo { var debug:Bool = true; }");
+  }
+
+  public void testSimpleCondition() {
+    assertScan("class Foo {\n#if debug\nvar x:Int;\n#end\n}", "debug");
+  }
+
+  public void testCompoundConditionsAndInactiveBranches() {
+    assertScan("#if (js && !nodejs)\nclass A {}\n#elseif (cpp || flash)\nclass B {}\n#else\nclass C {}\n#end",
+               "js", "nodejs", "cpp", "flash");
+  }
+
+  public void testKeywordsAreNotIdentifiers() {
+    assertScan("#if true\nclass A {}\n#elseif false\nclass B {}\n#end");
+  }
+
+  public void testNormalize() {
+    assertEquals("my_flag", HaxeConditionalIdentifierIndex.normalize("my-flag"));
+    assertEquals("mylib_version", HaxeConditionalIdentifierIndex.normalize("mylib-version=2.4"));
+  }
+
+  public void testChangedDefineNames() {
+    final Set<String> changed = HaxeUtil.getChangedDefineNames(new String[]{"debug", "ver=1", "keep"},
+                                                               new String[]{"keep", "ver=2", "release"});
+    assertEquals(new TreeSet<>(Arrays.asList("debug", "ver", "release")), changed);
+  }
+}
@@ -20,7 +20,10 @@ package com.intellij.plugins.haxe.ide;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.plugins.haxe.HaxeCodeInsightFixtureTestCase;
 import com.intellij.plugins.haxe.ide.index.HaxeSymbolIndex;
+import com.intellij.plugins.haxe.lang.psi.HaxeComponentName;
+import com.intellij.plugins.haxe.lang.psi.HaxeTypedefDeclaration;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
 
 import java.util.*;
 
@@ -65,4 +68,24 @@ public class HaxeSymbolContributorTest extends HaxeCodeInsightFixtureTestCase {
   public void testBasicSymbols() throws Throwable {
     doTest();
   }
+
+  public void testClassMembers() throws Throwable {
+    doTest();
+  }
+
+  public void testTypedefMembers() throws Throwable {
+    doTest();
+
+    // Only a typedef's own structure is a declaration; structures used as types are not.
+    final List<String> symbols = Arrays.asList(HaxeSymbolIndex.getAllSymbols(GlobalSearchScope.projectScope(getProject())));
+    assertFalse(symbols.contains("notIndexedField"));
+    assertFalse(symbols.contains("notIndexedArg"));
+
+    final List<HaxeComponentName> items =
+      HaxeSymbolIndex.getItemsByName("outline", getProject(), GlobalSearchScope.projectScope(getProject()));
+    assertEquals(1, items.size());
+    final HaxeTypedefDeclaration owner = PsiTreeUtil.getParentOfType(items.get(0), HaxeTypedefDeclaration.class);
+    assertNotNull(owner);
+    assertEquals("Shape", owner.getName());
+  }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.ide.metrics;
+
+import junit.framework.TestCase;
+
+public class HaxeMetricsHistogramTest extends TestCase {
+
+  public void testPercentiles() {
+    HaxeMetricsHistogram histogram = new HaxeMetricsHistogram();
+    for (int i = 0; i < 99; i++) {
+      histogram.record(3_000);        // 3us -> [2, 4) bucket.
+    }
+    histogram.record(1_000_000);      // 1ms -> [512, 1024) bucket.
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(4, histogram.getPercentileMicros(50));
+    assertEquals(4, histogram.getPercentileMicros(99));
+    assertEquals(1024, histogram.getPercentileMicros(100));
+    assertEquals(1000, histogram.getMaxMicros());
+    assertEquals(12, histogram.getMeanMicros());
+  }
+
+  public void testReset() {
+    HaxeMetricsHistogram histogram = new HaxeMetricsHistogram();
+    histogram.record(500);
+    histogram.reset();
+
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getPercentileMicros(50));
+    assertEquals(0, histogram.getMaxMicros());
+  }
+}
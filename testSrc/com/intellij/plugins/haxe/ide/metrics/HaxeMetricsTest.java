@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.ide.metrics;
+
+import com.intellij.openapi.util.Disposer;
+import com.intellij.plugins.haxe.HaxeCodeInsightFixtureTestCase;
+
+public class HaxeMetricsTest extends HaxeCodeInsightFixtureTestCase {
+
+  @Override
+  protected String getBasePath() {
+    return "/metrics/";
+  }
+
+  public void testCollectionIsPerProject() {
+    final HaxeMetrics metrics = HaxeMetrics.getInstance(getProject());
+    final HaxeMetrics other = new HaxeMetrics(getProject());
+    try {
+      metrics.setEnabled(false);
+      other.setEnabled(true);
+      assertFalse(metrics.isEnabled());
+
+      // Another project collecting doesn't make this one collect.
+      HaxeMetrics.count(getProject(), HaxeMetrics.Counter.RESOLVE_REQUESTS);
+      HaxeMetrics.stop(getProject(), HaxeMetrics.Operation.RESOLVE, HaxeMetrics.start());
+      assertEquals(0, metrics.getCount(HaxeMetrics.Counter.RESOLVE_REQUESTS));
+      assertEquals(0, metrics.getHistogram(HaxeMetrics.Operation.RESOLVE).getCount());
+
+      metrics.setEnabled(true);
+      HaxeMetrics.count(getProject(), HaxeMetrics.Counter.RESOLVE_REQUESTS);
+      HaxeMetrics.stop(getProject(), HaxeMetrics.Operation.RESOLVE, HaxeMetrics.start());
+      assertEquals(1, metrics.getCount(HaxeMetrics.Counter.RESOLVE_REQUESTS));
+      assertEquals(1, metrics.getHistogram(HaxeMetrics.Operation.RESOLVE).getCount());
+
+      // Turning it off here leaves the other one on.
+      metrics.setEnabled(false);
+      assertTrue(other.isEnabled());
+    }
+    finally {
+      metrics.setEnabled(false);
+      metrics.reset();
+      Disposer.dispose(other);
+    }
+  }
+
+  public void testDisposedMetricsStopCollecting() {
+    final HaxeMetrics other = new HaxeMetrics(getProject());
+    other.setEnabled(true);
+    Disposer.dispose(other);
+    assertFalse(other.isEnabled());
+    other.setEnabled(true);
+    assertFalse(other.isEnabled());
+    assertEquals(0, HaxeMetrics.start());
+  }
+}
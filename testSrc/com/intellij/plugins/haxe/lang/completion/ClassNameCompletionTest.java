@@ -50,4 +50,12 @@ public class ClassNameCompletionTest extends HaxeCompletionTestBase {
   public void testClassHelper() throws Throwable {
     doTest();
   }
+
+  public void testImportFromPackage() throws Throwable {
+    doTest();
+  }
+
+  public void testImportFromPackageIgnoringCase() throws Throwable {
+    doTest();
+  }
 }
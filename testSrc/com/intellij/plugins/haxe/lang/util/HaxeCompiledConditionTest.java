@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.lang.util;
+
+import com.intellij.lexer.Lexer;
+import com.intellij.plugins.haxe.HaxeCodeInsightFixtureTestCase;
+import com.intellij.plugins.haxe.lang.lexer.HaxeLexer;
+import com.intellij.psi.TokenType;
+import com.intellij.psi.tree.IElementType;
+
+import static com.intellij.plugins.haxe.lang.lexer.HaxeTokenTypes.*;
+
+public class HaxeCompiledConditionTest extends HaxeCodeInsightFixtureTestCase {
+
+  @Override
+  protected String getBasePath() {
+    return "/conditionalcompilation/";
+  }
+
+  private void setDefines(String defines) {
+    getProject().putUserData(HaxeConditionalExpression.DEFINES_KEY, defines);
+  }
+
+  /** Builds a condition the way the lexer does, from pairs of token type and text. */
+  private static HaxeConditionalExpression condition(Object... typesAndText) {
+    HaxeConditionalExpression condition = new HaxeConditionalExpression(null);
+    for (int i = 0; i < typesAndText.length; i += 2) {
+      condition.extend((String)typesAndText[i + 1], (IElementType)typesAndText[i]);
+    }
+    return condition;
+  }
+
+  private static HaxeConditionalExpression cppAndDebug() {
+    return condition(PLPAREN, "(", ID, "cpp", OCOND_AND, "&&", ID, "debug", PRPAREN, ")");
+  }
+
+  private void lex(String text) {
+    Lexer lexer = new HaxeLexer(getProject());
+    lexer.start(text);
+    while (null != lexer.getTokenType()) {
+      lexer.advance();
+    }
+  }
+
+  public void testSameConditionIsCompiledOnce() {
+    HaxeConditionalExpression spaced = condition(PLPAREN, "(", ID, "cpp", TokenType.WHITE_SPACE, " ", OCOND_AND, "&&",
+                                                 TokenType.WHITE_SPACE, " ", ID, "debug", PRPAREN, ")");
+    assertSame(cppAndDebug().compile(), spaced.compile());
+
+    // The token types count, not just the text: the string "cpp" is not the identifier cpp.
+    HaxeConditionalExpression string = condition(OPEN_QUOTE, "\"", REGULAR_STRING_PART, "cpp", CLOSING_QUOTE, "\"");
+    assertNotSame(condition(ID, "cpp").compile(), string.compile());
+  }
+
+  public void testConditionLexedInTwoFilesIsEvaluatedOnce() {
+    setDefines("cpp,debug,lexed");
+    lex("#if (cpp && debug)\nclass A {}\n#end\n");
+    lex("#if (cpp&&debug)\nclass B {}\n#end\n");
+
+    HaxeConditionalDefines defines = HaxeConditionalDefines.forProject(getProject());
+    assertEquals(1, defines.getCachedResultCount());
+    assertEquals(Boolean.TRUE, defines.getCachedResult(cppAndDebug().compile()));
+  }
+
+  public void testSnapshotIsKeptUntilTheDefinesChange() {
+    setDefines("cpp");
+    HaxeConditionalDefines defines = HaxeConditionalDefines.forProject(getProject());
+    assertSame(defines, HaxeConditionalDefines.forProject(getProject()));
+    HaxeCompiledCondition cpp = condition(ID, "cpp").compile();
+    assertTrue(cpp.evaluate(defines));
+    assertEquals(Boolean.TRUE, defines.getCachedResult(cpp));
+    assertSame(defines, HaxeConditionalDefines.forProject(getProject()));
+
+    setDefines("js");
+    HaxeConditionalDefines changed = HaxeConditionalDefines.forProject(getProject());
+    assertNotSame(defines, changed);
+    assertEquals(0, changed.getCachedResultCount());
+    assertFalse(cpp.evaluate(changed));
+    assertSame(changed, HaxeConditionalDefines.forProject(getProject()));
+  }
+
+  public void testMalformedConditionsAreFalse() {
+    setDefines("cpp");
+    HaxeConditionalDefines defines = HaxeConditionalDefines.forProject(getProject());
+    HaxeConditionalExpression[] malformed = {
+      condition(PLPAREN, "(", ID, "cpp"),                                  // Incomplete.
+      condition(PRPAREN, ")", ID, "cpp", PLPAREN, "("),                    // Doesn't convert to RPN.
+      condition(PLPAREN, "(", ID, "cpp", OCOND_AND, "&&", PRPAREN, ")"),   // Missing an operand.
+    };
+    for (HaxeConditionalExpression condition : malformed) {
+      assertFalse(condition.toString(), condition.compile().evaluate(defines));
+      // And again, from the cache.
+      assertFalse(condition.toString(), condition.compile().evaluate(defines));
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.model.type;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.plugins.haxe.HaxeCodeInsightFixtureTestCase;
+import com.intellij.plugins.haxe.lang.psi.HaxeClass;
+import com.intellij.plugins.haxe.lang.psi.HaxeMethod;
+import com.intellij.plugins.haxe.lang.psi.impl.AbstractHaxeNamedComponent;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+
+public class HaxeTypeResolverCacheTest extends HaxeCodeInsightFixtureTestCase {
+  @Override
+  protected String getBasePath() {
+    return "/model/type/";
+  }
+
+  private static AbstractHaxeNamedComponent findMethod(PsiFile file, String name) {
+    for (HaxeMethod method : PsiTreeUtil.findChildrenOfType(file, HaxeMethod.class)) {
+      if (name.equals(method.getName())) {
+        return (AbstractHaxeNamedComponent)method;
+      }
+    }
+    fail("No method named " + name);
+    return null;
+  }
+
+  private static HaxeClass findClass(PsiFile file) {
+    final HaxeClass haxeClass = PsiTreeUtil.findChildOfType(file, HaxeClass.class);
+    assertNotNull(haxeClass);
+    return haxeClass;
+  }
+
+  private static ResultHolder typeOf(HaxeClass haxeClass) {
+    return SpecificHaxeClassReference.withoutGenerics(new HaxeClassReference(haxeClass.getModel(), haxeClass)).createHolder();
+  }
+
+  private void replace(final PsiFile file, final String oldText, final String newText) {
+    WriteCommandAction.runWriteCommandAction(getProject(), new Runnable() {
+      @Override
+      public void run() {
+        Document document = PsiDocumentManager.getInstance(getProject()).getDocument(file);
+        int offset = document.getText().indexOf(oldText);
+        assertTrue(offset >= 0);
+        document.replaceString(offset, offset + oldText.length(), newText);
+        PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+      }
+    });
+  }
+
+  public void testInferenceFromAnotherFileIsNotStale() {
+    final PsiFile source = myFixture.addFileToProject("Source.hx",
+                                                      "class Source {\n" +
+                                                      "  public static function value() { return 1; }\n" +
+                                                      "}\n");
+    final PsiFile user = myFixture.addFileToProject("User.hx",
+                                                    "class User {\n" +
+                                                    "  public static function make() { return Source.value(); }\n" +
+                                                    "}\n");
+    assertEquals("Int", HaxeTypeResolver.getFieldOrMethodReturnType(findMethod(user, "make")).getType().toStringWithoutConstant());
+
+    // Inside the method body, so the out-of-code-block count doesn't change.
+    replace(source, "return 1;", "return \"one\";");
+    assertEquals("String", HaxeTypeResolver.getFieldOrMethodReturnType(findMethod(user, "make")).getType().toStringWithoutConstant());
+  }
+
+  public void testSameNamedArgumentsAreDifferentKeys() {
+    final HaxeClass first = findClass(myFixture.addFileToProject("a/Item.hx", "package a;\nclass Item {}\n"));
+    final HaxeClass second = findClass(myFixture.addFileToProject("b/Item.hx", "package b;\nclass Item {}\n"));
+    final PsiFile box = myFixture.addFileToProject("Box.hx",
+                                                   "class Box<T> {\n" +
+                                                   "  public function get():T { return null; }\n" +
+                                                   "}\n");
+    final AbstractHaxeNamedComponent get = findMethod(box, "get");
+
+    final HaxeGenericResolver firstResolver = new HaxeGenericResolver();
+    firstResolver.add("T", typeOf(first));
+    final HaxeGenericResolver secondResolver = new HaxeGenericResolver();
+    secondResolver.add("T", typeOf(second));
+
+    // Both print as "T=Item;", which is what the cache used to be keyed by.
+    assertSame(first, HaxeTypeResolver.getFieldOrMethodReturnType(get, firstResolver).getClassType().getHaxeClass());
+    assertSame(second, HaxeTypeResolver.getFieldOrMethodReturnType(get, secondResolver).getClassType().getHaxeClass());
+  }
+}
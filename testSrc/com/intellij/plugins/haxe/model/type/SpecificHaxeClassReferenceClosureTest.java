@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.model.type;
+
+import com.intellij.plugins.haxe.HaxeCodeInsightFixtureTestCase;
+import com.intellij.plugins.haxe.lang.psi.HaxeClass;
+import com.intellij.plugins.haxe.lang.psi.HaxeFieldDeclaration;
+import com.intellij.plugins.haxe.model.type.SpecificHaxeClassReference.Compatibility;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class SpecificHaxeClassReferenceClosureTest extends HaxeCodeInsightFixtureTestCase {
+  @Override
+  protected String getBasePath() {
+    return "/model/type/";
+  }
+
+  private PsiFile myFile;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myFile = myFixture.addFileToProject("Types.hx",
+                                        "interface Base<T> {}\n" +
+                                        "class Holder<T> implements Base<T> {}\n" +
+                                        "class Unknown {}\n" +
+                                        "interface IGrand {}\n" +
+                                        "interface IChild extends IGrand {}\n" +
+                                        "class Child implements IChild {}\n" +
+                                        "typedef Alias = Child;\n" +
+                                        "class First<T> { var a:T; var b:T; }\n" +
+                                        "class Second<T> { var a:T; }\n");
+  }
+
+  private HaxeClass findClass(String name) {
+    for (HaxeClass haxeClass : PsiTreeUtil.findChildrenOfType(myFile, HaxeClass.class)) {
+      if (name.equals(haxeClass.getName())) {
+        return haxeClass;
+      }
+    }
+    fail("No class named " + name);
+    return null;
+  }
+
+  private List<HaxeFieldDeclaration> fieldsOf(String className) {
+    return new ArrayList<>(PsiTreeUtil.findChildrenOfType(findClass(className), HaxeFieldDeclaration.class));
+  }
+
+  private SpecificHaxeClassReference reference(String name, ResultHolder... specifics) {
+    final HaxeClass haxeClass = findClass(name);
+    return SpecificHaxeClassReference.withGenerics(new HaxeClassReference(haxeClass.getModel(), haxeClass), specifics);
+  }
+
+  private static ResultHolder unresolved(String name, PsiElement context) {
+    return SpecificHaxeClassReference.withoutGenerics(new HaxeClassReference(name, context)).createHolder();
+  }
+
+  private static Set<String> names(Set<SpecificHaxeClassReference> types) {
+    final Set<String> names = new HashSet<>();
+    for (SpecificHaxeClassReference type : types) {
+      names.add(type.getHaxeClassReference().getName());
+    }
+    return names;
+  }
+
+  public void testSameArgumentsHitTheCache() {
+    final ResultHolder unknown = reference("Unknown").createHolder();
+    assertSame(reference("Holder", unknown).getCompatibleTypes(Compatibility.ASSIGNABLE_FROM),
+               reference("Holder", unknown.duplicate()).getCompatibleTypes(Compatibility.ASSIGNABLE_FROM));
+  }
+
+  public void testMissingArgumentIsNotAClassNamedUnknown() {
+    final Object kind = Compatibility.ASSIGNABLE_FROM;
+    final SpecificHaxeClassReference.TypeClosureKey missing =
+      new SpecificHaxeClassReference.TypeClosureKey(kind, new ResultHolder[]{null});
+    final SpecificHaxeClassReference.TypeClosureKey unresolved =
+      new SpecificHaxeClassReference.TypeClosureKey(kind, new ResultHolder[]{SpecificTypeReference.getUnknown(myFile).createHolder()});
+    final SpecificHaxeClassReference.TypeClosureKey declared =
+      new SpecificHaxeClassReference.TypeClosureKey(kind, new ResultHolder[]{reference("Unknown").createHolder()});
+
+    assertFalse(missing.equals(unresolved));
+    assertFalse(missing.equals(declared));
+    assertFalse(unresolved.equals(declared));
+  }
+
+  public void testDeclaredClassNamedUnknownGetsItsOwnClosure() {
+    reference("Holder", SpecificTypeReference.getUnknown(myFile).createHolder()).getCompatibleTypes(Compatibility.ASSIGNABLE_FROM);
+    final Set<SpecificHaxeClassReference> declared =
+      reference("Holder", reference("Unknown").createHolder()).getCompatibleTypes(Compatibility.ASSIGNABLE_FROM);
+
+    for (SpecificHaxeClassReference type : declared) {
+      if ("Base".equals(type.getHaxeClassReference().getName())) {
+        assertSame(findClass("Unknown"), type.getSpecifics()[0].getClassType().getHaxeClass());
+        return;
+      }
+    }
+    fail("Base<Unknown> is missing from " + declared);
+  }
+
+  public void testUnresolvedNamesAreScopedToTheirDeclaration() {
+    final List<HaxeFieldDeclaration> first = fieldsOf("First");
+    final List<HaxeFieldDeclaration> second = fieldsOf("Second");
+
+    final Set<SpecificHaxeClassReference> firstA =
+      reference("Holder", unresolved("T", first.get(0))).getCompatibleTypes(Compatibility.ASSIGNABLE_FROM);
+    final Set<SpecificHaxeClassReference> firstB =
+      reference("Holder", unresolved("T", first.get(1))).getCompatibleTypes(Compatibility.ASSIGNABLE_FROM);
+    final Set<SpecificHaxeClassReference> secondA =
+      reference("Holder", unresolved("T", second.get(0))).getCompatibleTypes(Compatibility.ASSIGNABLE_FROM);
+
+    assertSame(firstA, firstB);
+    assertNotSame(firstA, secondA);
+  }
+
+  public void testClosureStartedInsideAnotherWalkIsComplete() {
+    // Inferring the typedef walks into Child's compatible types and caches them along the way.
+    final Set<String> inferred = names(reference("Alias").getInferTypes());
+    assertTrue(inferred.toString(), inferred.contains("IGrand"));
+
+    final Set<String> compatible = names(reference("Child").getCompatibleTypes(Compatibility.ASSIGNABLE_FROM));
+    assertTrue(compatible.toString(), compatible.contains("IChild"));
+    assertTrue(compatible.toString(), compatible.contains("IGrand"));
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.resolve;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.plugins.haxe.HaxeCodeInsightFixtureTestCase;
+import com.intellij.plugins.haxe.lang.psi.HaxeClass;
+import com.intellij.plugins.haxe.lang.psi.HaxeClassResolveCache;
+import com.intellij.plugins.haxe.lang.psi.HaxeClassResolveResult;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+
+public class HaxeClassResolveCacheTest extends HaxeCodeInsightFixtureTestCase {
+  @Override
+  protected String getBasePath() {
+    return "/resolve/";
+  }
+
+  private PsiFile myContainer;
+  private PsiFile myConstraint;
+  private PsiFile myUnrelated;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myConstraint = myFixture.addFileToProject("Constraint.hx", "class Constraint {}\n");
+    myUnrelated = myFixture.addFileToProject("Unrelated.hx", "class Unrelated {}\n");
+    myContainer = myFixture.addFileToProject("Container.hx", "class Container<T:Constraint> {}\n");
+  }
+
+  private HaxeClass getContainer() {
+    return PsiTreeUtil.findChildOfType(myContainer, HaxeClass.class);
+  }
+
+  private HaxeClassResolveCache getCache() {
+    return HaxeClassResolveCache.getInstance(getProject());
+  }
+
+  private void fillCache() {
+    HaxeClassResolveResult.create(getContainer());
+    assertNotNull(getCache().get(getContainer()));
+  }
+
+  private void append(final PsiFile file, final String text) {
+    WriteCommandAction.runWriteCommandAction(getProject(), new Runnable() {
+      @Override
+      public void run() {
+        Document document = PsiDocumentManager.getInstance(getProject()).getDocument(file);
+        document.insertString(document.getTextLength(), text);
+        PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+      }
+    });
+  }
+
+  public void testHit() {
+    fillCache();
+    long hits = getCache().getHitCount();
+    assertNotNull(getCache().get(getContainer()));
+    assertEquals(hits + 1, getCache().getHitCount());
+  }
+
+  public void testEditingTheClassInvalidates() {
+    fillCache();
+    append(myContainer, "// Changed\n");
+    assertNull(getCache().get(getContainer()));
+  }
+
+  public void testEditingAConstraintInvalidates() {
+    fillCache();
+    append(myConstraint, "// Changed\n");
+    assertNull(getCache().get(getContainer()));
+  }
+
+  public void testEditingAnUnrelatedFileKeepsTheResult() {
+    fillCache();
+    append(myUnrelated, "// Changed\n");
+    assertNotNull(getCache().get(getContainer()));
+  }
+}
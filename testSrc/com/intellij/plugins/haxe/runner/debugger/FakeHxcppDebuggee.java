@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.runner.debugger;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stands in for a program built with the hxcpp debugger, so that the debugger
+ * protocol can be exercised and timed without an hxcpp build or a device.
+ *
+ * Like the real thing, it connects to the port that the IDE listens on,
+ * identifies itself, and then answers each command with whatever its
+ * {@link Script} says.  Replies can be held back for a fixed latency to mimic
+ * the round trip to a device; commands that arrive together are answered
+ * together, as they would be over a real network.
+ */
+class FakeHxcppDebuggee implements Closeable {
+
+  /** Decides what the debugged program says. */
+  interface Script {
+    /** Messages sent as soon as the connection is up, usually the first stop. */
+    List<debugger.Message> greeting();
+
+    /** The reply to a command, followed by any events that the command causes. */
+    List<debugger.Message> respond(debugger.Command command);
+  }
+
+  private final Script myScript;
+  private final long myLatencyMicros;
+  private final ScheduledExecutorService myWriter = Executors.newSingleThreadScheduledExecutor();
+  // Only used on myWriter's thread.
+  private final HxcppDebuggerCodec myWriteCodec = new HxcppDebuggerCodec();
+  private final HxcppDebuggerCodec myReadCodec = new HxcppDebuggerCodec();
+  private final AtomicInteger myCommandCount = new AtomicInteger();
+  private volatile Socket mySocket;
+  private volatile Throwable myFailure;
+  private Thread myReader;
+
+  /**
+   * @param latencyMicros how long each reply takes to come back, or 0 to answer at once.
+   */
+  FakeHxcppDebuggee(Script script, long latencyMicros) {
+    myScript = script;
+    myLatencyMicros = latencyMicros;
+  }
+
+  /**
+   * Connect to the IDE (or {@link HeadlessDebugClient}) listening on the loopback port.  The
+   * connection and handshake happen on a background thread, because the other side has to
+   * accept at the same time.
+   */
+  void start(final int port) {
+    myReader = new Thread(new Runnable() {
+      public void run() {
+        try {
+          serve(port);
+        }
+        catch (EOFException | SocketException e) {
+          // The other side hung up, or we were closed.
+        }
+        catch (Throwable t) {
+          myFailure = t;
+        }
+      }
+    }, "Fake hxcpp debuggee");
+    myReader.setDaemon(true);
+    myReader.start();
+  }
+
+  int getCommandCount() {
+    return myCommandCount.get();
+  }
+
+  /**
+   * @throws IOException if the debuggee has failed, e.g. on a malformed command.
+   */
+  void checkHealthy() throws IOException {
+    Throwable failure = myFailure;
+    if (failure != null) {
+      throw new IOException("Fake debuggee failed: " + failure, failure);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    Socket socket = mySocket;
+    if (socket != null) {
+      socket.close();
+    }
+    myWriter.shutdownNow();
+    if (myReader != null) {
+      try {
+        myReader.join(5000);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    checkHealthy();
+  }
+
+  private void serve(int port) throws IOException {
+    Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+    socket.setTcpNoDelay(true);
+    mySocket = socket;
+    InputStream input = socket.getInputStream();
+    final OutputStream output = socket.getOutputStream();
+
+    output.write(debugger.HaxeProtocol.gClientIdentification.getBytes(StandardCharsets.US_ASCII));
+    output.flush();
+    byte[] expected = debugger.HaxeProtocol.gServerIdentification.getBytes(StandardCharsets.US_ASCII);
+    byte[] actual = new byte[expected.length];
+    for (int read = 0; read < actual.length; ) {
+      int count = input.read(actual, read, actual.length - read);
+      if (count < 0) {
+        throw new EOFException();
+      }
+      read += count;
+    }
+    if (!new String(actual, StandardCharsets.US_ASCII).equals(debugger.HaxeProtocol.gServerIdentification)) {
+      throw new IOException("Unexpected server identification");
+    }
+
+    reply(output, myScript.greeting());
+    while (true) {
+      debugger.Command command = myReadCodec.readCommand(input);
+      myCommandCount.incrementAndGet();
+      reply(output, myScript.respond(command));
+    }
+  }
+
+  private void reply(final OutputStream output, final List<debugger.Message> messages) {
+    if (messages.isEmpty()) {
+      return;
+    }
+    Runnable write = new Runnable() {
+      public void run() {
+        try {
+          for (debugger.Message message : messages) {
+            myWriteCodec.writeMessage(output, message);
+          }
+        }
+        catch (IOException e) {
+          // Closed while replies were pending.
+        }
+        catch (RuntimeException e) {
+          myFailure = e;
+        }
+      }
+    };
+    // Tasks due at the same time run in the order they were scheduled, so replies stay in order.
+    try {
+      myWriter.schedule(write, myLatencyMicros, TimeUnit.MICROSECONDS);
+    }
+    catch (RejectedExecutionException e) {
+      // Closed while the command was being read.
+    }
+  }
+}
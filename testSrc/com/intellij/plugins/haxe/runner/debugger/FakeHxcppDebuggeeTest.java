@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.runner.debugger;
+
+import haxe.root.JavaProtocol;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class FakeHxcppDebuggeeTest extends TestCase {
+
+  private HeadlessDebugClient myClient;
+  private FakeHxcppDebuggee myDebuggee;
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      disconnect();
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  private void connect(FakeHxcppDebuggee.Script script, RecordedSession recorder) throws IOException {
+    myClient = new HeadlessDebugClient();
+    myClient.setRecorder(recorder);
+    myDebuggee = new FakeHxcppDebuggee(script, 0);
+    myDebuggee.start(myClient.getPort());
+    myClient.accept();
+  }
+
+  private void disconnect() throws IOException {
+    if (myDebuggee != null) {
+      myDebuggee.close();
+      myDebuggee = null;
+    }
+    if (myClient != null) {
+      myClient.close();
+      myClient = null;
+    }
+  }
+
+  public void testStopsOnStartUp() throws IOException {
+    connect(new SimulatedProgram(5, 3, 2), null);
+    debugger.Message stopped = myClient.awaitEvent(JavaProtocol.IdThreadStopped);
+    assertEquals("game/World.hx", stopped.params[4]);
+  }
+
+  public void testPipelinedRepliesMatchTheirCommands() throws IOException {
+    connect(new SimulatedProgram(5, 3, 2), null);
+    List<debugger.Message> replies = myClient.requestAll(Arrays.asList(
+      debugger.Command.SetFrame(3),
+      debugger.Command.Variables(false),
+      debugger.Command.GetStructured(false, "local0"),
+      debugger.Command.SetFrame(99),
+      debugger.Command.GetStructured(false, "local1")));
+
+    assertEquals(JavaProtocol.IdThreadLocation, JavaProtocol.getMessageId(replies.get(0)));
+    assertEquals(3, replies.get(0).params[1]);
+    assertEquals(JavaProtocol.IdVariables, JavaProtocol.getMessageId(replies.get(1)));
+    assertEquals(JavaProtocol.IdStructured, JavaProtocol.getMessageId(replies.get(2)));
+    assertEquals(JavaProtocol.IdErrorBadCount, JavaProtocol.getMessageId(replies.get(3)));
+    assertEquals(JavaProtocol.IdStructured, JavaProtocol.getMessageId(replies.get(4)));
+    assertEquals(5, myDebuggee.getCommandCount());
+  }
+
+  public void testThousandsOfBreakpoints() throws IOException {
+    connect(new SimulatedProgram(5, 3, 2), null);
+    List<debugger.Command> commands = new ArrayList<>();
+    for (int i = 1; i <= 3000; ++i) {
+      commands.add(debugger.Command.AddFileLineBreakpoint("Main.hx", i));
+    }
+    List<debugger.Message> numbers = myClient.requestAll(commands);
+    for (int i = 0; i < numbers.size(); ++i) {
+      assertEquals(i + 1, numbers.get(i).params[0]);
+    }
+  }
+
+  public void testRecordedSessionPlaysBack() throws IOException {
+    RecordedSession recording = new RecordedSession();
+    connect(new SimulatedProgram(4, 2, 2), recording);
+    myClient.awaitEvent(JavaProtocol.IdThreadStopped);
+    List<debugger.Message> original = myClient.requestAll(Arrays.asList(
+      debugger.Command.WhereCurrentThread(false),
+      debugger.Command.SetFrame(2),
+      debugger.Command.Variables(false),
+      debugger.Command.Continue(1)));
+    myClient.awaitEvent(JavaProtocol.IdThreadStopped);
+    disconnect();
+
+    StringWriter saved = new StringWriter();
+    recording.save(saved);
+    RecordedSession loaded = RecordedSession.load(new StringReader("# Recorded by a test\n" + saved));
+    assertEquals(4, loaded.getCommands().size());
+
+    connect(loaded, null);
+    myClient.awaitEvent(JavaProtocol.IdThreadStopped);
+    // Ask in a different order; each command still gets its own reply.
+    List<debugger.Message> replayed = myClient.requestAll(Arrays.asList(
+      debugger.Command.Variables(false),
+      debugger.Command.WhereCurrentThread(false),
+      debugger.Command.SetFrame(2)));
+    assertEquals(original.get(2).toString(), replayed.get(0).toString());
+    assertEquals(original.get(0).toString(), replayed.get(1).toString());
+    assertEquals(original.get(1).toString(), replayed.get(2).toString());
+    assertEquals(JavaProtocol.IdErrorInternal,
+                 JavaProtocol.getMessageId(myClient.request(debugger.Command.SetFrame(0))));
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.runner.debugger;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.plugins.haxe.HaxeCodeInsightFixtureTestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class HaxeDebugSourceCacheTest extends HaxeCodeInsightFixtureTestCase {
+
+  @Override
+  protected String getBasePath() {
+    return "/debugger/";
+  }
+
+  private HaxeDebugSourceCache newCache(final VirtualFile... roots) {
+    return new HaxeDebugSourceCache(getProject(), myFixture.getModule()) {
+      @NotNull
+      @Override
+      List<VirtualFile> getRoots() {
+        return Arrays.asList(roots);
+      }
+    };
+  }
+
+  private VirtualFile createFile(String path) throws IOException {
+    return myFixture.getTempDirFixture().createFile(path, "class Foo {}");
+  }
+
+  public void testFirstClassPathWins() throws IOException {
+    VirtualFile first = myFixture.getTempDirFixture().findOrCreateDir("first");
+    VirtualFile second = myFixture.getTempDirFixture().findOrCreateDir("second");
+    VirtualFile firstFoo = createFile("first/pkg/Foo.hx");
+    createFile("second/pkg/Foo.hx");
+    VirtualFile secondBar = createFile("second/pkg/Bar.hx");
+
+    HaxeDebugSourceCache cache = newCache(first, second);
+    cache.prewarm();
+    assertEquals(firstFoo, cache.resolve("pkg/Foo.hx"));
+    assertEquals(secondBar, cache.resolve("pkg/Bar.hx"));
+
+    // The other way around, the other file wins.
+    cache = newCache(second, first);
+    cache.prewarm();
+    assertFalse(firstFoo.equals(cache.resolve("pkg/Foo.hx")));
+  }
+
+  public void testPrewarmAgreesWithLookup() throws IOException {
+    VirtualFile first = myFixture.getTempDirFixture().findOrCreateDir("first");
+    VirtualFile second = myFixture.getTempDirFixture().findOrCreateDir("second");
+    createFile("first/a/A.hx");
+    createFile("second/a/A.hx");
+    createFile("second/b/B.hx");
+
+    HaxeDebugSourceCache warm = newCache(first, second);
+    warm.prewarm();
+    HaxeDebugSourceCache cold = newCache(first, second);
+    for (String name : Arrays.asList("a/A.hx", "b/B.hx")) {
+      assertNotNull(cold.resolve(name));
+      assertEquals(name, cold.resolve(name), warm.resolve(name));
+    }
+  }
+
+  public void testWalksTheWholeTreeInChunks() throws IOException {
+    final VirtualFile root = myFixture.getTempDirFixture().findOrCreateDir("deep");
+    int count = HaxeDebugSourceCache.PREWARM_DIRECTORIES_PER_READ_ACTION * 3;
+    StringBuilder path = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      createFile("deep/wide" + i + "/W.hx");
+      path.append("d").append(i).append('/');
+    }
+    VirtualFile deepest = createFile("deep/" + path + "D.hx");
+
+    final int[] lookups = {0};
+    HaxeDebugSourceCache cache = new HaxeDebugSourceCache(getProject(), myFixture.getModule()) {
+      @NotNull
+      @Override
+      List<VirtualFile> getRoots() {
+        lookups[0]++;
+        return Collections.singletonList(root);
+      }
+    };
+    cache.prewarm();
+    assertEquals(1, lookups[0]);
+    for (int i = 0; i < count; i++) {
+      assertNotNull(cache.resolve("wide" + i + "/W.hx"));
+    }
+    assertEquals(deepest, cache.resolve(path + "D.hx"));
+    assertEquals("Everything should have been found by the prewarm", 1, lookups[0]);
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.runner.debugger;
+
+import com.intellij.openapi.util.Pair;
+import haxe.root.JavaProtocol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Plays the IDE's side of the hxcpp debugger protocol without the IDE.
+ *
+ * It listens on a loopback port, accepts the debugged program (real, or a
+ * {@link FakeHxcppDebuggee}), and talks to it through the same
+ * {@link HxcppDebugConnection} that {@link HaxeDebugRunner} uses, with a
+ * single writer thread standing in for the runner's write queue.  Replies come
+ * back as futures; thread events (created, started, stopped, terminated) are
+ * queued for {@link #awaitEvent}; warnings are kept for {@link #getWarnings}.
+ */
+class HeadlessDebugClient implements Closeable {
+
+  private static final long TIMEOUT_MILLIS = 30000;
+
+  private final ServerSocket myServerSocket;
+  private final ExecutorService myWriter = Executors.newSingleThreadExecutor();
+  private final HxcppDebugConnection myConnection;
+  private final LinkedBlockingQueue<debugger.Message> myEvents = new LinkedBlockingQueue<>();
+  private final List<String> myWarnings = Collections.synchronizedList(new ArrayList<>());
+  private final Set<CompletableFuture<debugger.Message>> myOutstanding = ConcurrentHashMap.newKeySet();
+  private volatile RecordedSession myRecorder;
+  private volatile Throwable myFailure;
+  private Thread myReader;
+
+  HeadlessDebugClient() throws IOException {
+    myServerSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    myConnection = new HxcppDebugConnection(new HxcppDebugConnection.Events() {
+      public void threadEvent(int messageId, debugger.Message message) {
+        RecordedSession recorder = myRecorder;
+        if (recorder != null) {
+          recorder.add(message);
+        }
+        myEvents.add(message);
+      }
+
+      public void error(String message) {
+        fail(new IOException(message));
+      }
+
+      public void warn(String message) {
+        myWarnings.add(message);
+      }
+    }, myWriter);
+  }
+
+  int getPort() {
+    return myServerSocket.getLocalPort();
+  }
+
+  /** The protocol layer under test, e.g. to fetch values through its per-stop cache. */
+  HxcppDebugConnection getConnection() {
+    return myConnection;
+  }
+
+  List<String> getWarnings() {
+    synchronized (myWarnings) {
+      return new ArrayList<>(myWarnings);
+    }
+  }
+
+  /** Record everything from here on, e.g. to save as a {@link RecordedSession}. */
+  void setRecorder(RecordedSession recorder) {
+    myRecorder = recorder;
+  }
+
+  /**
+   * Wait for the debugged program to connect, exchange identifications, and start reading.
+   */
+  void accept() throws IOException {
+    myServerSocket.setSoTimeout((int)TIMEOUT_MILLIS);
+    Socket socket = myServerSocket.accept();
+    socket.setTcpNoDelay(true);
+    myConnection.connect(socket);
+
+    myReader = new Thread(new Runnable() {
+      public void run() {
+        try {
+          myConnection.readLoop();
+        }
+        catch (Throwable t) {
+          fail(t);
+        }
+      }
+    }, "Headless debug client");
+    myReader.setDaemon(true);
+    myReader.start();
+  }
+
+  /**
+   * Send commands in one burst, without waiting for any replies.
+   *
+   * @return the replies, in the same order as the commands.
+   */
+  List<CompletableFuture<debugger.Message>> send(List<debugger.Command> commands) throws IOException {
+    checkHealthy();
+    List<Pair<debugger.Command, HxcppDebugConnection.MessageListener>> burst = new ArrayList<>(commands.size());
+    List<CompletableFuture<debugger.Message>> replies = new ArrayList<>(commands.size());
+    for (debugger.Command command : commands) {
+      CompletableFuture<debugger.Message> reply = new CompletableFuture<>();
+      myOutstanding.add(reply);
+      burst.add(Pair.create(command, listener(command, reply)));
+      replies.add(reply);
+    }
+    myConnection.enqueueCommands(burst);
+    return replies;
+  }
+
+  /** A listener that completes the future with the reply, and records the exchange. */
+  HxcppDebugConnection.MessageListener listener(final debugger.Command command,
+                                                final CompletableFuture<debugger.Message> reply) {
+    return new HxcppDebugConnection.MessageListener() {
+      public void handleMessage(int messageId, debugger.Message message) {
+        RecordedSession recorder = myRecorder;
+        if (recorder != null) {
+          // Recorded when the reply comes in, so that each command is followed by its own reply.
+          recorder.add(command);
+          recorder.add(message);
+        }
+        myOutstanding.remove(reply);
+        reply.complete(message);
+      }
+    };
+  }
+
+  /** Send one command and wait for its reply. */
+  debugger.Message request(debugger.Command command) throws IOException {
+    return await(send(Collections.singletonList(command)).get(0));
+  }
+
+  /** Send commands in one burst and wait for all of the replies. */
+  List<debugger.Message> requestAll(List<debugger.Command> commands) throws IOException {
+    List<debugger.Message> replies = new ArrayList<>(commands.size());
+    for (CompletableFuture<debugger.Message> reply : send(commands)) {
+      replies.add(await(reply));
+    }
+    return replies;
+  }
+
+  /**
+   * Wait for a thread event, dropping any other events that come first.
+   *
+   * @param messageId e.g. {@code JavaProtocol.IdThreadStopped}.
+   */
+  debugger.Message awaitEvent(int messageId) throws IOException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (true) {
+      debugger.Message event;
+      try {
+        event = myEvents.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for an event");
+      }
+      if (event == null) {
+        checkHealthy();
+        throw new IOException("Timed out waiting for event " + messageId);
+      }
+      if (JavaProtocol.getMessageId(event) == messageId) {
+        return event;
+      }
+    }
+  }
+
+  void checkHealthy() throws IOException {
+    Throwable failure = myFailure;
+    if (failure != null) {
+      throw new IOException("Debug client failed: " + failure, failure);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    myServerSocket.close();
+    myConnection.close();
+    myWriter.shutdownNow();
+  }
+
+  private void fail(Throwable t) {
+    myFailure = t;
+    for (CompletableFuture<debugger.Message> reply : myOutstanding) {
+      reply.completeExceptionally(t);
+    }
+    myOutstanding.clear();
+  }
+
+  static debugger.Message await(CompletableFuture<debugger.Message> reply) throws IOException {
+    try {
+      return reply.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for a reply");
+    }
+    catch (ExecutionException e) {
+      throw new IOException("No reply: " + e.getCause(), e.getCause());
+    }
+    catch (TimeoutException e) {
+      throw new IOException("Timed out waiting for a reply");
+    }
+  }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.runner.debugger;
+
+import com.intellij.openapi.util.Pair;
+import haxe.root.JavaProtocol;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives {@link HxcppDebugConnection}, the runner's own protocol layer, against a
+ * {@link FakeHxcppDebuggee}.
+ */
+public class HxcppDebugConnectionTest extends TestCase {
+
+  private HeadlessDebugClient myClient;
+  private FakeHxcppDebuggee myDebuggee;
+  private final List<String> myCommands = Collections.synchronizedList(new ArrayList<>());
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      if (myDebuggee != null) {
+        myDebuggee.close();
+      }
+      if (myClient != null) {
+        myClient.close();
+      }
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  private void start(FakeHxcppDebuggee.Script script) throws IOException {
+    start(script, 0);
+  }
+
+  /** Starts the debuggee, recording every command that it is sent. */
+  private void start(final FakeHxcppDebuggee.Script script, long latencyMicros) throws IOException {
+    myClient = new HeadlessDebugClient();
+    myDebuggee = new FakeHxcppDebuggee(new FakeHxcppDebuggee.Script() {
+      public List<debugger.Message> greeting() {
+        return script.greeting();
+      }
+
+      public List<debugger.Message> respond(debugger.Command command) {
+        myCommands.add(command.getTag() + Arrays.toString(command.params));
+        return script.respond(command);
+      }
+    }, latencyMicros);
+    myDebuggee.start(myClient.getPort());
+  }
+
+  private void startStopped(FakeHxcppDebuggee.Script script, long latencyMicros) throws IOException {
+    start(script, latencyMicros);
+    myClient.accept();
+    myClient.awaitEvent(JavaProtocol.IdThreadStopped);
+  }
+
+  /** Fetches through the per-stop cache, without waiting. */
+  private LinkedBlockingQueue<debugger.Message> startFetch(HxcppDebugConnection.FrameValues frame, String... expressions) {
+    final LinkedBlockingQueue<debugger.Message> results = new LinkedBlockingQueue<>();
+    myClient.getConnection().fetchStructured(frame, Arrays.asList(expressions), (messageId, message) -> results.add(message));
+    return results;
+  }
+
+  private static List<debugger.Message> await(LinkedBlockingQueue<debugger.Message> results, int count) {
+    List<debugger.Message> got = new ArrayList<>();
+    try {
+      for (int i = 0; i < count; ++i) {
+        debugger.Message message = results.poll(10, TimeUnit.SECONDS);
+        assertNotNull("Timed out waiting for result " + i, message);
+        got.add(message);
+      }
+    }
+    catch (InterruptedException e) {
+      throw new AssertionError(e);
+    }
+    return got;
+  }
+
+  private List<debugger.Message> fetch(HxcppDebugConnection.FrameValues frame, String... expressions) {
+    List<debugger.Message> results = await(startFetch(frame, expressions), expressions.length);
+    for (debugger.Message result : results) {
+      assertEquals(JavaProtocol.IdStructured, JavaProtocol.getMessageId(result));
+    }
+    return results;
+  }
+
+  private CompletableFuture<debugger.Message> enqueue(debugger.Command command) {
+    CompletableFuture<debugger.Message> reply = new CompletableFuture<>();
+    myClient.getConnection().enqueueCommand(command, myClient.listener(command, reply));
+    return reply;
+  }
+
+  public void testCommandsAreDeferredUntilAskedFor() throws IOException {
+    start(new SimulatedProgram(5, 3, 2));
+    CompletableFuture<debugger.Message> breakpoint = enqueue(debugger.Command.AddFileLineBreakpoint("Main.hx", 1));
+    myClient.accept();
+    myClient.awaitEvent(JavaProtocol.IdThreadStopped);
+
+    // Sent straight away now that the debuggee is connected, and answered ahead of the deferred one.
+    assertEquals(JavaProtocol.IdThreadsWhere,
+                 JavaProtocol.getMessageId(myClient.request(debugger.Command.WhereCurrentThread(false))));
+    assertFalse(breakpoint.isDone());
+
+    myClient.getConnection().sendDeferred();
+    assertEquals(JavaProtocol.IdFileLineBreakpointNumber, JavaProtocol.getMessageId(HeadlessDebugClient.await(breakpoint)));
+    assertEquals(Arrays.asList("WhereCurrentThread[false]", "AddFileLineBreakpoint[Main.hx, 1]"), myCommands);
+  }
+
+  public void testUnsolicitedReplyEndsTheSession() throws IOException {
+    start(new FakeHxcppDebuggee.Script() {
+      public List<debugger.Message> greeting() {
+        // A reply to nothing.
+        return Collections.singletonList(debugger.Message.OK);
+      }
+
+      public List<debugger.Message> respond(debugger.Command command) {
+        return Collections.singletonList(debugger.Message.OK);
+      }
+    });
+    myClient.accept();
+    try {
+      myClient.awaitEvent(JavaProtocol.IdThreadStopped);
+      fail("Expected the session to fail");
+    }
+    catch (IOException expected) {
+      assertTrue(expected.getMessage(), expected.getMessage().contains("unsolicited response"));
+    }
+  }
+
+  public void testRepliesGoToTheirListenersInOrder() throws IOException {
+    start(new SimulatedProgram(5, 3, 2));
+    myClient.accept();
+    myClient.awaitEvent(JavaProtocol.IdThreadStopped);
+
+    List<Pair<debugger.Command, HxcppDebugConnection.MessageListener>> burst = new ArrayList<>();
+    List<CompletableFuture<debugger.Message>> replies = new ArrayList<>();
+    for (debugger.Command command : Arrays.asList(debugger.Command.SetFrame(2),
+                                                  debugger.Command.AddFileLineBreakpoint("Main.hx", 7),
+                                                  debugger.Command.Variables(false))) {
+      CompletableFuture<debugger.Message> reply = new CompletableFuture<>();
+      burst.add(Pair.create(command, myClient.listener(command, reply)));
+      replies.add(reply);
+    }
+    myClient.getConnection().enqueueCommands(burst);
+
+    assertEquals(JavaProtocol.IdThreadLocation, JavaProtocol.getMessageId(HeadlessDebugClient.await(replies.get(0))));
+    assertEquals(JavaProtocol.IdFileLineBreakpointNumber, JavaProtocol.getMessageId(HeadlessDebugClient.await(replies.get(1))));
+    assertEquals(JavaProtocol.IdVariables, JavaProtocol.getMessageId(HeadlessDebugClient.await(replies.get(2))));
+  }
+
+  public void testValuesAreFetchedOncePerStop() throws IOException {
+    startStopped(new SimulatedProgram(5, 3, 2), 0);
+    HxcppDebugConnection connection = myClient.getConnection();
+    HxcppDebugConnection.FrameValues frame = connection.getFrameValues(0, 1);
+
+    // What the variables view does: list the names, then prefetch every value in one burst.
+    CompletableFuture<debugger.Message> listed = new CompletableFuture<>();
+    connection.listVariables(frame, myClient.listener(debugger.Command.Variables(false), listed));
+    assertEquals(JavaProtocol.IdVariables, JavaProtocol.getMessageId(HeadlessDebugClient.await(listed)));
+    connection.fetchStructured(frame, Arrays.asList("local0", "local1", "local2"), null);
+
+    // Expanding the values afterwards is served from the cache.
+    fetch(frame, "local2", "local0");
+    fetch(frame, "local1");
+    assertSame(frame, connection.getFrameValues(0, 1));
+    assertEquals(Arrays.asList("SetCurrentThread[0]", "SetFrame[1]", "Variables[false]",
+                               "GetStructured[false, local0]", "GetStructured[false, local1]", "GetStructured[false, local2]"),
+                 myCommands);
+  }
+
+  public void testRequestsInFlightAreShared() throws IOException {
+    // Slow enough that the second fetch is asked for before the first is answered.
+    startStopped(new SimulatedProgram(5, 3, 2), 50000);
+    HxcppDebugConnection.FrameValues frame = myClient.getConnection().getFrameValues(0, 2);
+
+    LinkedBlockingQueue<debugger.Message> first = startFetch(frame, "local0");
+    LinkedBlockingQueue<debugger.Message> second = startFetch(frame, "local0", "local1");
+    assertEquals(1, await(first, 1).size());
+    assertEquals(2, await(second, 2).size());
+    assertEquals(Arrays.asList("SetCurrentThread[0]", "SetFrame[2]",
+                               "GetStructured[false, local0]", "GetStructured[false, local1]"),
+                 myCommands);
+  }
+
+  public void testNewStopForgetsTheFrames() throws IOException {
+    startStopped(new SimulatedProgram(5, 3, 2), 0);
+    HxcppDebugConnection connection = myClient.getConnection();
+    HxcppDebugConnection.FrameValues before = connection.getFrameValues(0, 1);
+    fetch(before, "local0");
+
+    connection.newStopGeneration();
+    HxcppDebugConnection.FrameValues after = connection.getFrameValues(0, 1);
+    assertNotSame(before, after);
+    fetch(after, "local0");
+
+    // The debugger may have moved, so the thread and frame are set again too.
+    assertEquals(Arrays.asList("SetCurrentThread[0]", "SetFrame[1]", "GetStructured[false, local0]",
+                               "SetCurrentThread[0]", "SetFrame[1]", "GetStructured[false, local0]"),
+                 myCommands);
+  }
+
+  public void testSameFrameNumberInAnotherThread() throws IOException {
+    startStopped(new SimulatedProgram(5, 3, 2) {
+      @Override
+      public synchronized List<debugger.Message> respond(debugger.Command command) {
+        // Every thread exists.
+        return "SetCurrentThread".equals(command.getTag())
+               ? Collections.singletonList(debugger.Message.OK)
+               : super.respond(command);
+      }
+    }, 0);
+    HxcppDebugConnection connection = myClient.getConnection();
+    fetch(connection.getFrameValues(0, 1), "local0");
+    fetch(connection.getFrameValues(1, 1), "local0");
+    fetch(connection.getFrameValues(0, 1), "local1");
+    assertEquals(Arrays.asList("SetCurrentThread[0]", "SetFrame[1]", "GetStructured[false, local0]",
+                               "SetCurrentThread[1]", "SetFrame[1]", "GetStructured[false, local0]",
+                               "SetCurrentThread[0]", "SetFrame[1]", "GetStructured[false, local1]"),
+                 myCommands);
+    assertTrue(myClient.getWarnings().isEmpty());
+  }
+
+  public void testFailedThreadSwitchIsNotCached() throws IOException {
+    startStopped(new SimulatedProgram(5, 3, 2), 0);
+    HxcppDebugConnection connection = myClient.getConnection();
+    HxcppDebugConnection.FrameValues frame = connection.getFrameValues(7, 0);
+
+    // The reply came from another thread, so it is asked for again, and
+    // when that fails too, reported as unavailable.
+    List<debugger.Message> results = await(startFetch(frame, "local0"), 1);
+    assertEquals(JavaProtocol.IdErrorInternal, JavaProtocol.getMessageId(results.get(0)));
+    assertEquals(2, myClient.getWarnings().size());
+    assertTrue(myClient.getWarnings().get(0), myClient.getWarnings().get(0).startsWith("Failed to set thread 7"));
+    assertTrue(connection.isDiscarded(frame));
+
+    // Nothing is kept for the frame, neither values nor variable names.
+    connection.setVariableNames(frame, Arrays.asList("local0"));
+    assertNull(connection.getVariableNames(frame));
+    myCommands.clear();
+    results = await(startFetch(frame, "local0"), 1);
+    assertEquals(JavaProtocol.IdErrorInternal, JavaProtocol.getMessageId(results.get(0)));
+    assertEquals(Arrays.asList("SetCurrentThread[7]", "SetFrame[0]", "GetStructured[false, local0]"), myCommands);
+
+    // Nor is the frame handed out again.
+    HxcppDebugConnection.FrameValues retry = connection.getFrameValues(7, 0);
+    assertNotSame(frame, retry);
+    assertFalse(connection.isDiscarded(retry));
+  }
+
+  public void testFailedMoveLeavesOtherFramesCached() throws IOException {
+    startStopped(new SimulatedProgram(5, 3, 2), 0);
+    HxcppDebugConnection connection = myClient.getConnection();
+    HxcppDebugConnection.FrameValues good = connection.getFrameValues(0, 1);
+    fetch(good, "local0");
+
+    // Failing to get to another thread's frame doesn't spoil this one.
+    HxcppDebugConnection.FrameValues bad = connection.getFrameValues(9, 1);
+    await(startFetch(bad, "local1"), 1);
+    assertFalse(connection.isDiscarded(good));
+
+    myCommands.clear();
+    fetch(good, "local0");
+    assertTrue(myCommands.isEmpty());
+  }
+}
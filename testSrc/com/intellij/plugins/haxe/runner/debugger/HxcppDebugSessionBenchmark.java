@@ -0,0 +1,275 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.runner.debugger;
+
+import haxe.root.JavaProtocol;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times whole debugger conversations against a {@link FakeHxcppDebuggee},
+ * over a loopback socket, with no IDE and no hxcpp build.
+ *
+ * Run it with the test class path:
+ * <pre>
+ *   java -DlatencyMicros=1000 -Dbreakpoints=2000 -Dvariables=200 ... \
+ *     com.intellij.plugins.haxe.runner.debugger.HxcppDebugSessionBenchmark [recording.txt ...]
+ * </pre>
+ * It reports
+ * <ul>
+ *   <li>time to first frame: connect, set the breakpoints, run to the first
+ *       stop and list the stack;</li>
+ *   <li>variable expansion latency: list a frame's variables and fetch all of
+ *       their values, one request at a time and pipelined;</li>
+ *   <li>breakpoint throughput: add thousands of breakpoints, one at a time and
+ *       pipelined.</li>
+ * </ul>
+ * Each {@link RecordedSession} given on the command line is also replayed,
+ * one command at a time and pipelined.
+ *
+ * latencyMicros is the simulated round trip to the device.  As with
+ * {@link HxcppDebuggerCodecBenchmark}, compare runs rather than absolute
+ * numbers.
+ */
+public class HxcppDebugSessionBenchmark {
+
+  private static final int WARMUP_ROUNDS = 3;
+  private static final int MEASURED_ROUNDS = 10;
+
+  private static final long LATENCY_MICROS = Long.getLong("latencyMicros", 1000);
+  private static final int BREAKPOINTS = Integer.getInteger("breakpoints", 2000);
+  private static final int STACK_DEPTH = Integer.getInteger("stackDepth", 200);
+  private static final int VARIABLES = Integer.getInteger("variables", 200);
+  private static final int FIELDS = Integer.getInteger("fields", 50);
+
+  public static void main(String[] args) throws Exception {
+    System.out.println("Latency " + LATENCY_MICROS + "us, " + BREAKPOINTS + " breakpoints, " +
+                       STACK_DEPTH + " frames, " + VARIABLES + " variables of " + FIELDS + " fields");
+
+    report("time to first frame          ", () -> timeToFirstFrame());
+    report("variable expansion, serial   ", () -> expandVariables(false));
+    report("variable expansion, pipelined", () -> expandVariables(true));
+    report("breakpoints, serial          ", () -> addBreakpoints(false));
+    report("breakpoints, pipelined       ", () -> addBreakpoints(true));
+
+    for (String arg : args) {
+      final RecordedSession recording;
+      try (Reader reader = Files.newBufferedReader(Paths.get(arg), StandardCharsets.US_ASCII)) {
+        recording = RecordedSession.load(reader);
+      }
+      report(arg + ", serial   ", () -> replay(recording, false));
+      report(arg + ", pipelined", () -> replay(recording, true));
+    }
+  }
+
+  interface Round {
+    /** @return the time taken, in nanoseconds. */
+    long run() throws IOException;
+  }
+
+  private static void report(String name, Round round) throws IOException {
+    for (int i = 0; i < WARMUP_ROUNDS; ++i) {
+      round.run();
+    }
+    long[] times = new long[MEASURED_ROUNDS];
+    for (int i = 0; i < MEASURED_ROUNDS; ++i) {
+      times[i] = round.run();
+    }
+    Arrays.sort(times);
+    System.out.printf("%s: median %9.2f ms, best %9.2f ms%n",
+                      name, times[MEASURED_ROUNDS / 2] / 1e6, times[0] / 1e6);
+  }
+
+  /**
+   * What the runner does from launch to showing the first stop: wait for the
+   * program, send what was queued while it started (the class list and the
+   * breakpoints), let it run, and list the stack once it stops.
+   */
+  private static long timeToFirstFrame() throws IOException {
+    long start = System.nanoTime();
+    try (HeadlessDebugClient client = new HeadlessDebugClient();
+         FakeHxcppDebuggee debuggee = newDebuggee()) {
+      debuggee.start(client.getPort());
+      client.accept();
+      client.awaitEvent(JavaProtocol.IdThreadStopped);
+
+      List<debugger.Command> startup = new ArrayList<>();
+      startup.add(debugger.Command.Classes(null));
+      startup.addAll(breakpointCommands());
+      startup.add(debugger.Command.Continue(1));
+      client.send(startup);
+      client.awaitEvent(JavaProtocol.IdThreadStopped);
+
+      expect(JavaProtocol.IdThreadsWhere, client.request(debugger.Command.WhereCurrentThread(false)));
+      long elapsed = System.nanoTime() - start;
+      debuggee.checkHealthy();
+      return elapsed;
+    }
+  }
+
+  /**
+   * Expand a frame in the variables view: move to the frame, list its
+   * variables, and fetch every value.  Serial is one round trip per request,
+   * as the runner used to do; pipelined is what the runner does now, through
+   * {@link HxcppDebugConnection#listVariables} and
+   * {@link HxcppDebugConnection#fetchStructured}: two bursts.
+   */
+  private static long expandVariables(boolean pipelined) throws IOException {
+    try (HeadlessDebugClient client = new HeadlessDebugClient();
+         FakeHxcppDebuggee debuggee = newDebuggee()) {
+      debuggee.start(client.getPort());
+      client.accept();
+      client.awaitEvent(JavaProtocol.IdThreadStopped);
+
+      HxcppDebugConnection connection = client.getConnection();
+      HxcppDebugConnection.FrameValues frame = connection.getFrameValues(0, 1);
+      long start = System.nanoTime();
+      debugger.Message variables;
+      if (pipelined) {
+        CompletableFuture<debugger.Message> listed = new CompletableFuture<>();
+        connection.listVariables(frame, client.listener(debugger.Command.Variables(false), listed));
+        variables = HeadlessDebugClient.await(listed);
+      }
+      else {
+        expect(JavaProtocol.IdThreadLocation, client.request(debugger.Command.SetFrame(1)));
+        variables = client.request(debugger.Command.Variables(false));
+      }
+      expect(JavaProtocol.IdVariables, variables);
+
+      List<String> names = new ArrayList<>();
+      for (debugger.StringList list = (debugger.StringList)variables.params[0];
+           list != debugger.StringList.Terminator;
+           list = (debugger.StringList)list.params[1]) {
+        names.add((String)list.params[0]);
+      }
+      List<debugger.Message> values;
+      if (pipelined) {
+        values = fetchAll(client, frame, names);
+      }
+      else {
+        List<debugger.Command> gets = new ArrayList<>();
+        for (String name : names) {
+          gets.add(debugger.Command.GetStructured(false, name));
+        }
+        values = requestEach(client, gets);
+      }
+      long elapsed = System.nanoTime() - start;
+
+      for (debugger.Message value : values) {
+        expect(JavaProtocol.IdStructured, value);
+      }
+      debuggee.checkHealthy();
+      return elapsed;
+    }
+  }
+
+  /** Fetch the values through the runner's per-stop cache, and wait for all of them. */
+  private static List<debugger.Message> fetchAll(HeadlessDebugClient client,
+                                                 HxcppDebugConnection.FrameValues frame,
+                                                 List<String> names) throws IOException {
+    final List<CompletableFuture<debugger.Message>> futures = new ArrayList<>(names.size());
+    for (int i = 0; i < names.size(); ++i) {
+      futures.add(new CompletableFuture<>());
+    }
+    final AtomicInteger next = new AtomicInteger();
+    client.getConnection().fetchStructured(frame, names, new HxcppDebugConnection.MessageListener() {
+      public void handleMessage(int messageId, debugger.Message message) {
+        // Results come back in the order asked for.
+        futures.get(next.getAndIncrement()).complete(message);
+      }
+    });
+    List<debugger.Message> values = new ArrayList<>(names.size());
+    for (CompletableFuture<debugger.Message> future : futures) {
+      values.add(HeadlessDebugClient.await(future));
+    }
+    return values;
+  }
+
+  private static long addBreakpoints(boolean pipelined) throws IOException {
+    try (HeadlessDebugClient client = new HeadlessDebugClient();
+         FakeHxcppDebuggee debuggee = newDebuggee()) {
+      debuggee.start(client.getPort());
+      client.accept();
+
+      List<debugger.Command> commands = breakpointCommands();
+      long start = System.nanoTime();
+      List<debugger.Message> numbers = pipelined ? client.requestAll(commands) : requestEach(client, commands);
+      long elapsed = System.nanoTime() - start;
+
+      for (debugger.Message number : numbers) {
+        expect(JavaProtocol.IdFileLineBreakpointNumber, number);
+      }
+      debuggee.checkHealthy();
+      return elapsed;
+    }
+  }
+
+  private static long replay(RecordedSession recording, boolean pipelined) throws IOException {
+    try (HeadlessDebugClient client = new HeadlessDebugClient();
+         FakeHxcppDebuggee debuggee = new FakeHxcppDebuggee(recording, LATENCY_MICROS)) {
+      debuggee.start(client.getPort());
+      client.accept();
+
+      List<debugger.Command> commands = recording.getCommands();
+      long start = System.nanoTime();
+      if (pipelined) {
+        client.requestAll(commands);
+      }
+      else {
+        requestEach(client, commands);
+      }
+      long elapsed = System.nanoTime() - start;
+      debuggee.checkHealthy();
+      return elapsed;
+    }
+  }
+
+  private static FakeHxcppDebuggee newDebuggee() {
+    return new FakeHxcppDebuggee(new SimulatedProgram(STACK_DEPTH, VARIABLES, FIELDS), LATENCY_MICROS);
+  }
+
+  private static List<debugger.Command> breakpointCommands() {
+    List<debugger.Command> commands = new ArrayList<>(BREAKPOINTS);
+    for (int i = 0; i < BREAKPOINTS; ++i) {
+      commands.add(debugger.Command.AddFileLineBreakpoint("game/systems/System" + (i % 40) + ".hx", i + 1));
+    }
+    return commands;
+  }
+
+  private static List<debugger.Message> requestEach(HeadlessDebugClient client, List<debugger.Command> commands)
+    throws IOException {
+    List<debugger.Message> replies = new ArrayList<>(commands.size());
+    for (debugger.Command command : commands) {
+      replies.add(client.request(command));
+    }
+    return replies;
+  }
+
+  private static void expect(int messageId, debugger.Message message) throws IOException {
+    if (JavaProtocol.getMessageId(message) != messageId) {
+      throw new IOException("Unexpected reply: " + JavaProtocol.messageToString(message));
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.runner.debugger;
+
+import _JavaProtocol.InputAdapter;
+import _JavaProtocol.OutputAdapter;
+import haxe.lang.ParamEnum;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares {@link HxcppDebuggerCodec} with the generated debugger.HaxeProtocol code.
+ *
+ * Run it with the test class path:
+ * <pre>
+ *   java ... com.intellij.plugins.haxe.runner.debugger.HxcppDebuggerCodecBenchmark [session.bin ...]
+ * </pre>
+ * A session file is the raw byte stream that the debugged program sent (a
+ * series of length-prefixed messages), e.g. captured with a socket proxy.
+ * Without any files, a synthetic session with deep stacks, long variable lists
+ * and large structured values is used.
+ *
+ * This is a plain warm-up-then-measure loop rather than a JMH benchmark, since
+ * JMH isn't part of the build.  Use a quiet machine, and compare runs, not
+ * absolute numbers.
+ */
+public class HxcppDebuggerCodecBenchmark {
+
+  private static final int WARMUP_ROUNDS = 200;
+  private static final int MEASURED_ROUNDS = 100;
+
+  public static void main(final String[] args) throws Exception {
+    // The generated code recurses once per list element, so give it room.
+    final Exception[] failure = {null};
+    Thread thread = new Thread(null, () -> {
+      try {
+        run(args);
+      }
+      catch (Exception e) {
+        failure[0] = e;
+      }
+    }, "benchmark", 512L * 1024 * 1024);
+    thread.start();
+    thread.join();
+    if (null != failure[0]) {
+      throw failure[0];
+    }
+  }
+
+  private static void run(String[] args) throws IOException {
+    List<byte[]> session = new ArrayList<>();
+    if (args.length == 0) {
+      session.addAll(SyntheticSession.encode(SyntheticSession.messages(200, 2000, 500)));
+    }
+    for (String arg : args) {
+      session.addAll(splitFrames(Files.readAllBytes(Paths.get(arg))));
+    }
+
+    long bytes = 0;
+    for (byte[] frame : session) {
+      bytes += frame.length;
+    }
+    System.out.println("Session: " + session.size() + " messages, " + bytes + " bytes");
+
+    final List<byte[]> frames = session;
+    final HxcppDebuggerCodec codec = new HxcppDebuggerCodec();
+    final List<Object> decoded = new ArrayList<>();
+    for (byte[] frame : frames) {
+      decoded.add(codec.decode(frame, 8, frame.length - 8));
+    }
+
+    report("decode, generated", frames.size(), bytes, () -> {
+      for (byte[] frame : frames) {
+        debugger.HaxeProtocol.readMessage(new InputAdapter(new ByteArrayInputStream(frame)));
+      }
+    });
+    report("decode, codec    ", frames.size(), bytes, () -> {
+      for (byte[] frame : frames) {
+        codec.readMessage(new ByteArrayInputStream(frame));
+      }
+    });
+    report("encode, generated", frames.size(), bytes, () -> {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      for (Object message : decoded) {
+        out.reset();
+        debugger.HaxeProtocol.writeMessage(new OutputAdapter(out), (debugger.Message)message);
+      }
+    });
+    report("encode, codec    ", frames.size(), bytes, () -> {
+      for (Object message : decoded) {
+        codec.encode((ParamEnum)message);
+      }
+    });
+  }
+
+  interface Round {
+    void run() throws IOException;
+  }
+
+  private static void report(String name, int messages, long bytes, Round round) throws IOException {
+    for (int i = 0; i < WARMUP_ROUNDS; ++i) {
+      round.run();
+    }
+    long best = Long.MAX_VALUE;
+    long total = 0;
+    for (int i = 0; i < MEASURED_ROUNDS; ++i) {
+      long start = System.nanoTime();
+      round.run();
+      long elapsed = System.nanoTime() - start;
+      best = Math.min(best, elapsed);
+      total += elapsed;
+    }
+    System.out.printf("%s: %8.1f ns/message (best %8.1f), %7.1f MB/s%n",
+                      name,
+                      (double)total / MEASURED_ROUNDS / messages,
+                      (double)best / messages,
+                      bytes / (best / 1e9) / (1024 * 1024));
+  }
+
+  /**
+   * Split a captured byte stream into its length-prefixed messages.
+   */
+  static List<byte[]> splitFrames(byte[] stream) throws IOException {
+    List<byte[]> frames = new ArrayList<>();
+    int pos = 0;
+    while (pos + 8 <= stream.length) {
+      int length = Integer.parseInt(new String(stream, pos, 8, "ISO-8859-1"));
+      byte[] frame = new byte[8 + length];
+      System.arraycopy(stream, pos, frame, 0, frame.length);
+      frames.add(frame);
+      pos += frame.length;
+    }
+    return frames;
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.runner.debugger;
+
+import _JavaProtocol.InputAdapter;
+import _JavaProtocol.OutputAdapter;
+import haxe.lang.ParamEnum;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+public class HxcppDebuggerCodecTest extends TestCase {
+
+  private static byte[] generatedEncoding(Object value) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    debugger.HaxeProtocol.writeDynamic(new OutputAdapter(out), value);
+    return out.toByteArray();
+  }
+
+  private static void assertWireCompatible(ParamEnum value) throws IOException {
+    HxcppDebuggerCodec codec = new HxcppDebuggerCodec();
+
+    // Same bytes as the generated serializer.
+    byte[] expected = generatedEncoding(value);
+    int length = codec.encode(value);
+    assertEquals(new String(expected, "ISO-8859-1"), new String(codec.getEncoded(), 0, length, "ISO-8859-1"));
+
+    // Reads what the generated serializer writes.
+    Object decoded = codec.decode(expected, 8, expected.length - 8);
+    assertEquals(haxe.root.Std.string(value), haxe.root.Std.string(decoded));
+
+    // And the generated code reads what we write.
+    Object generated = debugger.HaxeProtocol.readDynamic(new InputAdapter(new ByteArrayInputStream(codec.getEncoded(), 0, length)));
+    assertEquals(haxe.root.Std.string(value), haxe.root.Std.string(generated));
+  }
+
+  public void testCommands() throws IOException {
+    assertWireCompatible(debugger.Command.AddFileLineBreakpoint("src/com/example/Main.hx", 42));
+    assertWireCompatible(debugger.Command.Classes(null));
+    assertWireCompatible(debugger.Command.ListBreakpoints(true, false));
+    assertWireCompatible(debugger.Command.SetFrame(0));
+    assertWireCompatible(debugger.Command.GetStructured(false, "this.children"));
+    assertWireCompatible(debugger.Command.WhereAllThreads);
+  }
+
+  public void testMessages() throws IOException {
+    assertWireCompatible(debugger.Message.OK);
+    assertWireCompatible(debugger.Message.ThreadLocation(1, 0, "Main", "main", "src/Main.hx", -1));
+    assertWireCompatible(debugger.Message.ThreadsWhere(
+      debugger.ThreadWhereList.Where(0, debugger.ThreadStatus.StoppedBreakpoint(3),
+                                     debugger.FrameList.Frame(true, 0, "Main", "main", "Main.hx", 10,
+                                       debugger.FrameList.Frame(false, 1, "Main", "new", "Main.hx", 4,
+                                                                debugger.FrameList.Terminator)),
+                                     debugger.ThreadWhereList.Terminator)));
+  }
+
+  public void testEscapedAndRepeatedStrings() throws IOException {
+    String odd = "a b/c%d+e\u00e9\u4e2d!~*'()";
+    assertWireCompatible(debugger.Message.Variables(
+      debugger.StringList.Element(odd, debugger.StringList.Element(odd, debugger.StringList.Terminator))));
+  }
+
+  public void testConstantsAreShared() throws IOException {
+    HxcppDebuggerCodec codec = new HxcppDebuggerCodec();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.writeMessage(out, debugger.Message.Variables(debugger.StringList.Terminator));
+    debugger.Message message = codec.readMessage(new ByteArrayInputStream(out.toByteArray()));
+
+    // The debugger compares list terminators by identity.
+    assertSame(debugger.StringList.Terminator, message.params[0]);
+  }
+
+  public void testEscapedConstructorNames() throws IOException {
+    // Haxe renames the "Array" constructor to "_Array" in Java; the wire uses the Haxe name.
+    HxcppDebuggerCodec codec = new HxcppDebuggerCodec();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.writeMessage(out, debugger.Message.Structured(
+      debugger.StructuredValue.List(debugger.StructuredValueListType._Array, debugger.StructuredValueList.Terminator)));
+    String wire = out.toString("ISO-8859-1");
+    assertTrue(wire, wire.contains("y5:Array"));
+
+    debugger.Message message = codec.readMessage(new ByteArrayInputStream(out.toByteArray()));
+    assertSame(debugger.StructuredValueListType._Array, ((debugger.StructuredValue)message.params[0]).params[0]);
+  }
+
+  public void testLongListsDoNotExhaustTheStack() throws IOException {
+    HxcppDebuggerCodec codec = new HxcppDebuggerCodec();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.writeMessage(out, debugger.Message.Breakpoints(SyntheticSession.breakpoints(100000)));
+    debugger.Message message = codec.readMessage(new ByteArrayInputStream(out.toByteArray()));
+
+    int count = 0;
+    debugger.BreakpointList list = (debugger.BreakpointList)message.params[0];
+    while (list != debugger.BreakpointList.Terminator) {
+      assertEquals(++count, ((Integer)list.params[0]).intValue());
+      list = (debugger.BreakpointList)list.params[4];
+    }
+    assertEquals(100000, count);
+  }
+
+  public void testReadsSeveralMessagesFromOneStream() throws IOException {
+    HxcppDebuggerCodec codec = new HxcppDebuggerCodec();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.writeMessage(out, debugger.Message.ThreadStarted(1));
+    codec.writeMessage(out, debugger.Message.OK);
+    ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+
+    assertEquals("ThreadStarted(1)", haxe.root.Std.string(codec.readMessage(in)));
+    assertSame(debugger.Message.OK, codec.readMessage(in));
+  }
+
+  public void testCommandBurstMatchesSeparateWrites() throws IOException {
+    List<debugger.Command> commands = Arrays.asList(debugger.Command.SetFrame(2),
+                                                    debugger.Command.GetStructured(false, "this"),
+                                                    debugger.Command.GetStructured(false, "this.x"));
+    HxcppDebuggerCodec codec = new HxcppDebuggerCodec();
+    ByteArrayOutputStream separate = new ByteArrayOutputStream();
+    for (debugger.Command command : commands) {
+      codec.writeCommand(separate, command);
+    }
+    ByteArrayOutputStream burst = new ByteArrayOutputStream();
+    codec.writeCommands(burst, commands);
+
+    assertTrue(Arrays.equals(separate.toByteArray(), burst.toByteArray()));
+  }
+}
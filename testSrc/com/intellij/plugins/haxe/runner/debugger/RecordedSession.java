@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.runner.debugger;
+
+import haxe.lang.ParamEnum;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A debugger session that was recorded, and that {@link FakeHxcppDebuggee}
+ * can play back.
+ *
+ * A recording is text, one command or message per line, in the protocol's own
+ * serialization (without the length header):
+ * <pre>
+ *   # A comment
+ *   &lt;- the greeting, e.g. the first ThreadStopped
+ *   -&gt; a command from the IDE
+ *   &lt;- its reply
+ *   &lt;- any events that followed it
+ * </pre>
+ * When a command arrives, the messages recorded after the next matching
+ * command are played back; if it doesn't come up again, the earlier part of
+ * the recording is searched too, so that a session can be stepped through
+ * more than once.
+ */
+class RecordedSession implements FakeHxcppDebuggee.Script {
+
+  private static final String COMMAND_PREFIX = "-> ";
+  private static final String MESSAGE_PREFIX = "<- ";
+  private static final int HEADER_LENGTH = 8;
+
+  private final List<ParamEnum> myEntries = new ArrayList<>();
+  private final HxcppDebuggerCodec myCodec = new HxcppDebuggerCodec();
+  private int myCursor;
+
+  static RecordedSession load(Reader reader) throws IOException {
+    RecordedSession session = new RecordedSession();
+    BufferedReader lines = new BufferedReader(reader);
+    int lineNumber = 0;
+    for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+      ++lineNumber;
+      if (line.trim().isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      boolean isCommand = line.startsWith(COMMAND_PREFIX);
+      if (!isCommand && !line.startsWith(MESSAGE_PREFIX)) {
+        throw new IOException("Line " + lineNumber + ": expected '->' or '<-'");
+      }
+      byte[] body = line.substring(COMMAND_PREFIX.length()).getBytes(StandardCharsets.US_ASCII);
+      Object value;
+      try {
+        value = session.myCodec.decode(body, 0, body.length);
+      }
+      catch (RuntimeException e) {
+        throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+      }
+      if (isCommand ? !(value instanceof debugger.Command) : !(value instanceof debugger.Message)) {
+        throw new IOException("Line " + lineNumber + ": expected a " + (isCommand ? "command" : "message"));
+      }
+      session.myEntries.add((ParamEnum)value);
+    }
+    return session;
+  }
+
+  synchronized void add(debugger.Command command) {
+    myEntries.add(command);
+  }
+
+  synchronized void add(debugger.Message message) {
+    myEntries.add(message);
+  }
+
+  synchronized void save(Writer writer) throws IOException {
+    for (ParamEnum entry : myEntries) {
+      int length = myCodec.encode(entry);
+      writer.write(entry instanceof debugger.Command ? COMMAND_PREFIX : MESSAGE_PREFIX);
+      writer.write(new String(myCodec.getEncoded(), HEADER_LENGTH, length - HEADER_LENGTH, StandardCharsets.US_ASCII));
+      writer.write('\n');
+    }
+    writer.flush();
+  }
+
+  /** The commands in the recording, in the order that they were sent. */
+  synchronized List<debugger.Command> getCommands() {
+    List<debugger.Command> commands = new ArrayList<>();
+    for (ParamEnum entry : myEntries) {
+      if (entry instanceof debugger.Command) {
+        commands.add((debugger.Command)entry);
+      }
+    }
+    return commands;
+  }
+
+  @Override
+  public synchronized List<debugger.Message> greeting() {
+    return messagesFrom(0);
+  }
+
+  @Override
+  public synchronized List<debugger.Message> respond(debugger.Command command) {
+    int found = find(command, myCursor, myEntries.size());
+    if (found < 0) {
+      found = find(command, 0, myCursor);
+    }
+    if (found < 0) {
+      return Collections.singletonList(debugger.Message.ErrorInternal("Not in the recording: " + command));
+    }
+    List<debugger.Message> replies = messagesFrom(found + 1);
+    myCursor = found + 1 + replies.size();
+    return replies;
+  }
+
+  private int find(debugger.Command command, int from, int to) {
+    for (int i = from; i < to; ++i) {
+      if (command.equals(myEntries.get(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private List<debugger.Message> messagesFrom(int index) {
+    List<debugger.Message> messages = new ArrayList<>();
+    for (int i = index; i < myEntries.size() && myEntries.get(i) instanceof debugger.Message; ++i) {
+      messages.add((debugger.Message)myEntries.get(i));
+    }
+    return messages;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.runner.debugger;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A made-up program for {@link FakeHxcppDebuggee} to pretend to be.  It stops
+ * at a breakpoint on start-up and after every continue or step, and shows a
+ * stack, locals and structured values of whatever size was asked for.  See
+ * {@link SyntheticSession} for what they look like.
+ */
+class SimulatedProgram implements FakeHxcppDebuggee.Script {
+
+  private static final int THREAD = 0;
+
+  private final int myStackDepth;
+  private final debugger.Message myWhere;
+  private final debugger.Message myVariableNames;
+  private final debugger.Message myStructured;
+  private int myBreakpointCount;
+
+  /**
+   * @param stackDepth number of frames on the stopped thread.
+   * @param variables  number of locals in each frame.
+   * @param fields     number of fields in each structured value.
+   */
+  SimulatedProgram(int stackDepth, int variables, int fields) {
+    myStackDepth = stackDepth;
+    // The program never moves, so the answers can be built once.
+    myWhere = debugger.Message.ThreadsWhere(
+      debugger.ThreadWhereList.Where(THREAD, debugger.ThreadStatus.StoppedBreakpoint(1),
+                                     SyntheticSession.frames(stackDepth), debugger.ThreadWhereList.Terminator));
+    myVariableNames = debugger.Message.Variables(SyntheticSession.variableNames(variables));
+    myStructured = debugger.Message.Structured(SyntheticSession.structuredValue(fields));
+  }
+
+  @Override
+  public List<debugger.Message> greeting() {
+    return Collections.singletonList(stopped(0));
+  }
+
+  @Override
+  public synchronized List<debugger.Message> respond(debugger.Command command) {
+    switch (command.getTag()) {
+      case "Classes":
+        return reply(debugger.Message.Classes(
+          debugger.ClassList.Element("game.World", true, debugger.ClassList.Terminator)));
+      case "AddFileLineBreakpoint":
+        return reply(debugger.Message.FileLineBreakpointNumber(++myBreakpointCount));
+      case "DeleteBreakpointRange":
+        return reply(debugger.Message.BreakpointStatuses(
+          debugger.BreakpointStatusList.Deleted((Integer)command.params[0], debugger.BreakpointStatusList.Terminator)));
+      case "ListBreakpoints":
+        return reply(debugger.Message.Breakpoints(SyntheticSession.breakpoints(myBreakpointCount)));
+      case "BreakNow":
+      case "Continue":
+      case "Step":
+      case "Next":
+      case "Finish":
+        return Arrays.asList(debugger.Message.OK, debugger.Message.ThreadStarted(THREAD), stopped(0));
+      case "WhereCurrentThread":
+        return reply(myWhere);
+      case "SetCurrentThread":
+        int thread = (Integer)command.params[0];
+        if (thread != THREAD) {
+          return reply(debugger.Message.ErrorNoSuchThread(thread));
+        }
+        return reply(location(0));
+      case "SetFrame":
+        int frame = (Integer)command.params[0];
+        if (frame < 0 || frame >= myStackDepth) {
+          return reply(debugger.Message.ErrorBadCount(frame));
+        }
+        return reply(location(frame));
+      case "Variables":
+        return reply(myVariableNames);
+      case "GetStructured":
+        return reply(myStructured);
+      case "Detach":
+        return reply(debugger.Message.Detached);
+      case "Exit":
+        return reply(debugger.Message.Exited);
+      default:
+        return reply(debugger.Message.ErrorInternal("Not simulated: " + command.getTag()));
+    }
+  }
+
+  private static List<debugger.Message> reply(debugger.Message message) {
+    return Collections.singletonList(message);
+  }
+
+  private static debugger.Message stopped(int frame) {
+    return debugger.Message.ThreadStopped(THREAD, frame, "game.World", "update", "game/World.hx", 120);
+  }
+
+  private static debugger.Message location(int frame) {
+    return debugger.Message.ThreadLocation(THREAD, frame, "game.systems.System" + (frame % 40), "update" + (frame % 7),
+                                           "game/systems/System" + (frame % 40) + ".hx", 10 + frame);
+  }
+}
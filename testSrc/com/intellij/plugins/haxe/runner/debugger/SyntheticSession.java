@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.runner.debugger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds debugger messages that look like those from a large program: a deep
+ * stack, many local variables, big structured values and lots of breakpoints.
+ */
+class SyntheticSession {
+
+  private SyntheticSession() {
+  }
+
+  /**
+   * Messages for one stop: the stop itself, the stack, the variable names,
+   * a structured value and the breakpoint list.
+   *
+   * @param stackDepth   number of frames on the stopped thread.
+   * @param variables    number of local variables, and of fields in the structured value.
+   * @param breakpoints  number of breakpoints listed.
+   */
+  static List<debugger.Message> messages(int stackDepth, int variables, int breakpoints) {
+    return Arrays.asList(
+      debugger.Message.ThreadStopped(0, 0, "game.World", "update", "game/World.hx", 120),
+      debugger.Message.ThreadsWhere(debugger.ThreadWhereList.Where(0, debugger.ThreadStatus.StoppedBreakpoint(1),
+                                                                   frames(stackDepth),
+                                                                   debugger.ThreadWhereList.Terminator)),
+      debugger.Message.Variables(variableNames(variables)),
+      debugger.Message.Structured(structuredValue(variables)),
+      debugger.Message.Breakpoints(breakpoints(breakpoints)),
+      debugger.Message.OK
+    );
+  }
+
+  static debugger.FrameList frames(int depth) {
+    debugger.FrameList frames = debugger.FrameList.Terminator;
+    for (int i = depth - 1; i >= 0; --i) {
+      frames = debugger.FrameList.Frame(i == 0, i, "game.systems.System" + (i % 40), "update" + (i % 7),
+                                        "game/systems/System" + (i % 40) + ".hx", 10 + i, frames);
+    }
+    return frames;
+  }
+
+  static debugger.StringList variableNames(int count) {
+    debugger.StringList names = debugger.StringList.Terminator;
+    for (int i = count - 1; i >= 0; --i) {
+      names = debugger.StringList.Element("local" + i, names);
+    }
+    return names;
+  }
+
+  static debugger.StructuredValue structuredValue(int fields) {
+    debugger.StructuredValueList list = debugger.StructuredValueList.Terminator;
+    for (int i = fields - 1; i >= 0; --i) {
+      debugger.StructuredValue value = (i % 3 == 0)
+        ? debugger.StructuredValue.Elided(debugger.StructuredValueType.TypeInstance("game.Entity"), "this.entities[" + i + "]")
+        : debugger.StructuredValue.Single(debugger.StructuredValueType.TypeInt, Integer.toString(i * 31));
+      list = debugger.StructuredValueList.Element("field" + i, value, list);
+    }
+    return debugger.StructuredValue.List(debugger.StructuredValueListType.Instance("game.World"), list);
+  }
+
+  static debugger.BreakpointList breakpoints(int count) {
+    debugger.BreakpointList list = debugger.BreakpointList.Terminator;
+    for (int i = count; i >= 1; --i) {
+      list = debugger.BreakpointList.Breakpoint(i, "game/systems/System" + (i % 40) + ".hx:" + i, true, false, list);
+    }
+    return list;
+  }
+
+  /**
+   * Encode messages the way the debugged program sends them.
+   */
+  static List<byte[]> encode(List<debugger.Message> messages) {
+    HxcppDebuggerCodec codec = new HxcppDebuggerCodec();
+    List<byte[]> frames = new ArrayList<>(messages.size());
+    for (debugger.Message message : messages) {
+      int length = codec.encode(message);
+      frames.add(Arrays.copyOf(codec.getEncoded(), length));
+    }
+    return frames;
+  }
+}
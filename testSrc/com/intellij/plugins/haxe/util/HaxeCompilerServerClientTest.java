@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.util;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class HaxeCompilerServerClientTest extends TestCase {
+
+  /** Stands in for "haxe --wait": answers the first request with a canned response. */
+  private static class FakeServer implements AutoCloseable {
+    final ServerSocket socket;
+    final AtomicReference<String> request = new AtomicReference<>();
+    final Thread thread;
+
+    FakeServer(String response) throws IOException {
+      socket = new ServerSocket(0, 1, InetAddress.getByName(HaxeCompilerServerClient.LOCALHOST));
+      thread = new Thread(() -> {
+        // Health checks connect and hang up without sending anything; keep going until a real request.
+        while (null == request.get() && !socket.isClosed()) {
+          try (Socket client = socket.accept()) {
+            InputStream in = client.getInputStream();
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) > 0) {
+              received.write(b);
+            }
+            if (b < 0) continue;
+            request.set(new String(received.toByteArray(), StandardCharsets.UTF_8));
+            OutputStream out = client.getOutputStream();
+            out.write(response.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+          }
+          catch (IOException e) {
+            return;  // Closed; the test will fail on the missing request.
+          }
+        }
+      });
+      thread.start();
+    }
+
+    int getPort() {
+      return socket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws Exception {
+      socket.close();
+      thread.join(5000);
+    }
+  }
+
+  public void testEncodeRequest() {
+    byte[] encoded = HaxeCompilerServerClient.encodeRequest(Arrays.asList("-cp", "src", "--display", "Main.hx@10"), "/work");
+    assertEquals("--cwd\n/work\n-cp\nsrc\n--display\nMain.hx@10\n\0", new String(encoded, StandardCharsets.UTF_8));
+  }
+
+  public void testDecodeResponse() {
+    HaxeCompilerServerClient.Result result =
+      HaxeCompilerServerClient.decodeResponse("<list>\n<i n=\"foo\"/>\n</list>\n\u0001trace one\u0001trace two\n");
+    assertEquals(Arrays.asList("<list>", "<i n=\"foo\"/>", "</list>"), result.stderr);
+    assertEquals(Arrays.asList("trace one", "trace two"), result.stdout);
+    assertEquals(0, result.exitCode);
+  }
+
+  public void testDecodeErrorResponse() {
+    HaxeCompilerServerClient.Result result =
+      HaxeCompilerServerClient.decodeResponse("Main.hx:3: characters 1-4 : Unexpected foo\n\u0002\n");
+    assertEquals(Arrays.asList("Main.hx:3: characters 1-4 : Unexpected foo"), result.stderr);
+    assertEquals(1, result.exitCode);
+  }
+
+  public void testRoundTrip() throws Exception {
+    try (FakeServer server = new FakeServer("<type>Int</type>\n")) {
+      HaxeCompilerServerClient client = new HaxeCompilerServerClient(server.getPort(), 1000);
+      assertTrue(client.isListening());
+      HaxeCompilerServerClient.Result result = client.run(Arrays.asList("--display", "Main.hx@0"), null, 5000);
+      assertEquals("--display\nMain.hx@0\n", server.request.get());
+      assertEquals(Arrays.asList("<type>Int</type>"), result.stderr);
+      assertEquals(0, result.exitCode);
+    }
+  }
+
+  public void testNotListening() throws Exception {
+    int port;
+    try (ServerSocket unused = new ServerSocket(0)) {
+      port = unused.getLocalPort();
+    }
+    HaxeCompilerServerClient client = new HaxeCompilerServerClient(port, 200);
+    assertFalse(client.isListening());
+    try {
+      client.run(Arrays.asList("-version"), null, 1000);
+      fail("Expected the connection to be refused.");
+    }
+    catch (IOException expected) {
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-call overhead of {@link HaxeProcessRunner} against the sleep-and-poll
+ * loop that HaxeProcessUtil used before, both running "java -version".
+ *
+ * Run it with the test class path:
+ * <pre>
+ *   java -Dcalls=10 ... com.intellij.plugins.haxe.util.HaxeProcessRunnerBenchmark
+ * </pre>
+ * The numbers depend too much on the machine to assert on; compare runs.
+ */
+public class HaxeProcessRunnerBenchmark {
+
+  private static final int CALLS = Integer.getInteger("calls", 10);
+
+  public static void main(String[] args) throws Exception {
+    final List<String> command = HaxeProcessRunnerTest.javaCommand("-version");
+
+    // Warm up both.
+    pollingRun(command);
+    HaxeProcessRunner.start(command, new HaxeProcessRunner.Options()).get();
+
+    long start = System.nanoTime();
+    for (int i = 0; i < CALLS; i++) {
+      pollingRun(command);
+    }
+    long polling = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < CALLS; i++) {
+      HaxeProcessRunner.start(command, new HaxeProcessRunner.Options()).get();
+    }
+    long async = System.nanoTime() - start;
+
+    System.out.println(String.format("Process runner, mean of %d calls: polling loop %.2fms, async runner %.2fms",
+                                     CALLS, polling / 1e6 / CALLS, async / 1e6 / CALLS));
+  }
+
+  /** The loop that HaxeProcessUtil.runProcess used to run. */
+  private static int pollingRun(List<String> command) throws IOException {
+    Process process = new ProcessBuilder(command).start();
+    BufferedReader stdout = new BufferedReader(new InputStreamReader(process.getInputStream()));
+    BufferedReader stderr = new BufferedReader(new InputStreamReader(process.getErrorStream()));
+    List<String> lines = new ArrayList<>();
+    do {
+      try {
+        Thread.sleep(2);
+      }
+      catch (InterruptedException e) {
+        // Swallow it.
+      }
+      while (stdout.ready()) lines.add(stdout.readLine());
+      while (stderr.ready()) lines.add(stderr.readLine());
+    }
+    while (process.isAlive());
+    while (stdout.ready()) lines.add(stdout.readLine());
+    while (stderr.ready()) lines.add(stderr.readLine());
+    return process.exitValue();
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.util;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+public class HaxeProcessRunnerTest extends TestCase {
+
+  private static final String JAVA = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+  static List<String> javaCommand(String... args) {
+    List<String> command = new ArrayList<>();
+    command.add(JAVA);
+    command.addAll(Arrays.asList(args));
+    return command;
+  }
+
+  public void testCapturesSeparateStreams() throws Exception {
+    // "java -version" writes to stderr only.
+    HaxeProcessUtil.Result result = HaxeProcessRunner.start(javaCommand("-version"), new HaxeProcessRunner.Options()).get();
+    assertEquals(0, result.exitCode);
+    assertTrue(result.stdout.isEmpty());
+    assertFalse(result.stderr.isEmpty());
+  }
+
+  public void testMixedOutput() throws Exception {
+    HaxeProcessUtil.Result result =
+      HaxeProcessRunner.start(javaCommand("-version"), new HaxeProcessRunner.Options().mixedOutput(true)).get();
+    assertFalse(result.stdout.isEmpty());
+    assertTrue(result.stderr.isEmpty());
+  }
+
+  public void testBoundedOutput() throws Exception {
+    HaxeProcessUtil.Result result =
+      HaxeProcessRunner.start(javaCommand("-version"), new HaxeProcessRunner.Options().maxOutputLines(1)).get();
+    assertEquals(1, result.stderr.size());
+  }
+
+  public void testExitCode() throws Exception {
+    HaxeProcessUtil.Result result =
+      HaxeProcessRunner.start(javaCommand("-no-such-option"), new HaxeProcessRunner.Options()).get();
+    assertTrue(0 != result.exitCode);
+  }
+
+  public void testStartFailure() throws Exception {
+    try {
+      HaxeProcessRunner.start(Arrays.asList("no-such-command-for-haxe-tests"), new HaxeProcessRunner.Options()).get();
+      fail("Expected the process to fail to start.");
+    }
+    catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+  }
+
+  public void testTimeout() throws Exception {
+    // A JVM doesn't start in 1ms.
+    try {
+      HaxeProcessRunner.start(javaCommand("-version"), new HaxeProcessRunner.Options().timeout(1)).get();
+      fail("Expected a timeout.");
+    }
+    catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof TimeoutException);
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.util;
+
+import junit.framework.TestCase;
+
+public class HaxeRecursionGuardTest extends TestCase {
+
+  public void testIdentityNotEquality() {
+    HaxeRecursionGuard<String> guard = new HaxeRecursionGuard<>("test");
+    String first = new String("foo");
+    String second = new String("foo");
+
+    assertTrue(guard.enter(first));
+    assertFalse(guard.enter(first));
+    assertTrue(guard.enter(second));  // Same text, different element.
+    assertEquals(2, guard.getDepth());
+
+    guard.exit(second);
+    guard.exit(first);
+    assertEquals(0, guard.getDepth());
+    assertEquals(2, guard.getMaxDepth());
+    assertTrue(guard.enter(first));
+    guard.exit(first);
+  }
+
+  public void testClear() {
+    HaxeRecursionGuard<Object> guard = new HaxeRecursionGuard<>("test");
+    Object element = new Object();
+
+    assertTrue(guard.enter(element));
+    assertTrue(guard.isActive(element));
+    guard.clear();
+    assertFalse(guard.isActive(element));
+    assertEquals(0, guard.getMaxDepth());
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Eric Bishton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.plugins.haxe.util;
+
+import com.intellij.plugins.haxe.HaxeCodeInsightFixtureTestCase;
+import com.intellij.plugins.haxe.ide.index.HaxeInheritanceDefinitionsSearcher;
+import com.intellij.plugins.haxe.lang.psi.HaxeClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class HaxeSuperTypeClosureTest extends HaxeCodeInsightFixtureTestCase {
+  @Override
+  protected String getBasePath() {
+    return "/util/";
+  }
+
+  private PsiFile myBase;
+  private PsiFile myOther;
+  private PsiFile mySubs;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myBase = myFixture.addFileToProject("base/Base.hx",
+                                        "package base;\n" +
+                                        "class Base {}\n" +
+                                        "interface Marker {}\n");
+    myOther = myFixture.addFileToProject("other/Base.hx",
+                                         "package other;\n" +
+                                         "class Base {}\n");
+    mySubs = myFixture.addFileToProject("subs/Subs.hx",
+                                        "package subs;\n" +
+                                        "import base.Base;\n" +
+                                        "import base.Marker;\n" +
+                                        "class Middle extends Base {}\n" +
+                                        "class Leaf extends Middle implements Marker {}\n" +
+                                        "class Stranger extends other.Base {}\n" +
+                                        "class StrangerChild extends Stranger {}\n");
+  }
+
+  private static HaxeClass findClass(PsiFile file, String name) {
+    for (HaxeClass haxeClass : PsiTreeUtil.findChildrenOfType(file, HaxeClass.class)) {
+      if (name.equals(haxeClass.getName())) {
+        return haxeClass;
+      }
+    }
+    fail("No class named " + name);
+    return null;
+  }
+
+  private static Set<String> names(List<HaxeClass> classes) {
+    final Set<String> names = new HashSet<String>();
+    for (HaxeClass haxeClass : classes) {
+      names.add(haxeClass.getQualifiedName());
+    }
+    return names;
+  }
+
+  public void testClosureIsTransitive() {
+    final HaxeClass leaf = findClass(mySubs, "Leaf");
+    final Set<String> supers = new HashSet<String>(HaxeSuperTypeClosure.getSuperTypeNames(leaf));
+    assertTrue(supers.toString(), supers.contains("subs.Middle"));
+    assertTrue(supers.toString(), supers.contains("base.Base"));
+    assertTrue(supers.toString(), supers.contains("base.Marker"));
+    assertFalse(supers.toString(), supers.contains("other.Base"));
+
+    assertTrue(HaxeSuperTypeClosure.isSubTypeOf(leaf, "base.Base"));
+    assertFalse(HaxeSuperTypeClosure.isSubTypeOf(leaf, "other.Base"));
+  }
+
+  public void testLookupDoesNotAddNames() {
+    final HaxeClass leaf = findClass(mySubs, "Leaf");
+    HaxeSuperTypeClosure.getSuperTypeIds(leaf);
+
+    final HaxeQualifiedNameIds table = HaxeQualifiedNameIds.getInstance(getProject());
+    final int size = table.size();
+    assertFalse(HaxeSuperTypeClosure.isSubTypeOf(leaf, "no.such.Type"));
+    assertEquals(0, table.getId("no.such.Type"));
+    assertEquals(size, table.size());
+  }
+
+  public void testTableBelongsToTheProject() {
+    assertSame(HaxeQualifiedNameIds.getInstance(getProject()), HaxeQualifiedNameIds.getInstance(getProject()));
+    final int id = HaxeQualifiedNameIds.getInstance(getProject()).intern("pack.Name");
+    assertEquals("pack.Name", HaxeQualifiedNameIds.getInstance(getProject()).getName(id));
+  }
+
+  public void testInheritorsSearchUsesTheClosure() {
+    final Set<String> inheritors = names(HaxeInheritanceDefinitionsSearcher.getItemsByQName(findClass(myBase, "Base")));
+    assertTrue(inheritors.toString(), inheritors.contains("subs.Middle"));
+    assertTrue(inheritors.toString(), inheritors.contains("subs.Leaf"));
+    // Same short name, different class.
+    assertFalse(inheritors.toString(), inheritors.contains("subs.Stranger"));
+    assertFalse(inheritors.toString(), inheritors.contains("subs.StrangerChild"));
+
+    final Set<String> strangers = names(HaxeInheritanceDefinitionsSearcher.getItemsByQName(findClass(myOther, "Base")));
+    assertTrue(strangers.toString(), strangers.contains("subs.Stranger"));
+    assertTrue(strangers.toString(), strangers.contains("subs.StrangerChild"));
+    assertFalse(strangers.toString(), strangers.contains("subs.Middle"));
+  }
+}